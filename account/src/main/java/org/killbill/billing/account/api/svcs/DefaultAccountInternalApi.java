@@ -18,7 +18,14 @@
 
 package org.killbill.billing.account.api.svcs;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -28,6 +35,8 @@ import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountEmail;
+import org.killbill.billing.account.api.AccountImportItem;
+import org.killbill.billing.account.api.AccountImportResult;
 import org.killbill.billing.account.api.AccountInternalApi;
 import org.killbill.billing.account.api.DefaultAccount;
 import org.killbill.billing.account.api.DefaultAccountEmail;
@@ -38,6 +47,7 @@ import org.killbill.billing.account.api.MutableAccountData;
 import org.killbill.billing.account.api.user.DefaultAccountApiBase;
 import org.killbill.billing.account.dao.AccountDao;
 import org.killbill.billing.account.dao.AccountEmailModelDao;
+import org.killbill.billing.account.dao.AccountImportModelDao;
 import org.killbill.billing.account.dao.AccountModelDao;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -46,28 +56,37 @@ import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheLoaderArgument;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.customfield.dao.CustomFieldModelDao;
 import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.tag.dao.TagModelDao;
 
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 public class DefaultAccountInternalApi extends DefaultAccountApiBase implements AccountInternalApi {
 
     private final ImmutableAccountInternalApi immutableAccountInternalApi;
     private final AccountDao accountDao;
     private final CacheController<UUID, Integer> bcdCacheController;
+    private final InternalCallContextFactory internalCallContextFactory;
 
     @Inject
     public DefaultAccountInternalApi(final ImmutableAccountInternalApi immutableAccountInternalApi,
                                      final AccountDao accountDao,
                                      final NonEntityDao nonEntityDao,
-                                     final CacheControllerDispatcher cacheControllerDispatcher) {
+                                     final CacheControllerDispatcher cacheControllerDispatcher,
+                                     final InternalCallContextFactory internalCallContextFactory) {
         super(accountDao, nonEntityDao, cacheControllerDispatcher);
         this.immutableAccountInternalApi = immutableAccountInternalApi;
         this.accountDao = accountDao;
         this.bcdCacheController = cacheControllerDispatcher.getCacheController(CacheType.ACCOUNT_BCD);
+        this.internalCallContextFactory = internalCallContextFactory;
     }
 
     @Override
@@ -188,4 +207,69 @@ public class DefaultAccountInternalApi extends DefaultAccountApiBase implements
                                                                         }
                                                                     }));
     }
+
+    @Override
+    public Iterator<AccountImportResult> importAccounts(final Iterator<AccountImportItem> items, final int batchSize, final CallContext context) {
+        Preconditions.checkArgument(batchSize > 0, "batchSize should be positive");
+        final InternalCallContext internalContext = internalCallContextFactory.createInternalCallContextWithoutAccountRecordId(context);
+        return new AbstractIterator<AccountImportResult>() {
+
+            private Iterator<AccountImportResult> batchResults = ImmutableList.<AccountImportResult>of().iterator();
+
+            @Override
+            protected AccountImportResult computeNext() {
+                while (!batchResults.hasNext()) {
+                    if (!items.hasNext()) {
+                        return endOfData();
+                    }
+
+                    final List<AccountImportItem> batch = new ArrayList<AccountImportItem>(batchSize);
+                    while (items.hasNext() && batch.size() < batchSize) {
+                        batch.add(items.next());
+                    }
+                    batchResults = importAccounts(batch, internalContext).iterator();
+                }
+                return batchResults.next();
+            }
+        };
+    }
+
+    // The results are in the order of the items
+    private List<AccountImportResult> importAccounts(final List<AccountImportItem> items, final InternalCallContext context) {
+        final AccountImportResult[] results = new AccountImportResult[items.size()];
+        final List<AccountImportModelDao> rows = new ArrayList<AccountImportModelDao>(items.size());
+        final Map<UUID, Integer> indexes = new HashMap<UUID, Integer>();
+        for (int i = 0; i < items.size(); i++) {
+            final AccountImportItem item = items.get(i);
+            final AccountModelDao account = item.getAccountId() == null ? new AccountModelDao(item.getAccountData()) : new AccountModelDao(item.getAccountId(), item.getAccountData());
+            // See DefaultAccountUserApi#createAccount
+            if (account.getExternalKey().length() > 255) {
+                results[i] = new AccountImportResult(item, null, new AccountApiException(ErrorCode.EXTERNAL_KEY_LIMIT_EXCEEDED));
+                continue;
+            }
+            if (indexes.containsKey(account.getId())) {
+                results[i] = new AccountImportResult(item, null, new AccountApiException(ErrorCode.ACCOUNT_ALREADY_EXISTS, account.getId()));
+                continue;
+            }
+            indexes.put(account.getId(), i);
+
+            final List<TagModelDao> tags = new LinkedList<TagModelDao>();
+            for (final UUID tagDefinitionId : ImmutableSet.<UUID>copyOf(item.getTagDefinitionIds())) {
+                tags.add(new TagModelDao(context.getCreatedDate(), tagDefinitionId, account.getId(), ObjectType.ACCOUNT));
+            }
+            final List<CustomFieldModelDao> customFields = new LinkedList<CustomFieldModelDao>();
+            for (final Entry<String, String> customField : item.getCustomFields().entrySet()) {
+                customFields.add(new CustomFieldModelDao(context.getCreatedDate(), customField.getKey(), customField.getValue(), account.getId(), ObjectType.ACCOUNT));
+            }
+            rows.add(new AccountImportModelDao(account, tags, customFields));
+        }
+
+        final Map<UUID, AccountApiException> failures = accountDao.importAccounts(rows, context);
+        for (final AccountImportModelDao row : rows) {
+            final int i = indexes.get(row.getAccount().getId());
+            final AccountApiException failure = failures.get(row.getAccount().getId());
+            results[i] = new AccountImportResult(items.get(i), failure == null ? new DefaultAccount(row.getAccount()) : null, failure);
+        }
+        return Arrays.asList(results);
+    }
 }
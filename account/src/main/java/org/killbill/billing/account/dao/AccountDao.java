@@ -19,6 +19,7 @@
 package org.killbill.billing.account.dao;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.account.api.Account;
@@ -61,5 +62,12 @@ public interface AccountDao extends EntityDao<AccountModelDao, Account, AccountA
 
     List<AuditLogWithHistory> getAuditLogsWithHistoryForId(UUID accountId, AuditLevel auditLevel, InternalTenantContext context) throws AccountApiException;
 
+    /**
+     * Create the accounts, with their tags and custom fields, in one transaction
+     *
+     * @return the rows which couldn't be imported (the other ones are committed), by account id
+     */
+    Map<UUID, AccountApiException> importAccounts(List<AccountImportModelDao> rows, InternalCallContext context);
+
     List<AuditLogWithHistory> getEmailAuditLogsWithHistoryForId(UUID accountEmailId, AuditLevel auditLevel, InternalTenantContext context) throws AccountApiException;
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.account.dao;
+
+import java.util.List;
+
+import org.killbill.billing.util.customfield.dao.CustomFieldModelDao;
+import org.killbill.billing.util.tag.dao.TagModelDao;
+
+// An account to import, with its tags and custom fields (see AccountDao#importAccounts)
+public class AccountImportModelDao {
+
+    private final AccountModelDao account;
+    private final List<TagModelDao> tags;
+    private final List<CustomFieldModelDao> customFields;
+
+    public AccountImportModelDao(final AccountModelDao account, final List<TagModelDao> tags, final List<CustomFieldModelDao> customFields) {
+        this.account = account;
+        this.tags = tags;
+        this.customFields = customFields;
+    }
+
+    public AccountModelDao getAccount() {
+        return account;
+    }
+
+    public List<TagModelDao> getTags() {
+        return tags;
+    }
+
+    public List<CustomFieldModelDao> getCustomFields() {
+        return customFields;
+    }
+}
@@ -18,14 +18,23 @@
 
 package org.killbill.billing.account.dao;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.inject.Named;
 
 import org.killbill.billing.BillingExceptionBase;
 import org.killbill.billing.ErrorCode;
+import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.DefaultImmutableAccountData;
@@ -38,6 +47,8 @@ import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.entity.EntityPersistenceException;
 import org.killbill.billing.events.AccountChangeInternalEvent;
 import org.killbill.billing.events.AccountCreationInternalEvent;
+import org.killbill.billing.events.BusInternalEvent;
+import org.killbill.billing.events.TagInternalEvent;
 import org.killbill.billing.util.api.AuditLevel;
 import org.killbill.billing.util.audit.AuditLogWithHistory;
 import org.killbill.billing.util.audit.ChangeType;
@@ -46,6 +57,9 @@ import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.customfield.api.DefaultCustomFieldCreationEvent;
+import org.killbill.billing.util.customfield.dao.CustomFieldModelDao;
+import org.killbill.billing.util.customfield.dao.CustomFieldSqlDao;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.DefaultPagination;
@@ -53,9 +67,20 @@ import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
+import org.killbill.billing.util.entity.dao.EntityModelDao;
+import org.killbill.billing.util.entity.dao.EntitySearchIndexHelper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.search.SearchDocument;
+import org.killbill.billing.util.search.SearchIndex;
+import org.killbill.billing.util.tag.ControlTagType;
+import org.killbill.billing.util.tag.api.user.TagEventBuilder;
+import org.killbill.billing.util.tag.dao.SystemTags;
+import org.killbill.billing.util.tag.dao.TagDefinitionModelDao;
+import org.killbill.billing.util.tag.dao.TagDefinitionSqlDao;
+import org.killbill.billing.util.tag.dao.TagModelDao;
+import org.killbill.billing.util.tag.dao.TagSqlDao;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
 import org.killbill.clock.Clock;
@@ -63,30 +88,54 @@ import org.skife.jdbi.v2.IDBI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 
+import static org.killbill.billing.account.glue.DefaultAccountModule.ACCOUNT_SEARCH_INDEX_NAMED;
 import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
 public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, AccountApiException> implements AccountDao {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultAccountDao.class);
 
+    private static final Function<EntityModelDao, String> ENTITY_ID_FUNCTION = new Function<EntityModelDao, String>() {
+        @Override
+        public String apply(final EntityModelDao input) {
+            return input.getId().toString();
+        }
+    };
+
     private final CacheController<Long, ImmutableAccountData> accountImmutableCacheController;
     private final PersistentBus eventBus;
     private final InternalCallContextFactory internalCallContextFactory;
     private final Clock clock;
     private final AuditDao auditDao;
+    private final EntitySearchIndexHelper<AccountModelDao, Account> searchIndexHelper;
+    private final TagEventBuilder tagEventBuilder;
 
     @Inject
     public DefaultAccountDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final PersistentBus eventBus, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
-                             final InternalCallContextFactory internalCallContextFactory, final NonEntityDao nonEntityDao, final AuditDao auditDao) {
+                             final InternalCallContextFactory internalCallContextFactory, final NonEntityDao nonEntityDao, final AuditDao auditDao,
+                             @Named(ACCOUNT_SEARCH_INDEX_NAMED) final SearchIndex searchIndex, final TagEventBuilder tagEventBuilder) {
         super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory), AccountSqlDao.class);
         this.accountImmutableCacheController = cacheControllerDispatcher.getCacheController(CacheType.ACCOUNT_IMMUTABLE);
         this.eventBus = eventBus;
         this.internalCallContextFactory = internalCallContextFactory;
         this.clock = clock;
         this.auditDao = auditDao;
+        this.tagEventBuilder = tagEventBuilder;
+        this.searchIndexHelper = new EntitySearchIndexHelper<AccountModelDao, Account>(searchIndex, transactionalSqlDao, AccountSqlDao.class) {
+            @Override
+            protected SearchDocument toSearchDocument(final AccountModelDao model) {
+                // See searchQuery in AccountSqlDao.sql.stg
+                return new SearchDocument(model.getRecordId(),
+                                          Arrays.asList(model.getId().toString()),
+                                          Arrays.asList(model.getName(), model.getEmail(), model.getExternalKey(), model.getCompanyName()));
+            }
+        };
     }
 
     @Override
@@ -106,6 +155,233 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
         accountImmutableCacheController.putIfAbsent(refreshedEntity.getRecordId(), new DefaultImmutableAccountData(refreshedEntity));
     }
 
+    //
+    // Bulk version of create, for imports: the accounts, tags and custom fields of all the rows are written with one JDBC batch each
+    // (so are their history and audit rows, see EntityAuditAndHistoryBatch), the bus events are posted at the end of the transaction
+    // and the caches are populated once it has committed. Rows which would fail the batch are rejected upfront; if the batch fails
+    // anyways (e.g. an account with the same external key created concurrently), the rows are imported one by one to isolate the failures.
+    //
+    @Override
+    public Map<UUID, AccountApiException> importAccounts(final List<AccountImportModelDao> rows, final InternalCallContext context) {
+        final Map<UUID, AccountApiException> failures = new HashMap<UUID, AccountApiException>();
+        if (rows.isEmpty()) {
+            return failures;
+        }
+
+        final List<EntityModelDao> createdEntities;
+        try {
+            createdEntities = transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<List<EntityModelDao>>() {
+                @Override
+                public List<EntityModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                    final Map<UUID, TagDefinitionModelDao> tagDefinitions = getTagDefinitionsForImport(rows, entitySqlDaoWrapperFactory, context);
+                    final List<AccountImportModelDao> validRows = validateImportRows(rows, tagDefinitions, failures, entitySqlDaoWrapperFactory, context);
+                    return importAccountsFromTransaction(validRows, tagDefinitions, entitySqlDaoWrapperFactory, context);
+                }
+            });
+        } catch (final RuntimeException e) {
+            failures.clear();
+            if (rows.size() == 1) {
+                log.warn("Failed to import accountId='{}'", rows.get(0).getAccount().getId(), e);
+                failures.put(rows.get(0).getAccount().getId(), new AccountApiException(e, ErrorCode.ACCOUNT_CREATION_FAILED));
+            } else {
+                log.warn("Failed to import a batch of {} accounts, importing them one by one", rows.size(), e);
+                for (final AccountImportModelDao row : rows) {
+                    failures.putAll(importAccounts(ImmutableList.<AccountImportModelDao>of(row), context));
+                }
+            }
+            return failures;
+        }
+
+        // Populate the caches only after the transaction has been committed, in case of rollbacks
+        for (final EntityModelDao createdEntity : createdEntities) {
+            transactionalSqlDao.populateCaches(createdEntity);
+            if (createdEntity instanceof AccountModelDao) {
+                accountImmutableCacheController.putIfAbsent(createdEntity.getRecordId(), new DefaultImmutableAccountData((AccountModelDao) createdEntity));
+            }
+        }
+        return failures;
+    }
+
+    private Map<UUID, TagDefinitionModelDao> getTagDefinitionsForImport(final Iterable<AccountImportModelDao> rows, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        final Map<UUID, TagDefinitionModelDao> tagDefinitions = new HashMap<UUID, TagDefinitionModelDao>();
+        final Set<String> userTagDefinitionIds = new HashSet<String>();
+        for (final AccountImportModelDao row : rows) {
+            for (final TagModelDao tag : row.getTags()) {
+                final TagDefinitionModelDao systemTagDefinition = SystemTags.lookup(tag.getTagDefinitionId());
+                if (systemTagDefinition != null) {
+                    tagDefinitions.put(tag.getTagDefinitionId(), systemTagDefinition);
+                } else {
+                    userTagDefinitionIds.add(tag.getTagDefinitionId().toString());
+                }
+            }
+        }
+        if (!userTagDefinitionIds.isEmpty()) {
+            for (final TagDefinitionModelDao tagDefinition : entitySqlDaoWrapperFactory.become(TagDefinitionSqlDao.class).getByIds(userTagDefinitionIds, context)) {
+                tagDefinitions.put(tagDefinition.getId(), tagDefinition);
+            }
+        }
+        return tagDefinitions;
+    }
+
+    // Reject the rows which would fail the batch: existing accounts (same id or external key, in the database or earlier in the batch),
+    // unknown parent accounts and unknown (or not applicable) tag definitions
+    private List<AccountImportModelDao> validateImportRows(final List<AccountImportModelDao> rows,
+                                                           final Map<UUID, TagDefinitionModelDao> tagDefinitions,
+                                                           final Map<UUID, AccountApiException> failures,
+                                                           final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                                                           final InternalCallContext context) {
+        final AccountSqlDao accountSqlDao = entitySqlDaoWrapperFactory.become(AccountSqlDao.class);
+
+        final Set<String> ids = new HashSet<String>();
+        final Set<String> externalKeys = new HashSet<String>();
+        final Set<String> parentAccountIds = new HashSet<String>();
+        for (final AccountImportModelDao row : rows) {
+            ids.add(row.getAccount().getId().toString());
+            externalKeys.add(row.getAccount().getExternalKey());
+            if (row.getAccount().getParentAccountId() != null) {
+                parentAccountIds.add(row.getAccount().getParentAccountId().toString());
+            }
+        }
+        final Set<String> existingKeys = new HashSet<String>(accountSqlDao.getExistingKeys(externalKeys, context));
+        final Set<String> existingIds = new HashSet<String>();
+        for (final AccountModelDao existingAccount : accountSqlDao.getByIds(Sets.union(ids, parentAccountIds), context)) {
+            existingIds.add(existingAccount.getId().toString());
+        }
+
+        final List<AccountImportModelDao> validRows = new ArrayList<AccountImportModelDao>(rows.size());
+        final Set<String> batchIds = new HashSet<String>();
+        for (final AccountImportModelDao row : rows) {
+            final AccountModelDao account = row.getAccount();
+            final AccountApiException failure;
+            if (existingIds.contains(account.getId().toString()) || batchIds.contains(account.getId().toString())) {
+                failure = new AccountApiException(ErrorCode.ACCOUNT_ALREADY_EXISTS, account.getId());
+            } else if (!existingKeys.add(account.getExternalKey())) {
+                // Already in the database, or earlier in the batch
+                failure = new AccountApiException(ErrorCode.ACCOUNT_ALREADY_EXISTS, account.getExternalKey());
+            } else if (account.getParentAccountId() != null &&
+                       !existingIds.contains(account.getParentAccountId().toString()) &&
+                       !batchIds.contains(account.getParentAccountId().toString())) {
+                failure = new AccountApiException(ErrorCode.ACCOUNT_DOES_NOT_EXIST_FOR_ID, account.getParentAccountId());
+            } else {
+                failure = validateImportTags(row, tagDefinitions);
+            }
+
+            if (failure != null) {
+                failures.put(account.getId(), failure);
+            } else {
+                batchIds.add(account.getId().toString());
+                validRows.add(row);
+            }
+        }
+        return validRows;
+    }
+
+    private AccountApiException validateImportTags(final AccountImportModelDao row, final Map<UUID, TagDefinitionModelDao> tagDefinitions) {
+        for (final TagModelDao tag : row.getTags()) {
+            if (tagDefinitions.get(tag.getTagDefinitionId()) == null) {
+                return new AccountApiException(ErrorCode.TAG_DEFINITION_DOES_NOT_EXIST, tag.getTagDefinitionId());
+            }
+            final ControlTagType controlTagType = ControlTagType.getTypeFromId(tag.getTagDefinitionId());
+            if (controlTagType != null && !controlTagType.getApplicableObjectTypes().contains(ObjectType.ACCOUNT)) {
+                // See DefaultTagDao#validateApplicableObjectTypes
+                return new AccountApiException(new IllegalStateException(String.format("Invalid control tag '%s' for object type '%s'", controlTagType.name(), ObjectType.ACCOUNT)),
+                                               ErrorCode.ACCOUNT_CREATION_FAILED);
+            }
+        }
+        return null;
+    }
+
+    private List<EntityModelDao> importAccountsFromTransaction(final List<AccountImportModelDao> rows,
+                                                               final Map<UUID, TagDefinitionModelDao> tagDefinitions,
+                                                               final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
+                                                               final InternalCallContext context) throws BillingExceptionBase {
+        final List<EntityModelDao> createdEntities = new LinkedList<EntityModelDao>();
+        if (rows.isEmpty()) {
+            return createdEntities;
+        }
+
+        final List<AccountModelDao> accounts = new ArrayList<AccountModelDao>(rows.size());
+        final List<String> accountIds = new ArrayList<String>(rows.size());
+        for (final AccountImportModelDao row : rows) {
+            // See create
+            if (row.getAccount().getReferenceTime() == null) {
+                row.getAccount().setReferenceTime(context.getCreatedDate());
+            }
+            accounts.add(row.getAccount());
+            accountIds.add(row.getAccount().getId().toString());
+        }
+        final AccountSqlDao accountSqlDao = entitySqlDaoWrapperFactory.become(AccountSqlDao.class);
+        accountSqlDao.createBatch(accounts, Collections.nCopies(accounts.size(), context));
+
+        // The tags and custom fields need the account record ids
+        final Map<UUID, AccountModelDao> savedAccounts = new HashMap<UUID, AccountModelDao>();
+        for (final AccountModelDao savedAccount : accountSqlDao.getByIds(accountIds, context)) {
+            savedAccounts.put(savedAccount.getId(), savedAccount);
+        }
+
+        final List<TagModelDao> tags = new ArrayList<TagModelDao>();
+        final List<InternalCallContext> tagContexts = new ArrayList<InternalCallContext>();
+        final List<CustomFieldModelDao> customFields = new ArrayList<CustomFieldModelDao>();
+        final List<InternalCallContext> customFieldContexts = new ArrayList<InternalCallContext>();
+        final Map<UUID, InternalCallContext> accountContexts = new HashMap<UUID, InternalCallContext>();
+        for (final AccountImportModelDao row : rows) {
+            final AccountModelDao savedAccount = savedAccounts.get(row.getAccount().getId());
+            final InternalCallContext accountContext = internalCallContextFactory.createInternalCallContext(savedAccount, savedAccount.getRecordId(), context);
+            accountContexts.put(savedAccount.getId(), accountContext);
+            for (final TagModelDao tag : row.getTags()) {
+                tags.add(tag);
+                tagContexts.add(accountContext);
+            }
+            for (final CustomFieldModelDao customField : row.getCustomFields()) {
+                customFields.add(customField);
+                customFieldContexts.add(accountContext);
+            }
+        }
+        if (!tags.isEmpty()) {
+            final TagSqlDao tagSqlDao = entitySqlDaoWrapperFactory.become(TagSqlDao.class);
+            tagSqlDao.createBatch(tags, tagContexts);
+            createdEntities.addAll(tagSqlDao.getByIds(Lists.transform(tags, ENTITY_ID_FUNCTION), context));
+        }
+        if (!customFields.isEmpty()) {
+            final CustomFieldSqlDao customFieldSqlDao = entitySqlDaoWrapperFactory.become(CustomFieldSqlDao.class);
+            customFieldSqlDao.createBatch(customFields, customFieldContexts);
+            createdEntities.addAll(customFieldSqlDao.getByIds(Lists.transform(customFields, ENTITY_ID_FUNCTION), context));
+        }
+        createdEntities.addAll(savedAccounts.values());
+
+        // Bus events last, in the same transaction
+        for (final AccountImportModelDao row : rows) {
+            final AccountModelDao savedAccount = savedAccounts.get(row.getAccount().getId());
+            postBusEventFromTransaction(row.getAccount(), savedAccount, ChangeType.INSERT, entitySqlDaoWrapperFactory, context);
+
+            final InternalCallContext accountContext = accountContexts.get(savedAccount.getId());
+            for (final TagModelDao tag : row.getTags()) {
+                final TagDefinitionModelDao tagDefinition = tagDefinitions.get(tag.getTagDefinitionId());
+                final TagInternalEvent tagEvent = ControlTagType.getTypeFromId(tag.getTagDefinitionId()) != null ?
+                                                  tagEventBuilder.newControlTagCreationEvent(tag.getId(), tag.getObjectId(), tag.getObjectType(), tagDefinition,
+                                                                                             accountContext.getAccountRecordId(), accountContext.getTenantRecordId(), accountContext.getUserToken()) :
+                                                  tagEventBuilder.newUserTagCreationEvent(tag.getId(), tag.getObjectId(), tag.getObjectType(), tagDefinition,
+                                                                                          accountContext.getAccountRecordId(), accountContext.getTenantRecordId(), accountContext.getUserToken());
+                postImportEventFromTransaction(tagEvent, entitySqlDaoWrapperFactory);
+            }
+            for (final CustomFieldModelDao customField : row.getCustomFields()) {
+                postImportEventFromTransaction(new DefaultCustomFieldCreationEvent(customField.getId(), customField.getObjectId(), customField.getObjectType(),
+                                                                                   accountContext.getAccountRecordId(), accountContext.getTenantRecordId(), accountContext.getUserToken()),
+                                               entitySqlDaoWrapperFactory);
+            }
+        }
+
+        return createdEntities;
+    }
+
+    private void postImportEventFromTransaction(final BusInternalEvent event, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) {
+        try {
+            eventBus.postFromTransaction(event, entitySqlDaoWrapperFactory.getHandle().getConnection());
+        } catch (final EventBusException e) {
+            log.warn("Failed to post event {}", event, e);
+        }
+    }
+
     @Override
     protected AccountApiException generateAlreadyExistsException(final AccountModelDao account, final InternalCallContext context) {
         return new AccountApiException(ErrorCode.ACCOUNT_ALREADY_EXISTS, account.getExternalKey());
@@ -163,6 +439,10 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
                                                           accountModelDao == null ? ImmutableList.<AccountModelDao>of().iterator() : ImmutableList.<AccountModelDao>of(accountModelDao).iterator());
         }
 
+        if (searchIndexHelper.isEnabled()) {
+            return searchIndexHelper.search(searchKey, offset, limit, context);
+        }
+
         // Otherwise, we pretty much need to do a full table scan (leading % in the like clause).
         // Note: forcing MySQL to search indexes (like luckySearch above) doesn't always seem to help on large tables, especially with large offsets
         return paginationHelper.getPagination(AccountSqlDao.class,
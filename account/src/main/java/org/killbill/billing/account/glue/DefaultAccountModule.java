@@ -19,6 +19,7 @@
 package org.killbill.billing.account.glue;
 
 import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.account.api.AccountPaginationUserApi;
 import org.killbill.billing.account.api.AccountService;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.account.api.DefaultAccountService;
@@ -32,10 +33,18 @@ import org.killbill.billing.glue.AccountModule;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.util.audit.dao.AuditDao;
 import org.killbill.billing.util.audit.dao.DefaultAuditDao;
+import org.killbill.billing.util.config.definition.SearchConfig;
 import org.killbill.billing.util.glue.KillBillModule;
+import org.killbill.billing.util.search.NGramSearchIndex;
+import org.killbill.billing.util.search.SearchIndex;
+import org.skife.config.ConfigurationObjectFactory;
+
+import com.google.inject.name.Names;
 
 public class DefaultAccountModule extends KillBillModule implements AccountModule {
 
+    public static final String ACCOUNT_SEARCH_INDEX_NAMED = "AccountSearchIndex";
+
     public DefaultAccountModule(final KillbillConfigSource configSource) {
         super(configSource);
     }
@@ -44,12 +53,16 @@ public class DefaultAccountModule extends KillBillModule implements AccountModul
     }
 
     protected void installAccountDao() {
+        final SearchConfig searchConfig = new ConfigurationObjectFactory(skifeConfigSource).build(SearchConfig.class);
+        bind(SearchIndex.class).annotatedWith(Names.named(ACCOUNT_SEARCH_INDEX_NAMED)).toInstance(new NGramSearchIndex(searchConfig));
         bind(AccountDao.class).to(DefaultAccountDao.class).asEagerSingleton();
     }
 
     @Override
     public void installAccountUserApi() {
-        bind(AccountUserApi.class).to(DefaultAccountUserApi.class).asEagerSingleton();
+        bind(DefaultAccountUserApi.class).asEagerSingleton();
+        bind(AccountUserApi.class).to(DefaultAccountUserApi.class);
+        bind(AccountPaginationUserApi.class).to(DefaultAccountUserApi.class);
     }
 
     @Override
@@ -19,6 +19,7 @@
 package org.killbill.billing.account.dao;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -194,6 +195,19 @@ public class MockAccountDao extends MockEntityDaoBase<AccountModelDao, Account,
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public Map<UUID, AccountApiException> importAccounts(final List<AccountImportModelDao> rows, final InternalCallContext context) {
+        final Map<UUID, AccountApiException> failures = new HashMap<UUID, AccountApiException>();
+        for (final AccountImportModelDao row : rows) {
+            try {
+                create(row.getAccount(), context);
+            } catch (final AccountApiException e) {
+                failures.put(row.getAccount().getId(), e);
+            }
+        }
+        return failures;
+    }
+
     @Override
     public List<AuditLogWithHistory> getEmailAuditLogsWithHistoryForId(final UUID accountEmailId, final AuditLevel auditLevel, final InternalTenantContext context) throws AccountApiException {
         throw new UnsupportedOperationException();
@@ -20,6 +20,7 @@ package org.killbill.billing.account.dao;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.joda.time.DateTimeZone;
@@ -196,6 +197,43 @@ public class TestAccountDao extends AccountTestSuiteWithEmbeddedDB {
         Assert.assertEquals(tags.get(0).getObjectType(), ObjectType.ACCOUNT);
     }
 
+    @Test(groups = "slow", description = "Test Account DAO: import accounts")
+    public void testImportAccounts() throws AccountApiException, TagDefinitionApiException {
+        final AccountModelDao existingAccount = createTestAccount();
+        accountDao.create(existingAccount, internalCallContext);
+        final TagDefinitionModelDao tagDefinition = tagDefinitionDao.create(UUID.randomUUID().toString().substring(0, 4), UUID.randomUUID().toString(), ObjectType.ACCOUNT.name(), internalCallContext);
+
+        final AccountModelDao account1 = createTestAccount();
+        // Duplicate external key
+        final AccountModelDao account2 = createTestAccount();
+        account2.setExternalKey(existingAccount.getExternalKey());
+        final AccountModelDao account3 = createTestAccount();
+        final List<AccountImportModelDao> rows = ImmutableList.<AccountImportModelDao>of(new AccountImportModelDao(account1,
+                                                                                                                   ImmutableList.<TagModelDao>of(new TagModelDao(internalCallContext.getCreatedDate(), tagDefinition.getId(), account1.getId(), ObjectType.ACCOUNT)),
+                                                                                                                   ImmutableList.<CustomFieldModelDao>of(new CustomFieldModelDao(internalCallContext.getCreatedDate(), "name", "value", account1.getId(), ObjectType.ACCOUNT))),
+                                                                                         new AccountImportModelDao(account2, ImmutableList.<TagModelDao>of(), ImmutableList.<CustomFieldModelDao>of()),
+                                                                                         new AccountImportModelDao(account3, ImmutableList.<TagModelDao>of(), ImmutableList.<CustomFieldModelDao>of()));
+
+        final Map<UUID, AccountApiException> failures = accountDao.importAccounts(rows, internalCallContext);
+        Assert.assertEquals(failures.size(), 1);
+        Assert.assertEquals(failures.get(account2.getId()).getCode(), ErrorCode.ACCOUNT_ALREADY_EXISTS.getCode());
+
+        checkAccountsEqual(accountDao.getById(account1.getId(), internalCallContext), account1);
+        checkAccountsEqual(accountDao.getById(account3.getId(), internalCallContext), account3);
+        Assert.assertEquals(accountDao.getIdFromKey(existingAccount.getExternalKey(), internalCallContext), existingAccount.getId());
+
+        final List<TagModelDao> tags = tagDao.getTagsForObject(account1.getId(), ObjectType.ACCOUNT, false, internalCallContext);
+        Assert.assertEquals(tags.size(), 1);
+        Assert.assertEquals(tags.get(0).getTagDefinitionId(), tagDefinition.getId());
+        final List<CustomFieldModelDao> customFields = customFieldDao.getCustomFieldsForObject(account1.getId(), ObjectType.ACCOUNT, internalCallContext);
+        Assert.assertEquals(customFields.size(), 1);
+        Assert.assertEquals(customFields.get(0).getFieldValue(), "value");
+
+        final List<AuditLog> auditLogs = auditDao.getAuditLogsForId(TableName.ACCOUNT, account3.getId(), AuditLevel.FULL, internalCallContext);
+        Assert.assertEquals(auditLogs.size(), 1);
+        Assert.assertEquals(auditLogs.get(0).getChangeType(), ChangeType.INSERT);
+    }
+
     @Test(groups = "slow", description = "Test Account DAO: retrieve by externalKey")
     public void testGetIdFromKey() throws AccountApiException {
         final AccountModelDao account = createTestAccount();
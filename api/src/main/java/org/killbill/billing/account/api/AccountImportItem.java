@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.account.api;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+public class AccountImportItem {
+
+    private final UUID accountId;
+    private final AccountData accountData;
+    private final List<UUID> tagDefinitionIds;
+    private final Map<String, String> customFields;
+
+    // A null account id means a new random id (migrations can preserve the original ids)
+    public AccountImportItem(@Nullable final UUID accountId,
+                             final AccountData accountData,
+                             final List<UUID> tagDefinitionIds,
+                             final Map<String, String> customFields) {
+        this.accountId = accountId;
+        this.accountData = accountData;
+        this.tagDefinitionIds = tagDefinitionIds;
+        this.customFields = customFields;
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public AccountData getAccountData() {
+        return accountData;
+    }
+
+    // Tags to add to the account
+    public List<UUID> getTagDefinitionIds() {
+        return tagDefinitionIds;
+    }
+
+    // Custom fields (name -> value) to add to the account
+    public Map<String, String> getCustomFields() {
+        return customFields;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("AccountImportItem{");
+        sb.append("accountId=").append(accountId);
+        sb.append(", externalKey='").append(accountData.getExternalKey()).append('\'');
+        sb.append(", tagDefinitionIds=").append(tagDefinitionIds);
+        sb.append(", customFields=").append(customFields);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.account.api;
+
+import javax.annotation.Nullable;
+
+public class AccountImportResult {
+
+    private final AccountImportItem item;
+    private final Account account;
+    private final AccountApiException exception;
+
+    public AccountImportResult(final AccountImportItem item,
+                               @Nullable final Account account,
+                               @Nullable final AccountApiException exception) {
+        this.item = item;
+        this.account = account;
+        this.exception = exception;
+    }
+
+    public AccountImportItem getItem() {
+        return item;
+    }
+
+    // Null if the item was rejected (see getException)
+    public Account getAccount() {
+        return account;
+    }
+
+    public AccountApiException getException() {
+        return exception;
+    }
+
+    public boolean isSuccess() {
+        return exception == null;
+    }
+}
@@ -18,11 +18,13 @@
 
 package org.killbill.billing.account.api;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.callcontext.CallContext;
 
 public interface AccountInternalApi extends ImmutableAccountInternalApi {
 
@@ -45,4 +47,8 @@ public interface AccountInternalApi extends ImmutableAccountInternalApi {
     UUID getByRecordId(Long recordId, InternalTenantContext context) throws AccountApiException;
 
     List<Account> getChildrenAccounts(UUID parentAccountId, InternalCallContext context) throws AccountApiException;
+
+    // Items are imported in batches of batchSize accounts, one transaction per batch: invalid items are reported in their result
+    // and don't abort the batch. Items are only consumed as results are read, so both sides can be streamed.
+    Iterator<AccountImportResult> importAccounts(Iterator<AccountImportItem> items, int batchSize, CallContext context);
 }
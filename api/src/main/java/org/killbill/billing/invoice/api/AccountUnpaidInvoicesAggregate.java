@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+
+//
+// Per account summary of the unpaid invoices (count, total balance, earliest invoice date), computed in the database
+//
+public class AccountUnpaidInvoicesAggregate {
+
+    private final UUID accountId;
+    private final int numberOfUnpaidInvoices;
+    private final BigDecimal balanceOfUnpaidInvoices;
+    private final LocalDate dateOfEarliestUnpaidInvoice;
+
+    public AccountUnpaidInvoicesAggregate(final UUID accountId,
+                                          final int numberOfUnpaidInvoices,
+                                          final BigDecimal balanceOfUnpaidInvoices,
+                                          final LocalDate dateOfEarliestUnpaidInvoice) {
+        this.accountId = accountId;
+        this.numberOfUnpaidInvoices = numberOfUnpaidInvoices;
+        this.balanceOfUnpaidInvoices = balanceOfUnpaidInvoices;
+        this.dateOfEarliestUnpaidInvoice = dateOfEarliestUnpaidInvoice;
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public int getNumberOfUnpaidInvoices() {
+        return numberOfUnpaidInvoices;
+    }
+
+    public BigDecimal getBalanceOfUnpaidInvoices() {
+        return balanceOfUnpaidInvoices;
+    }
+
+    public LocalDate getDateOfEarliestUnpaidInvoice() {
+        return dateOfEarliestUnpaidInvoice;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("AccountUnpaidInvoicesAggregate{");
+        sb.append("accountId=").append(accountId);
+        sb.append(", numberOfUnpaidInvoices=").append(numberOfUnpaidInvoices);
+        sb.append(", balanceOfUnpaidInvoices=").append(balanceOfUnpaidInvoices);
+        sb.append(", dateOfEarliestUnpaidInvoice=").append(dateOfEarliestUnpaidInvoice);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.api;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.KillbillApi;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.entity.Pagination;
+
+// Keyset pagination for InvoiceUserApi, which can't change: implemented by the same class so the API interceptors (security, profiling) apply
+public interface InvoicePaginationUserApi extends KillbillApi {
+
+    // Pass the continuation token of the previous page (null for the first one), counts are only computed if withCount.
+    // Invoices are shallow, i.e. won't contain items nor payments
+    Pagination<Invoice> getInvoices(@Nullable String continuationToken, Long limit, boolean withCount, TenantContext context);
+}
@@ -29,6 +29,8 @@ public interface BlockingInternalApi {
 
     public BlockingState getBlockingStateForService(UUID blockableId, BlockingStateType blockingStateType, String serviceName, InternalTenantContext context);
 
+    public List<BlockingState> getBlockingStatesForServiceAndType(String serviceName, BlockingStateType blockingStateType, InternalTenantContext context);
+
     public List<BlockingState> getBlockingAllForAccount(final Catalog catalog, InternalTenantContext context);
 
     public void setBlockingState(BlockingState state, InternalCallContext context);
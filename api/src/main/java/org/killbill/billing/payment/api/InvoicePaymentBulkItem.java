@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.payment.api;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+public class InvoicePaymentBulkItem {
+
+    private final UUID accountId;
+    private final UUID invoiceId;
+    private final UUID paymentMethodId;
+    private final BigDecimal amount;
+    private final String paymentExternalKey;
+    private final String paymentTransactionExternalKey;
+
+    // A null payment method id means the account default payment method, a null amount means the invoice balance
+    public InvoicePaymentBulkItem(final UUID accountId,
+                                  final UUID invoiceId,
+                                  @Nullable final UUID paymentMethodId,
+                                  @Nullable final BigDecimal amount,
+                                  @Nullable final String paymentExternalKey,
+                                  @Nullable final String paymentTransactionExternalKey) {
+        this.accountId = accountId;
+        this.invoiceId = invoiceId;
+        this.paymentMethodId = paymentMethodId;
+        this.amount = amount;
+        this.paymentExternalKey = paymentExternalKey;
+        this.paymentTransactionExternalKey = paymentTransactionExternalKey;
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public UUID getInvoiceId() {
+        return invoiceId;
+    }
+
+    public UUID getPaymentMethodId() {
+        return paymentMethodId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getPaymentExternalKey() {
+        return paymentExternalKey;
+    }
+
+    public String getPaymentTransactionExternalKey() {
+        return paymentTransactionExternalKey;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("InvoicePaymentBulkItem{");
+        sb.append("accountId=").append(accountId);
+        sb.append(", invoiceId=").append(invoiceId);
+        sb.append(", paymentMethodId=").append(paymentMethodId);
+        sb.append(", amount=").append(amount);
+        sb.append(", paymentExternalKey='").append(paymentExternalKey).append('\'');
+        sb.append(", paymentTransactionExternalKey='").append(paymentTransactionExternalKey).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.payment.api;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.invoice.api.InvoicePayment;
+
+public class InvoicePaymentBulkResult {
+
+    private final InvoicePaymentBulkItem item;
+    private final InvoicePayment invoicePayment;
+    private final PaymentApiException exception;
+
+    public InvoicePaymentBulkResult(final InvoicePaymentBulkItem item,
+                                    @Nullable final InvoicePayment invoicePayment,
+                                    @Nullable final PaymentApiException exception) {
+        this.item = item;
+        this.invoicePayment = invoicePayment;
+        this.exception = exception;
+    }
+
+    public InvoicePaymentBulkItem getItem() {
+        return item;
+    }
+
+    // Null if the payment failed before reaching the invoice (see getException)
+    public InvoicePayment getInvoicePayment() {
+        return invoicePayment;
+    }
+
+    public PaymentApiException getException() {
+        return exception;
+    }
+
+    public boolean isSuccess() {
+        return exception == null && invoicePayment != null && Boolean.TRUE.equals(invoicePayment.isSuccess());
+    }
+}
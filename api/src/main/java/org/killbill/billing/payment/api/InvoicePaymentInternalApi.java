@@ -18,6 +18,7 @@
 package org.killbill.billing.payment.api;
 
 import java.math.BigDecimal;
+import java.util.Iterator;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -25,6 +26,7 @@ import org.killbill.billing.account.api.Account;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.invoice.api.InvoicePayment;
+import org.killbill.billing.util.callcontext.CallContext;
 
 public interface InvoicePaymentInternalApi {
 
@@ -41,4 +43,12 @@ public interface InvoicePaymentInternalApi {
                                                           Iterable<PluginProperty> properties,
                                                           PaymentOptions paymentOptions,
                                                           InternalCallContext context) throws PaymentApiException;
+
+    // Items for a same account are processed in order, accounts are processed in parallel (bounded). Results are returned
+    // as they complete, and new accounts are only scheduled as results are consumed: the caller must drain the iterator
+    // before handing anything back to its own client.
+    public Iterator<InvoicePaymentBulkResult> createPurchasesForInvoicePayments(Iterable<InvoicePaymentBulkItem> items,
+                                                                               Iterable<PluginProperty> properties,
+                                                                               PaymentOptions paymentOptions,
+                                                                               CallContext context) throws PaymentApiException;
 }
@@ -17,6 +17,7 @@
 package org.killbill.billing.tag;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
@@ -41,10 +42,20 @@ public interface TagInternalApi {
     public List<Tag> getTags(UUID objectId, ObjectType objectType, InternalTenantContext context);
 
 
+    // The account level reads below always go to the database: unlike the user api, they never serve (possibly stale) cached tags
     public List<Tag> getTagsForAccountType(ObjectType objectType, boolean includedDeleted, InternalTenantContext internalTenantContext);
 
     public List<Tag> getTagsForAccount(boolean includedDeleted, InternalTenantContext context);
 
+    /**
+     * Return the tags of all the objects of the account, in one query
+     *
+     * @param includedDeleted whether to include the deleted tags
+     * @param context         call callcontext
+     * @return mapping object id -> tags
+     */
+    public Map<UUID, List<Tag>> getTagsByObjectForAccount(boolean includedDeleted, InternalTenantContext context);
+
     public void addTag(final UUID objectId, final ObjectType objectType, UUID tagDefinitionId, InternalCallContext context) throws TagApiException;
 
     public void removeTag(final UUID objectId, final ObjectType objectType, final UUID tagDefinitionId, InternalCallContext context) throws TagApiException;
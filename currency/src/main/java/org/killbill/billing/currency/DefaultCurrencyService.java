@@ -16,15 +16,25 @@
 
 package org.killbill.billing.currency;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import javax.inject.Inject;
 
+import org.killbill.billing.currency.api.CurrencyRateCache;
 import org.killbill.billing.currency.api.CurrencyService;
+import org.killbill.billing.platform.api.LifecycleHandlerType;
+import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class DefaultCurrencyService implements CurrencyService {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultCurrencyService.class);
 
+    private final CurrencyRateCache currencyRateCache;
+
+    @Inject
+    public DefaultCurrencyService(final CurrencyRateCache currencyRateCache) {
+        this.currencyRateCache = currencyRateCache;
+    }
 
     @Override
     public String getName() {
@@ -35,4 +45,9 @@ public class DefaultCurrencyService implements CurrencyService {
     public int getRegistrationOrdering() {
         return KILLBILL_SERVICES.CURRENCY_SERVICE.getRegistrationOrdering();
     }
+
+    @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
+    public void stop() {
+        currencyRateCache.stop();
+    }
 }
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.currency.api;
+
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.currency.plugin.api.CurrencyPluginApi;
+import org.killbill.billing.osgi.api.OSGIServiceRegistration;
+import org.killbill.billing.util.config.definition.CurrencyConfig;
+import org.killbill.commons.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.math.LongMath;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+//
+// Cache of the rates returned by the currency provider plugin, keyed by (base currency, conversion date bucket):
+// - current rates and historical rates are cached separately, the latter per conversion date, or per date bucket if configured
+//   (see CurrencyConfig#getRatesCacheDateBucket): all dates in a bucket then get the rates effective at the start of the bucket
+// - entries expire after the TTL, and are reloaded in the background once older than the refresh-ahead age (the previous
+//   rates are served during the reload, and kept if the reload fails)
+// - one plugin call loads all the rates of a base currency
+//
+public class CurrencyRateCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CurrencyRateCache.class);
+
+    private static final String METRICS_PREFIX = "killbill.currency.rates.cache";
+    private static final long TERMINATION_TIMEOUT_SEC = 5;
+
+    private final CurrencyConfig config;
+    private final OSGIServiceRegistration<CurrencyPluginApi> registry;
+    private final long dateBucketMillis;
+    private final ExecutorService refreshExecutor;
+    private final LoadingCache<RatesKey, DefaultCurrencyConversion> cache;
+    private final Timer pluginCalls;
+
+    @Inject
+    public CurrencyRateCache(final CurrencyConfig config, final OSGIServiceRegistration<CurrencyPluginApi> registry, final MetricRegistry metricRegistry) {
+        this.config = config;
+        this.registry = registry;
+        this.dateBucketMillis = config.getRatesCacheDateBucket().getMillis();
+        this.pluginCalls = metricRegistry.timer(MetricRegistry.name(METRICS_PREFIX, "pluginCalls"));
+
+        final long ttlMillis = config.getRatesCacheTTL().getMillis();
+        if (ttlMillis <= 0) {
+            this.refreshExecutor = null;
+            this.cache = null;
+            return;
+        }
+
+        this.refreshExecutor = Executors.newSingleThreadExecutor("CurrencyRatesRefresh");
+        final CacheLoader<RatesKey, DefaultCurrencyConversion> loader = new CacheLoader<RatesKey, DefaultCurrencyConversion>() {
+            @Override
+            public DefaultCurrencyConversion load(final RatesKey key) throws CurrencyConversionException {
+                return loadCurrencyConversion(key.baseCurrency, key.isCurrent() ? null : new DateTime(key.dateBucket, DateTimeZone.UTC));
+            }
+        };
+        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                                                                 .maximumSize(config.getRatesCacheMaxSize())
+                                                                 .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                                                                 .recordStats();
+        final long refreshAheadMillis = config.getRatesCacheRefreshAhead().getMillis();
+        if (refreshAheadMillis > 0 && refreshAheadMillis < ttlMillis) {
+            builder.refreshAfterWrite(refreshAheadMillis, TimeUnit.MILLISECONDS);
+        }
+        this.cache = builder.build(CacheLoader.asyncReloading(loader, refreshExecutor));
+
+        registerMetrics(metricRegistry);
+    }
+
+    public Set<Currency> getBaseCurrencies() throws CurrencyConversionException {
+        return getPluginApi().getBaseCurrencies();
+    }
+
+    public DefaultCurrencyConversion getCurrentCurrencyConversion(final Currency baseCurrency) throws CurrencyConversionException {
+        if (cache == null) {
+            return loadCurrencyConversion(baseCurrency, null);
+        }
+        return get(new RatesKey(baseCurrency, RatesKey.CURRENT));
+    }
+
+    public DefaultCurrencyConversion getCurrencyConversion(final Currency baseCurrency, final DateTime dateConversion) throws CurrencyConversionException {
+        if (cache == null) {
+            return loadCurrencyConversion(baseCurrency, dateConversion);
+        }
+        final long millis = dateConversion.getMillis();
+        final long dateBucket = dateBucketMillis > 0 ? millis - LongMath.mod(millis, dateBucketMillis) : millis;
+        return get(new RatesKey(baseCurrency, dateBucket));
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public void stop() {
+        if (refreshExecutor == null) {
+            return;
+        }
+        refreshExecutor.shutdownNow();
+        try {
+            if (!refreshExecutor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                logger.warn("CurrencyRatesRefresh failed to complete termination within {} sec", TERMINATION_TIMEOUT_SEC);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("CurrencyRatesRefresh stop sequence got interrupted");
+        }
+    }
+
+    private DefaultCurrencyConversion get(final RatesKey key) throws CurrencyConversionException {
+        try {
+            return cache.get(key);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof CurrencyConversionException) {
+                throw (CurrencyConversionException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (final UncheckedExecutionException e) {
+            // Runtime exceptions thrown by the plugin
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private DefaultCurrencyConversion loadCurrencyConversion(final Currency baseCurrency, @Nullable final DateTime dateConversion) throws CurrencyConversionException {
+        final CurrencyPluginApi pluginApi = getPluginApi();
+        final Set<Rate> allRates;
+        final Timer.Context timerContext = pluginCalls.time();
+        try {
+            allRates = dateConversion == null ? pluginApi.getCurrentRates(baseCurrency) : pluginApi.getRates(baseCurrency, dateConversion);
+        } finally {
+            timerContext.stop();
+        }
+        // Cached instances are shared
+        return new DefaultCurrencyConversion(baseCurrency, allRates == null ? ImmutableSet.<Rate>of() : ImmutableSet.<Rate>copyOf(allRates));
+    }
+
+    private CurrencyPluginApi getPluginApi() throws CurrencyConversionException {
+        final CurrencyPluginApi result = registry.getServiceForName(config.getDefaultCurrencyProvider());
+        if (result == null) {
+            throw new CurrencyConversionException(ErrorCode.CURRENCY_NO_SUCH_PAYMENT_PLUGIN, config.getDefaultCurrencyProvider());
+        }
+        return result;
+    }
+
+    private void registerMetrics(final MetricRegistry metricRegistry) {
+        registerMetric(metricRegistry, "size", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.size();
+            }
+        });
+        registerMetric(metricRegistry, "hits", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.stats().hitCount();
+            }
+        });
+        registerMetric(metricRegistry, "misses", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.stats().missCount();
+            }
+        });
+        registerMetric(metricRegistry, "loadFailures", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.stats().loadExceptionCount();
+            }
+        });
+        registerMetric(metricRegistry, "hitRate", new Gauge<Double>() {
+            @Override
+            public Double getValue() {
+                return cache.stats().hitRate();
+            }
+        });
+    }
+
+    private void registerMetric(final MetricRegistry metricRegistry, final String name, final Gauge<?> gauge) {
+        final String metricName = MetricRegistry.name(METRICS_PREFIX, name);
+        metricRegistry.remove(metricName);
+        metricRegistry.register(metricName, gauge);
+    }
+
+    private static final class RatesKey {
+
+        private static final long CURRENT = Long.MIN_VALUE;
+
+        private final Currency baseCurrency;
+        private final long dateBucket;
+
+        private RatesKey(final Currency baseCurrency, final long dateBucket) {
+            this.baseCurrency = baseCurrency;
+            this.dateBucket = dateBucket;
+        }
+
+        private boolean isCurrent() {
+            return dateBucket == CURRENT;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final RatesKey ratesKey = (RatesKey) o;
+            return dateBucket == ratesKey.dateBucket && baseCurrency == ratesKey.baseCurrency;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(baseCurrency, dateBucket);
+        }
+    }
+}
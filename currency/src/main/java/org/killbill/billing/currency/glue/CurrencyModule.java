@@ -20,6 +20,7 @@ package org.killbill.billing.currency.glue;
 
 import org.killbill.billing.currency.DefaultCurrencyService;
 import org.killbill.billing.currency.api.CurrencyConversionApi;
+import org.killbill.billing.currency.api.CurrencyRateCache;
 import org.killbill.billing.currency.api.CurrencyService;
 import org.killbill.billing.currency.api.DefaultCurrencyConversionApi;
 import org.killbill.billing.currency.plugin.api.CurrencyPluginApi;
@@ -45,6 +46,7 @@ public class CurrencyModule extends KillBillModule {
 
         bind(new TypeLiteral<OSGIServiceRegistration<CurrencyPluginApi>>() {}).toProvider(DefaultCurrencyProviderPluginRegistryProvider.class).asEagerSingleton();
 
+        bind(CurrencyRateCache.class).asEagerSingleton();
         bind(CurrencyConversionApi.class).to(DefaultCurrencyConversionApi.class).asEagerSingleton();
         bind(CurrencyService.class).to(DefaultCurrencyService.class).asEagerSingleton();
     }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.currency.api;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.currency.plugin.api.CurrencyPluginApi;
+import org.killbill.billing.osgi.api.OSGIServiceRegistration;
+import org.killbill.billing.util.config.definition.CurrencyConfig;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+
+public class TestCurrencyRateCache {
+
+    private static final String PLUGIN_NAME = "test-currency-plugin";
+
+    private CurrencyPluginApi pluginApi;
+    private OSGIServiceRegistration<CurrencyPluginApi> registry;
+    private CurrencyRateCache currencyRateCache;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        pluginApi = Mockito.mock(CurrencyPluginApi.class);
+        registry = Mockito.mock(OSGIServiceRegistration.class);
+        Mockito.when(registry.getServiceForName(PLUGIN_NAME)).thenReturn(pluginApi);
+        final Set<Rate> currentRates = createRates(Currency.USD, null);
+        Mockito.when(pluginApi.getCurrentRates(Mockito.<Currency>any())).thenReturn(currentRates);
+        final Set<Rate> historicalRates = createRates(Currency.USD, new DateTime(DateTimeZone.UTC));
+        Mockito.when(pluginApi.getRates(Mockito.<Currency>any(), Mockito.<DateTime>any())).thenReturn(historicalRates);
+    }
+
+    @AfterMethod(groups = "fast")
+    public void afterMethod() throws Exception {
+        if (currencyRateCache != null) {
+            currencyRateCache.stop();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testCurrentRatesAreCached() throws Exception {
+        currencyRateCache = createCurrencyRateCache("30m", "0s");
+
+        final DefaultCurrencyConversion conversion = currencyRateCache.getCurrentCurrencyConversion(Currency.USD);
+        Assert.assertEquals(conversion.getBaseCurrency(), Currency.USD);
+        Assert.assertEquals(conversion.getRates().size(), 1);
+        Assert.assertSame(currencyRateCache.getCurrentCurrencyConversion(Currency.USD), conversion);
+        Mockito.verify(pluginApi, Mockito.times(1)).getCurrentRates(Currency.USD);
+
+        // Cached per base currency
+        currencyRateCache.getCurrentCurrencyConversion(Currency.EUR);
+        Mockito.verify(pluginApi, Mockito.times(1)).getCurrentRates(Currency.EUR);
+
+        currencyRateCache.invalidateAll();
+        currencyRateCache.getCurrentCurrencyConversion(Currency.USD);
+        Mockito.verify(pluginApi, Mockito.times(2)).getCurrentRates(Currency.USD);
+    }
+
+    @Test(groups = "fast")
+    public void testHistoricalRatesKeyedByExactDateByDefault() throws Exception {
+        currencyRateCache = createCurrencyRateCache("30m", "0s");
+
+        final DateTime date = new DateTime(2018, 6, 1, 10, 15, DateTimeZone.UTC);
+        currencyRateCache.getCurrencyConversion(Currency.USD, date);
+        currencyRateCache.getCurrencyConversion(Currency.USD, date);
+        Mockito.verify(pluginApi, Mockito.times(1)).getRates(Currency.USD, date);
+
+        // No bucketing: the plugin is asked for the exact date
+        final DateTime sameHour = date.plusMinutes(30);
+        currencyRateCache.getCurrencyConversion(Currency.USD, sameHour);
+        Mockito.verify(pluginApi, Mockito.times(1)).getRates(Currency.USD, sameHour);
+    }
+
+    @Test(groups = "fast")
+    public void testHistoricalRatesWithDateBucket() throws Exception {
+        currencyRateCache = createCurrencyRateCache("30m", "1h");
+
+        final DateTime bucketStart = new DateTime(2018, 6, 1, 10, 0, DateTimeZone.UTC);
+        currencyRateCache.getCurrencyConversion(Currency.USD, bucketStart.plusMinutes(15));
+        currencyRateCache.getCurrencyConversion(Currency.USD, bucketStart.plusMinutes(45));
+        // Both dates get the rates effective at the start of the bucket
+        Mockito.verify(pluginApi, Mockito.times(1)).getRates(Currency.USD, bucketStart);
+
+        currencyRateCache.getCurrencyConversion(Currency.USD, bucketStart.plusHours(1));
+        Mockito.verify(pluginApi, Mockito.times(1)).getRates(Currency.USD, bucketStart.plusHours(1));
+        Mockito.verify(pluginApi, Mockito.times(2)).getRates(Mockito.<Currency>any(), Mockito.<DateTime>any());
+    }
+
+    @Test(groups = "fast")
+    public void testCacheDisabled() throws Exception {
+        currencyRateCache = createCurrencyRateCache("0s", "0s");
+
+        currencyRateCache.getCurrentCurrencyConversion(Currency.USD);
+        currencyRateCache.getCurrentCurrencyConversion(Currency.USD);
+        Mockito.verify(pluginApi, Mockito.times(2)).getCurrentRates(Currency.USD);
+    }
+
+    @Test(groups = "fast")
+    public void testFailedLoadIsNotCached() throws Exception {
+        currencyRateCache = createCurrencyRateCache("30m", "0s");
+
+        Mockito.when(registry.getServiceForName(PLUGIN_NAME)).thenReturn(null);
+        try {
+            currencyRateCache.getCurrentCurrencyConversion(Currency.USD);
+            Assert.fail("No currency plugin registered");
+        } catch (final CurrencyConversionException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.CURRENCY_NO_SUCH_PAYMENT_PLUGIN.getCode());
+        }
+
+        Mockito.when(registry.getServiceForName(PLUGIN_NAME)).thenReturn(pluginApi);
+        Assert.assertEquals(currencyRateCache.getCurrentCurrencyConversion(Currency.USD).getRates().size(), 1);
+    }
+
+    private CurrencyRateCache createCurrencyRateCache(final String ttl, final String dateBucket) {
+        final CurrencyConfig config = Mockito.mock(CurrencyConfig.class);
+        Mockito.when(config.getDefaultCurrencyProvider()).thenReturn(PLUGIN_NAME);
+        Mockito.when(config.getRatesCacheTTL()).thenReturn(new TimeSpan(ttl));
+        Mockito.when(config.getRatesCacheRefreshAhead()).thenReturn(new TimeSpan("0s"));
+        Mockito.when(config.getRatesCacheDateBucket()).thenReturn(new TimeSpan(dateBucket));
+        Mockito.when(config.getRatesCacheMaxSize()).thenReturn(1000);
+        return new CurrencyRateCache(config, registry, new MetricRegistry());
+    }
+
+    private Set<Rate> createRates(final Currency baseCurrency, final DateTime conversionDate) {
+        final Rate rate = Mockito.mock(Rate.class);
+        Mockito.when(rate.getBaseCurrency()).thenReturn(baseCurrency);
+        Mockito.when(rate.getCurrency()).thenReturn(Currency.EUR);
+        Mockito.when(rate.getValue()).thenReturn(new BigDecimal("0.85"));
+        Mockito.when(rate.getConversionDate()).thenReturn(conversionDate);
+        return ImmutableSet.<Rate>of(rate);
+    }
+}
@@ -43,6 +43,7 @@ import org.killbill.billing.util.callcontext.CallOrigin;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.metrics.TimedNotificationQueueHandler;
 import org.killbill.bus.api.BusEvent;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
@@ -121,7 +122,7 @@ public class DefaultEntitlementService implements EntitlementService {
 
             entitlementEventQueue = notificationQueueService.createNotificationQueue(KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(),
                                                                                      NOTIFICATION_QUEUE_NAME,
-                                                                                     queueHandler);
+                                                                                     new TimedNotificationQueueHandler(KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(), NOTIFICATION_QUEUE_NAME, queueHandler));
         } catch (final NotificationQueueAlreadyExists e) {
             throw new RuntimeException(e);
         }
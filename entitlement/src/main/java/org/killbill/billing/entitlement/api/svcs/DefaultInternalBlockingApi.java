@@ -48,6 +48,11 @@ public class DefaultInternalBlockingApi implements BlockingInternalApi {
         return dao.getBlockingStateForService(overdueableId, blockingStateType, serviceName, context);
     }
 
+    @Override
+    public List<BlockingState> getBlockingStatesForServiceAndType(final String serviceName, final BlockingStateType blockingStateType, final InternalTenantContext context) {
+        return dao.getBlockingStatesForServiceAndType(serviceName, blockingStateType, context);
+    }
+
     @Override
     public List<BlockingState> getBlockingAllForAccount(final Catalog catalog, final InternalTenantContext context) {
         return dao.getBlockingAllForAccountRecordId(catalog, context);
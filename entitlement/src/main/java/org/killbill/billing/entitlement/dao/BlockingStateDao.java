@@ -56,6 +56,16 @@ public interface BlockingStateDao extends EntityDao<BlockingStateModelDao, Block
      */
     public List<BlockingState> getBlockingState(UUID blockableId, BlockingStateType blockingStateType, DateTime upToDate, InternalTenantContext context);
 
+    /**
+     * Returns the current state for that specific service, for all the blockable objects of that type in the tenant
+     *
+     * @param serviceName       name of the service
+     * @param blockingStateType blockable object type
+     * @param context           tenant context
+     * @return list of current blocking states (one per blockable object having a state for that service)
+     */
+    public List<BlockingState> getBlockingStatesForServiceAndType(String serviceName, BlockingStateType blockingStateType, InternalTenantContext context);
+
     /**
      * Return all events (past and future) across all services) for a given callcontext (account_record_id)
      *
@@ -54,6 +54,12 @@ public interface BlockingStateSqlDao extends EntitySqlDao<BlockingStateModelDao,
     public abstract List<BlockingStateModelDao> getBlockingAllUpToForAccount(@Bind("effectiveDate") Date effectiveDate,
                                                                              @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    public abstract List<BlockingStateModelDao> getBlockingStatesForServiceAndType(@Bind("service") String serviceName,
+                                                                                   @Bind("type") BlockingStateType blockingStateType,
+                                                                                   @Bind("effectiveDate") Date effectiveDate,
+                                                                                   @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public abstract List<BlockingStateModelDao> getBlockingHistoryForService(@Bind("blockableId") UUID blockableId,
                                                                              @Bind("service") String serviceName,
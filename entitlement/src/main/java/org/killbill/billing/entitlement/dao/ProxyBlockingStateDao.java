@@ -214,6 +214,11 @@ public class ProxyBlockingStateDao implements BlockingStateDao {
         return delegate.get(offset, limit, context);
     }
 
+    @Override
+    public Pagination<BlockingStateModelDao> get(final String continuationToken, final Long limit, final boolean withCount, final InternalTenantContext context) {
+        return delegate.get(continuationToken, limit, withCount, context);
+    }
+
     @Override
     public Long getCount(final InternalTenantContext context) {
         return delegate.getCount(context);
@@ -234,6 +239,11 @@ public class ProxyBlockingStateDao implements BlockingStateDao {
         return delegate.getBlockingState(blockableId, blockingStateType, upToDate, context);
     }
 
+    @Override
+    public List<BlockingState> getBlockingStatesForServiceAndType(final String serviceName, final BlockingStateType blockingStateType, final InternalTenantContext context) {
+        return delegate.getBlockingStatesForServiceAndType(serviceName, blockingStateType, context);
+    }
+
     @Override
     public List<BlockingState> getBlockingAllForAccountRecordId(final Catalog catalog, final InternalTenantContext context) {
         final List<BlockingState> statesOnDisk = delegate.getBlockingAllForAccountRecordId(catalog, context);
@@ -63,6 +63,18 @@ public class MockBlockingStateDao extends MockEntityDaoBase<BlockingStateModelDa
         return filtered.size() == 0 ? null : filtered.get(filtered.size() - 1);
     }
 
+    @Override
+    public List<BlockingState> getBlockingStatesForServiceAndType(final String serviceName, final BlockingStateType blockingStateType, final InternalTenantContext context) {
+        final List<BlockingState> result = new ArrayList<BlockingState>();
+        for (final UUID blockableId : blockingStates.keySet()) {
+            final BlockingState blockingState = getBlockingStateForService(blockableId, blockingStateType, serviceName, context);
+            if (blockingState != null && blockingState.getType() == blockingStateType) {
+                result.add(blockingState);
+            }
+        }
+        return result;
+    }
+
     @Override
     public List<BlockingState> getBlockingState(final UUID blockableId, final BlockingStateType blockingStateType, final DateTime upToDate, final InternalTenantContext context) {
         final List<BlockingState> blockingStatesForId = blockingStates.get(blockableId);
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Iterator;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.invoice.api.AccountUnpaidInvoicesAggregate;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+// Folds the invoice balances (ordered by account) into one aggregate per account with unpaid invoices, as they are streamed
+public class AccountUnpaidInvoicesAggregateIterator extends AbstractIterator<AccountUnpaidInvoicesAggregate> implements Closeable {
+
+    private final Iterator<InvoiceBalanceModelDao> delegate;
+    private final PeekingIterator<InvoiceBalanceModelDao> invoiceBalances;
+
+    public AccountUnpaidInvoicesAggregateIterator(final Iterator<InvoiceBalanceModelDao> invoiceBalances) {
+        this.delegate = invoiceBalances;
+        this.invoiceBalances = Iterators.peekingIterator(invoiceBalances);
+    }
+
+    @Override
+    protected AccountUnpaidInvoicesAggregate computeNext() {
+        while (invoiceBalances.hasNext()) {
+            final Long accountRecordId = invoiceBalances.peek().getAccountRecordId();
+
+            InvoiceBalanceModelDao unpaidInvoice = null;
+            int numberOfUnpaidInvoices = 0;
+            BigDecimal balance = BigDecimal.ZERO;
+            LocalDate dateOfEarliestUnpaidInvoice = null;
+            while (invoiceBalances.hasNext() && invoiceBalances.peek().getAccountRecordId().equals(accountRecordId)) {
+                final InvoiceBalanceModelDao invoiceBalance = invoiceBalances.next();
+                if (!invoiceBalance.isUnpaid()) {
+                    continue;
+                }
+
+                unpaidInvoice = invoiceBalance;
+                numberOfUnpaidInvoices++;
+                balance = balance.add(invoiceBalance.getBalance());
+                if (dateOfEarliestUnpaidInvoice == null || invoiceBalance.getInvoiceDate().isBefore(dateOfEarliestUnpaidInvoice)) {
+                    dateOfEarliestUnpaidInvoice = invoiceBalance.getInvoiceDate();
+                }
+            }
+
+            if (unpaidInvoice != null) {
+                return new AccountUnpaidInvoicesAggregate(unpaidInvoice.getAccountId(), numberOfUnpaidInvoices, balance, dateOfEarliestUnpaidInvoice);
+            }
+        }
+        return endOfData();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            // Always the case with the current implementation (delegate is a org.skife.jdbi.v2.ResultIterator)
+            ((Closeable) delegate).close();
+        } else {
+            while (delegate.hasNext()) {
+                delegate.next();
+            }
+        }
+    }
+}
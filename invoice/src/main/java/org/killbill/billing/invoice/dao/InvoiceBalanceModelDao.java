@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.util.currency.KillBillMoney;
+
+//
+// Amounts of a committed invoice (and of its parent invoice, if any), summed per category by InvoiceSqlDao#getInvoiceBalancesForTenant.
+// The balance is derived as in InvoiceDaoHelper#getUnpaidInvoicesByAccountFromTransaction and DefaultInvoice#getBalance:
+// - charged: charges, item and invoice adjustments, parent summary items and credit adjustments
+// - credited: account credit gained or consumed (CBA_ADJ)
+// - paid: successful payment attempts
+// - refunded: successful refunds and chargebacks
+// Each category is rounded on its own (see InvoiceCalculatorUtils#computeRawInvoiceBalance).
+//
+public class InvoiceBalanceModelDao {
+
+    private final Long accountRecordId;
+    private final UUID accountId;
+    private final LocalDate invoiceDate;
+    private final Currency currency;
+    private final boolean migrated;
+    private final BigDecimal chargedAmount;
+    private final BigDecimal creditedAmount;
+    private final BigDecimal paidAmount;
+    private final BigDecimal refundedAmount;
+    private final Currency parentCurrency;
+    private final boolean parentMigrated;
+    private final InvoiceStatus parentStatus;
+    private final BigDecimal parentChargedAmount;
+    private final BigDecimal parentCreditedAmount;
+    private final BigDecimal parentPaidAmount;
+    private final BigDecimal parentRefundedAmount;
+
+    public InvoiceBalanceModelDao(final Long accountRecordId, final UUID accountId, final LocalDate invoiceDate, final Currency currency, final boolean migrated,
+                                  @Nullable final BigDecimal chargedAmount, @Nullable final BigDecimal creditedAmount,
+                                  @Nullable final BigDecimal paidAmount, @Nullable final BigDecimal refundedAmount,
+                                  @Nullable final Currency parentCurrency, final boolean parentMigrated, @Nullable final InvoiceStatus parentStatus,
+                                  @Nullable final BigDecimal parentChargedAmount, @Nullable final BigDecimal parentCreditedAmount,
+                                  @Nullable final BigDecimal parentPaidAmount, @Nullable final BigDecimal parentRefundedAmount) {
+        this.accountRecordId = accountRecordId;
+        this.accountId = accountId;
+        this.invoiceDate = invoiceDate;
+        this.currency = currency;
+        this.migrated = migrated;
+        this.chargedAmount = chargedAmount;
+        this.creditedAmount = creditedAmount;
+        this.paidAmount = paidAmount;
+        this.refundedAmount = refundedAmount;
+        this.parentCurrency = parentCurrency;
+        this.parentMigrated = parentMigrated;
+        this.parentStatus = parentStatus;
+        this.parentChargedAmount = parentChargedAmount;
+        this.parentCreditedAmount = parentCreditedAmount;
+        this.parentPaidAmount = parentPaidAmount;
+        this.parentRefundedAmount = parentRefundedAmount;
+    }
+
+    public Long getAccountRecordId() {
+        return accountRecordId;
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public LocalDate getInvoiceDate() {
+        return invoiceDate;
+    }
+
+    public boolean hasParentInvoice() {
+        return parentCurrency != null;
+    }
+
+    // Child invoices are unpaid as long as their parent invoice is
+    public boolean isUnpaid() {
+        final BigDecimal balance = hasParentInvoice() ? getParentRawBalance() : getRawBalance();
+        return balance.compareTo(BigDecimal.ZERO) > 0;
+    }
+
+    public BigDecimal getBalance() {
+        if (migrated) {
+            return BigDecimal.ZERO;
+        }
+        if (hasParentInvoice() &&
+            (parentMigrated || parentStatus != InvoiceStatus.COMMITTED || getParentRawBalance().compareTo(BigDecimal.ZERO) == 0)) {
+            return BigDecimal.ZERO;
+        }
+        return getRawBalance();
+    }
+
+    private BigDecimal getRawBalance() {
+        return computeRawBalance(currency, migrated, chargedAmount, creditedAmount, paidAmount, refundedAmount);
+    }
+
+    private BigDecimal getParentRawBalance() {
+        return computeRawBalance(parentCurrency, parentMigrated, parentChargedAmount, parentCreditedAmount, parentPaidAmount, parentRefundedAmount);
+    }
+
+    private static BigDecimal computeRawBalance(final Currency currency, final boolean migrated,
+                                                @Nullable final BigDecimal chargedAmount, @Nullable final BigDecimal creditedAmount,
+                                                @Nullable final BigDecimal paidAmount, @Nullable final BigDecimal refundedAmount) {
+        if (migrated) {
+            return BigDecimal.ZERO;
+        }
+
+        final BigDecimal amountPaid = roundOrZero(paidAmount, currency).add(roundOrZero(refundedAmount, currency));
+        final BigDecimal amountCharged = roundOrZero(chargedAmount, currency).add(roundOrZero(creditedAmount, currency));
+        return KillBillMoney.of(amountCharged.add(amountPaid.negate()), currency);
+    }
+
+    private static BigDecimal roundOrZero(@Nullable final BigDecimal amount, final Currency currency) {
+        return KillBillMoney.of(amount == null ? BigDecimal.ZERO : amount, currency);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.InvoiceStatus;
+import org.killbill.billing.util.dao.MapperBase;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+public class InvoiceBalanceModelDaoMapper extends MapperBase implements ResultSetMapper<InvoiceBalanceModelDao> {
+
+    @Override
+    public InvoiceBalanceModelDao map(final int index, final ResultSet r, final StatementContext ctx) throws SQLException {
+        final String parentCurrency = r.getString("parent_currency");
+        final String parentStatus = r.getString("parent_status");
+        return new InvoiceBalanceModelDao(r.getLong("account_record_id"),
+                                          getUUID(r, "account_id"),
+                                          getDate(r, "invoice_date"),
+                                          Currency.valueOf(r.getString("currency")),
+                                          r.getBoolean("migrated"),
+                                          r.getBigDecimal("charged_amount"),
+                                          r.getBigDecimal("credited_amount"),
+                                          r.getBigDecimal("paid_amount"),
+                                          r.getBigDecimal("refunded_amount"),
+                                          parentCurrency == null ? null : Currency.valueOf(parentCurrency),
+                                          r.getBoolean("parent_migrated"),
+                                          parentStatus == null ? null : InvoiceStatus.valueOf(parentStatus),
+                                          r.getBigDecimal("parent_charged_amount"),
+                                          r.getBigDecimal("parent_credited_amount"),
+                                          r.getBigDecimal("parent_paid_amount"),
+                                          r.getBigDecimal("parent_refunded_amount"));
+    }
+}
@@ -19,6 +19,8 @@
 package org.killbill.billing.invoice.dao;
 
 import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 
@@ -33,6 +35,7 @@ import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.Mapper;
 import org.skife.jdbi.v2.unstable.BindIn;
 
 @KillBillSqlDaoStringTemplate
@@ -64,6 +67,13 @@ public interface InvoiceSqlDao extends EntitySqlDao<InvoiceModelDao, Invoice> {
     List<InvoiceModelDao> getByIds(@BindIn("ids") final Collection<String> invoiceIds,
                                    @SmartBindBean final InternalTenantContext context);
 
+    // Not an EntitySqlDao model: the mapper isn't registered globally (see IDBISetup)
+    @SqlQuery
+    @Mapper(InvoiceBalanceModelDaoMapper.class)
+    Iterator<InvoiceBalanceModelDao> getInvoiceBalancesForTenant(@Bind("upToDate") final Date upToDate,
+                                                                 @Bind("writtenOffTagDefinitionId") final String writtenOffTagDefinitionId,
+                                                                 @SmartBindBean final InternalTenantContext context);
+
 
 }
 
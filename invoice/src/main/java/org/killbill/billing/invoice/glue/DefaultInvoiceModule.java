@@ -27,6 +27,7 @@ import org.killbill.billing.invoice.api.DefaultInvoiceService;
 import org.killbill.billing.invoice.api.InvoiceApiHelper;
 import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.invoice.api.InvoiceListenerService;
+import org.killbill.billing.invoice.api.InvoicePaginationUserApi;
 import org.killbill.billing.invoice.api.InvoiceService;
 import org.killbill.billing.invoice.api.InvoiceUserApi;
 import org.killbill.billing.invoice.api.formatters.InvoiceFormatterFactory;
@@ -47,10 +48,13 @@ import org.killbill.billing.invoice.notification.DefaultNextBillingDatePoster;
 import org.killbill.billing.invoice.notification.NextBillingDateNotifier;
 import org.killbill.billing.invoice.notification.NextBillingDatePoster;
 import org.killbill.billing.invoice.plugin.api.InvoicePluginApi;
+import org.killbill.billing.invoice.template.InvoiceTemplateCache;
+import org.killbill.billing.invoice.template.InvoiceTemplateCacheInvalidationCallback;
 import org.killbill.billing.invoice.template.bundles.DefaultResourceBundleFactory;
 import org.killbill.billing.invoice.usage.RawUsageOptimizer;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
 import org.killbill.billing.util.config.definition.InvoiceConfig;
 import org.killbill.billing.util.glue.KillBillModule;
 import org.killbill.billing.util.template.translation.TranslatorConfig;
@@ -61,6 +65,8 @@ import com.google.inject.name.Names;
 
 public class DefaultInvoiceModule extends KillBillModule implements InvoiceModule {
 
+    public static final String INVOICE_TEMPLATE_INVALIDATION_CALLBACK = "InvoiceTemplateInvalidationCallback";
+
     InvoiceConfig staticInvoiceConfig;
 
     public DefaultInvoiceModule(final KillbillConfigSource configSource) {
@@ -75,7 +81,9 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
 
     @Override
     public void installInvoiceUserApi() {
-        bind(InvoiceUserApi.class).to(DefaultInvoiceUserApi.class).asEagerSingleton();
+        bind(DefaultInvoiceUserApi.class).asEagerSingleton();
+        bind(InvoiceUserApi.class).to(DefaultInvoiceUserApi.class);
+        bind(InvoicePaginationUserApi.class).to(DefaultInvoiceUserApi.class);
     }
 
     @Override
@@ -100,6 +108,8 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
 
     protected void installResourceBundleFactory() {
         bind(ResourceBundleFactory.class).to(DefaultResourceBundleFactory.class).asEagerSingleton();
+        bind(InvoiceTemplateCache.class).asEagerSingleton();
+        bind(CacheInvalidationCallback.class).annotatedWith(Names.named(INVOICE_TEMPLATE_INVALIDATION_CALLBACK)).to(InvoiceTemplateCacheInvalidationCallback.class).asEagerSingleton();
     }
 
 
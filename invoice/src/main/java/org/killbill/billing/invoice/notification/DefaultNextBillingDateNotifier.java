@@ -26,6 +26,7 @@ import org.killbill.billing.invoice.api.DefaultInvoiceService;
 import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
 import org.killbill.billing.subscription.api.SubscriptionBaseInternalApi;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.metrics.TimedNotificationQueueHandler;
 import org.killbill.clock.Clock;
 import org.killbill.notificationq.api.NotificationEvent;
 import org.killbill.notificationq.api.NotificationQueue;
@@ -96,7 +97,7 @@ public class DefaultNextBillingDateNotifier extends RetryableService implements
         final NotificationQueueHandler retryableHandler = new RetryableHandler(clock, this, notificationQueueHandler);
         nextBillingQueue = notificationQueueService.createNotificationQueue(KILLBILL_SERVICES.INVOICE_SERVICE.getServiceName(),
                                                                             NEXT_BILLING_DATE_NOTIFIER_QUEUE,
-                                                                            retryableHandler);
+                                                                            new TimedNotificationQueueHandler(KILLBILL_SERVICES.INVOICE_SERVICE.getServiceName(), NEXT_BILLING_DATE_NOTIFIER_QUEUE, retryableHandler));
 
         super.initialize(nextBillingQueue, notificationQueueHandler);
     }
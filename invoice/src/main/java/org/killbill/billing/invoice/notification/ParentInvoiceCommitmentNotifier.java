@@ -25,6 +25,7 @@ import org.killbill.billing.invoice.api.DefaultInvoiceService;
 import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.billing.util.metrics.TimedNotificationQueueHandler;
 import org.killbill.notificationq.api.NotificationEvent;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
@@ -78,7 +79,7 @@ public class ParentInvoiceCommitmentNotifier implements NextBillingDateNotifier
 
         commitInvoiceQueue = notificationQueueService.createNotificationQueue(KILLBILL_SERVICES.INVOICE_SERVICE.getServiceName(),
                                                                               PARENT_INVOICE_COMMITMENT_NOTIFIER_QUEUE,
-                                                                              notificationQueueHandler);
+                                                                              new TimedNotificationQueueHandler(KILLBILL_SERVICES.INVOICE_SERVICE.getServiceName(), PARENT_INVOICE_COMMITMENT_NOTIFIER_QUEUE, notificationQueueHandler));
     }
 
     @Override
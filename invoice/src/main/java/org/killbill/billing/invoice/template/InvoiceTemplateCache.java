@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.template;
+
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.invoice.api.formatters.ResourceBundleFactory.ResourceBundleType;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+//
+// Per tenant cache of the invoice template texts and of the parsed translation bundles, used for HTML invoice rendering:
+// - entries are keyed by locale (and template kind or bundle path/type), the global defaults being cached under the internal tenant
+// - the tenant entries are invalidated through the tenant broadcast mechanism (see InvoiceTemplateCacheInvalidationCallback),
+//   by swapping the whole entries object: a load racing with the invalidation only populates the discarded object
+// - the compiled Mustache templates are cached by the TemplateEngine, keyed by template text
+//
+public class InvoiceTemplateCache {
+
+    private static final int MAX_TENANTS = 1000;
+
+    private final Cache<Long, TenantEntries> entriesPerTenant;
+
+    @Inject
+    public InvoiceTemplateCache() {
+        this.entriesPerTenant = CacheBuilder.newBuilder()
+                                            .maximumSize(MAX_TENANTS)
+                                            .build();
+    }
+
+    public String getTemplateText(final Long tenantRecordId, final Locale locale, final boolean manualPay, final Callable<String> loader) throws Exception {
+        final String key = locale + "/" + manualPay;
+        final TenantEntries entries = getEntries(tenantRecordId);
+        final String cached = entries.templateTexts.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final String templateText = loader.call();
+        if (templateText != null) {
+            entries.templateTexts.putIfAbsent(key, templateText);
+        }
+        return templateText;
+    }
+
+    public ResourceBundle getBundle(final Long tenantRecordId, final Locale locale, final String bundlePath, final ResourceBundleType type, final Callable<ResourceBundle> loader) throws Exception {
+        final String key = locale + "/" + bundlePath + "/" + type;
+        final TenantEntries entries = getEntries(tenantRecordId);
+        final Optional<ResourceBundle> cached = entries.bundles.get(key);
+        if (cached != null) {
+            return cached.orNull();
+        }
+
+        // Missing bundles are cached as well
+        final ResourceBundle bundle = loader.call();
+        entries.bundles.putIfAbsent(key, Optional.<ResourceBundle>fromNullable(bundle));
+        return bundle;
+    }
+
+    public void invalidate(final Long tenantRecordId) {
+        entriesPerTenant.invalidate(tenantRecordId);
+    }
+
+    public void invalidateAll() {
+        entriesPerTenant.invalidateAll();
+    }
+
+    private TenantEntries getEntries(final Long tenantRecordId) {
+        try {
+            return entriesPerTenant.get(tenantRecordId, new Callable<TenantEntries>() {
+                @Override
+                public TenantEntries call() {
+                    return new TenantEntries();
+                }
+            });
+        } catch (final ExecutionException e) {
+            // Not reachable, the loader doesn't throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class TenantEntries {
+
+        private final ConcurrentMap<String, String> templateTexts = new ConcurrentHashMap<String, String>();
+        private final ConcurrentMap<String, Optional<ResourceBundle>> bundles = new ConcurrentHashMap<String, Optional<ResourceBundle>>();
+    }
+}
@@ -25,11 +25,13 @@ import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
 
 import javax.inject.Inject;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.invoice.api.formatters.ResourceBundleFactory;
+import org.killbill.billing.invoice.template.InvoiceTemplateCache;
 import org.killbill.billing.tenant.api.TenantInternalApi;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.xmlloader.UriAccessor;
@@ -43,14 +45,30 @@ public class DefaultResourceBundleFactory implements ResourceBundleFactory {
     private static final Logger logger = LoggerFactory.getLogger(DefaultResourceBundleFactory.class);
 
     private final TenantInternalApi tenantApi;
+    private final InvoiceTemplateCache invoiceTemplateCache;
 
     @Inject
-    public DefaultResourceBundleFactory(final TenantInternalApi tenantApi) {
+    public DefaultResourceBundleFactory(final TenantInternalApi tenantApi, final InvoiceTemplateCache invoiceTemplateCache) {
         this.tenantApi = tenantApi;
+        this.invoiceTemplateCache = invoiceTemplateCache;
     }
 
     @Override
     public ResourceBundle createBundle(final Locale locale, final String bundlePath, final ResourceBundleType type, final InternalTenantContext tenantContext) {
+        try {
+            return invoiceTemplateCache.getBundle(tenantContext.getTenantRecordId(), locale, bundlePath, type, new Callable<ResourceBundle>() {
+                @Override
+                public ResourceBundle call() {
+                    return loadBundle(locale, bundlePath, type, tenantContext);
+                }
+            });
+        } catch (final Exception e) {
+            // Not reachable, the loader doesn't throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ResourceBundle loadBundle(final Locale locale, final String bundlePath, final ResourceBundleType type, final InternalTenantContext tenantContext) {
         if (InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID.equals(tenantContext.getTenantRecordId())) {
             return getGlobalBundle(locale, bundlePath);
         }
@@ -18,6 +18,7 @@
 
 package org.killbill.billing.invoice.dao;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -48,6 +49,7 @@ import org.killbill.billing.catalog.api.Product;
 import org.killbill.billing.entity.EntityPersistenceException;
 import org.killbill.billing.invoice.InvoiceTestSuiteWithEmbeddedDB;
 import org.killbill.billing.invoice.MockBillingEventSet;
+import org.killbill.billing.invoice.api.AccountUnpaidInvoicesAggregate;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceItem;
@@ -71,6 +73,7 @@ import org.killbill.billing.junction.BillingEventSet;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.util.currency.KillBillMoney;
+import org.killbill.billing.util.entity.Pagination;
 import org.killbill.clock.ClockMock;
 import org.mockito.Mockito;
 import org.skife.jdbi.v2.exceptions.TransactionFailedException;
@@ -1188,6 +1191,98 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
      * this test verifies that immediate changes give the correct results
      *
      */
+    @Test(groups = "slow")
+    public void testGetUnpaidInvoicesAggregatesForTenant() throws Exception {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final LocalDate today = clock.getUTCToday();
+
+        // Partially paid invoice
+        final Invoice invoice1 = new DefaultInvoice(accountId, today.minusDays(10), today.minusDays(10), Currency.USD);
+        invoice1.addInvoiceItem(new RecurringInvoiceItem(invoice1.getId(), accountId, bundleId, UUID.randomUUID(), "test product", "test plan", "test phase", today.minusDays(10), today.plusDays(20),
+                                                         new BigDecimal("42.00"), new BigDecimal("42.00"), Currency.USD));
+        invoiceUtil.createInvoice(invoice1, context);
+        final DefaultInvoicePayment payment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice1.getId(), clock.getUTCNow(), new BigDecimal("12.00"), Currency.USD, Currency.USD, "cookie", true);
+        invoiceDao.notifyOfPaymentCompletion(new InvoicePaymentModelDao(payment), context);
+
+        // Invoice with an amount which needs rounding
+        final InvoiceModelDao invoice2 = new InvoiceModelDao(accountId, today, today, Currency.USD, false);
+        invoice2.addInvoiceItem(new InvoiceItemModelDao(new ExternalChargeInvoiceItem(invoice2.getId(), accountId, bundleId, "charge", today, today, new BigDecimal("15.333"), Currency.USD, null)));
+        invoiceDao.createInvoices(ImmutableList.<InvoiceModelDao>of(invoice2), ImmutableSet.of(), context);
+
+        // Account credit, consumed by the unpaid invoices (CREDIT_ADJ and CBA_ADJ items)
+        createCredit(accountId, today, new BigDecimal("10.00"), false);
+
+        final AccountUnpaidInvoicesAggregate aggregate = getUnpaidInvoicesAggregate(accountId, today);
+        assertNotNull(aggregate);
+
+        // Same result as the per-account path used by BillingStateCalculator
+        final List<InvoiceModelDao> unpaidInvoices = invoiceDao.getUnpaidInvoicesByAccountId(accountId, today, context);
+        BigDecimal balance = BigDecimal.ZERO;
+        LocalDate dateOfEarliestUnpaidInvoice = null;
+        for (final InvoiceModelDao unpaidInvoice : unpaidInvoices) {
+            balance = balance.add(new DefaultInvoice(unpaidInvoice).getBalance());
+            if (dateOfEarliestUnpaidInvoice == null || unpaidInvoice.getInvoiceDate().isBefore(dateOfEarliestUnpaidInvoice)) {
+                dateOfEarliestUnpaidInvoice = unpaidInvoice.getInvoiceDate();
+            }
+        }
+        assertEquals(aggregate.getNumberOfUnpaidInvoices(), unpaidInvoices.size());
+        assertEquals(aggregate.getBalanceOfUnpaidInvoices().compareTo(balance), 0);
+        assertEquals(aggregate.getDateOfEarliestUnpaidInvoice(), dateOfEarliestUnpaidInvoice);
+
+        // 42.00 - 12.00 + 15.333 (rounded) - 10.00
+        assertEquals(aggregate.getNumberOfUnpaidInvoices(), 2);
+        assertEquals(aggregate.getBalanceOfUnpaidInvoices().compareTo(new BigDecimal("35.33")), 0);
+        assertEquals(aggregate.getDateOfEarliestUnpaidInvoice(), today.minusDays(10));
+    }
+
+    @Test(groups = "slow")
+    public void testGetUnpaidInvoicesAggregatesForTenantWithParentInvoice() throws Exception {
+        final UUID childAccountId = account.getId();
+        final Account parentAccount = invoiceUtil.createAccount(callContext);
+        final InternalCallContext parentContext = internalCallContextFactory.createInternalCallContext(parentAccount.getId(), callContext);
+        final LocalDate today = clock.getUTCToday();
+
+        final InvoiceModelDao childInvoice = new InvoiceModelDao(childAccountId, today, today, Currency.USD, false);
+        childInvoice.addInvoiceItem(new InvoiceItemModelDao(new ExternalChargeInvoiceItem(childInvoice.getId(), childAccountId, null, "charge", today, today, new BigDecimal("20.00"), Currency.USD, null)));
+        invoiceDao.createInvoices(ImmutableList.<InvoiceModelDao>of(childInvoice), ImmutableSet.of(), context);
+
+        final InvoiceModelDao parentInvoice = new InvoiceModelDao(parentAccount.getId(), today, Currency.USD, InvoiceStatus.COMMITTED, true);
+        parentInvoice.addInvoiceItem(new InvoiceItemModelDao(new ParentInvoiceItem(UUID.randomUUID(), clock.getUTCNow(), parentInvoice.getId(), parentAccount.getId(), childAccountId, new BigDecimal("20.00"), Currency.USD, "")));
+        invoiceDao.createInvoices(ImmutableList.<InvoiceModelDao>of(parentInvoice), ImmutableSet.of(), parentContext);
+        invoiceDao.createParentChildInvoiceRelation(new InvoiceParentChildModelDao(parentInvoice.getId(), childInvoice.getId(), childAccountId), context);
+
+        // The child invoice is unpaid as long as the parent invoice is
+        final AccountUnpaidInvoicesAggregate aggregate = getUnpaidInvoicesAggregate(childAccountId, today);
+        assertNotNull(aggregate);
+        assertEquals(invoiceDao.getUnpaidInvoicesByAccountId(childAccountId, today, context).size(), 1);
+        assertEquals(aggregate.getNumberOfUnpaidInvoices(), 1);
+        assertEquals(aggregate.getBalanceOfUnpaidInvoices().compareTo(new BigDecimal("20.00")), 0);
+        assertNotNull(getUnpaidInvoicesAggregate(parentAccount.getId(), today));
+
+        final DefaultInvoicePayment payment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), parentInvoice.getId(), clock.getUTCNow(), new BigDecimal("20.00"), Currency.USD, Currency.USD, "cookie", true);
+        invoiceDao.notifyOfPaymentCompletion(new InvoicePaymentModelDao(payment), parentContext);
+
+        assertEquals(invoiceDao.getUnpaidInvoicesByAccountId(childAccountId, today, context).size(), 0);
+        assertNull(getUnpaidInvoicesAggregate(childAccountId, today));
+        assertNull(getUnpaidInvoicesAggregate(parentAccount.getId(), today));
+    }
+
+    private AccountUnpaidInvoicesAggregate getUnpaidInvoicesAggregate(final UUID accountId, final LocalDate upToDate) throws IOException {
+        AccountUnpaidInvoicesAggregate aggregate = null;
+        final Pagination<AccountUnpaidInvoicesAggregate> aggregates = invoiceDao.getUnpaidInvoicesAggregatesForTenant(upToDate, context);
+        try {
+            for (final AccountUnpaidInvoicesAggregate cur : aggregates) {
+                if (cur.getAccountId().equals(accountId)) {
+                    aggregate = cur;
+                }
+            }
+        } finally {
+            aggregates.close();
+        }
+        return aggregate;
+    }
+
     @Test(groups = "slow")
     public void testInvoiceGenerationForImmediateChanges() throws InvoiceApiException, CatalogApiException, EntityPersistenceException {
         final UUID accountId = account.getId();
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.template;
+
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
+import org.killbill.billing.invoice.api.formatters.ResourceBundleFactory.ResourceBundleType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestInvoiceTemplateCache extends InvoiceTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testTemplateTextIsCachedPerTenantUntilInvalidated() throws Exception {
+        final InvoiceTemplateCache cache = new InvoiceTemplateCache();
+        final AtomicInteger nbLoads = new AtomicInteger();
+        final Callable<String> loader = new Callable<String>() {
+            @Override
+            public String call() {
+                return "template-" + nbLoads.incrementAndGet();
+            }
+        };
+
+        Assert.assertEquals(cache.getTemplateText(1L, Locale.US, false, loader), "template-1");
+        Assert.assertEquals(cache.getTemplateText(1L, Locale.US, false, loader), "template-1");
+        // Different kind, locale or tenant
+        Assert.assertEquals(cache.getTemplateText(1L, Locale.US, true, loader), "template-2");
+        Assert.assertEquals(cache.getTemplateText(1L, Locale.FRANCE, false, loader), "template-3");
+        Assert.assertEquals(cache.getTemplateText(2L, Locale.US, false, loader), "template-4");
+
+        cache.invalidate(1L);
+        Assert.assertEquals(cache.getTemplateText(1L, Locale.US, false, loader), "template-5");
+        Assert.assertEquals(cache.getTemplateText(2L, Locale.US, false, loader), "template-4");
+    }
+
+    @Test(groups = "fast")
+    public void testMissingBundleIsCached() throws Exception {
+        final InvoiceTemplateCache cache = new InvoiceTemplateCache();
+        final AtomicInteger nbLoads = new AtomicInteger();
+        final Callable<ResourceBundle> loader = new Callable<ResourceBundle>() {
+            @Override
+            public ResourceBundle call() {
+                nbLoads.incrementAndGet();
+                return null;
+            }
+        };
+
+        Assert.assertNull(cache.getBundle(1L, Locale.US, "org/killbill/billing/util/template/translation/InvoiceTranslation", ResourceBundleType.INVOICE_TRANSLATION, loader));
+        Assert.assertNull(cache.getBundle(1L, Locale.US, "org/killbill/billing/util/template/translation/InvoiceTranslation", ResourceBundleType.INVOICE_TRANSLATION, loader));
+        Assert.assertEquals(nbLoads.get(), 1);
+    }
+}
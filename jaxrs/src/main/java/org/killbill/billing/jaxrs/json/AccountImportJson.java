@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.account.api.AccountImportItem;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(value="AccountImport")
+public class AccountImportJson {
+
+    @ApiModelProperty(required = true)
+    private final AccountJson account;
+    private final PaymentMethodJson paymentMethod;
+    private final List<UUID> tagDefinitionIds;
+    private final List<CustomFieldJson> customFields;
+
+    @JsonCreator
+    public AccountImportJson(@JsonProperty("account") final AccountJson account,
+                             @JsonProperty("paymentMethod") @Nullable final PaymentMethodJson paymentMethod,
+                             @JsonProperty("tagDefinitionIds") @Nullable final List<UUID> tagDefinitionIds,
+                             @JsonProperty("customFields") @Nullable final List<CustomFieldJson> customFields) {
+        this.account = account;
+        this.paymentMethod = paymentMethod;
+        this.tagDefinitionIds = tagDefinitionIds;
+        this.customFields = customFields;
+    }
+
+    // The account id, if specified, is preserved
+    public AccountImportItem toAccountImportItem() {
+        final Map<String, String> customFieldsByName = new LinkedHashMap<String, String>();
+        if (customFields != null) {
+            for (final CustomFieldJson customField : customFields) {
+                customFieldsByName.put(customField.getName(), customField.getValue());
+            }
+        }
+        return new AccountImportItem(account.getAccountId(),
+                                     account.toAccount(null),
+                                     tagDefinitionIds == null ? ImmutableList.<UUID>of() : tagDefinitionIds,
+                                     customFieldsByName);
+    }
+
+    public AccountJson getAccount() {
+        return account;
+    }
+
+    public PaymentMethodJson getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public List<UUID> getTagDefinitionIds() {
+        return tagDefinitionIds;
+    }
+
+    public List<CustomFieldJson> getCustomFields() {
+        return customFields;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountImportJson{" +
+               "account=" + account +
+               ", paymentMethod=" + paymentMethod +
+               ", tagDefinitionIds=" + tagDefinitionIds +
+               ", customFields=" + customFields +
+               '}';
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final AccountImportJson that = (AccountImportJson) o;
+
+        if (account != null ? !account.equals(that.account) : that.account != null) {
+            return false;
+        }
+        if (paymentMethod != null ? !paymentMethod.equals(that.paymentMethod) : that.paymentMethod != null) {
+            return false;
+        }
+        if (tagDefinitionIds != null ? !tagDefinitionIds.equals(that.tagDefinitionIds) : that.tagDefinitionIds != null) {
+            return false;
+        }
+        return customFields != null ? customFields.equals(that.customFields) : that.customFields == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = account != null ? account.hashCode() : 0;
+        result = 31 * result + (paymentMethod != null ? paymentMethod.hashCode() : 0);
+        result = 31 * result + (tagDefinitionIds != null ? tagDefinitionIds.hashCode() : 0);
+        result = 31 * result + (customFields != null ? customFields.hashCode() : 0);
+        return result;
+    }
+}
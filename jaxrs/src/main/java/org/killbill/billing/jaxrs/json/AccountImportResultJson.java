@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+
+@ApiModel(value="AccountImportResult")
+public class AccountImportResultJson {
+
+    private final String externalKey;
+    private final UUID accountId;
+    private final Boolean success;
+    private final Integer errorCode;
+    private final String errorMessage;
+    private final UUID paymentMethodId;
+    private final Integer paymentMethodErrorCode;
+    private final String paymentMethodErrorMessage;
+
+    @JsonCreator
+    public AccountImportResultJson(@JsonProperty("externalKey") final String externalKey,
+                                   @JsonProperty("accountId") @Nullable final UUID accountId,
+                                   @JsonProperty("success") final Boolean success,
+                                   @JsonProperty("errorCode") @Nullable final Integer errorCode,
+                                   @JsonProperty("errorMessage") @Nullable final String errorMessage,
+                                   @JsonProperty("paymentMethodId") @Nullable final UUID paymentMethodId,
+                                   @JsonProperty("paymentMethodErrorCode") @Nullable final Integer paymentMethodErrorCode,
+                                   @JsonProperty("paymentMethodErrorMessage") @Nullable final String paymentMethodErrorMessage) {
+        this.externalKey = externalKey;
+        this.accountId = accountId;
+        this.success = success;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+        this.paymentMethodId = paymentMethodId;
+        this.paymentMethodErrorCode = paymentMethodErrorCode;
+        this.paymentMethodErrorMessage = paymentMethodErrorMessage;
+    }
+
+    public String getExternalKey() {
+        return externalKey;
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public Boolean getSuccess() {
+        return success;
+    }
+
+    public Integer getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public UUID getPaymentMethodId() {
+        return paymentMethodId;
+    }
+
+    public Integer getPaymentMethodErrorCode() {
+        return paymentMethodErrorCode;
+    }
+
+    public String getPaymentMethodErrorMessage() {
+        return paymentMethodErrorMessage;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountImportResultJson{" +
+               "externalKey='" + externalKey + '\'' +
+               ", accountId=" + accountId +
+               ", success=" + success +
+               ", errorCode=" + errorCode +
+               ", errorMessage='" + errorMessage + '\'' +
+               ", paymentMethodId=" + paymentMethodId +
+               ", paymentMethodErrorCode=" + paymentMethodErrorCode +
+               ", paymentMethodErrorMessage='" + paymentMethodErrorMessage + '\'' +
+               '}';
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final AccountImportResultJson that = (AccountImportResultJson) o;
+
+        if (externalKey != null ? !externalKey.equals(that.externalKey) : that.externalKey != null) {
+            return false;
+        }
+        if (accountId != null ? !accountId.equals(that.accountId) : that.accountId != null) {
+            return false;
+        }
+        if (success != null ? !success.equals(that.success) : that.success != null) {
+            return false;
+        }
+        if (errorCode != null ? !errorCode.equals(that.errorCode) : that.errorCode != null) {
+            return false;
+        }
+        if (errorMessage != null ? !errorMessage.equals(that.errorMessage) : that.errorMessage != null) {
+            return false;
+        }
+        if (paymentMethodId != null ? !paymentMethodId.equals(that.paymentMethodId) : that.paymentMethodId != null) {
+            return false;
+        }
+        if (paymentMethodErrorCode != null ? !paymentMethodErrorCode.equals(that.paymentMethodErrorCode) : that.paymentMethodErrorCode != null) {
+            return false;
+        }
+        return paymentMethodErrorMessage != null ? paymentMethodErrorMessage.equals(that.paymentMethodErrorMessage) : that.paymentMethodErrorMessage == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = externalKey != null ? externalKey.hashCode() : 0;
+        result = 31 * result + (accountId != null ? accountId.hashCode() : 0);
+        result = 31 * result + (success != null ? success.hashCode() : 0);
+        result = 31 * result + (errorCode != null ? errorCode.hashCode() : 0);
+        result = 31 * result + (errorMessage != null ? errorMessage.hashCode() : 0);
+        result = 31 * result + (paymentMethodId != null ? paymentMethodId.hashCode() : 0);
+        result = 31 * result + (paymentMethodErrorCode != null ? paymentMethodErrorCode.hashCode() : 0);
+        result = 31 * result + (paymentMethodErrorMessage != null ? paymentMethodErrorMessage.hashCode() : 0);
+        return result;
+    }
+}
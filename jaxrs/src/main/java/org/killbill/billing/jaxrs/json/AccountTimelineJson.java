@@ -18,6 +18,7 @@
 
 package org.killbill.billing.jaxrs.json;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -39,6 +40,7 @@ import org.killbill.billing.util.audit.AuditLog;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.swagger.annotations.ApiModel;
 
 @ApiModel(value="AccountTimeline")
@@ -67,23 +69,11 @@ public class AccountTimelineJson {
                                final List<SubscriptionBundle> bundles,
                                final AccountAuditLogs accountAuditLogs) throws CatalogApiException {
         this.account = new AccountJson(account, null, null, accountAuditLogs);
-        this.bundles = new LinkedList<BundleJson>();
-        for (final SubscriptionBundle bundle : bundles) {
-            final BundleJson jsonWithSubscriptions = new BundleJson(bundle, account.getCurrency(), accountAuditLogs);
-            this.bundles.add(jsonWithSubscriptions);
-        }
+        this.bundles = toBundlesJson(account, bundles, accountAuditLogs);
 
         this.invoices = new LinkedList<InvoiceJson>();
         // Extract the credits from the invoices first
-        final List<CreditJson> credits = new ArrayList<CreditJson>();
-        for (final Invoice invoice : invoices) {
-            for (final InvoiceItem invoiceItem : invoice.getInvoiceItems()) {
-                if (InvoiceItemType.CREDIT_ADJ.equals(invoiceItem.getInvoiceItemType())) {
-                    final List<AuditLog> auditLogs = accountAuditLogs.getAuditLogsForInvoiceItem(invoiceItem.getId());
-                    credits.add(new CreditJson(invoice, invoiceItem, auditLogs));
-                }
-            }
-        }
+        final List<CreditJson> credits = getCredits(invoices, accountAuditLogs);
         // Create now the invoice json objects
         for (final Invoice invoice : invoices) {
             final List<AuditLog> auditLogs = accountAuditLogs.getAuditLogsForInvoice(invoice.getId());
@@ -100,6 +90,63 @@ public class AccountTimelineJson {
         }
     }
 
+    // The bundles require catalog lookups, which can fail: the caller converts them upfront, while the response
+    // status can still reflect the error
+    public static List<BundleJson> toBundlesJson(final Account account,
+                                                 final List<SubscriptionBundle> bundles,
+                                                 final AccountAuditLogs accountAuditLogs) throws CatalogApiException {
+        final List<BundleJson> bundlesJson = new LinkedList<BundleJson>();
+        for (final SubscriptionBundle bundle : bundles) {
+            bundlesJson.add(new BundleJson(bundle, account.getCurrency(), accountAuditLogs));
+        }
+        return bundlesJson;
+    }
+
+    //
+    // Same output as serializing the object built by the constructor above, except that the invoice and payment json objects
+    // are created (and released) one at a time, as they are written: for large accounts, the full json graph is never held in memory.
+    // Nothing in here can fail once the response has been committed.
+    //
+    public static void writeTimeline(final JsonGenerator generator,
+                                     final Account account,
+                                     final List<Invoice> invoices,
+                                     final List<Payment> payments,
+                                     final List<InvoicePayment> invoicePayments,
+                                     final List<SubscriptionBundle> bundles,
+                                     final List<BundleJson> bundlesJson,
+                                     final AccountAuditLogs accountAuditLogs) throws IOException {
+        generator.writeStartObject();
+
+        generator.writeFieldName("account");
+        generator.writeObject(new AccountJson(account, null, null, accountAuditLogs));
+
+        generator.writeArrayFieldStart("bundles");
+        for (final BundleJson bundleJson : bundlesJson) {
+            generator.writeObject(bundleJson);
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("invoices");
+        final List<CreditJson> credits = getCredits(invoices, accountAuditLogs);
+        for (final Invoice invoice : invoices) {
+            final List<AuditLog> auditLogs = accountAuditLogs.getAuditLogsForInvoice(invoice.getId());
+            generator.writeObject(new InvoiceJson(invoice,
+                                                  getBundleExternalKey(invoice, bundles),
+                                                  credits,
+                                                  auditLogs));
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("payments");
+        for (final Payment payment : payments) {
+            final UUID invoiceId = JaxRsResourceBase.getInvoiceId(invoicePayments, payment);
+            generator.writeObject(new InvoicePaymentJson(payment, invoiceId, accountAuditLogs));
+        }
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+    }
+
     public AccountJson getAccount() {
         return account;
     }
@@ -164,6 +211,19 @@ public class AccountTimelineJson {
         return result;
     }
 
+    private static List<CreditJson> getCredits(final List<Invoice> invoices, final AccountAuditLogs accountAuditLogs) {
+        final List<CreditJson> credits = new ArrayList<CreditJson>();
+        for (final Invoice invoice : invoices) {
+            for (final InvoiceItem invoiceItem : invoice.getInvoiceItems()) {
+                if (InvoiceItemType.CREDIT_ADJ.equals(invoiceItem.getInvoiceItemType())) {
+                    final List<AuditLog> auditLogs = accountAuditLogs.getAuditLogsForInvoiceItem(invoiceItem.getId());
+                    credits.add(new CreditJson(invoice, invoiceItem, auditLogs));
+                }
+            }
+        }
+        return credits;
+    }
+
     private String getBundleExternalKey(final UUID invoiceId, final List<Invoice> invoices, final List<SubscriptionBundle> bundles) {
         if (invoiceId == null) {
             return null;
@@ -176,7 +236,7 @@ public class AccountTimelineJson {
         return null;
     }
 
-    private String getBundleExternalKey(final Invoice invoice, final List<SubscriptionBundle> bundles) {
+    private static String getBundleExternalKey(final Invoice invoice, final List<SubscriptionBundle> bundles) {
         final Set<UUID> b = new HashSet<UUID>();
         for (final InvoiceItem cur : invoice.getInvoiceItems()) {
             b.add(cur.getBundleId());
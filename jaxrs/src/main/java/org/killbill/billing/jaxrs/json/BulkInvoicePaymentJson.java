@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.jaxrs.json;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.payment.api.InvoicePaymentBulkItem;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(value="BulkInvoicePayment")
+public class BulkInvoicePaymentJson {
+
+    @ApiModelProperty(required = true)
+    private final UUID accountId;
+    @ApiModelProperty(required = true)
+    private final UUID invoiceId;
+    private final UUID paymentMethodId;
+    private final BigDecimal amount;
+    private final String paymentExternalKey;
+    private final String transactionExternalKey;
+
+    @JsonCreator
+    public BulkInvoicePaymentJson(@JsonProperty("accountId") final UUID accountId,
+                                  @JsonProperty("invoiceId") final UUID invoiceId,
+                                  @JsonProperty("paymentMethodId") @Nullable final UUID paymentMethodId,
+                                  @JsonProperty("amount") @Nullable final BigDecimal amount,
+                                  @JsonProperty("paymentExternalKey") @Nullable final String paymentExternalKey,
+                                  @JsonProperty("transactionExternalKey") @Nullable final String transactionExternalKey) {
+        this.accountId = accountId;
+        this.invoiceId = invoiceId;
+        this.paymentMethodId = paymentMethodId;
+        this.amount = amount;
+        this.paymentExternalKey = paymentExternalKey;
+        this.transactionExternalKey = transactionExternalKey;
+    }
+
+    public InvoicePaymentBulkItem toInvoicePaymentBulkItem() {
+        return new InvoicePaymentBulkItem(accountId, invoiceId, paymentMethodId, amount, paymentExternalKey, transactionExternalKey);
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public UUID getInvoiceId() {
+        return invoiceId;
+    }
+
+    public UUID getPaymentMethodId() {
+        return paymentMethodId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getPaymentExternalKey() {
+        return paymentExternalKey;
+    }
+
+    public String getTransactionExternalKey() {
+        return transactionExternalKey;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkInvoicePaymentJson{" +
+               "accountId=" + accountId +
+               ", invoiceId=" + invoiceId +
+               ", paymentMethodId=" + paymentMethodId +
+               ", amount=" + amount +
+               ", paymentExternalKey='" + paymentExternalKey + '\'' +
+               ", transactionExternalKey='" + transactionExternalKey + '\'' +
+               '}';
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final BulkInvoicePaymentJson that = (BulkInvoicePaymentJson) o;
+
+        if (accountId != null ? !accountId.equals(that.accountId) : that.accountId != null) {
+            return false;
+        }
+        if (invoiceId != null ? !invoiceId.equals(that.invoiceId) : that.invoiceId != null) {
+            return false;
+        }
+        if (paymentMethodId != null ? !paymentMethodId.equals(that.paymentMethodId) : that.paymentMethodId != null) {
+            return false;
+        }
+        if (amount != null ? amount.compareTo(that.amount) != 0 : that.amount != null) {
+            return false;
+        }
+        if (paymentExternalKey != null ? !paymentExternalKey.equals(that.paymentExternalKey) : that.paymentExternalKey != null) {
+            return false;
+        }
+        return transactionExternalKey != null ? transactionExternalKey.equals(that.transactionExternalKey) : that.transactionExternalKey == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = accountId != null ? accountId.hashCode() : 0;
+        result = 31 * result + (invoiceId != null ? invoiceId.hashCode() : 0);
+        result = 31 * result + (paymentMethodId != null ? paymentMethodId.hashCode() : 0);
+        result = 31 * result + (amount != null ? amount.hashCode() : 0);
+        result = 31 * result + (paymentExternalKey != null ? paymentExternalKey.hashCode() : 0);
+        result = 31 * result + (transactionExternalKey != null ? transactionExternalKey.hashCode() : 0);
+        return result;
+    }
+}
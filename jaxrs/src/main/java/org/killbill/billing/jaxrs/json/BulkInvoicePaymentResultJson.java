@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.payment.api.InvoicePaymentBulkResult;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+
+@ApiModel(value="BulkInvoicePaymentResult")
+public class BulkInvoicePaymentResultJson {
+
+    private final UUID accountId;
+    private final UUID invoiceId;
+    private final UUID paymentId;
+    private final String transactionExternalKey;
+    private final BigDecimal amount;
+    private final Boolean success;
+    private final Integer errorCode;
+    private final String errorMessage;
+
+    @JsonCreator
+    public BulkInvoicePaymentResultJson(@JsonProperty("accountId") final UUID accountId,
+                                        @JsonProperty("invoiceId") final UUID invoiceId,
+                                        @JsonProperty("paymentId") @Nullable final UUID paymentId,
+                                        @JsonProperty("transactionExternalKey") @Nullable final String transactionExternalKey,
+                                        @JsonProperty("amount") @Nullable final BigDecimal amount,
+                                        @JsonProperty("success") final Boolean success,
+                                        @JsonProperty("errorCode") @Nullable final Integer errorCode,
+                                        @JsonProperty("errorMessage") @Nullable final String errorMessage) {
+        this.accountId = accountId;
+        this.invoiceId = invoiceId;
+        this.paymentId = paymentId;
+        this.transactionExternalKey = transactionExternalKey;
+        this.amount = amount;
+        this.success = success;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    public BulkInvoicePaymentResultJson(final InvoicePaymentBulkResult result) {
+        this(result.getItem().getAccountId(),
+             result.getItem().getInvoiceId(),
+             result.getInvoicePayment() != null ? result.getInvoicePayment().getPaymentId() : null,
+             result.getInvoicePayment() != null ? result.getInvoicePayment().getPaymentCookieId() : null,
+             result.getInvoicePayment() != null ? result.getInvoicePayment().getAmount() : null,
+             result.isSuccess(),
+             result.getException() != null ? result.getException().getCode() : null,
+             result.getException() != null ? result.getException().getMessage() : null);
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public UUID getInvoiceId() {
+        return invoiceId;
+    }
+
+    public UUID getPaymentId() {
+        return paymentId;
+    }
+
+    public String getTransactionExternalKey() {
+        return transactionExternalKey;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Boolean getSuccess() {
+        return success;
+    }
+
+    public Integer getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkInvoicePaymentResultJson{" +
+               "accountId=" + accountId +
+               ", invoiceId=" + invoiceId +
+               ", paymentId=" + paymentId +
+               ", transactionExternalKey='" + transactionExternalKey + '\'' +
+               ", amount=" + amount +
+               ", success=" + success +
+               ", errorCode=" + errorCode +
+               ", errorMessage='" + errorMessage + '\'' +
+               '}';
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final BulkInvoicePaymentResultJson that = (BulkInvoicePaymentResultJson) o;
+
+        if (accountId != null ? !accountId.equals(that.accountId) : that.accountId != null) {
+            return false;
+        }
+        if (invoiceId != null ? !invoiceId.equals(that.invoiceId) : that.invoiceId != null) {
+            return false;
+        }
+        if (paymentId != null ? !paymentId.equals(that.paymentId) : that.paymentId != null) {
+            return false;
+        }
+        if (transactionExternalKey != null ? !transactionExternalKey.equals(that.transactionExternalKey) : that.transactionExternalKey != null) {
+            return false;
+        }
+        if (amount != null ? amount.compareTo(that.amount) != 0 : that.amount != null) {
+            return false;
+        }
+        if (success != null ? !success.equals(that.success) : that.success != null) {
+            return false;
+        }
+        if (errorCode != null ? !errorCode.equals(that.errorCode) : that.errorCode != null) {
+            return false;
+        }
+        return errorMessage != null ? errorMessage.equals(that.errorMessage) : that.errorMessage == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = accountId != null ? accountId.hashCode() : 0;
+        result = 31 * result + (invoiceId != null ? invoiceId.hashCode() : 0);
+        result = 31 * result + (paymentId != null ? paymentId.hashCode() : 0);
+        result = 31 * result + (transactionExternalKey != null ? transactionExternalKey.hashCode() : 0);
+        result = 31 * result + (amount != null ? amount.hashCode() : 0);
+        result = 31 * result + (success != null ? success.hashCode() : 0);
+        result = 31 * result + (errorCode != null ? errorCode.hashCode() : 0);
+        result = 31 * result + (errorMessage != null ? errorMessage.hashCode() : 0);
+        return result;
+    }
+}
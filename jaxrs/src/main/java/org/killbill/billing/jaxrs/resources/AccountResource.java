@@ -18,18 +18,21 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -47,8 +50,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.joda.time.LocalDate;
@@ -59,6 +64,10 @@ import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountData;
 import org.killbill.billing.account.api.AccountEmail;
+import org.killbill.billing.account.api.AccountImportItem;
+import org.killbill.billing.account.api.AccountImportResult;
+import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.account.api.AccountPaginationUserApi;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.catalog.api.BillingActionPolicy;
 import org.killbill.billing.catalog.api.CatalogApiException;
@@ -80,6 +89,8 @@ import org.killbill.billing.invoice.api.InvoicePayment;
 import org.killbill.billing.invoice.api.InvoiceUserApi;
 import org.killbill.billing.jaxrs.JaxrsExecutors;
 import org.killbill.billing.jaxrs.json.AccountEmailJson;
+import org.killbill.billing.jaxrs.json.AccountImportJson;
+import org.killbill.billing.jaxrs.json.AccountImportResultJson;
 import org.killbill.billing.jaxrs.json.AccountJson;
 import org.killbill.billing.jaxrs.json.AccountTimelineJson;
 import org.killbill.billing.jaxrs.json.AuditLogJson;
@@ -109,6 +120,10 @@ import org.killbill.billing.payment.api.PaymentTransaction;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionStatus;
 import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.security.Logical;
+import org.killbill.billing.security.Permission;
+import org.killbill.billing.security.SecurityApiException;
+import org.killbill.billing.security.api.SecurityApi;
 import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.api.AuditLevel;
 import org.killbill.billing.util.api.AuditUserApi;
@@ -121,11 +136,13 @@ import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.audit.AccountAuditLogs;
 import org.killbill.billing.util.audit.AuditLog;
 import org.killbill.billing.util.audit.AuditLogWithHistory;
+import org.killbill.billing.util.audit.api.AuditLogHydrator;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.config.definition.JaxrsConfig;
 import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.billing.util.customfield.CustomField;
+import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.Tag;
@@ -135,13 +152,19 @@ import org.killbill.commons.metrics.TimedResource;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.base.Strings;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import io.swagger.annotations.Api;
@@ -168,6 +191,9 @@ public class AccountResource extends JaxRsResourceBase {
     private final JaxrsConfig jaxrsConfig;
     private final RecordIdApi recordIdApi;
     private final NotificationQueueService notificationQueueService;
+    private final AccountPaginationUserApi accountPaginationApi;
+    private final AccountInternalApi accountInternalApi;
+    private final SecurityApi securityApi;
 
     @Inject
     public AccountResource(final JaxrsUriBuilder uriBuilder,
@@ -177,6 +203,7 @@ public class AccountResource extends JaxRsResourceBase {
                            final PaymentApi paymentApi,
                            final TagUserApi tagUserApi,
                            final AuditUserApi auditUserApi,
+                           final AuditLogHydrator auditLogHydrator,
                            final CustomFieldUserApi customFieldUserApi,
                            final SubscriptionApi subscriptionApi,
                            final OverdueApi overdueApi,
@@ -186,8 +213,11 @@ public class AccountResource extends JaxRsResourceBase {
                            final JaxrsConfig jaxrsConfig,
                            final Context context,
                            final RecordIdApi recordIdApi,
-                           final NotificationQueueService notificationQueueService) {
-        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountApi, paymentApi, invoicePaymentApi, subscriptionApi, clock, context);
+                           final NotificationQueueService notificationQueueService,
+                           final AccountPaginationUserApi accountPaginationApi,
+                           final AccountInternalApi accountInternalApi,
+                           final SecurityApi securityApi) {
+        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, auditLogHydrator, accountApi, paymentApi, invoicePaymentApi, subscriptionApi, clock, context);
         this.subscriptionApi = subscriptionApi;
         this.invoiceApi = invoiceApi;
         this.invoicePaymentApi = invoicePaymentApi;
@@ -197,6 +227,9 @@ public class AccountResource extends JaxRsResourceBase {
         this.jaxrsConfig = jaxrsConfig;
         this.recordIdApi = recordIdApi;
         this.notificationQueueService = notificationQueueService;
+        this.accountPaginationApi = accountPaginationApi;
+        this.accountInternalApi = accountInternalApi;
+        this.securityApi = securityApi;
     }
 
     @TimedResource
@@ -226,15 +259,30 @@ public class AccountResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getAccounts(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
+                                @QueryParam(QUERY_SEARCH_WITH_COUNT) @DefaultValue("false") final Boolean withCount,
                                 @QueryParam(QUERY_ACCOUNT_WITH_BALANCE) @DefaultValue("false") final Boolean accountWithBalance,
                                 @QueryParam(QUERY_ACCOUNT_WITH_BALANCE_AND_CBA) @DefaultValue("false") final Boolean accountWithBalanceAndCBA,
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
         final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
-        final Pagination<Account> accounts = accountUserApi.getAccounts(offset, limit, tenantContext);
-        final URI nextPageUri = uriBuilder.nextPage(AccountResource.class, "getAccounts", accounts.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
-                                                                                                                                                           QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
-                                                                                                                                                           QUERY_AUDIT, auditMode.getLevel().toString()));
+        final Map<String, String> nextPageParams = ImmutableMap.<String, String>of(QUERY_ACCOUNT_WITH_BALANCE, accountWithBalance.toString(),
+                                                                                   QUERY_ACCOUNT_WITH_BALANCE_AND_CBA, accountWithBalanceAndCBA.toString(),
+                                                                                   QUERY_AUDIT, auditMode.getLevel().toString());
+        final Pagination<Account> accounts;
+        final URI nextPageUri;
+        if (continuationToken != null) {
+            // Keyset pagination (an empty token requests the first page)
+            accounts = accountPaginationApi.getAccounts(Strings.emptyToNull(continuationToken), limit, withCount, tenantContext);
+            final Map<String, String> nextContinuationPageParams = ImmutableMap.<String, String>builder()
+                                                                              .putAll(nextPageParams)
+                                                                              .put(QUERY_SEARCH_WITH_COUNT, withCount.toString())
+                                                                              .build();
+            nextPageUri = uriBuilder.nextPageFromContinuationToken(AccountResource.class, "getAccounts", ((DefaultPagination) accounts).getNextContinuationToken(), limit, nextContinuationPageParams);
+        } else {
+            accounts = accountUserApi.getAccounts(offset, limit, tenantContext);
+            nextPageUri = uriBuilder.nextPage(AccountResource.class, "getAccounts", accounts.getNextOffset(), limit, nextPageParams);
+        }
         return buildStreamingPaginationResponse(accounts,
                                                 new Function<Account, AccountJson>() {
                                                     @Override
@@ -378,6 +426,102 @@ public class AccountResource extends JaxRsResourceBase {
         return uriBuilder.buildResponse(uriInfo, AccountResource.class, "getAccount", account.getId(), request);
     }
 
+    @TimedResource
+    @POST
+    @Path("/" + IMPORT)
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Import a list of accounts, with their tags, custom fields and payment method",
+                  notes = "Accounts are created in batches (one transaction per batch), results are returned once all batches are imported",
+                  response = AccountImportResultJson.class, responseContainer = "List")
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"),
+                           @ApiResponse(code = 400, message = "Invalid account data supplied")})
+    public Response importAccounts(final List<AccountImportJson> json,
+                                   @QueryParam(QUERY_BATCH_SIZE) @DefaultValue("500") final Integer batchSize,
+                                   @QueryParam(QUERY_PLUGIN_PROPERTY) final List<String> pluginPropertiesString,
+                                   @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                   @HeaderParam(HDR_REASON) final String reason,
+                                   @HeaderParam(HDR_COMMENT) final String comment,
+                                   @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
+        verifyNonNullOrEmpty(json, "AccountImportJson body should be specified");
+        final Map<AccountImportItem, PaymentMethodJson> paymentMethods = new IdentityHashMap<AccountImportItem, PaymentMethodJson>();
+        final List<AccountImportItem> items = new ArrayList<AccountImportItem>(json.size());
+        boolean hasTags = false;
+        boolean hasCustomFields = false;
+        for (final AccountImportJson item : json) {
+            verifyNonNullOrEmpty(item.getAccount(), "AccountImportJson account needs to be set");
+            if (item.getPaymentMethod() != null) {
+                verifyNonNullOrEmpty(item.getPaymentMethod().getPluginName(), "AccountImportJson paymentMethod pluginName needs to be set");
+            }
+            final AccountImportItem importItem = item.toAccountImportItem();
+            items.add(importItem);
+            if (item.getPaymentMethod() != null) {
+                paymentMethods.put(importItem, item.getPaymentMethod());
+            }
+            hasTags = hasTags || !importItem.getTagDefinitionIds().isEmpty();
+            hasCustomFields = hasCustomFields || !importItem.getCustomFields().isEmpty();
+        }
+
+        final Iterable<PluginProperty> pluginProperties = extractPluginProperties(pluginPropertiesString);
+        final CallContext callContext = context.createCallContextNoAccountId(createdBy, reason, comment, request);
+
+        // The import goes through the internal API, which doesn't enforce the permissions of the user APIs
+        checkForPermissions(Permission.ACCOUNT_CAN_CREATE, callContext);
+        if (hasTags) {
+            checkForPermissions(Permission.TAG_CAN_ADD, callContext);
+        }
+        if (hasCustomFields) {
+            checkForPermissions(Permission.CUSTOM_FIELDS_CAN_ADD, callContext);
+        }
+
+        // All batches are imported before the response is committed, so a client disconnect can't stop the import halfway
+        final List<AccountImportResultJson> results = new ArrayList<AccountImportResultJson>(items.size());
+        final Iterator<AccountImportResult> importResults = accountInternalApi.importAccounts(items.iterator(), batchSize, callContext);
+        while (importResults.hasNext()) {
+            final AccountImportResult result = importResults.next();
+
+            // Payment methods go through the plugins, so they are added one by one once the account is committed
+            UUID paymentMethodId = null;
+            PaymentApiException paymentMethodException = null;
+            final PaymentMethodJson paymentMethod = paymentMethods.get(result.getItem());
+            if (result.isSuccess() && paymentMethod != null) {
+                try {
+                    paymentMethodId = paymentApi.addPaymentMethod(result.getAccount(),
+                                                                  paymentMethod.getExternalKey(),
+                                                                  paymentMethod.getPluginName(),
+                                                                  Boolean.TRUE.equals(paymentMethod.isDefault()),
+                                                                  paymentMethod.toPaymentMethod(result.getAccount().getId()).getPluginDetail(),
+                                                                  pluginProperties,
+                                                                  callContext);
+                } catch (final PaymentApiException e) {
+                    paymentMethodException = e;
+                }
+            }
+
+            results.add(new AccountImportResultJson(result.getItem().getAccountData().getExternalKey(),
+                                                    result.getAccount() != null ? result.getAccount().getId() : null,
+                                                    result.isSuccess(),
+                                                    result.getException() != null ? result.getException().getCode() : null,
+                                                    result.getException() != null ? result.getException().getMessage() : null,
+                                                    paymentMethodId,
+                                                    paymentMethodException != null ? paymentMethodException.getCode() : null,
+                                                    paymentMethodException != null ? paymentMethodException.getMessage() : null));
+        }
+        return Response.status(Status.OK).entity(results).build();
+    }
+
+    // See DefaultEntitlement#checkForPermissions
+    private void checkForPermissions(final Permission permission, final TenantContext callContext) throws AccountApiException {
+        // If authentication had been done (CorsBasicHttpAuthenticationFilter) we verify the correct permissions exist
+        if (securityApi.isSubjectAuthenticated()) {
+            try {
+                securityApi.checkCurrentUserPermissions(ImmutableList.of(permission), Logical.AND, callContext);
+            } catch (final SecurityApiException e) {
+                throw new AccountApiException(ErrorCode.SECURITY_NOT_ENOUGH_PERMISSIONS);
+            }
+        }
+    }
+
     @TimedResource
     @PUT
     @Consumes(APPLICATION_JSON)
@@ -528,8 +672,6 @@ public class AccountResource extends JaxRsResourceBase {
             }
         };
 
-        final AccountTimelineJson json;
-
         List<Invoice> invoices = null;
         List<SubscriptionBundle> bundles = null;
         List<InvoicePayment> invoicePayments = null;
@@ -537,28 +679,25 @@ public class AccountResource extends JaxRsResourceBase {
         AccountAuditLogs accountAuditLogs = null;
 
         if (parallel) {
-            final ExecutorService executor = jaxrsExecutors.getJaxrsExecutorService();
-            final Future<List<SubscriptionBundle>> futureBundlesCallable = executor.submit(bundlesCallable);
-            final Future<List<Invoice>> futureInvoicesCallable = executor.submit(invoicesCallable);
-            final Future<List<InvoicePayment>> futureInvoicePaymentsCallable = executor.submit(invoicePaymentsCallable);
-            final Future<List<Payment>> futurePaymentsCallable = executor.submit(paymentsCallable);
-            final Future<AccountAuditLogs> futureAuditsCallable = executor.submit(auditsCallable);
-            final ImmutableList<Future> toBeCancelled = ImmutableList.<Future>of(futureBundlesCallable, futureInvoicesCallable, futureInvoicePaymentsCallable, futurePaymentsCallable, futureAuditsCallable);
-            final int timeoutMsec = 100;
-
-            final long ini = System.currentTimeMillis();
-            do {
-                bundles = (bundles == null) ? waitOnFutureAndHandleTimeout("bundles", futureBundlesCallable, timeoutMsec, toBeCancelled) : bundles;
-                invoices = (invoices == null) ? waitOnFutureAndHandleTimeout("invoices", futureInvoicesCallable, timeoutMsec, toBeCancelled) : invoices;
-                invoicePayments = (invoicePayments == null) ? waitOnFutureAndHandleTimeout("invoicePayments", futureInvoicePaymentsCallable, timeoutMsec, toBeCancelled) : invoicePayments;
-                payments = (payments == null) ? waitOnFutureAndHandleTimeout("payments", futurePaymentsCallable, timeoutMsec, toBeCancelled) : payments;
-                accountAuditLogs = (accountAuditLogs == null) ? waitOnFutureAndHandleTimeout("accountAuditLogs", futureAuditsCallable, timeoutMsec, toBeCancelled) : accountAuditLogs;
-            } while ((System.currentTimeMillis() - ini < jaxrsConfig.getJaxrsTimeout().getMillis()) &&
-                     (bundles == null || invoices == null || invoicePayments == null || payments == null || accountAuditLogs == null));
-
-            if (bundles == null || invoices == null || invoicePayments == null || payments == null || accountAuditLogs == null) {
-                Response.status(Status.SERVICE_UNAVAILABLE).build();
+            // All the branches share the same deadline: the request completes as soon as the last one is done, fails as soon
+            // as one of them fails, and the remaining ones are cancelled on failure or timeout
+            final ListeningExecutorService executor = MoreExecutors.listeningDecorator(jaxrsExecutors.getJaxrsExecutorService());
+            final ListenableFuture<List<SubscriptionBundle>> futureBundlesCallable = executor.submit(bundlesCallable);
+            final ListenableFuture<List<Invoice>> futureInvoicesCallable = executor.submit(invoicesCallable);
+            final ListenableFuture<List<InvoicePayment>> futureInvoicePaymentsCallable = executor.submit(invoicePaymentsCallable);
+            final ListenableFuture<List<Payment>> futurePaymentsCallable = executor.submit(paymentsCallable);
+            final ListenableFuture<AccountAuditLogs> futureAuditsCallable = executor.submit(auditsCallable);
+            final List<ListenableFuture<?>> futures = ImmutableList.<ListenableFuture<?>>of(futureBundlesCallable, futureInvoicesCallable, futureInvoicePaymentsCallable, futurePaymentsCallable, futureAuditsCallable);
+
+            if (!waitOnFuturesAndHandleTimeout("timeline", futures, jaxrsConfig.getJaxrsTimeout().getMillis())) {
+                return Response.status(Status.SERVICE_UNAVAILABLE).build();
             }
+
+            bundles = Futures.getUnchecked(futureBundlesCallable);
+            invoices = Futures.getUnchecked(futureInvoicesCallable);
+            invoicePayments = Futures.getUnchecked(futureInvoicePaymentsCallable);
+            payments = Futures.getUnchecked(futurePaymentsCallable);
+            accountAuditLogs = Futures.getUnchecked(futureAuditsCallable);
         } else {
             invoices = runCallable("invoices", invoicesCallable);
             payments = runCallable("payments", paymentsCallable);
@@ -567,30 +706,53 @@ public class AccountResource extends JaxRsResourceBase {
             invoicePayments = runCallable("invoicePayments", invoicePaymentsCallable);
         }
 
-        json = new AccountTimelineJson(account, invoices, payments, invoicePayments, bundles, accountAuditLogs);
+        final List<Invoice> timelineInvoices = invoices;
+        final List<Payment> timelinePayments = payments;
+        final List<InvoicePayment> timelineInvoicePayments = invoicePayments;
+        final List<SubscriptionBundle> timelineBundles = bundles;
+        final AccountAuditLogs timelineAccountAuditLogs = accountAuditLogs;
+        // Catalog lookups happen here, before the response is committed
+        final List<BundleJson> timelineBundlesJson = AccountTimelineJson.toBundlesJson(account, bundles, accountAuditLogs);
+        final StreamingOutput json = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                final JsonGenerator generator = mapper.getFactory().createGenerator(output);
+                generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                AccountTimelineJson.writeTimeline(generator, account, timelineInvoices, timelinePayments, timelineInvoicePayments, timelineBundles, timelineBundlesJson, timelineAccountAuditLogs);
+                generator.close();
+            }
+        };
         return Response.status(Status.OK).entity(json).build();
     }
 
-    private <T> T waitOnFutureAndHandleTimeout(final String logSuffix, final Future<T> future, final long timeoutMsec, final Iterable<Future> toBeCancelled) throws PaymentApiException, AccountApiException, InvoiceApiException, SubscriptionApiException {
+    // Returns false on timeout. On timeout or failure, the futures still running are cancelled
+    private boolean waitOnFuturesAndHandleTimeout(final String logSuffix, final List<ListenableFuture<?>> futures, final long timeoutMsec) throws PaymentApiException, AccountApiException, InvoiceApiException, SubscriptionApiException {
+        // Fails as soon as one of the futures fails
+        final ListenableFuture<List<Object>> allFutures = Futures.<Object>allAsList(futures);
         try {
-            return waitOnFutureAndHandleTimeout(future, timeoutMsec);
+            allFutures.get(timeoutMsec, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (final TimeoutException e) {
+            log.warn("TimeoutException while retrieving {}", logSuffix);
+            cancelFutures(futures);
+            return false;
         } catch (final InterruptedException e) {
             log.warn("InterruptedException while retrieving {}", logSuffix, e);
-            handleCallableException(e, toBeCancelled);
+            cancelFutures(futures);
+            handleCallableException(e);
         } catch (final ExecutionException e) {
             log.warn("ExecutionException while retrieving {}", logSuffix, e);
-            handleCallableException(e.getCause(), toBeCancelled);
+            cancelFutures(futures);
+            handleCallableException(e.getCause());
         }
 
         // Never reached
-        return null;
+        return false;
     }
 
-    private <T> T waitOnFutureAndHandleTimeout(final Future<T> future, final long timeoutMsec) throws ExecutionException, InterruptedException {
-        try {
-            return future.get(timeoutMsec, TimeUnit.MILLISECONDS);
-        } catch (final TimeoutException e) {
-            return null;
+    private void cancelFutures(final Iterable<? extends Future<?>> futures) {
+        for (final Future<?> future : futures) {
+            future.cancel(true);
         }
     }
 
@@ -606,13 +768,6 @@ public class AccountResource extends JaxRsResourceBase {
         return null;
     }
 
-    private void handleCallableException(final Throwable causeOrException, final Iterable<Future> toBeCancelled) throws AccountApiException, SubscriptionApiException, PaymentApiException, InvoiceApiException {
-        for (final Future f : toBeCancelled) {
-            f.cancel(true);
-        }
-        handleCallableException(causeOrException);
-    }
-
     private void handleCallableException(final Throwable causeOrException) throws AccountApiException, SubscriptionApiException, PaymentApiException, InvoiceApiException {
         if (causeOrException instanceof AccountApiException) {
             throw (AccountApiException) causeOrException;
@@ -693,12 +848,12 @@ public class AccountResource extends JaxRsResourceBase {
 
         final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(accountId, auditMode.getLevel(), tenantContext);
 
-        final List<InvoiceJson> result = new LinkedList<InvoiceJson>();
-        for (final Invoice invoice : invoices) {
-            result.add(new InvoiceJson(invoice, withItems, null, accountAuditLogs));
-        }
-
-        return Response.status(Status.OK).entity(result).build();
+        return buildStreamingListResponse(invoices, new Function<Invoice, InvoiceJson>() {
+            @Override
+            public InvoiceJson apply(final Invoice invoice) {
+                return new InvoiceJson(invoice, withItems, null, accountAuditLogs);
+            }
+        });
     }
 
     /*
@@ -1513,7 +1668,12 @@ public class AccountResource extends JaxRsResourceBase {
                                         @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
         final TenantContext tenantContext = context.createTenantContextWithAccountId(accountId, request);
         final List<AuditLogWithHistory> auditLogWithHistory = accountUserApi.getAuditLogsWithHistoryForId(accountId, AuditLevel.FULL, tenantContext);
-        return Response.status(Status.OK).entity(getAuditLogsWithHistory(auditLogWithHistory)).build();
+        return buildStreamingListResponse(auditLogWithHistory, new Function<AuditLogWithHistory, AuditLogJson>() {
+            @Override
+            public AuditLogJson apply(final AuditLogWithHistory input) {
+                return new AuditLogJson(input);
+            }
+        });
     }
 
     private List<AuditLogJson> getAuditLogs(AccountAuditLogs accountAuditLogs) {
@@ -21,6 +21,10 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -70,6 +74,7 @@ import org.killbill.billing.util.api.AuditUserApi;
 import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.api.RecordIdApi;
 import org.killbill.billing.util.api.TagUserApi;
+import org.killbill.billing.util.audit.api.AuditLogHydrator;
 import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
@@ -77,6 +82,10 @@ import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.config.tenant.PerTenantConfig;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.metrics.LatencyHistogram;
+import org.killbill.billing.util.metrics.LatencyHistogram.LatencySnapshot;
+import org.killbill.billing.util.metrics.LatencyMetrics;
+import org.killbill.billing.util.metrics.TransactionTracer;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.dao.SystemTags;
 import org.killbill.bus.api.BusEvent;
@@ -88,6 +97,10 @@ import org.killbill.notificationq.api.NotificationEventWithMetadata;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
@@ -111,6 +124,9 @@ public class AdminResource extends JaxRsResourceBase {
 
     private static final String OK = "OK";
 
+    // See PaymentExecutors#PLUGIN_METRICS_PREFIX
+    private static final String PAYMENT_PLUGINS_METRICS_PREFIX = "killbill.payment.plugins.";
+
     private final AdminPaymentApi adminPaymentApi;
     private final InvoiceUserApi invoiceUserApi;
     private final TenantUserApi tenantApi;
@@ -119,12 +135,14 @@ public class AdminResource extends JaxRsResourceBase {
     private final PersistentBus persistentBus;
     private final NotificationQueueService notificationQueueService;
     private final KillbillHealthcheck killbillHealthcheck;
+    private final MetricRegistry metricRegistry;
 
     @Inject
     public AdminResource(final JaxrsUriBuilder uriBuilder,
                          final TagUserApi tagUserApi,
                          final CustomFieldUserApi customFieldUserApi,
                          final AuditUserApi auditUserApi,
+                         final AuditLogHydrator auditLogHydrator,
                          final AccountUserApi accountUserApi,
                          final PaymentApi paymentApi,
                          final InvoicePaymentApi invoicePaymentApi,
@@ -136,9 +154,10 @@ public class AdminResource extends JaxRsResourceBase {
                          final PersistentBus persistentBus,
                          final NotificationQueueService notificationQueueService,
                          final KillbillHealthcheck killbillHealthcheck,
+                         final MetricRegistry metricRegistry,
                          final Clock clock,
                          final Context context) {
-        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
+        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, auditLogHydrator, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
         this.adminPaymentApi = adminPaymentApi;
         this.invoiceUserApi = invoiceUserApi;
         this.tenantApi = tenantApi;
@@ -147,6 +166,7 @@ public class AdminResource extends JaxRsResourceBase {
         this.persistentBus = persistentBus;
         this.notificationQueueService = notificationQueueService;
         this.killbillHealthcheck = killbillHealthcheck;
+        this.metricRegistry = metricRegistry;
     }
 
     @GET
@@ -260,6 +280,25 @@ public class AdminResource extends JaxRsResourceBase {
         return Response.status(Status.NO_CONTENT).build();
     }
 
+    @GET
+    @Path("/" + PAYMENTS + "/" + PLUGINS)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Get the payment plugins dispatch state (circuit breakers, concurrency limits, latencies)", response = Map.class)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation")})
+    public Response getPaymentPluginsDispatchState(@javax.ws.rs.core.Context final HttpServletRequest request) {
+        final Map<String, Object> dispatchState = new TreeMap<String, Object>();
+        final Map<String, Gauge> gauges = metricRegistry.getGauges(new MetricFilter() {
+            @Override
+            public boolean matches(final String name, final Metric metric) {
+                return name.startsWith(PAYMENT_PLUGINS_METRICS_PREFIX);
+            }
+        });
+        for (final Entry<String, Gauge> entry : gauges.entrySet()) {
+            dispatchState.put(entry.getKey().substring(PAYMENT_PLUGINS_METRICS_PREFIX.length()), entry.getValue().getValue());
+        }
+        return Response.status(Status.OK).entity(dispatchState).build();
+    }
+
     @POST
     @Consumes(APPLICATION_JSON)
     @Produces(APPLICATION_JSON)
@@ -447,6 +486,68 @@ public class AdminResource extends JaxRsResourceBase {
         return Response.status(Status.NO_CONTENT).build();
     }
 
+    @GET
+    @Path("/" + LATENCIES)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Get the latency histograms (in microseconds) of the DAO methods, JAX-RS resources, bus and notification queue handlers", response = Map.class)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation")})
+    public Response getLatencies(@QueryParam("prefix") final String prefix,
+                                 @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final Map<String, Object> latencies = new LinkedHashMap<String, Object>();
+        for (final Entry<String, LatencyHistogram> entry : LatencyMetrics.getInstance().getHistograms(prefix).entrySet()) {
+            final LatencySnapshot snapshot = entry.getValue().getSnapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            final Map<String, Object> latency = new LinkedHashMap<String, Object>();
+            latency.put("count", snapshot.getCount());
+            latency.put("mean", (long) snapshot.getMean());
+            latency.put("p50", (long) snapshot.getMedian());
+            latency.put("p90", (long) snapshot.getValue(0.90));
+            latency.put("p99", (long) snapshot.get99thPercentile());
+            latency.put("p999", (long) snapshot.get999thPercentile());
+            latency.put("max", snapshot.getMax());
+            latencies.put(entry.getKey(), latency);
+        }
+        return Response.status(Status.OK).entity(latencies).build();
+    }
+
+    @DELETE
+    @Path("/" + LATENCIES)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Reset the latency histograms")
+    @ApiResponses(value = {@ApiResponse(code = 204, message = "Successful operation")})
+    public Response resetLatencies(@QueryParam("prefix") final String prefix,
+                                   @javax.ws.rs.core.Context final HttpServletRequest request) {
+        for (final LatencyHistogram histogram : LatencyMetrics.getInstance().getHistograms(prefix).values()) {
+            histogram.reset();
+        }
+        return Response.status(Status.NO_CONTENT).build();
+    }
+
+    @GET
+    @Path("/" + SLOW_TRANSACTIONS)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Get the transactions and global locks in progress, and the most recent slow ones", response = Map.class)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation")})
+    public Response getSlowTransactions(@QueryParam("minDurationMs") @DefaultValue("0") final Long minDurationMs,
+                                        @javax.ws.rs.core.Context final HttpServletRequest request) {
+        final Map<String, Object> slowTransactions = new LinkedHashMap<String, Object>();
+        slowTransactions.put("inProgress", TransactionTracer.getInstance().getInProgress(minDurationMs));
+        slowTransactions.put("recent", TransactionTracer.getInstance().getSlowRecords(minDurationMs));
+        return Response.status(Status.OK).entity(slowTransactions).build();
+    }
+
+    @DELETE
+    @Path("/" + SLOW_TRANSACTIONS)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Clear the recent slow transactions and global locks")
+    @ApiResponses(value = {@ApiResponse(code = 204, message = "Successful operation")})
+    public Response clearSlowTransactions(@javax.ws.rs.core.Context final HttpServletRequest request) {
+        TransactionTracer.getInstance().clearSlowRecords();
+        return Response.status(Status.NO_CONTENT).build();
+    }
+
     private Iterable<NotificationEventWithMetadata<NotificationEvent>> getNotifications(@Nullable final String queueName,
                                                                                         @Nullable final String serviceName,
                                                                                         final boolean includeInProcessing,
@@ -39,6 +39,7 @@ import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.util.api.AuditUserApi;
 import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.api.TagUserApi;
+import org.killbill.billing.util.audit.api.AuditLogHydrator;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.clock.Clock;
 
@@ -53,12 +54,13 @@ public abstract class ComboPaymentResource extends JaxRsResourceBase {
                                 final TagUserApi tagUserApi,
                                 final CustomFieldUserApi customFieldUserApi,
                                 final AuditUserApi auditUserApi,
+                                final AuditLogHydrator auditLogHydrator,
                                 final AccountUserApi accountUserApi,
                                 final PaymentApi paymentApi,
                                 final InvoicePaymentApi invoicePaymentApi,
                                 final Clock clock,
                                 final Context context) {
-        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
+        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, auditLogHydrator, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
     }
 
     protected Account getOrCreateAccount(final AccountJson accountJson, final CallContext callContext) throws AccountApiException {
@@ -48,13 +48,13 @@ import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.audit.AuditLog;
 import org.killbill.billing.util.audit.AuditLogWithHistory;
+import org.killbill.billing.util.audit.api.AuditLogHydrator;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.TimedResource;
 
-import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -75,12 +75,13 @@ public class CustomFieldResource extends JaxRsResourceBase {
                                final TagUserApi tagUserApi,
                                final CustomFieldUserApi customFieldUserApi,
                                final AuditUserApi auditUserApi,
+                               final AuditLogHydrator auditLogHydrator,
                                final AccountUserApi accountUserApi,
                                final PaymentApi paymentApi,
                                final InvoicePaymentApi invoicePaymentApi,
                                final Clock clock,
                                final Context context) {
-        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
+        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, auditLogHydrator, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
     }
 
     @TimedResource
@@ -98,11 +99,12 @@ public class CustomFieldResource extends JaxRsResourceBase {
         final URI nextPageUri = uriBuilder.nextPage(CustomFieldResource.class, "getCustomFields", customFields.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_AUDIT, auditMode.getLevel().toString()));
 
         return buildStreamingPaginationResponse(customFields,
-                                                new Function<CustomField, CustomFieldJson>() {
+                                                ObjectType.CUSTOM_FIELD,
+                                                auditMode,
+                                                tenantContext,
+                                                new EntityWithAuditLogsToJson<CustomField, CustomFieldJson>() {
                                                     @Override
-                                                    public CustomFieldJson apply(final CustomField customField) {
-                                                        // TODO Really slow - we should instead try to figure out the account id
-                                                        final List<AuditLog> auditLogs = auditUserApi.getAuditLogs(customField.getId(), ObjectType.CUSTOM_FIELD, auditMode.getLevel(), tenantContext);
+                                                    public CustomFieldJson apply(final CustomField customField, final List<AuditLog> auditLogs) {
                                                         return new CustomFieldJson(customField, auditLogs);
                                                     }
                                                 },
@@ -125,11 +127,12 @@ public class CustomFieldResource extends JaxRsResourceBase {
         final URI nextPageUri = uriBuilder.nextPage(CustomFieldResource.class, "searchCustomFields", customFields.getNextOffset(), limit, ImmutableMap.<String, String>of("searchKey", searchKey,
                                                                                                                                                                           QUERY_AUDIT, auditMode.getLevel().toString()));
         return buildStreamingPaginationResponse(customFields,
-                                                new Function<CustomField, CustomFieldJson>() {
+                                                ObjectType.CUSTOM_FIELD,
+                                                auditMode,
+                                                tenantContext,
+                                                new EntityWithAuditLogsToJson<CustomField, CustomFieldJson>() {
                                                     @Override
-                                                    public CustomFieldJson apply(final CustomField customField) {
-                                                        // TODO Really slow - we should instead try to figure out the account id
-                                                        final List<AuditLog> auditLogs = auditUserApi.getAuditLogs(customField.getId(), ObjectType.CUSTOM_FIELD, auditMode.getLevel(), tenantContext);
+                                                    public CustomFieldJson apply(final CustomField customField, final List<AuditLog> auditLogs) {
                                                         return new CustomFieldJson(customField, auditLogs);
                                                     }
                                                 },
@@ -18,22 +18,32 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.StreamingOutput;
 
 import org.killbill.billing.account.api.AccountUserApi;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
 import org.killbill.billing.payment.api.InvoicePaymentApi;
@@ -42,10 +52,17 @@ import org.killbill.billing.util.api.AuditUserApi;
 import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.api.ExportUserApi;
 import org.killbill.billing.util.api.TagUserApi;
+import org.killbill.billing.util.audit.api.AuditLogHydrator;
 import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.export.dao.DatabaseExportDao;
+import org.killbill.billing.util.export.dao.DatabaseExportDao.TenantExportFormat;
+import org.killbill.billing.util.export.dao.DirectoryTenantExportOutput;
+import org.killbill.billing.util.export.dao.TenantExportCheckpoint;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.TimedResource;
 
+import com.google.common.io.Files;
 import com.google.inject.Singleton;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -59,21 +76,32 @@ import static javax.ws.rs.core.MediaType.APPLICATION_OCTET_STREAM;
 @Api(value = JaxrsResource.EXPORT_PATH, description = "Export endpoints", tags="Export")
 public class ExportResource extends JaxRsResourceBase {
 
+    private static final String APPLICATION_ZIP = "application/zip";
+    private static final int TENANT_EXPORT_NB_THREADS = 4;
+    private static final int TENANT_EXPORT_ROWS_PER_SEGMENT = 10000;
+
     private final ExportUserApi exportUserApi;
+    private final DatabaseExportDao databaseExportDao;
+    private final InternalCallContextFactory internalCallContextFactory;
 
     @Inject
     public ExportResource(final ExportUserApi exportUserApi,
+                          final DatabaseExportDao databaseExportDao,
+                          final InternalCallContextFactory internalCallContextFactory,
                           final JaxrsUriBuilder uriBuilder,
                           final TagUserApi tagUserApi,
                           final CustomFieldUserApi customFieldUserApi,
                           final AuditUserApi auditUserApi,
+                          final AuditLogHydrator auditLogHydrator,
                           final AccountUserApi accountUserApi,
                           final PaymentApi paymentApi,
                           final InvoicePaymentApi invoicePaymentApi,
                           final Clock clock,
                           final Context context) {
-        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
+        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, auditLogHydrator, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
         this.exportUserApi = exportUserApi;
+        this.databaseExportDao = databaseExportDao;
+        this.internalCallContextFactory = internalCallContextFactory;
     }
 
     @TimedResource
@@ -98,4 +126,67 @@ public class ExportResource extends JaxRsResourceBase {
             }
         };
     }
+
+    @TimedResource
+    @GET
+    @Path("/" + TENANT)
+    @Produces(APPLICATION_ZIP)
+    @ApiOperation(value = "Export the tenant data, one entry per table (gzip compressed segments)", response = Response.class)
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Success"),
+                           @ApiResponse(code = 400, message = "Invalid export format supplied")})
+    public Response exportDataForTenant(@QueryParam(QUERY_EXPORT_FORMAT) @DefaultValue("CSV") final TenantExportFormat format,
+                                        @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                        @HeaderParam(HDR_REASON) final String reason,
+                                        @HeaderParam(HDR_COMMENT) final String comment,
+                                        @javax.ws.rs.core.Context final HttpServletRequest request) throws IOException {
+        final CallContext callContext = context.createCallContextNoAccountId(createdBy, reason, comment, request);
+        final InternalTenantContext internalContext = internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(callContext);
+
+        // The tables are exported (in parallel) before the response is committed, so that a failure is reported as such
+        final File directory = Files.createTempDir();
+        final DirectoryTenantExportOutput out = new DirectoryTenantExportOutput(directory);
+        try {
+            databaseExportDao.exportDataForTenant(out,
+                                                  format,
+                                                  new ConcurrentHashMap<String, TenantExportCheckpoint>(),
+                                                  TENANT_EXPORT_NB_THREADS,
+                                                  TENANT_EXPORT_ROWS_PER_SEGMENT,
+                                                  internalContext);
+        } catch (final IOException e) {
+            deleteExportDirectory(directory);
+            throw e;
+        }
+
+        final StreamingOutput output = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                try {
+                    final ZipOutputStream zip = new ZipOutputStream(output);
+                    // Entries are already compressed
+                    zip.setLevel(Deflater.NO_COMPRESSION);
+                    final File[] tableFiles = directory.listFiles();
+                    Arrays.sort(tableFiles);
+                    for (final File tableFile : tableFiles) {
+                        zip.putNextEntry(new ZipEntry(tableFile.getName()));
+                        Files.copy(tableFile, zip);
+                        zip.closeEntry();
+                    }
+                    zip.finish();
+                } finally {
+                    deleteExportDirectory(directory);
+                }
+            }
+        };
+        return Response.status(Status.OK).entity(output).build();
+    }
+
+    private void deleteExportDirectory(final File directory) {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
 }
@@ -21,6 +21,7 @@ package org.killbill.billing.jaxrs.resources;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -48,6 +49,8 @@ import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.invoice.api.InvoicePayment;
 import org.killbill.billing.invoice.api.InvoicePaymentType;
+import org.killbill.billing.jaxrs.json.BulkInvoicePaymentJson;
+import org.killbill.billing.jaxrs.json.BulkInvoicePaymentResultJson;
 import org.killbill.billing.jaxrs.json.CustomFieldJson;
 import org.killbill.billing.jaxrs.json.InvoiceItemJson;
 import org.killbill.billing.jaxrs.json.InvoicePaymentJson;
@@ -57,6 +60,9 @@ import org.killbill.billing.jaxrs.json.TagJson;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
 import org.killbill.billing.payment.api.InvoicePaymentApi;
+import org.killbill.billing.payment.api.InvoicePaymentBulkItem;
+import org.killbill.billing.payment.api.InvoicePaymentBulkResult;
+import org.killbill.billing.payment.api.InvoicePaymentInternalApi;
 import org.killbill.billing.payment.api.Payment;
 import org.killbill.billing.payment.api.PaymentApi;
 import org.killbill.billing.payment.api.PaymentApiException;
@@ -72,12 +78,14 @@ import org.killbill.billing.util.api.TagApiException;
 import org.killbill.billing.util.api.TagDefinitionApiException;
 import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.audit.AccountAuditLogs;
+import org.killbill.billing.util.audit.api.AuditLogHydrator;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.TimedResource;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -96,6 +104,7 @@ public class InvoicePaymentResource extends JaxRsResourceBase {
     private static final String ID_PARAM_NAME = "paymentId";
 
     private final InvoicePaymentApi invoicePaymentApi;
+    private final InvoicePaymentInternalApi invoicePaymentInternalApi;
 
     @Inject
     public InvoicePaymentResource(final AccountUserApi accountUserApi,
@@ -104,11 +113,55 @@ public class InvoicePaymentResource extends JaxRsResourceBase {
                                   final TagUserApi tagUserApi,
                                   final CustomFieldUserApi customFieldUserApi,
                                   final AuditUserApi auditUserApi,
+                                  final AuditLogHydrator auditLogHydrator,
                                   final InvoicePaymentApi invoicePaymentApi,
+                                  final InvoicePaymentInternalApi invoicePaymentInternalApi,
                                   final Clock clock,
                                   final Context context) {
-        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
+        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, auditLogHydrator, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
         this.invoicePaymentApi = invoicePaymentApi;
+        this.invoicePaymentInternalApi = invoicePaymentInternalApi;
+    }
+
+    @TimedResource
+    @POST
+    @Path("/" + BULK)
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Trigger payments for a list of invoices", notes = "Results are returned once all payments have completed",
+                  response = BulkInvoicePaymentResultJson.class, responseContainer = "List")
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation"),
+                           @ApiResponse(code = 400, message = "Invalid payment data supplied")})
+    public Response createInvoicePayments(final List<BulkInvoicePaymentJson> json,
+                                          @QueryParam(QUERY_PAYMENT_EXTERNAL) @DefaultValue("false") final Boolean externalPayment,
+                                          @QueryParam(QUERY_PLUGIN_PROPERTY) final List<String> pluginPropertiesString,
+                                          @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                          @HeaderParam(HDR_REASON) final String reason,
+                                          @HeaderParam(HDR_COMMENT) final String comment,
+                                          @javax.ws.rs.core.Context final HttpServletRequest request) throws PaymentApiException {
+        verifyNonNullOrEmpty(json, "BulkInvoicePaymentJson body should be specified");
+        for (final BulkInvoicePaymentJson item : json) {
+            verifyNonNullOrEmpty(item.getAccountId(), "BulkInvoicePaymentJson accountId needs to be set",
+                                 item.getInvoiceId(), "BulkInvoicePaymentJson invoiceId needs to be set");
+        }
+
+        final Iterable<PluginProperty> pluginProperties = extractPluginProperties(pluginPropertiesString);
+        final CallContext callContext = context.createCallContextNoAccountId(createdBy, reason, comment, request);
+        final List<InvoicePaymentBulkItem> items = ImmutableList.<InvoicePaymentBulkItem>copyOf(Iterables.transform(json, new Function<BulkInvoicePaymentJson, InvoicePaymentBulkItem>() {
+            @Override
+            public InvoicePaymentBulkItem apply(final BulkInvoicePaymentJson input) {
+                return input.toInvoicePaymentBulkItem();
+            }
+        }));
+
+        // All payments are completed before the response is committed, so a client disconnect (or a slow client) can't
+        // stop or hold back the payments halfway
+        final List<BulkInvoicePaymentResultJson> results = new ArrayList<BulkInvoicePaymentResultJson>(items.size());
+        final Iterator<InvoicePaymentBulkResult> bulkResults = invoicePaymentInternalApi.createPurchasesForInvoicePayments(items, pluginProperties, createInvoicePaymentControlPluginApiPaymentOptions(externalPayment), callContext);
+        while (bulkResults.hasNext()) {
+            results.add(new BulkInvoicePaymentResultJson(bulkResults.next()));
+        }
+        return Response.status(Status.OK).entity(results).build();
     }
 
     @TimedResource
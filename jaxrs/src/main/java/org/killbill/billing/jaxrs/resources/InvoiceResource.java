@@ -21,17 +21,27 @@ package org.killbill.billing.jaxrs.resources;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.PropertyResourceBundle;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
@@ -46,10 +56,15 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
+import org.apache.shiro.mgt.SecurityManager;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
 import org.joda.time.LocalDate;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.ObjectType;
@@ -69,8 +84,10 @@ import org.killbill.billing.invoice.api.DryRunType;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.api.InvoicePaginationUserApi;
 import org.killbill.billing.invoice.api.InvoicePayment;
 import org.killbill.billing.invoice.api.InvoiceUserApi;
+import org.killbill.billing.jaxrs.JaxrsExecutors;
 import org.killbill.billing.jaxrs.json.CustomFieldJson;
 import org.killbill.billing.jaxrs.json.InvoiceDryRunJson;
 import org.killbill.billing.jaxrs.json.InvoiceItemJson;
@@ -88,6 +105,7 @@ import org.killbill.billing.tenant.api.TenantApiException;
 import org.killbill.billing.tenant.api.TenantKV.TenantKey;
 import org.killbill.billing.tenant.api.TenantUserApi;
 import org.killbill.billing.util.LocaleUtils;
+import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.api.AuditUserApi;
 import org.killbill.billing.util.api.CustomFieldApiException;
 import org.killbill.billing.util.api.CustomFieldUserApi;
@@ -95,23 +113,35 @@ import org.killbill.billing.util.api.TagApiException;
 import org.killbill.billing.util.api.TagDefinitionApiException;
 import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.audit.AccountAuditLogs;
+import org.killbill.billing.util.audit.api.AuditLogHydrator;
 import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.CallableWithRequestData;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.definition.JaxrsConfig;
 import org.killbill.billing.util.customfield.CustomField;
+import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.TimedResource;
+import org.killbill.commons.request.Request;
+import org.killbill.commons.request.RequestData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -130,10 +160,14 @@ public class InvoiceResource extends JaxRsResourceBase {
 
     private static final Logger log = LoggerFactory.getLogger(InvoiceResource.class);
     private static final String ID_PARAM_NAME = "invoiceId";
+    private static final String APPLICATION_ZIP = "application/zip";
     private static final String LOCALE_PARAM_NAME = "locale";
 
     private final InvoiceUserApi invoiceApi;
     private final TenantUserApi tenantApi;
+    private final InvoicePaginationUserApi invoicePaginationApi;
+    private final JaxrsExecutors jaxrsExecutors;
+    private final JaxrsConfig jaxrsConfig;
     private final Locale defaultLocale;
 
     private static final Ordering<InvoicePaymentJson> INVOICE_PAYMENT_ORDERING = Ordering.from(new Comparator<InvoicePaymentJson>() {
@@ -153,11 +187,18 @@ public class InvoiceResource extends JaxRsResourceBase {
                            final TagUserApi tagUserApi,
                            final CustomFieldUserApi customFieldUserApi,
                            final AuditUserApi auditUserApi,
+                           final AuditLogHydrator auditLogHydrator,
                            final TenantUserApi tenantApi,
+                           final InvoicePaginationUserApi invoicePaginationApi,
+                           final JaxrsExecutors jaxrsExecutors,
+                           final JaxrsConfig jaxrsConfig,
                            final Context context) {
-        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
+        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, auditLogHydrator, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
         this.invoiceApi = invoiceApi;
         this.tenantApi = tenantApi;
+        this.invoicePaginationApi = invoicePaginationApi;
+        this.jaxrsExecutors = jaxrsExecutors;
+        this.jaxrsConfig = jaxrsConfig;
         this.defaultLocale = Locale.getDefault();
     }
 
@@ -241,6 +282,92 @@ public class InvoiceResource extends JaxRsResourceBase {
         return Response.status(Status.OK).entity(invoiceApi.getInvoiceAsHTML(invoiceId, context.createTenantContextNoAccountId(request))).build();
     }
 
+    @TimedResource
+    @GET
+    @Path("/html")
+    @Produces(APPLICATION_ZIP)
+    @ApiOperation(value = "Render invoices as HTML, in a zip archive", response = StreamingOutput.class)
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid invoice ids supplied")})
+    public Response getInvoicesAsHTML(@QueryParam(QUERY_INVOICE_ID) final List<UUID> invoiceIds,
+                                      @javax.ws.rs.core.Context final HttpServletRequest request) {
+        Preconditions.checkArgument(invoiceIds != null && !invoiceIds.isEmpty(), "Invoice ids need to be specified");
+        final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
+
+        // The renders run on behalf of the caller: they inherit its request id, subject and MDC
+        final RequestData requestData = Request.getPerThreadRequestData();
+        final SecurityManager securityManager = ThreadContext.getSecurityManager();
+        final Subject subject = ThreadContext.getSubject();
+        final Map<String, String> mdcContextMap = MDC.getCopyOfContextMap();
+
+        // Invoices are rendered in parallel, and written in order as they complete: an invoice which cannot be rendered is
+        // written as an <invoiceId>.error.txt entry instead. The jaxrs executor is shared with the other apis, so a single
+        // call only ever uses a few of its threads.
+        final StreamingOutput output = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                final ListeningExecutorService executor = MoreExecutors.listeningDecorator(jaxrsExecutors.getJaxrsExecutorService());
+                final int maxInFlight = Math.max(1, Math.min(jaxrsConfig.getJaxrsHtmlRenderMaxInFlight(), jaxrsConfig.getJaxrsThreadNb() / 2));
+                final long timeoutMsec = jaxrsConfig.getJaxrsTimeout().getMillis();
+
+                final Iterator<UUID> toRender = invoiceIds.iterator();
+                final Deque<ListenableFuture<String>> inFlight = new ArrayDeque<ListenableFuture<String>>();
+                final Deque<UUID> inFlightInvoiceIds = new ArrayDeque<UUID>();
+                final ZipOutputStream zip = new ZipOutputStream(output);
+                try {
+                    while (toRender.hasNext() || !inFlight.isEmpty()) {
+                        while (toRender.hasNext() && inFlight.size() < maxInFlight) {
+                            final UUID invoiceId = toRender.next();
+                            inFlightInvoiceIds.add(invoiceId);
+                            inFlight.add(executor.submit(new CallableWithRequestData<String>(requestData,
+                                                                                             UUIDs.getRandom(),
+                                                                                             securityManager,
+                                                                                             subject,
+                                                                                             mdcContextMap,
+                                                                                             new Callable<String>() {
+                                                                                                 @Override
+                                                                                                 public String call() throws Exception {
+                                                                                                     return invoiceApi.getInvoiceAsHTML(invoiceId, tenantContext);
+                                                                                                 }
+                                                                                             })));
+                        }
+
+                        final UUID invoiceId = inFlightInvoiceIds.poll();
+                        final ListenableFuture<String> future = inFlight.poll();
+                        try {
+                            final String html = future.get(timeoutMsec, TimeUnit.MILLISECONDS);
+                            writeZipEntry(zip, invoiceId + ".html", html);
+                        } catch (final ExecutionException e) {
+                            // The cause can leak internal details (SQL, template paths): it only goes to the logs
+                            log.warn("Unable to render invoice {} as HTML", invoiceId, e.getCause());
+                            writeZipEntry(zip, invoiceId + ".error.txt", "Unable to render the invoice");
+                        } catch (final TimeoutException e) {
+                            future.cancel(true);
+                            log.warn("Timeout while rendering invoice {} as HTML", invoiceId);
+                            writeZipEntry(zip, invoiceId + ".error.txt", "Timeout while rendering the invoice");
+                        }
+                    }
+                    zip.finish();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                } finally {
+                    for (final ListenableFuture<String> future : inFlight) {
+                        future.cancel(true);
+                    }
+                }
+            }
+        };
+        return Response.status(Status.OK).entity(output).build();
+    }
+
+    private void writeZipEntry(final ZipOutputStream zip, final String name, final String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(Strings.nullToEmpty(content).getBytes(Charsets.UTF_8));
+        zip.closeEntry();
+        // Don't hold entries back in the buffers
+        zip.flush();
+    }
+
     @TimedResource
     @GET
     @Path("/" + PAGINATION)
@@ -249,13 +376,25 @@ public class InvoiceResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getInvoices(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                @QueryParam(QUERY_SEARCH_CONTINUATION_TOKEN) final String continuationToken,
+                                @QueryParam(QUERY_SEARCH_WITH_COUNT) @DefaultValue("false") final Boolean withCount,
                                 @QueryParam(QUERY_INVOICE_WITH_ITEMS) @DefaultValue("false") final Boolean withItems,
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws InvoiceApiException {
         final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
-        final Pagination<Invoice> invoices = invoiceApi.getInvoices(offset, limit, tenantContext);
-        final URI nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "getInvoices", invoices.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
-                                                                                                                                                           QUERY_AUDIT, auditMode.getLevel().toString()));
+        final Pagination<Invoice> invoices;
+        final URI nextPageUri;
+        if (continuationToken != null) {
+            // Keyset pagination (an empty token requests the first page)
+            invoices = invoicePaginationApi.getInvoices(Strings.emptyToNull(continuationToken), limit, withCount, tenantContext);
+            nextPageUri = uriBuilder.nextPageFromContinuationToken(InvoiceResource.class, "getInvoices", ((DefaultPagination) invoices).getNextContinuationToken(), limit, ImmutableMap.<String, String>of(QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
+                                                                                                                                                                                                         QUERY_AUDIT, auditMode.getLevel().toString(),
+                                                                                                                                                                                                         QUERY_SEARCH_WITH_COUNT, withCount.toString()));
+        } else {
+            invoices = invoiceApi.getInvoices(offset, limit, tenantContext);
+            nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "getInvoices", invoices.getNextOffset(), limit, ImmutableMap.<String, String>of(QUERY_INVOICE_WITH_ITEMS, withItems.toString(),
+                                                                                                                                                     QUERY_AUDIT, auditMode.getLevel().toString()));
+        }
 
         final AtomicReference<Map<UUID, AccountAuditLogs>> accountsAuditLogs = new AtomicReference<Map<UUID, AccountAuditLogs>>(new HashMap<UUID, AccountAuditLogs>());
         return buildStreamingPaginationResponse(invoices,
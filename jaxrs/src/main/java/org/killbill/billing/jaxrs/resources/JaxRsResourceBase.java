@@ -90,10 +90,12 @@ import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.audit.AccountAuditLogsForObjectType;
 import org.killbill.billing.util.audit.AuditLog;
 import org.killbill.billing.util.audit.AuditLogWithHistory;
+import org.killbill.billing.util.audit.api.AuditLogHydrator;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.customfield.StringCustomField;
+import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.jackson.ObjectMapper;
@@ -115,6 +117,7 @@ import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
 public abstract class JaxRsResourceBase implements JaxrsResource {
@@ -130,6 +133,7 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
     protected final TagUserApi tagUserApi;
     protected final CustomFieldUserApi customFieldUserApi;
     protected final AuditUserApi auditUserApi;
+    protected final AuditLogHydrator auditLogHydrator;
     protected final AccountUserApi accountUserApi;
     protected final PaymentApi paymentApi;
     protected final InvoicePaymentApi invoicePaymentApi;
@@ -137,6 +141,16 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
     protected final Context context;
     protected final Clock clock;
 
+    // Number of entities streamed between two audit logs queries
+    private static final int AUDIT_LOGS_CHUNK_SIZE = 100;
+
+    protected static final Function<Entity, UUID> ENTITY_ID = new Function<Entity, UUID>() {
+        @Override
+        public UUID apply(final Entity input) {
+            return input.getId();
+        }
+    };
+
     protected final DateTimeFormatter DATE_TIME_FORMATTER = ISODateTimeFormat.dateTimeParser();
     protected final DateTimeFormatter LOCAL_DATE_FORMATTER = DateTimeFormat.forPattern("yyyy-MM-dd");
 
@@ -144,6 +158,7 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
                              final TagUserApi tagUserApi,
                              final CustomFieldUserApi customFieldUserApi,
                              final AuditUserApi auditUserApi,
+                             final AuditLogHydrator auditLogHydrator,
                              final AccountUserApi accountUserApi,
                              final PaymentApi paymentApi,
                              final InvoicePaymentApi invoicePaymentApi,
@@ -154,6 +169,7 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
         this.tagUserApi = tagUserApi;
         this.customFieldUserApi = customFieldUserApi;
         this.auditUserApi = auditUserApi;
+        this.auditLogHydrator = auditLogHydrator;
         this.accountUserApi = accountUserApi;
         this.paymentApi = paymentApi;
         this.invoicePaymentApi = invoicePaymentApi;
@@ -166,6 +182,11 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
         return null;
     }
 
+    protected interface EntityWithAuditLogsToJson<E, J> {
+
+        J apply(E entity, List<AuditLog> auditLogs);
+    }
+
     protected Response addBlockingState(final BlockingStateJson json,
                                         final UUID accountId,
                                         final UUID blockableId,
@@ -247,11 +268,13 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
     }
 
     protected Response createCustomFieldResponse(final Iterable<CustomField> fields, final AuditMode auditMode, final TenantContext context) {
+        final Map<UUID, List<AuditLog>> auditLogsPerCustomField = auditLogHydrator.getAuditLogs(Lists.<CustomField, UUID>transform(ImmutableList.<CustomField>copyOf(fields), ENTITY_ID),
+                                                                                                 ObjectType.CUSTOM_FIELD,
+                                                                                                 auditMode.getLevel(),
+                                                                                                 context);
         final Collection<CustomFieldJson> result = new LinkedList<CustomFieldJson>();
         for (final CustomField cur : fields) {
-            // TODO PIERRE - Bulk API
-            final List<AuditLog> auditLogs = auditUserApi.getAuditLogs(cur.getId(), ObjectType.CUSTOM_FIELD, auditMode.getLevel(), context);
-            result.add(new CustomFieldJson(cur, auditLogs));
+            result.add(new CustomFieldJson(cur, auditLogsPerCustomField.get(cur.getId())));
         }
 
         return Response.status(Response.Status.OK).entity(result).build();
@@ -353,6 +376,49 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
             }
         };
 
+        return buildPaginationResponse(entities, json, nextPageUri);
+    }
+
+    // Same as above, but the audit logs of each chunk of entities are loaded in bulk (instead of one query per entity)
+    protected <E extends Entity, J extends JsonBase> Response buildStreamingPaginationResponse(final Pagination<E> entities,
+                                                                                               final ObjectType objectType,
+                                                                                               final AuditMode auditMode,
+                                                                                               final TenantContext tenantContext,
+                                                                                               final EntityWithAuditLogsToJson<E, J> toJson,
+                                                                                               final URI nextPageUri) {
+        final StreamingOutput json = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                final Iterator<List<E>> chunks = Iterators.partition(entities.iterator(), AUDIT_LOGS_CHUNK_SIZE);
+
+                try {
+                    final JsonGenerator generator = mapper.getFactory().createGenerator(output);
+                    generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+                    generator.writeStartArray();
+                    while (chunks.hasNext()) {
+                        final List<E> chunk = chunks.next();
+                        final Map<UUID, List<AuditLog>> auditLogs = auditLogHydrator.getAuditLogs(Lists.<E, UUID>transform(chunk, ENTITY_ID), objectType, auditMode.getLevel(), tenantContext);
+                        for (final E entity : chunk) {
+                            final J asJson = toJson.apply(entity, auditLogs.get(entity.getId()));
+                            if (asJson != null) {
+                                generator.writeObject(asJson);
+                            }
+                        }
+                    }
+                    generator.writeEndArray();
+                    generator.close();
+                } finally {
+                    // In case the client goes away (IOException), make sure to close the underlying DB connection
+                    entities.close();
+                }
+            }
+        };
+
+        return buildPaginationResponse(entities, json, nextPageUri);
+    }
+
+    private Response buildPaginationResponse(final Pagination<?> entities, final StreamingOutput json, final URI nextPageUri) {
         return Response.status(Status.OK)
                        .entity(json)
                        .header(HDR_PAGINATION_CURRENT_OFFSET, entities.getCurrentOffset())
@@ -360,9 +426,34 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
                        .header(HDR_PAGINATION_TOTAL_NB_RECORDS, entities.getTotalNbRecords())
                        .header(HDR_PAGINATION_MAX_NB_RECORDS, entities.getMaxNbRecords())
                        .header(HDR_PAGINATION_NEXT_PAGE_URI, nextPageUri)
+                       .header(HDR_PAGINATION_NEXT_CONTINUATION_TOKEN, entities instanceof DefaultPagination ? ((DefaultPagination) entities).getNextContinuationToken() : null)
                        .build();
     }
 
+    // Json objects are created one at a time, as they are written, instead of materializing the full list first.
+    // The 200 is sent before the first object is written: toJson must be a plain conversion, anything that can fail
+    // (catalog lookups, API calls) has to be resolved by the caller beforehand.
+    protected <E, J> Response buildStreamingListResponse(final Iterable<E> entities, final Function<E, J> toJson) {
+        final StreamingOutput json = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException, WebApplicationException {
+                final JsonGenerator generator = mapper.getFactory().createGenerator(output);
+                generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+                generator.writeStartArray();
+                for (final E entity : entities) {
+                    final J asJson = toJson.apply(entity);
+                    if (asJson != null) {
+                        generator.writeObject(asJson);
+                    }
+                }
+                generator.writeEndArray();
+                generator.close();
+            }
+        };
+        return Response.status(Status.OK).entity(json).build();
+    }
+
     protected void validatePaymentMethodForAccount(final UUID accountId, final UUID paymentMethodId, final CallContext callContext) throws PaymentApiException {
         if (paymentMethodId != null) {
             final PaymentMethod paymentMethod = paymentApi.getPaymentMethodById(paymentMethodId, false, false, ImmutableList.<PluginProperty>of(), callContext);
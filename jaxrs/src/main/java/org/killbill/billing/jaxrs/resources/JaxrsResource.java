@@ -51,6 +51,7 @@ public interface JaxrsResource {
     String HDR_PAGINATION_TOTAL_NB_RECORDS = "X-Killbill-Pagination-TotalNbRecords";
     String HDR_PAGINATION_MAX_NB_RECORDS = "X-Killbill-Pagination-MaxNbRecords";
     String HDR_PAGINATION_NEXT_PAGE_URI = "X-Killbill-Pagination-NextPageUri";
+    String HDR_PAGINATION_NEXT_CONTINUATION_TOKEN = "X-Killbill-Pagination-NextContinuationToken";
 
     /*
      * Patterns
@@ -82,6 +83,10 @@ public interface JaxrsResource {
     String QUERY_ENTITLEMENT_POLICY = "entitlementPolicy";
     String QUERY_SEARCH_OFFSET = "offset";
     String QUERY_SEARCH_LIMIT = "limit";
+    String QUERY_SEARCH_CONTINUATION_TOKEN = "continuationToken";
+    String QUERY_SEARCH_WITH_COUNT = "withCount";
+    String QUERY_BATCH_SIZE = "batchSize";
+    String QUERY_EXPORT_FORMAT = "format";
     String QUERY_ENTITLEMENT_EFFECTIVE_FROM_DT = "effectiveFromDate";
     String QUERY_FORCE_NEW_BCD_WITH_PAST_EFFECTIVE_DATE = "forceNewBcdWithPastEffectiveDate";
 
@@ -104,6 +109,7 @@ public interface JaxrsResource {
     String QUERY_UNPAID_INVOICES_ONLY = "unpaidInvoicesOnly";
     String QUERY_INCLUDE_VOIDED_INVOICES = "includeVoidedInvoices";
     String QUERY_INVOICE_WITH_CHILDREN_ITEMS = "withChildrenItems";
+    String QUERY_INVOICE_ID = "invoiceId";
 
     String QUERY_PAYMENT_EXTERNAL = "externalPayment";
     String QUERY_PAYMENT_AMOUNT = "paymentAmount";
@@ -209,6 +215,8 @@ public interface JaxrsResource {
 
     String INVOICE_PAYMENTS = "invoicePayments";
     String INVOICE_PAYMENTS_PATH = PREFIX + "/" + INVOICE_PAYMENTS;
+    String BULK = "bulk";
+    String IMPORT = "import";
     String DRY_RUN = "dryRun";
 
     String CHARGEBACKS = "chargebacks";
@@ -242,6 +250,7 @@ public interface JaxrsResource {
 
     String EXPORT = "export";
     String EXPORT_PATH = PREFIX + "/" + EXPORT;
+    String TENANT = "tenant";
 
     String PLUGINS_INFO = "pluginsInfo";
     String PLUGINS_INFO_PATH = PREFIX + "/" + PLUGINS_INFO;
@@ -291,6 +300,8 @@ public interface JaxrsResource {
 
     String CACHE = "cache";
     String HEALTHCHECK = "healthcheck";
+    String LATENCIES = "latencies";
+    String SLOW_TRANSACTIONS = "slowTransactions";
 
     String QUERY_INCLUDED_DELETED = "includedDeleted";
     String AUDIT_LOG = "auditLogs";
@@ -21,6 +21,7 @@ package org.killbill.billing.jaxrs.resources;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
@@ -54,12 +55,14 @@ import org.killbill.billing.util.api.TagDefinitionApiException;
 import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.audit.AuditLog;
 import org.killbill.billing.util.audit.AuditLogWithHistory;
+import org.killbill.billing.util.audit.api.AuditLogHydrator;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.tag.TagDefinition;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.TimedResource;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import io.swagger.annotations.Api;
@@ -79,12 +82,13 @@ public class TagDefinitionResource extends JaxRsResourceBase {
                                  final TagUserApi tagUserApi,
                                  final CustomFieldUserApi customFieldUserApi,
                                  final AuditUserApi auditUserApi,
+                                 final AuditLogHydrator auditLogHydrator,
                                  final AccountUserApi accountUserApi,
                                  final PaymentApi paymentApi,
                                  final InvoicePaymentApi invoicePaymentApi,
                                  final Clock clock,
                                  final Context context) {
-        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
+        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, auditLogHydrator, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
     }
 
     @TimedResource
@@ -97,10 +101,13 @@ public class TagDefinitionResource extends JaxRsResourceBase {
         final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
         final List<TagDefinition> tagDefinitions = tagUserApi.getTagDefinitions(tenantContext);
 
+        final Map<UUID, List<AuditLog>> auditLogsPerTagDefinition = auditLogHydrator.getAuditLogs(Lists.<TagDefinition, UUID>transform(tagDefinitions, ENTITY_ID),
+                                                                                                   ObjectType.TAG_DEFINITION,
+                                                                                                   auditMode.getLevel(),
+                                                                                                   tenantContext);
         final Collection<TagDefinitionJson> result = new LinkedList<TagDefinitionJson>();
         for (final TagDefinition tagDefinition : tagDefinitions) {
-            final List<AuditLog> auditLogs = auditUserApi.getAuditLogs(tagDefinition.getId(), ObjectType.TAG_DEFINITION, auditMode.getLevel(), tenantContext);
-            result.add(new TagDefinitionJson(tagDefinition, auditLogs));
+            result.add(new TagDefinitionJson(tagDefinition, auditLogsPerTagDefinition.get(tagDefinition.getId())));
         }
 
         return Response.status(Status.OK).entity(result).build();
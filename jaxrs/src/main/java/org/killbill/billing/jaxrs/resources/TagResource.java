@@ -42,6 +42,7 @@ import org.killbill.billing.payment.api.InvoicePaymentApi;
 import org.killbill.billing.payment.api.PaymentApi;
 import org.killbill.billing.util.api.AuditLevel;
 import org.killbill.billing.util.audit.AuditLogWithHistory;
+import org.killbill.billing.util.audit.api.AuditLogHydrator;
 import org.killbill.clock.Clock;
 import org.killbill.billing.jaxrs.json.TagJson;
 import org.killbill.billing.jaxrs.util.Context;
@@ -57,7 +58,6 @@ import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.TagDefinition;
 import org.killbill.commons.metrics.TimedResource;
 
-import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -78,12 +78,13 @@ public class TagResource extends JaxRsResourceBase {
                        final TagUserApi tagUserApi,
                        final CustomFieldUserApi customFieldUserApi,
                        final AuditUserApi auditUserApi,
+                       final AuditLogHydrator auditLogHydrator,
                        final AccountUserApi accountUserApi,
                        final PaymentApi paymentApi,
                        final InvoicePaymentApi invoicePaymentApi,
                        final Clock clock,
                        final Context context) {
-        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
+        super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, auditLogHydrator, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
     }
 
     @TimedResource
@@ -106,13 +107,13 @@ public class TagResource extends JaxRsResourceBase {
         }
 
         return buildStreamingPaginationResponse(tags,
-                                                new Function<Tag, TagJson>() {
+                                                ObjectType.TAG,
+                                                auditMode,
+                                                tenantContext,
+                                                new EntityWithAuditLogsToJson<Tag, TagJson>() {
                                                     @Override
-                                                    public TagJson apply(final Tag tag) {
+                                                    public TagJson apply(final Tag tag, final List<AuditLog> auditLogs) {
                                                         final TagDefinition tagDefinition = tagDefinitionsCache.get(tag.getTagDefinitionId());
-
-                                                        // TODO Really slow - we should instead try to figure out the account id
-                                                        final List<AuditLog> auditLogs = auditUserApi.getAuditLogs(tag.getId(), ObjectType.TAG, auditMode.getLevel(), tenantContext);
                                                         return new TagJson(tag, tagDefinition, auditLogs);
                                                     }
                                                 },
@@ -139,13 +140,13 @@ public class TagResource extends JaxRsResourceBase {
             tagDefinitionsCache.put(tagDefinition.getId(), tagDefinition);
         }
         return buildStreamingPaginationResponse(tags,
-                                                new Function<Tag, TagJson>() {
+                                                ObjectType.TAG,
+                                                auditMode,
+                                                tenantContext,
+                                                new EntityWithAuditLogsToJson<Tag, TagJson>() {
                                                     @Override
-                                                    public TagJson apply(final Tag tag) {
+                                                    public TagJson apply(final Tag tag, final List<AuditLog> auditLogs) {
                                                         final TagDefinition tagDefinition = tagDefinitionsCache.get(tag.getTagDefinitionId());
-
-                                                        // TODO Really slow - we should instead try to figure out the account id
-                                                        final List<AuditLog> auditLogs = auditUserApi.getAuditLogs(tag.getId(), ObjectType.TAG, auditMode.getLevel(), tenantContext);
                                                         return new TagJson(tag, tagDefinition, auditLogs);
                                                     }
                                                 },
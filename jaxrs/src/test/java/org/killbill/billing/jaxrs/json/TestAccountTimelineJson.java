@@ -14,9 +14,113 @@
  * under the License.
  */
 
+
 package org.killbill.billing.jaxrs.json;
 
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.Fixed;
+import org.killbill.billing.catalog.api.InternationalPrice;
+import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.entitlement.api.Subscription;
+import org.killbill.billing.entitlement.api.SubscriptionBundle;
+import org.killbill.billing.entitlement.api.SubscriptionBundleTimeline;
+import org.killbill.billing.entitlement.api.SubscriptionEvent;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.api.InvoicePayment;
 import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.payment.api.Payment;
+import org.killbill.billing.util.audit.AccountAuditLogs;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.collect.ImmutableList;
 
 public class TestAccountTimelineJson extends JaxrsTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testWriteTimelineMatchesJson() throws Exception {
+        final Account account = createAccount();
+        final List<SubscriptionBundle> bundles = ImmutableList.<SubscriptionBundle>of(createBundle(account, ImmutableList.<Subscription>of()));
+        final UUID accountId = account.getId();
+        final Invoice invoice = Mockito.mock(Invoice.class);
+        Mockito.when(invoice.getId()).thenReturn(UUID.randomUUID());
+        Mockito.when(invoice.getAccountId()).thenReturn(accountId);
+        Mockito.when(invoice.getCurrency()).thenReturn(Currency.USD);
+        Mockito.when(invoice.getChargedAmount()).thenReturn(BigDecimal.TEN);
+        Mockito.when(invoice.getInvoiceItems()).thenReturn(ImmutableList.<InvoiceItem>of());
+        final List<Invoice> invoices = ImmutableList.<Invoice>of(invoice);
+        final AccountAuditLogs accountAuditLogs = Mockito.mock(AccountAuditLogs.class);
+
+        final AccountTimelineJson timelineJson = new AccountTimelineJson(account, invoices, ImmutableList.<Payment>of(), ImmutableList.<InvoicePayment>of(), bundles, accountAuditLogs);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final JsonGenerator generator = mapper.getFactory().createGenerator(output);
+        AccountTimelineJson.writeTimeline(generator, account, invoices, ImmutableList.<Payment>of(), ImmutableList.<InvoicePayment>of(), bundles,
+                                          AccountTimelineJson.toBundlesJson(account, bundles, accountAuditLogs), accountAuditLogs);
+        generator.close();
+
+        Assert.assertEquals(mapper.readTree(output.toByteArray()), mapper.readTree(mapper.writeValueAsBytes(timelineJson)));
+    }
+
+    @Test(groups = "fast")
+    public void testCatalogErrorBeforeStreaming() throws Exception {
+        final Account account = createAccount();
+
+        final InternationalPrice price = Mockito.mock(InternationalPrice.class);
+        Mockito.when(price.getPrice(Currency.USD)).thenThrow(new CatalogApiException(ErrorCode.CAT_NO_PRICE_FOR_CURRENCY, Currency.USD));
+        final Fixed fixed = Mockito.mock(Fixed.class);
+        Mockito.when(fixed.getPrice()).thenReturn(price);
+        final PlanPhase phase = Mockito.mock(PlanPhase.class);
+        Mockito.when(phase.getName()).thenReturn("phase");
+        Mockito.when(phase.getFixed()).thenReturn(fixed);
+        final SubscriptionEvent event = Mockito.mock(SubscriptionEvent.class);
+        Mockito.when(event.getNextPhase()).thenReturn(phase);
+        final Subscription subscription = Mockito.mock(Subscription.class);
+        Mockito.when(subscription.getId()).thenReturn(UUID.randomUUID());
+        Mockito.when(subscription.getSubscriptionEvents()).thenReturn(ImmutableList.<SubscriptionEvent>of(event));
+        final List<SubscriptionBundle> bundles = ImmutableList.<SubscriptionBundle>of(createBundle(account, ImmutableList.<Subscription>of(subscription)));
+
+        // The catalog error surfaces while the resource can still return an error status, not while the timeline is written
+        try {
+            AccountTimelineJson.toBundlesJson(account, bundles, null);
+            Assert.fail("The price lookup should have failed");
+        } catch (final CatalogApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.CAT_NO_PRICE_FOR_CURRENCY.getCode());
+        }
+    }
+
+    private Account createAccount() {
+        final Account account = Mockito.mock(Account.class);
+        Mockito.when(account.getId()).thenReturn(UUID.randomUUID());
+        Mockito.when(account.getExternalKey()).thenReturn(UUID.randomUUID().toString());
+        Mockito.when(account.getCurrency()).thenReturn(Currency.USD);
+        return account;
+    }
+
+    private SubscriptionBundle createBundle(final Account account, final List<Subscription> subscriptions) {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final SubscriptionBundleTimeline timeline = Mockito.mock(SubscriptionBundleTimeline.class);
+        Mockito.when(timeline.getBundleId()).thenReturn(bundleId);
+        Mockito.when(timeline.getAccountId()).thenReturn(accountId);
+        Mockito.when(timeline.getSubscriptionEvents()).thenReturn(ImmutableList.<SubscriptionEvent>of());
+        final SubscriptionBundle bundle = Mockito.mock(SubscriptionBundle.class);
+        Mockito.when(bundle.getId()).thenReturn(bundleId);
+        Mockito.when(bundle.getAccountId()).thenReturn(accountId);
+        Mockito.when(bundle.getExternalKey()).thenReturn(UUID.randomUUID().toString());
+        Mockito.when(bundle.getSubscriptions()).thenReturn(subscriptions);
+        Mockito.when(bundle.getTimeline()).thenReturn(timeline);
+        return bundle;
+    }
 }
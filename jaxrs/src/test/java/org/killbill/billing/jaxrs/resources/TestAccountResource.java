@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.resources;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.Response;
+
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountApiException;
+import org.killbill.billing.account.api.AccountData;
+import org.killbill.billing.account.api.AccountImportItem;
+import org.killbill.billing.account.api.AccountImportResult;
+import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.jaxrs.json.AccountImportJson;
+import org.killbill.billing.jaxrs.json.AccountImportResultJson;
+import org.killbill.billing.jaxrs.json.AccountJson;
+import org.killbill.billing.jaxrs.json.PaymentMethodJson;
+import org.killbill.billing.jaxrs.util.Context;
+import org.killbill.billing.payment.api.PaymentApi;
+import org.killbill.billing.payment.api.PaymentMethod;
+import org.killbill.billing.payment.api.PaymentMethodPlugin;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.security.Logical;
+import org.killbill.billing.security.Permission;
+import org.killbill.billing.security.SecurityApiException;
+import org.killbill.billing.security.api.SecurityApi;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class TestAccountResource extends JaxrsTestSuiteNoDB {
+
+    private AccountInternalApi accountInternalApi;
+    private PaymentApi paymentApi;
+    private SecurityApi securityApi;
+    private CallContext callContext;
+    private AccountResource accountResource;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+
+        accountInternalApi = Mockito.mock(AccountInternalApi.class);
+        paymentApi = Mockito.mock(PaymentApi.class);
+        securityApi = Mockito.mock(SecurityApi.class);
+        callContext = Mockito.mock(CallContext.class);
+        final Context context = Mockito.mock(Context.class);
+        Mockito.when(context.createCallContextNoAccountId(Mockito.anyString(), Mockito.<String>any(), Mockito.<String>any(), Mockito.<HttpServletRequest>any())).thenReturn(callContext);
+
+        accountResource = new AccountResource(null, null, null, null, paymentApi, null, null, null, null, null, null, null, null, null, null, context, null, null, null, accountInternalApi, securityApi);
+    }
+
+    @Test(groups = "fast")
+    public void testImportAccountsCompletesBeforeResponse() throws Exception {
+        final AccountImportJson importedJson = createAccountImportJson("imported", true);
+        final AccountImportJson rejectedJson = createAccountImportJson("rejected", false);
+
+        final Account account = Mockito.mock(Account.class);
+        Mockito.when(account.getId()).thenReturn(UUID.randomUUID());
+        final UUID paymentMethodId = UUID.randomUUID();
+        Mockito.when(paymentApi.addPaymentMethod(Mockito.<Account>any(), Mockito.anyString(), Mockito.anyString(), Mockito.anyBoolean(), Mockito.<PaymentMethodPlugin>any(), Mockito.<Iterable<PluginProperty>>any(), Mockito.<CallContext>any()))
+               .thenReturn(paymentMethodId);
+
+        Mockito.when(accountInternalApi.importAccounts(Mockito.<Iterator<AccountImportItem>>any(), Mockito.eq(500), Mockito.eq(callContext)))
+               .thenReturn(ImmutableList.<AccountImportResult>of(new AccountImportResult(importedJson.toAccountImportItem(), account, null),
+                                                                 new AccountImportResult(rejectedJson.toAccountImportItem(), null, new AccountApiException(ErrorCode.ACCOUNT_ALREADY_EXISTS, "rejected"))).iterator());
+
+        final Response response = accountResource.importAccounts(ImmutableList.<AccountImportJson>of(importedJson, rejectedJson), 500, null, "importer", null, null, null);
+
+        // The payment method has been added by the time the response is built, not while it is written
+        Mockito.verify(paymentApi, Mockito.times(1)).addPaymentMethod(Mockito.eq(account), Mockito.anyString(), Mockito.eq("imported-plugin"), Mockito.eq(true), Mockito.<PaymentMethodPlugin>any(), Mockito.<Iterable<PluginProperty>>any(), Mockito.eq(callContext));
+
+        Assert.assertEquals(response.getStatus(), 200);
+        final List<AccountImportResultJson> results = (List<AccountImportResultJson>) response.getEntity();
+        Assert.assertEquals(results.size(), 2);
+        Assert.assertEquals(results.get(0).getExternalKey(), "imported");
+        Assert.assertEquals(results.get(0).getAccountId(), account.getId());
+        Assert.assertTrue(results.get(0).getSuccess());
+        Assert.assertEquals(results.get(0).getPaymentMethodId(), paymentMethodId);
+        Assert.assertEquals(results.get(1).getExternalKey(), "rejected");
+        Assert.assertNull(results.get(1).getAccountId());
+        Assert.assertFalse(results.get(1).getSuccess());
+        Assert.assertEquals(results.get(1).getErrorCode(), (Integer) ErrorCode.ACCOUNT_ALREADY_EXISTS.getCode());
+        Assert.assertNull(results.get(1).getPaymentMethodId());
+    }
+
+    @Test(groups = "fast")
+    public void testImportAccountsChecksPermissions() throws Exception {
+        Mockito.when(securityApi.isSubjectAuthenticated()).thenReturn(true);
+        Mockito.doThrow(new SecurityApiException(ErrorCode.SECURITY_NOT_ENOUGH_PERMISSIONS))
+               .when(securityApi).checkCurrentUserPermissions(Mockito.eq(ImmutableList.of(Permission.TAG_CAN_ADD)), Mockito.eq(Logical.AND), Mockito.<TenantContext>any());
+
+        try {
+            accountResource.importAccounts(ImmutableList.<AccountImportJson>of(createAccountImportJson("tagged", false)), 500, null, "importer", null, null, null);
+            Assert.fail("Importing tags requires TAG_CAN_ADD");
+        } catch (final AccountApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.SECURITY_NOT_ENOUGH_PERMISSIONS.getCode());
+        }
+
+        Mockito.verify(securityApi).checkCurrentUserPermissions(ImmutableList.of(Permission.ACCOUNT_CAN_CREATE), Logical.AND, callContext);
+        // Nothing was imported
+        Mockito.verify(accountInternalApi, Mockito.never()).importAccounts(Mockito.<Iterator<AccountImportItem>>any(), Mockito.anyInt(), Mockito.<CallContext>any());
+    }
+
+    private AccountImportJson createAccountImportJson(final String externalKey, final boolean withPaymentMethod) {
+        final AccountData accountData = Mockito.mock(AccountData.class);
+        Mockito.when(accountData.getExternalKey()).thenReturn(externalKey);
+
+        final AccountImportJson json = Mockito.mock(AccountImportJson.class);
+        Mockito.when(json.getAccount()).thenReturn(Mockito.mock(AccountJson.class));
+        Mockito.when(json.toAccountImportItem()).thenReturn(new AccountImportItem(null, accountData, ImmutableList.<UUID>of(UUID.randomUUID()), ImmutableMap.<String, String>of()));
+        if (withPaymentMethod) {
+            final PaymentMethodJson paymentMethodJson = Mockito.mock(PaymentMethodJson.class);
+            Mockito.when(paymentMethodJson.getPluginName()).thenReturn(externalKey + "-plugin");
+            Mockito.when(paymentMethodJson.getExternalKey()).thenReturn(externalKey + "-pm");
+            Mockito.when(paymentMethodJson.isDefault()).thenReturn(true);
+            Mockito.when(paymentMethodJson.toPaymentMethod(Mockito.<UUID>any())).thenReturn(Mockito.mock(PaymentMethod.class));
+            Mockito.when(json.getPaymentMethod()).thenReturn(paymentMethodJson);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.jaxrs.resources;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.Response;
+
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.invoice.api.InvoicePayment;
+import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.jaxrs.json.BulkInvoicePaymentJson;
+import org.killbill.billing.jaxrs.json.BulkInvoicePaymentResultJson;
+import org.killbill.billing.jaxrs.util.Context;
+import org.killbill.billing.payment.api.InvoicePaymentBulkItem;
+import org.killbill.billing.payment.api.InvoicePaymentBulkResult;
+import org.killbill.billing.payment.api.InvoicePaymentInternalApi;
+import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.api.PaymentOptions;
+import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+
+public class TestInvoicePaymentResource extends JaxrsTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testCreateInvoicePaymentsCompletesBeforeResponse() throws Exception {
+        final CallContext callContext = Mockito.mock(CallContext.class);
+        final Context context = Mockito.mock(Context.class);
+        Mockito.when(context.createCallContextNoAccountId(Mockito.anyString(), Mockito.<String>any(), Mockito.<String>any(), Mockito.<HttpServletRequest>any())).thenReturn(callContext);
+
+        final BulkInvoicePaymentJson paidJson = new BulkInvoicePaymentJson(UUID.randomUUID(), UUID.randomUUID(), null, BigDecimal.TEN, null, null);
+        final BulkInvoicePaymentJson declinedJson = new BulkInvoicePaymentJson(UUID.randomUUID(), UUID.randomUUID(), null, null, null, null);
+
+        final UUID paymentId = UUID.randomUUID();
+        final InvoicePayment invoicePayment = Mockito.mock(InvoicePayment.class);
+        Mockito.when(invoicePayment.getPaymentId()).thenReturn(paymentId);
+        Mockito.when(invoicePayment.getPaymentCookieId()).thenReturn("paid-key");
+        Mockito.when(invoicePayment.getAmount()).thenReturn(BigDecimal.TEN);
+        final List<InvoicePaymentBulkResult> bulkResults = ImmutableList.<InvoicePaymentBulkResult>of(new InvoicePaymentBulkResult(paidJson.toInvoicePaymentBulkItem(), invoicePayment, null),
+                                                                                                      new InvoicePaymentBulkResult(declinedJson.toInvoicePaymentBulkItem(), null, new PaymentApiException(ErrorCode.PAYMENT_PLUGIN_EXCEPTION, "declined")));
+
+        // Like the real implementation, each payment only happens once the iterator gets to it
+        final AtomicInteger nbPayments = new AtomicInteger();
+        final Iterator<InvoicePaymentBulkResult> lazyResults = new AbstractIterator<InvoicePaymentBulkResult>() {
+            @Override
+            protected InvoicePaymentBulkResult computeNext() {
+                return nbPayments.get() < bulkResults.size() ? bulkResults.get(nbPayments.getAndIncrement()) : endOfData();
+            }
+        };
+        final InvoicePaymentInternalApi invoicePaymentInternalApi = Mockito.mock(InvoicePaymentInternalApi.class);
+        Mockito.when(invoicePaymentInternalApi.createPurchasesForInvoicePayments(Mockito.<Iterable<InvoicePaymentBulkItem>>any(), Mockito.<Iterable<PluginProperty>>any(), Mockito.<PaymentOptions>any(), Mockito.eq(callContext)))
+               .thenReturn(lazyResults);
+
+        final InvoicePaymentResource invoicePaymentResource = new InvoicePaymentResource(null, null, null, null, null, null, null, null, invoicePaymentInternalApi, null, context);
+        final Response response = invoicePaymentResource.createInvoicePayments(ImmutableList.<BulkInvoicePaymentJson>of(paidJson, declinedJson), false, null, "payer", null, null, null);
+
+        // All payments have been made by the time the response is built, not while it is written
+        Assert.assertEquals(nbPayments.get(), 2);
+
+        Assert.assertEquals(response.getStatus(), 200);
+        final List<BulkInvoicePaymentResultJson> results = (List<BulkInvoicePaymentResultJson>) response.getEntity();
+        Assert.assertEquals(results.size(), 2);
+        Assert.assertEquals(results.get(0).getInvoiceId(), paidJson.getInvoiceId());
+        Assert.assertTrue(results.get(0).getSuccess());
+        Assert.assertEquals(results.get(0).getPaymentId(), paymentId);
+        Assert.assertEquals(results.get(0).getTransactionExternalKey(), "paid-key");
+        Assert.assertEquals(results.get(0).getAmount().compareTo(BigDecimal.TEN), 0);
+        Assert.assertEquals(results.get(1).getInvoiceId(), declinedJson.getInvoiceId());
+        Assert.assertFalse(results.get(1).getSuccess());
+        Assert.assertNull(results.get(1).getPaymentId());
+        Assert.assertEquals(results.get(1).getErrorCode(), (Integer) ErrorCode.PAYMENT_PLUGIN_EXCEPTION.getCode());
+    }
+}
@@ -28,9 +28,6 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.UUID;
 
-import javax.annotation.Nullable;
-
-import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountInternalApi;
 import org.killbill.billing.account.api.ImmutableAccountData;
@@ -97,8 +94,8 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
         final Catalog fullCatalog = catalogInternalApi.getFullCatalog(true, true, context);
 
         // Check to see if billing is off for the account
-        final List<Tag> tagsForAccount = tagApi.getTagsForAccount(false, context);
-        final List<Tag> accountTags = getTagsForObjectType(ObjectType.ACCOUNT, tagsForAccount, null);
+        final Map<UUID, List<Tag>> tagsForAccount = tagApi.getTagsByObjectForAccount(false, context);
+        final List<Tag> accountTags = getTagsForObject(tagsForAccount, accountId);
         final boolean found_AUTO_INVOICING_OFF = is_AUTO_INVOICING_OFF(accountTags);
         final boolean found_INVOICING_DRAFT = is_AUTO_INVOICING_DRAFT(accountTags);
         final boolean found_INVOICING_REUSE_DRAFT = is_AUTO_INVOICING_REUSE_DRAFT(accountTags);
@@ -152,7 +149,7 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
                                             final Set<UUID> skipSubscriptionsSet,
                                             final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount,
                                             final Catalog catalog,
-                                            final List<Tag> tagsForAccount) throws AccountApiException, CatalogApiException, SubscriptionBaseApiException {
+                                            final Map<UUID, List<Tag>> tagsForAccount) throws AccountApiException, CatalogApiException, SubscriptionBaseApiException {
         final int currentAccountBCD = accountApi.getBCD(context);
         addBillingEventsForBundles(bundles,
                                    account,
@@ -174,7 +171,7 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
                                             final Set<UUID> skipSubscriptionsSet,
                                             final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount,
                                             final Catalog catalog,
-                                            final List<Tag> tagsForAccount,
+                                            final Map<UUID, List<Tag>> tagsForAccount,
                                             final int currentAccountBCD) throws AccountApiException, CatalogApiException, SubscriptionBaseApiException {
         // In dryRun mode, when we care about invoice generated for new BASE subscription, no such bundle exists yet; we still
         // want to tap into subscriptionBase logic, so we make up a bundleId
@@ -201,7 +198,7 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
             }
 
             // Check if billing is off for the bundle
-            final List<Tag> bundleTags = getTagsForObjectType(ObjectType.BUNDLE, tagsForAccount, bundle.getId());
+            final List<Tag> bundleTags = getTagsForObject(tagsForAccount, bundle.getId());
             boolean found_AUTO_INVOICING_OFF = is_AUTO_INVOICING_OFF(bundleTags);
             if (found_AUTO_INVOICING_OFF) {
                 for (final SubscriptionBase subscription : subscriptions) { // billing is off so list sub ids in set to be excluded
@@ -350,19 +347,9 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
         });
     }
 
-    private List<Tag> getTagsForObjectType(final ObjectType objectType, final List<Tag> tags, @Nullable final UUID objectId) {
-        return ImmutableList.<Tag>copyOf(Iterables.<Tag>filter(tags,
-                                                                  new Predicate<Tag>() {
-                                                                      @Override
-                                                                      public boolean apply(final Tag input) {
-                                                                          if (objectId == null) {
-                                                                              return objectType == input.getObjectType();
-                                                                          } else {
-                                                                              return objectType == input.getObjectType() && objectId.equals(input.getObjectId());
-                                                                          }
-
-                                                                      }
-                                                                  }));
+    private List<Tag> getTagsForObject(final Map<UUID, List<Tag>> tagsForAccount, final UUID objectId) {
+        final List<Tag> tags = tagsForAccount.get(objectId);
+        return tags == null ? ImmutableList.<Tag>of() : tags;
     }
 
     private List<SubscriptionBase> getSubscriptionsForAccountByBundleId(final Map<UUID, List<SubscriptionBase>> subscriptionsForAccount, final UUID bundleId) {
@@ -19,6 +19,7 @@ package org.killbill.billing.overdue;
 import org.skife.config.Config;
 import org.skife.config.Default;
 import org.skife.config.Description;
+import org.skife.config.TimeSpan;
 
 import org.killbill.billing.util.config.definition.KillbillConfig;
 
@@ -28,4 +29,14 @@ public interface OverdueProperties extends KillbillConfig {
     @Default("NoOverdueConfig.xml")
     @Description("Overdue configuration location. Either in the classpath or in the filesystem")
     public String getConfigURI();
+
+    @Config("org.killbill.overdue.refresh.coalescing.window")
+    @Default("0s")
+    @Description("Delay applied to the overdue refresh triggered by bus events, during which further events for the same account are coalesced into the pending refresh (0s to refresh right away)")
+    public TimeSpan getRefreshCoalescingWindow();
+
+    @Config("org.killbill.overdue.sweep.rate")
+    @Default("0s")
+    @Description("Rate at which the overdue states of all the accounts of all the tenants are re-evaluated in bulk, each tenant by one node at a time (0s to disable the sweep)")
+    public TimeSpan getSweepRate();
 }
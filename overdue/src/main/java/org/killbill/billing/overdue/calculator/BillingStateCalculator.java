@@ -45,6 +45,9 @@ import com.google.inject.Inject;
 
 public class BillingStateCalculator {
 
+    // Also assumed by the bulk evaluation (see CompiledOverdueStateSet)
+    public static final PaymentResponse RESPONSE_FOR_LAST_FAILED_PAYMENT = PaymentResponse.INSUFFICIENT_FUNDS; //TODO MDW
+
     private final InvoiceInternalApi invoiceApi;
     private final TagInternalApi tagApi;
     private final Clock clock;
@@ -81,7 +84,7 @@ public class BillingStateCalculator {
             dateOfEarliestUnpaidInvoice = invoice.getInvoiceDate();
             idOfEarliestUnpaidInvoice = invoice.getId();
         }
-        final PaymentResponse responseForLastFailedPayment = PaymentResponse.INSUFFICIENT_FUNDS; //TODO MDW
+        final PaymentResponse responseForLastFailedPayment = RESPONSE_FOR_LAST_FAILED_PAYMENT;
         final List<Tag> accountTags = tagApi.getTags(account.getId(), ObjectType.ACCOUNT, context);
         final Tag[] tags = accountTags.toArray(new Tag[accountTags.size()]);
 
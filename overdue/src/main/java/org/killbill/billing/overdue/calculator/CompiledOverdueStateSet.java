@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.overdue.calculator;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.joda.time.LocalDate;
+import org.joda.time.Period;
+import org.killbill.billing.overdue.ConditionEvaluation;
+import org.killbill.billing.overdue.api.OverdueApiException;
+import org.killbill.billing.overdue.config.DefaultOverdueCondition;
+import org.killbill.billing.overdue.config.DefaultOverdueState;
+import org.killbill.billing.overdue.config.DefaultOverdueStateSet;
+import org.killbill.billing.payment.api.PaymentResponse;
+
+//
+// Column oriented form of the DefaultOverdueStateSet conditions, to evaluate the overdue state of many accounts at once
+// from their unpaid invoices aggregates (see DefaultOverdueStateSet#calculateOverdueState for the reference semantics):
+// - the states are evaluated in order, the first matching state wins, and the clear state is used if none match
+// - the condition thresholds are unboxed into arrays, and each state is evaluated against all the remaining accounts in turn
+// - the response for the last failed payment is constant (see BillingStateCalculator), so that check is done at compile time
+// - conditions which cannot be decided from the aggregates (control tags, custom conditions) and the time conditions which
+//   flip within a day of the evaluation date (the reference date is in the account timezone) yield AMBIGUOUS: the caller
+//   needs to go through the per-account evaluation for those
+//
+public class CompiledOverdueStateSet {
+
+    public static final int AMBIGUOUS = -1;
+
+    private static final int UNDECIDED = -2;
+
+    private final DefaultOverdueState[] states;
+    private final DefaultOverdueState clearState;
+    // For each state: can the state match at all, and can it be decided from the aggregates
+    private final boolean[] canMatch;
+    private final boolean[] decidable;
+    private final int[] minNumberOfUnpaidInvoices;
+    private final BigDecimal[] minBalanceOfUnpaidInvoices;
+    private final Period[] minTimeSinceEarliestUnpaidInvoice;
+
+    public static CompiledOverdueStateSet compile(final DefaultOverdueStateSet overdueStateSet, final PaymentResponse responseForLastFailedPayment) throws OverdueApiException {
+        return new CompiledOverdueStateSet(overdueStateSet, responseForLastFailedPayment);
+    }
+
+    private CompiledOverdueStateSet(final DefaultOverdueStateSet overdueStateSet, final PaymentResponse responseForLastFailedPayment) throws OverdueApiException {
+        this.states = overdueStateSet.getStates();
+        this.clearState = overdueStateSet.getClearState();
+
+        final int nbStates = states.length;
+        this.canMatch = new boolean[nbStates];
+        this.decidable = new boolean[nbStates];
+        this.minNumberOfUnpaidInvoices = new int[nbStates];
+        this.minBalanceOfUnpaidInvoices = new BigDecimal[nbStates];
+        this.minTimeSinceEarliestUnpaidInvoice = new Period[nbStates];
+
+        for (int i = 0; i < nbStates; i++) {
+            final ConditionEvaluation conditionEvaluation = states[i].getConditionEvaluation();
+            if (conditionEvaluation == null) {
+                canMatch[i] = false;
+                decidable[i] = true;
+                continue;
+            }
+            if (!(conditionEvaluation instanceof DefaultOverdueCondition)) {
+                canMatch[i] = true;
+                decidable[i] = false;
+                continue;
+            }
+
+            final DefaultOverdueCondition condition = (DefaultOverdueCondition) conditionEvaluation;
+            canMatch[i] = condition.getResponseForLastFailedPaymentIn() == null ||
+                          Arrays.asList(condition.getResponseForLastFailedPaymentIn()).contains(responseForLastFailedPayment);
+            decidable[i] = condition.getInclusionControlTagType() == null && condition.getExclusionControlTagType() == null;
+            minNumberOfUnpaidInvoices[i] = condition.getNumberOfUnpaidInvoicesEqualsOrExceeds() == null ? Integer.MIN_VALUE : condition.getNumberOfUnpaidInvoicesEqualsOrExceeds();
+            minBalanceOfUnpaidInvoices[i] = condition.getTotalUnpaidInvoiceBalanceEqualsOrExceeds();
+            minTimeSinceEarliestUnpaidInvoice[i] = condition.getTimeSinceEarliestUnpaidInvoiceEqualsOrExceeds() == null ? null : condition.getTimeSinceEarliestUnpaidInvoiceEqualsOrExceeds().toJodaPeriod();
+        }
+    }
+
+    public int getNbStates() {
+        return states.length;
+    }
+
+    // The clear state index is the number of states
+    public int getClearStateIndex() {
+        return states.length;
+    }
+
+    public DefaultOverdueState getState(final int stateIndex) {
+        return stateIndex == getClearStateIndex() ? clearState : states[stateIndex];
+    }
+
+    // AMBIGUOUS if the state isn't part of the config (e.g. removed since)
+    public int getStateIndex(final String stateName) {
+        if (clearState.getName().equals(stateName)) {
+            return getClearStateIndex();
+        }
+        for (int i = 0; i < states.length; i++) {
+            if (states[i].getName().equals(stateName)) {
+                return i;
+            }
+        }
+        return AMBIGUOUS;
+    }
+
+    /**
+     * Compute the overdue state index of the first size accounts (or AMBIGUOUS).
+     *
+     * @param numberOfUnpaidInvoices       number of unpaid invoices, per account
+     * @param balanceOfUnpaidInvoices      total balance of the unpaid invoices, per account
+     * @param dateOfEarliestUnpaidInvoice  date of the earliest unpaid invoice (null if none), per account
+     * @param size                         number of accounts to evaluate
+     * @param today                        the evaluation date
+     * @param result                       the state index, per account
+     */
+    public void evaluate(final int[] numberOfUnpaidInvoices,
+                         final BigDecimal[] balanceOfUnpaidInvoices,
+                         final LocalDate[] dateOfEarliestUnpaidInvoice,
+                         final int size,
+                         final LocalDate today,
+                         final int[] result) {
+        // The state can only move forward with time: if both ends of the day window agree, so does the account local date
+        final int[] latest = new int[size];
+        evaluateAt(numberOfUnpaidInvoices, balanceOfUnpaidInvoices, dateOfEarliestUnpaidInvoice, size, today.minusDays(1), result);
+        evaluateAt(numberOfUnpaidInvoices, balanceOfUnpaidInvoices, dateOfEarliestUnpaidInvoice, size, today.plusDays(1), latest);
+        for (int i = 0; i < size; i++) {
+            if (result[i] != latest[i]) {
+                result[i] = AMBIGUOUS;
+            }
+        }
+    }
+
+    private void evaluateAt(final int[] numberOfUnpaidInvoices,
+                            final BigDecimal[] balanceOfUnpaidInvoices,
+                            final LocalDate[] dateOfEarliestUnpaidInvoice,
+                            final int size,
+                            final LocalDate date,
+                            final int[] result) {
+        Arrays.fill(result, 0, size, UNDECIDED);
+        for (int s = 0; s < states.length; s++) {
+            if (!canMatch[s]) {
+                continue;
+            }
+            final int minNumber = minNumberOfUnpaidInvoices[s];
+            final BigDecimal minBalance = minBalanceOfUnpaidInvoices[s];
+            final Period minTime = minTimeSinceEarliestUnpaidInvoice[s];
+            final int stateResult = decidable[s] ? s : AMBIGUOUS;
+            for (int i = 0; i < size; i++) {
+                if (result[i] != UNDECIDED) {
+                    continue;
+                }
+                if (numberOfUnpaidInvoices[i] < minNumber) {
+                    continue;
+                }
+                if (minBalance != null && minBalance.compareTo(balanceOfUnpaidInvoices[i]) > 0) {
+                    continue;
+                }
+                if (minTime != null && (dateOfEarliestUnpaidInvoice[i] == null || dateOfEarliestUnpaidInvoice[i].plus(minTime).isAfter(date))) {
+                    continue;
+                }
+                result[i] = stateResult;
+            }
+        }
+        final int clearStateIndex = getClearStateIndex();
+        for (int i = 0; i < size; i++) {
+            if (result[i] == UNDECIDED) {
+                result[i] = clearStateIndex;
+            }
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.killbill.billing.overdue.caching.DefaultOverdueConfigCache;
 import org.killbill.billing.overdue.caching.OverdueCacheInvalidationCallback;
 import org.killbill.billing.overdue.caching.OverdueConfigCache;
 import org.killbill.billing.overdue.listener.OverdueListener;
+import org.killbill.billing.overdue.notification.OverdueAsyncBusCoalescer;
 import org.killbill.billing.overdue.notification.OverdueAsyncBusNotifier;
 import org.killbill.billing.overdue.notification.OverdueAsyncBusPoster;
 import org.killbill.billing.overdue.notification.OverdueCheckNotifier;
@@ -34,6 +35,7 @@ import org.killbill.billing.overdue.notification.OverdueCheckPoster;
 import org.killbill.billing.overdue.notification.OverdueNotifier;
 import org.killbill.billing.overdue.notification.OverduePoster;
 import org.killbill.billing.overdue.service.DefaultOverdueService;
+import org.killbill.billing.overdue.wrapper.OverdueSweeper;
 import org.killbill.billing.overdue.wrapper.OverdueWrapperFactory;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
@@ -66,6 +68,7 @@ public class DefaultOverdueModule extends KillBillModule implements OverdueModul
         bind(OverdueProperties.class).toInstance(config);
 
         bind(OverdueListener.class).asEagerSingleton();
+        bind(OverdueAsyncBusCoalescer.class).asEagerSingleton();
 
         bind(OverdueNotifier.class).annotatedWith(Names.named(OVERDUE_NOTIFIER_CHECK_NAMED)).to(OverdueCheckNotifier.class).asEagerSingleton();
         bind(OverdueNotifier.class).annotatedWith(Names.named(OVERDUE_NOTIFIER_ASYNC_BUS_NAMED)).to(OverdueAsyncBusNotifier.class).asEagerSingleton();
@@ -80,6 +83,7 @@ public class DefaultOverdueModule extends KillBillModule implements OverdueModul
 
     protected void installOverdueWrapperFactory() {
         bind(OverdueWrapperFactory.class).asEagerSingleton();
+        bind(OverdueSweeper.class).asEagerSingleton();
     }
 
     @Override
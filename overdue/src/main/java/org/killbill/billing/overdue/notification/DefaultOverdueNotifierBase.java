@@ -35,6 +35,7 @@ import org.killbill.billing.overdue.service.DefaultOverdueService;
 import org.killbill.billing.util.callcontext.CallOrigin;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.metrics.TimedNotificationQueueHandler;
 
 public abstract class DefaultOverdueNotifierBase implements OverdueNotifier {
 
@@ -76,7 +77,7 @@ public abstract class DefaultOverdueNotifierBase implements OverdueNotifier {
         try {
             overdueQueue = notificationQueueService.createNotificationQueue(DefaultOverdueService.OVERDUE_SERVICE_NAME,
                                                                             getQueueName(),
-                                                                            notificationQueueHandler);
+                                                                            new TimedNotificationQueueHandler(DefaultOverdueService.OVERDUE_SERVICE_NAME, getQueueName(), notificationQueueHandler));
         } catch (NotificationQueueAlreadyExists e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.overdue.notification;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.killbill.clock.Clock;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+//
+// Book-keeping for the overdue refreshes triggered by bus events (OverdueAsyncBusNotifier queue):
+// - the poster coalesces the events for the same (account, action) into the pending notification
+// - the notifier skips the refreshes which are stale, i.e. a refresh for the same account started (on this node) after the last
+//   event coalesced into the notification was received: that refresh already saw the changes
+//
+public class OverdueAsyncBusCoalescer {
+
+    private static final String METRICS_PREFIX = "killbill.overdue.refresh";
+
+    // Only used to skip stale refreshes, an evicted entry just means we do the refresh
+    private static final long MAX_TRACKED_ACCOUNTS = 100000L;
+
+    private final Clock clock;
+    private final Cache<UUID, DateTime> lastRefreshStartDates;
+
+    private final AtomicLong nbRequested = new AtomicLong();
+    private final AtomicLong nbCoalesced = new AtomicLong();
+    private final AtomicLong nbProcessed = new AtomicLong();
+    private final AtomicLong nbSkippedStale = new AtomicLong();
+
+    @Inject
+    public OverdueAsyncBusCoalescer(final Clock clock, final MetricRegistry metricRegistry) {
+        this.clock = clock;
+        this.lastRefreshStartDates = CacheBuilder.newBuilder()
+                                                 .maximumSize(MAX_TRACKED_ACCOUNTS)
+                                                 .build();
+        registerMetrics(metricRegistry);
+    }
+
+    public void recordRequested() {
+        nbRequested.incrementAndGet();
+    }
+
+    public void recordCoalesced() {
+        nbCoalesced.incrementAndGet();
+    }
+
+    public boolean isStale(final OverdueAsyncBusNotificationKey key) {
+        if (key.getTriggerDate() == null) {
+            return false;
+        }
+        final DateTime lastRefreshStartDate = lastRefreshStartDates.getIfPresent(key.getUuidKey());
+        return lastRefreshStartDate != null && lastRefreshStartDate.isAfter(key.getTriggerDate());
+    }
+
+    public DateTime startRefresh() {
+        return clock.getUTCNow();
+    }
+
+    public void recordRefreshed(final UUID accountId, final DateTime refreshStartDate) {
+        nbProcessed.incrementAndGet();
+        final DateTime lastRefreshStartDate = lastRefreshStartDates.getIfPresent(accountId);
+        if (lastRefreshStartDate == null || refreshStartDate.isAfter(lastRefreshStartDate)) {
+            lastRefreshStartDates.put(accountId, refreshStartDate);
+        }
+    }
+
+    public void recordSkippedStale() {
+        nbSkippedStale.incrementAndGet();
+    }
+
+    public long getNbRequested() {
+        return nbRequested.get();
+    }
+
+    public long getNbCoalesced() {
+        return nbCoalesced.get();
+    }
+
+    public long getNbProcessed() {
+        return nbProcessed.get();
+    }
+
+    public long getNbSkippedStale() {
+        return nbSkippedStale.get();
+    }
+
+    private void registerMetrics(final MetricRegistry metricRegistry) {
+        registerMetric(metricRegistry, "requested", nbRequested);
+        registerMetric(metricRegistry, "coalesced", nbCoalesced);
+        registerMetric(metricRegistry, "processed", nbProcessed);
+        registerMetric(metricRegistry, "skippedStale", nbSkippedStale);
+
+        // Share of the requested refreshes which didn't lead to a refresh (coalesced into a pending one or skipped as stale)
+        final String ratioName = MetricRegistry.name(METRICS_PREFIX, "coalescingRatio");
+        metricRegistry.remove(ratioName);
+        metricRegistry.register(ratioName, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(nbCoalesced.get() + nbSkippedStale.get(), nbRequested.get());
+            }
+        });
+    }
+
+    private void registerMetric(final MetricRegistry metricRegistry, final String name, final AtomicLong counter) {
+        final String metricName = MetricRegistry.name(METRICS_PREFIX, name);
+        metricRegistry.remove(metricName);
+        metricRegistry.register(metricName, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return counter.get();
+            }
+        });
+    }
+}
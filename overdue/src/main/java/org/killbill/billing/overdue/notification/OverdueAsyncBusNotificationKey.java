@@ -18,6 +18,9 @@ package org.killbill.billing.overdue.notification;
 
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
+import org.joda.time.DateTime;
 import org.killbill.notificationq.api.NotificationEvent;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -26,24 +29,58 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class OverdueAsyncBusNotificationKey extends OverdueCheckNotificationKey implements NotificationEvent {
 
     private final OverdueAsyncBusNotificationAction action;
+    // Date of the last event coalesced into this notification (null for notifications recorded by older versions)
+    private final DateTime triggerDate;
+    // Number of events coalesced into this notification, on top of the first one
+    private final int nbCoalescedEvents;
 
     public enum OverdueAsyncBusNotificationAction {
         REFRESH,
         CLEAR
     }
 
+    public OverdueAsyncBusNotificationKey(final UUID uuidKey,
+                                          final OverdueAsyncBusNotificationAction action,
+                                          final DateTime triggerDate) {
+        this(uuidKey, action, triggerDate, 0);
+    }
+
     @JsonCreator
     public OverdueAsyncBusNotificationKey(@JsonProperty("uuidKey") final UUID uuidKey,
-                                          @JsonProperty("action") final OverdueAsyncBusNotificationAction action) {
+                                          @JsonProperty("action") final OverdueAsyncBusNotificationAction action,
+                                          @JsonProperty("triggerDate") @Nullable final DateTime triggerDate,
+                                          @JsonProperty("nbCoalescedEvents") @Nullable final Integer nbCoalescedEvents) {
         super(uuidKey);
         this.action = action;
+        this.triggerDate = triggerDate;
+        this.nbCoalescedEvents = nbCoalescedEvents == null ? 0 : nbCoalescedEvents;
     }
 
-
     public OverdueAsyncBusNotificationAction getAction() {
         return action;
     }
 
+    public DateTime getTriggerDate() {
+        return triggerDate;
+    }
+
+    public int getNbCoalescedEvents() {
+        return nbCoalescedEvents;
+    }
+
+    // Returns the key to record in place of this (pending) one, when a new event for the same account and action comes in
+    public OverdueAsyncBusNotificationKey coalesce(final OverdueAsyncBusNotificationKey newKey) {
+        final DateTime latestTriggerDate;
+        if (triggerDate == null || newKey.getTriggerDate() == null) {
+            latestTriggerDate = newKey.getTriggerDate();
+        } else {
+            latestTriggerDate = newKey.getTriggerDate().isAfter(triggerDate) ? newKey.getTriggerDate() : triggerDate;
+        }
+        return new OverdueAsyncBusNotificationKey(getUuidKey(), action, latestTriggerDate, nbCoalescedEvents + newKey.getNbCoalescedEvents() + 1);
+    }
+
+    // Note: the trigger date and the number of coalesced events are not part of equals/hashCode, (uuidKey, action) is the coalescing key
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -37,12 +37,15 @@ public class OverdueAsyncBusNotifier extends DefaultOverdueNotifierBase implemen
 
     public static final String OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE = "overdue-async-bus-queue";
 
+    private final OverdueAsyncBusCoalescer coalescer;
 
     @Inject
     public OverdueAsyncBusNotifier(final NotificationQueueService notificationQueueService, final OverdueProperties config,
                                    final InternalCallContextFactory internalCallContextFactory,
-                                   final OverdueDispatcher dispatcher) {
+                                   final OverdueDispatcher dispatcher,
+                                   final OverdueAsyncBusCoalescer coalescer) {
         super(notificationQueueService, config, internalCallContextFactory, dispatcher);
+        this.coalescer = coalescer;
     }
 
     @Override
@@ -64,7 +67,14 @@ public class OverdueAsyncBusNotifier extends DefaultOverdueNotifierBase implemen
                     dispatcher.clearOverdueForAccount(key.getUuidKey(), eventDate, createCallContext(userToken, accountRecordId, tenantRecordId));
                     break;
                 case REFRESH:
+                    if (coalescer.isStale(key)) {
+                        log.debug("Skipping stale overdue refresh for accountId='{}', triggerDate='{}'", key.getUuidKey(), key.getTriggerDate());
+                        coalescer.recordSkippedStale();
+                        break;
+                    }
+                    final DateTime refreshStartDate = coalescer.startRefresh();
                     dispatcher.processOverdueForAccount(key.getUuidKey(), eventDate, createCallContext(userToken, accountRecordId, tenantRecordId));
+                    coalescer.recordRefreshed(key.getUuidKey(), refreshStartDate);
                     break;
                 default:
                     throw new RuntimeException("Unexpected action " + key.getAction() + " for account " + key.getUuidKey());
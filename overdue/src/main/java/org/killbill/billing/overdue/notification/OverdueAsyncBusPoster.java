@@ -18,9 +18,12 @@
 
 package org.killbill.billing.overdue.notification;
 
+import java.util.Iterator;
+
 import javax.inject.Named;
 
 import org.joda.time.DateTime;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.NonEntityDao;
@@ -30,30 +33,74 @@ import org.killbill.notificationq.api.NotificationEventWithMetadata;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 import org.skife.jdbi.v2.IDBI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 
 import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
 public class OverdueAsyncBusPoster extends DefaultOverduePosterBase {
 
+    private static final Logger log = LoggerFactory.getLogger(OverdueAsyncBusPoster.class);
+
+    private final OverdueAsyncBusCoalescer coalescer;
+
     @Inject
     public OverdueAsyncBusPoster(final NotificationQueueService notificationQueueService,
                                  final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
-                                 final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory) {
+                                 final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory,
+                                 final OverdueAsyncBusCoalescer coalescer) {
         super(notificationQueueService, dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory);
+        this.coalescer = coalescer;
     }
 
     @Override
     protected <T extends OverdueCheckNotificationKey> boolean cleanupFutureNotificationsFormTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
                                                                                                         final Iterable<NotificationEventWithMetadata<T>> futureNotifications,
                                                                                                         final DateTime futureNotificationTime,
-                                                                                                        final NotificationQueue overdueQueue) {
-        // If we already have notification for that account we don't insert the new one
-        // Note that this is slightly incorrect because we could for instance already have a REFRESH and insert a CLEAR, but if that were the case,
-        // if means overdue state would change very rapidly and the behavior would anyway be non deterministic
-        // Note: don't use isEmpty() to go through all results to close the connection
-        return Iterables.size(futureNotifications) == 0;
+                                                                                                        final T notificationKey,
+                                                                                                        final NotificationQueue overdueQueue,
+                                                                                                        final InternalCallContext context) {
+        coalescer.recordRequested();
+
+        // If we already have a pending notification for that account and action, we coalesce the new one into it
+        NotificationEventWithMetadata<T> pendingNotification = null;
+        final Iterator<NotificationEventWithMetadata<T>> iterator = futureNotifications.iterator();
+        try {
+            while (iterator.hasNext()) {
+                final NotificationEventWithMetadata<T> cur = iterator.next();
+                if (pendingNotification == null && isSameAction(cur.getEvent(), notificationKey)) {
+                    pendingNotification = cur;
+                }
+            }
+        } finally {
+            // Go through all results to close the connection
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+        }
+
+        if (pendingNotification == null) {
+            return true;
+        }
+
+        // Update the pending entry rather than inserting a duplicate: it keeps its effective date (so the refresh isn't postponed
+        // forever by a steady stream of events) but tracks the latest event, see OverdueAsyncBusCoalescer#isStale
+        final OverdueAsyncBusNotificationKey pendingKey = (OverdueAsyncBusNotificationKey) pendingNotification.getEvent();
+        final OverdueAsyncBusNotificationKey updatedKey = pendingKey.coalesce((OverdueAsyncBusNotificationKey) notificationKey);
+        overdueQueue.removeNotificationFromTransaction(entitySqlDaoWrapperFactory.getHandle().getConnection(), pendingNotification.getRecordId());
+        overdueQueue.recordFutureNotificationFromTransaction(entitySqlDaoWrapperFactory.getHandle().getConnection(), pendingNotification.getEffectiveDate(), updatedKey,
+                                                             context.getUserToken(), context.getAccountRecordId(), context.getTenantRecordId());
+        coalescer.recordCoalesced();
+        log.debug("Coalesced overdue notification for accountId='{}', action='{}', nbCoalescedEvents='{}'", pendingKey.getUuidKey(), pendingKey.getAction(), updatedKey.getNbCoalescedEvents());
+
+        return false;
+    }
+
+    private boolean isSameAction(final Object pendingEvent, final OverdueCheckNotificationKey notificationKey) {
+        return pendingEvent instanceof OverdueAsyncBusNotificationKey &&
+               notificationKey instanceof OverdueAsyncBusNotificationKey &&
+               ((OverdueAsyncBusNotificationKey) pendingEvent).getAction() == ((OverdueAsyncBusNotificationKey) notificationKey).getAction();
     }
 }
@@ -23,6 +23,7 @@ import java.util.Iterator;
 import javax.inject.Named;
 
 import org.joda.time.DateTime;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.NonEntityDao;
@@ -49,7 +50,8 @@ public class OverdueCheckPoster extends DefaultOverduePosterBase {
     @Override
     protected <T extends OverdueCheckNotificationKey> boolean cleanupFutureNotificationsFormTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory,
                                                                                                         final Iterable<NotificationEventWithMetadata<T>> futureNotifications,
-                                                                                                        final DateTime futureNotificationTime, final NotificationQueue overdueQueue) {
+                                                                                                        final DateTime futureNotificationTime, final T notificationKey,
+                                                                                                        final NotificationQueue overdueQueue, final InternalCallContext context) {
 
         boolean shouldInsertNewNotification = true;
         int minIndexToDeleteFrom = 0;
@@ -18,8 +18,13 @@
 
 package org.killbill.billing.overdue.service;
 
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Named;
 
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.lifecycle.api.BusService;
 import org.killbill.billing.overdue.OverdueProperties;
@@ -27,15 +32,28 @@ import org.killbill.billing.overdue.OverdueService;
 import org.killbill.billing.overdue.api.OverdueApiException;
 import org.killbill.billing.overdue.api.OverdueConfig;
 import org.killbill.billing.overdue.caching.OverdueConfigCache;
+import org.killbill.billing.overdue.config.api.OverdueException;
 import org.killbill.billing.overdue.glue.DefaultOverdueModule;
 import org.killbill.billing.overdue.listener.OverdueListener;
 import org.killbill.billing.overdue.notification.OverdueNotifier;
+import org.killbill.billing.overdue.wrapper.OverdueSweeper;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
 import org.killbill.billing.tenant.api.TenantInternalApi;
 import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
 import org.killbill.billing.tenant.api.TenantKV.TenantKey;
+import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.callcontext.CallOrigin;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.globallocker.LockerType;
 import org.killbill.bus.api.PersistentBus.EventBusException;
+import org.killbill.clock.Clock;
+import org.killbill.commons.concurrent.Executors;
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.locker.LockFailedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +63,8 @@ public class DefaultOverdueService implements OverdueService {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultOverdueService.class);
 
+    private static final int TERMINATION_TIMEOUT_SEC = 5;
+
     private final OverdueProperties properties;
     private final OverdueNotifier asyncNotifier;
     private final OverdueNotifier checkNotifier;
@@ -55,8 +75,16 @@ public class DefaultOverdueService implements OverdueService {
     private final CacheInvalidationCallback overdueCacheInvalidationCallback;
 
     private final TenantInternalApi tenantInternalApi;
+    private final OverdueSweeper sweeper;
+    private final NonEntityDao nonEntityDao;
+    private final InternalCallContextFactory internalCallContextFactory;
+    private final GlobalLocker locker;
+    private final Clock clock;
     private boolean isConfigLoaded;
 
+    private ScheduledExecutorService sweepExecutor;
+    private volatile boolean isStopped;
+
     @Inject
     public DefaultOverdueService(final OverdueProperties properties,
                                  @Named(DefaultOverdueModule.OVERDUE_NOTIFIER_CHECK_NAMED) final OverdueNotifier checkNotifier,
@@ -65,7 +93,12 @@ public class DefaultOverdueService implements OverdueService {
                                  final OverdueListener listener,
                                  final OverdueConfigCache overdueConfigCache,
                                  @Named(DefaultOverdueModule.OVERDUE_INVALIDATION_CALLBACK) final CacheInvalidationCallback overdueCacheInvalidationCallback,
-                                 final TenantInternalApi tenantInternalApi) {
+                                 final TenantInternalApi tenantInternalApi,
+                                 final OverdueSweeper sweeper,
+                                 final NonEntityDao nonEntityDao,
+                                 final InternalCallContextFactory internalCallContextFactory,
+                                 final GlobalLocker locker,
+                                 final Clock clock) {
         this.properties = properties;
         this.checkNotifier = checkNotifier;
         this.asyncNotifier = asyncNotifier;
@@ -75,6 +108,12 @@ public class DefaultOverdueService implements OverdueService {
         this.overdueConfigCache = overdueConfigCache;
         this.overdueCacheInvalidationCallback = overdueCacheInvalidationCallback;
         this.tenantInternalApi = tenantInternalApi;
+        this.sweeper = sweeper;
+        this.nonEntityDao = nonEntityDao;
+        this.internalCallContextFactory = internalCallContextFactory;
+        this.locker = locker;
+        this.clock = clock;
+        this.isStopped = false;
     }
 
     @Override
@@ -105,6 +144,8 @@ public class DefaultOverdueService implements OverdueService {
         checkNotifier.initialize();
         asyncNotifier.initialize();
         tenantInternalApi.initializeCacheInvalidationCallback(TenantKey.OVERDUE_CONFIG, overdueCacheInvalidationCallback);
+        sweepExecutor = Executors.newSingleThreadScheduledExecutor("OverdueSweepExecutor");
+        isStopped = false;
     }
 
     private void registerForBus() {
@@ -119,6 +160,23 @@ public class DefaultOverdueService implements OverdueService {
     public void start() {
         checkNotifier.start();
         asyncNotifier.start();
+
+        final long periodMillis = properties.getSweepRate().getMillis();
+        if (periodMillis > 0) {
+            // All the nodes sweep at the same wall clock times, so that they contend for the same tenant locks (see sweepAllTenants)
+            final long initialDelayMillis = periodMillis - clock.getUTCNow().getMillis() % periodMillis;
+            sweepExecutor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sweepAllTenants();
+                    } catch (final RuntimeException e) {
+                        // Don't prevent subsequent executions
+                        log.warn("Failed to sweep overdue states", e);
+                    }
+                }
+            }, initialDelayMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
     }
 
     @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
@@ -130,6 +188,45 @@ public class DefaultOverdueService implements OverdueService {
         }
         checkNotifier.stop();
         asyncNotifier.stop();
+
+        isStopped = true;
+        sweepExecutor.shutdown();
+        try {
+            if (!sweepExecutor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                log.warn("OverdueSweepExecutor failed to complete termination within {} sec", TERMINATION_TIMEOUT_SEC);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("OverdueSweepExecutor stop sequence got interrupted");
+        }
+    }
+
+    // Each tenant is swept by a single node at a time: nodes skip the tenants whose lock is held, so that the nodes
+    // share the tenants between them. A node lagging behind may sweep a tenant again, which only re-evaluates it
+    private void sweepAllTenants() {
+        final List<Long> tenantRecordIds = nonEntityDao.retrieveTenantRecordIds();
+        for (final Long tenantRecordId : tenantRecordIds) {
+            if (isStopped) {
+                return;
+            }
+
+            final InternalCallContext context = internalCallContextFactory.createInternalCallContext(tenantRecordId, null, "OverdueSweeper", CallOrigin.INTERNAL, UserType.SYSTEM, UUIDs.randomUUID());
+            GlobalLock lock = null;
+            try {
+                lock = locker.lockWithNumberOfTries(LockerType.OVERDUE_SWEEP.toString(), tenantRecordId.toString(), 1);
+                sweeper.sweep(context);
+            } catch (final LockFailedException e) {
+                log.debug("Overdue sweep for tenantRecordId='{}' is already running on another node", tenantRecordId);
+            } catch (final OverdueException e) {
+                log.warn("Failed to sweep overdue states for tenantRecordId='{}'", tenantRecordId, e);
+            } catch (final RuntimeException e) {
+                log.warn("Failed to sweep overdue states for tenantRecordId='{}'", tenantRecordId, e);
+            } finally {
+                if (lock != null) {
+                    lock.release();
+                }
+            }
+        }
     }
 
     @Override
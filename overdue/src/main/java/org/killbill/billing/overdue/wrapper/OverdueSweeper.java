@@ -0,0 +1,232 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.overdue.wrapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.entitlement.api.BlockingState;
+import org.killbill.billing.entitlement.api.BlockingStateType;
+import org.killbill.billing.invoice.api.AccountUnpaidInvoicesAggregate;
+import org.killbill.billing.invoice.api.InvoiceInternalApi;
+import org.killbill.billing.junction.BlockingInternalApi;
+import org.killbill.billing.overdue.OverdueService;
+import org.killbill.billing.overdue.api.OverdueApiException;
+import org.killbill.billing.overdue.api.OverdueConfig;
+import org.killbill.billing.overdue.caching.OverdueConfigCache;
+import org.killbill.billing.overdue.calculator.BillingStateCalculator;
+import org.killbill.billing.overdue.calculator.CompiledOverdueStateSet;
+import org.killbill.billing.overdue.config.DefaultOverdueConfig;
+import org.killbill.billing.overdue.config.DefaultOverdueStateSet;
+import org.killbill.billing.overdue.config.api.OverdueException;
+import org.killbill.billing.overdue.listener.OverdueDispatcher;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.entity.Pagination;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//
+// Bulk overdue evaluation for all the accounts of a tenant (scheduled by DefaultOverdueService, see org.killbill.overdue.sweep.rate),
+// as a safety net for the event driven refreshes:
+// - the unpaid invoices aggregates are computed by a grouped query over the whole tenant (no account lock taken) and streamed,
+//   the current overdue states are retrieved with one query for the whole tenant
+// - the overdue states are computed in memory (CompiledOverdueStateSet), CHUNK_SIZE accounts at a time
+// - the regular refresh (which takes the account lock and recomputes the billing state) is only triggered for the accounts
+//   whose computed state differs from the current one, or which cannot be decided from the aggregates
+// The aggregates are computed on the account's own invoices: for child accounts paying through their parent, a mismatch
+// only leads to a refresh, which uses the parent billing state.
+//
+public class OverdueSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueSweeper.class);
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final InvoiceInternalApi invoiceApi;
+    private final BlockingInternalApi blockingApi;
+    private final OverdueConfigCache overdueConfigCache;
+    private final OverdueDispatcher dispatcher;
+    private final InternalCallContextFactory internalCallContextFactory;
+    private final Clock clock;
+
+    @Inject
+    public OverdueSweeper(final InvoiceInternalApi invoiceApi,
+                          final BlockingInternalApi blockingApi,
+                          final OverdueConfigCache overdueConfigCache,
+                          final OverdueDispatcher dispatcher,
+                          final InternalCallContextFactory internalCallContextFactory,
+                          final Clock clock) {
+        this.invoiceApi = invoiceApi;
+        this.blockingApi = blockingApi;
+        this.overdueConfigCache = overdueConfigCache;
+        this.dispatcher = dispatcher;
+        this.internalCallContextFactory = internalCallContextFactory;
+        this.clock = clock;
+    }
+
+    /**
+     * Re-evaluate the overdue state of all the accounts of the tenant.
+     *
+     * @param context tenant call context (no account record id)
+     * @return the number of accounts refreshed
+     * @throws OverdueException if the overdue config cannot be retrieved
+     */
+    public int sweep(final InternalCallContext context) throws OverdueException {
+        final DefaultOverdueStateSet overdueStateSet = getOverdueStateSet(context);
+        if (overdueStateSet == null || overdueStateSet.size() < 1) {
+            // No configuration available
+            return 0;
+        }
+
+        final CompiledOverdueStateSet compiledOverdueStateSet;
+        try {
+            compiledOverdueStateSet = CompiledOverdueStateSet.compile(overdueStateSet, BillingStateCalculator.RESPONSE_FOR_LAST_FAILED_PAYMENT);
+        } catch (final OverdueApiException e) {
+            throw new OverdueException(e);
+        }
+
+        final DateTime now = clock.getUTCNow();
+        final LocalDate today = now.toLocalDate();
+
+        final int[] noUnpaidInvoiceStateIndex = new int[1];
+        compiledOverdueStateSet.evaluate(new int[]{0}, new BigDecimal[]{BigDecimal.ZERO}, new LocalDate[]{null}, 1, today, noUnpaidInvoiceStateIndex);
+        if (noUnpaidInvoiceStateIndex[0] != compiledOverdueStateSet.getClearStateIndex()) {
+            log.warn("Overdue sweep for tenantRecordId='{}': some overdue states may match accounts without unpaid invoices, these accounts are only handled by the regular refreshes",
+                     context.getTenantRecordId());
+        }
+
+        // Candidates: the accounts with unpaid invoices and the accounts currently in an overdue state.
+        // Other accounts are (and stay) clear, unless some state matches without unpaid invoices
+        final List<BlockingState> currentStates = blockingApi.getBlockingStatesForServiceAndType(OverdueService.OVERDUE_SERVICE_NAME, BlockingStateType.ACCOUNT, context);
+        final Map<UUID, Integer> currentStateIndexes = new HashMap<UUID, Integer>();
+        for (final BlockingState currentState : currentStates) {
+            currentStateIndexes.put(currentState.getBlockedId(), compiledOverdueStateSet.getStateIndex(currentState.getStateName()));
+        }
+
+        // The aggregates are streamed and evaluated in chunks
+        final Chunk chunk = new Chunk(compiledOverdueStateSet, currentStateIndexes, today, now, context);
+        final Pagination<AccountUnpaidInvoicesAggregate> aggregates = invoiceApi.getUnpaidInvoicesAggregatesForTenant(today, context);
+        try {
+            for (final AccountUnpaidInvoicesAggregate aggregate : aggregates) {
+                chunk.add(aggregate.getAccountId(), aggregate.getNumberOfUnpaidInvoices(), aggregate.getBalanceOfUnpaidInvoices(), aggregate.getDateOfEarliestUnpaidInvoice());
+                // Seen with unpaid invoices
+                currentStateIndexes.remove(aggregate.getAccountId());
+            }
+        } finally {
+            try {
+                aggregates.close();
+            } catch (final IOException e) {
+                log.warn("Unable to close the unpaid invoices aggregates for tenantRecordId='{}'", context.getTenantRecordId(), e);
+            }
+        }
+
+        // Accounts in an overdue state without any unpaid invoice left
+        for (final Entry<UUID, Integer> entry : currentStateIndexes.entrySet()) {
+            if (entry.getValue() != compiledOverdueStateSet.getClearStateIndex()) {
+                chunk.add(entry.getKey(), 0, BigDecimal.ZERO, null);
+            }
+        }
+        chunk.flush();
+
+        log.info("Overdue sweep for tenantRecordId='{}': nbAccountsEvaluated='{}', nbAccountsRefreshed='{}'", context.getTenantRecordId(), chunk.nbEvaluated, chunk.nbRefreshed);
+        return chunk.nbRefreshed;
+    }
+
+    private DefaultOverdueStateSet getOverdueStateSet(final InternalTenantContext context) throws OverdueException {
+        final OverdueConfig overdueConfig;
+        try {
+            overdueConfig = overdueConfigCache.getOverdueConfig(context);
+        } catch (final OverdueApiException e) {
+            throw new OverdueException(e);
+        }
+        return overdueConfig == null ? null : ((DefaultOverdueConfig) overdueConfig).getOverdueStatesAccount();
+    }
+
+    private final class Chunk {
+
+        private final CompiledOverdueStateSet compiledOverdueStateSet;
+        // Current states, removed as the accounts are evaluated
+        private final Map<UUID, Integer> currentStateIndexes;
+        private final LocalDate today;
+        private final DateTime now;
+        private final InternalCallContext context;
+
+        private final UUID[] accountIds = new UUID[CHUNK_SIZE];
+        private final int[] previousStateIndexes = new int[CHUNK_SIZE];
+        private final int[] numberOfUnpaidInvoices = new int[CHUNK_SIZE];
+        private final BigDecimal[] balanceOfUnpaidInvoices = new BigDecimal[CHUNK_SIZE];
+        private final LocalDate[] dateOfEarliestUnpaidInvoice = new LocalDate[CHUNK_SIZE];
+        private final int[] nextStateIndexes = new int[CHUNK_SIZE];
+        private int size = 0;
+
+        private int nbEvaluated = 0;
+        private int nbRefreshed = 0;
+
+        private Chunk(final CompiledOverdueStateSet compiledOverdueStateSet, final Map<UUID, Integer> currentStateIndexes, final LocalDate today, final DateTime now, final InternalCallContext context) {
+            this.compiledOverdueStateSet = compiledOverdueStateSet;
+            this.currentStateIndexes = currentStateIndexes;
+            this.today = today;
+            this.now = now;
+            this.context = context;
+        }
+
+        private void add(final UUID accountId, final int nbUnpaidInvoices, final BigDecimal balance, @Nullable final LocalDate dateOfEarliest) {
+            final Integer currentStateIndex = currentStateIndexes.get(accountId);
+            accountIds[size] = accountId;
+            previousStateIndexes[size] = currentStateIndex == null ? compiledOverdueStateSet.getClearStateIndex() : currentStateIndex;
+            numberOfUnpaidInvoices[size] = nbUnpaidInvoices;
+            balanceOfUnpaidInvoices[size] = balance;
+            dateOfEarliestUnpaidInvoice[size] = dateOfEarliest;
+            size++;
+            if (size == CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            compiledOverdueStateSet.evaluate(numberOfUnpaidInvoices, balanceOfUnpaidInvoices, dateOfEarliestUnpaidInvoice, size, today, nextStateIndexes);
+            for (int i = 0; i < size; i++) {
+                if (nextStateIndexes[i] != CompiledOverdueStateSet.AMBIGUOUS &&
+                    previousStateIndexes[i] != CompiledOverdueStateSet.AMBIGUOUS &&
+                    nextStateIndexes[i] == previousStateIndexes[i]) {
+                    continue;
+                }
+
+                final InternalTenantContext accountTenantContext = internalCallContextFactory.createInternalTenantContext(accountIds[i], context);
+                final InternalCallContext accountContext = internalCallContextFactory.createInternalCallContext(accountTenantContext.getAccountRecordId(), context);
+                dispatcher.processOverdueForAccount(accountIds[i], now, accountContext);
+                nbRefreshed++;
+            }
+            nbEvaluated += size;
+            size = 0;
+        }
+    }
+}
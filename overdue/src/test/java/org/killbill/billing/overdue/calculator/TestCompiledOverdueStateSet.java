@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.overdue.calculator;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.catalog.api.TimeUnit;
+import org.killbill.billing.overdue.OverdueTestSuiteNoDB;
+import org.killbill.billing.overdue.config.DefaultDuration;
+import org.killbill.billing.overdue.config.DefaultOverdueCondition;
+import org.killbill.billing.overdue.config.DefaultOverdueState;
+import org.killbill.billing.overdue.config.DefaultOverdueStatesAccount;
+import org.killbill.billing.overdue.config.api.BillingState;
+import org.killbill.billing.util.tag.ControlTagType;
+import org.killbill.billing.util.tag.Tag;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestCompiledOverdueStateSet extends OverdueTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testSameResultAsPerAccountEvaluation() throws Exception {
+        final DefaultOverdueStatesAccount overdueStateSet = new DefaultOverdueStatesAccount();
+        overdueStateSet.setAccountOverdueStates(new DefaultOverdueState[]{
+                createState("OD3", 3, null, 30),
+                createState("OD2", null, new BigDecimal("100"), 20),
+                createState("OD1", null, null, 10)
+        });
+        final CompiledOverdueStateSet compiledOverdueStateSet = CompiledOverdueStateSet.compile(overdueStateSet, BillingStateCalculator.RESPONSE_FOR_LAST_FAILED_PAYMENT);
+        Assert.assertEquals(compiledOverdueStateSet.getStateIndex("OD2"), 1);
+        Assert.assertEquals(compiledOverdueStateSet.getState(compiledOverdueStateSet.getClearStateIndex()).getName(), overdueStateSet.getClearState().getName());
+
+        final LocalDate today = new LocalDate(2018, 6, 15);
+        final int[] numbers = new int[]{0, 1, 1, 3, 3, 2, 5};
+        final BigDecimal[] balances = new BigDecimal[]{BigDecimal.ZERO, BigDecimal.TEN, new BigDecimal("150"), BigDecimal.TEN, BigDecimal.TEN, new BigDecimal("100"), new BigDecimal("500")};
+        final LocalDate[] dates = new LocalDate[]{null, today.minusDays(5), today.minusDays(25), today.minusDays(40), today.minusDays(12), today.minusDays(21), today.minusDays(3)};
+        final int[] result = new int[numbers.length];
+        compiledOverdueStateSet.evaluate(numbers, balances, dates, numbers.length, today, result);
+
+        for (int i = 0; i < numbers.length; i++) {
+            final BillingState billingState = new BillingState(UUID.randomUUID(), numbers[i], balances[i], dates[i], null, BillingStateCalculator.RESPONSE_FOR_LAST_FAILED_PAYMENT, new Tag[]{});
+            Assert.assertEquals(compiledOverdueStateSet.getState(result[i]).getName(), overdueStateSet.calculateOverdueState(billingState, today).getName());
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testAmbiguousResults() throws Exception {
+        final DefaultOverdueState taggedState = createState("OD2", null, new BigDecimal("1000"), null);
+        ((DefaultOverdueCondition) taggedState.getConditionEvaluation()).setControlTagInclusion(ControlTagType.TEST);
+        final DefaultOverdueStatesAccount overdueStateSet = new DefaultOverdueStatesAccount();
+        overdueStateSet.setAccountOverdueStates(new DefaultOverdueState[]{
+                taggedState,
+                createState("OD1", null, null, 10)
+        });
+        final CompiledOverdueStateSet compiledOverdueStateSet = CompiledOverdueStateSet.compile(overdueStateSet, BillingStateCalculator.RESPONSE_FOR_LAST_FAILED_PAYMENT);
+
+        final LocalDate today = new LocalDate(2018, 6, 15);
+        final int[] numbers = new int[]{1, 1, 1, 1};
+        // Depends on the tags / 10 days old today (depends on the account timezone) / decided
+        final BigDecimal[] balances = new BigDecimal[]{new BigDecimal("2000"), BigDecimal.TEN, BigDecimal.TEN, BigDecimal.TEN};
+        final LocalDate[] dates = new LocalDate[]{today.minusDays(20), today.minusDays(10), today.minusDays(20), today.minusDays(2)};
+        final int[] result = new int[numbers.length];
+        compiledOverdueStateSet.evaluate(numbers, balances, dates, numbers.length, today, result);
+
+        Assert.assertEquals(result[0], CompiledOverdueStateSet.AMBIGUOUS);
+        Assert.assertEquals(result[1], CompiledOverdueStateSet.AMBIGUOUS);
+        Assert.assertEquals(result[2], 1);
+        Assert.assertEquals(result[3], compiledOverdueStateSet.getClearStateIndex());
+    }
+
+    private DefaultOverdueState createState(final String name, final Integer minNumber, final BigDecimal minBalance, final Integer minDays) {
+        final DefaultOverdueCondition condition = new DefaultOverdueCondition();
+        condition.setNumberOfUnpaidInvoicesEqualsOrExceeds(minNumber);
+        condition.setTotalUnpaidInvoiceBalanceEqualsOrExceeds(minBalance);
+        if (minDays != null) {
+            condition.setTimeSinceEarliestUnpaidInvoiceEqualsOrExceeds(new DefaultDuration().setUnit(TimeUnit.DAYS).setNumber(minDays));
+        }
+        return new DefaultOverdueState().setName(name).setCondition(condition);
+    }
+}
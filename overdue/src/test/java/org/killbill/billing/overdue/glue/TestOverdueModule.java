@@ -48,6 +48,7 @@ import org.killbill.billing.util.glue.CallContextModule;
 import org.killbill.billing.util.glue.ConfigModule;
 import org.killbill.billing.util.glue.CustomFieldModule;
 
+import com.google.common.collect.ImmutableList;
 import com.google.inject.name.Names;
 
 public class TestOverdueModule extends DefaultOverdueModule {
@@ -98,6 +99,11 @@ public class TestOverdueModule extends DefaultOverdueModule {
             }
         }
 
+        @Override
+        public List<BlockingState> getBlockingStatesForServiceAndType(final String serviceName, final BlockingStateType blockingStateType, final InternalTenantContext context) {
+            return blockingState != null ? ImmutableList.<BlockingState>of(blockingState) : ImmutableList.<BlockingState>of();
+        }
+
         @Override
         public List<BlockingState> getBlockingAllForAccount(final Catalog catalog, final InternalTenantContext context) {
             throw new UnsupportedOperationException();
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2013 Ning, Inc.
+ *
+ * Ning licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.killbill.billing.overdue.notification;
+
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.overdue.notification.OverdueAsyncBusNotificationKey.OverdueAsyncBusNotificationAction;
+import org.killbill.clock.ClockMock;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+public class TestOverdueAsyncBusCoalescer {
+
+    @Test(groups = "fast")
+    public void testCoalesceKeys() {
+        final UUID accountId = UUID.randomUUID();
+        final DateTime firstTriggerDate = new DateTime(2018, 1, 1, 0, 0);
+        final OverdueAsyncBusNotificationKey pendingKey = new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.REFRESH, firstTriggerDate);
+
+        final OverdueAsyncBusNotificationKey updatedKey = pendingKey.coalesce(new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.REFRESH, firstTriggerDate.plusSeconds(2)));
+        Assert.assertEquals(updatedKey, pendingKey);
+        Assert.assertEquals(updatedKey.getTriggerDate(), firstTriggerDate.plusSeconds(2));
+        Assert.assertEquals(updatedKey.getNbCoalescedEvents(), 1);
+
+        // Events received out of order don't move the trigger date backwards
+        final OverdueAsyncBusNotificationKey updatedKey2 = updatedKey.coalesce(new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.REFRESH, firstTriggerDate.plusSeconds(1)));
+        Assert.assertEquals(updatedKey2.getTriggerDate(), firstTriggerDate.plusSeconds(2));
+        Assert.assertEquals(updatedKey2.getNbCoalescedEvents(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testSkipStaleRefreshes() {
+        final ClockMock clock = new ClockMock();
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final OverdueAsyncBusCoalescer coalescer = new OverdueAsyncBusCoalescer(clock, metricRegistry);
+
+        final UUID accountId = UUID.randomUUID();
+        final OverdueAsyncBusNotificationKey firstKey = new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.REFRESH, clock.getUTCNow());
+        final OverdueAsyncBusNotificationKey secondKey = new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.REFRESH, clock.getUTCNow());
+        coalescer.recordRequested();
+        coalescer.recordRequested();
+        Assert.assertFalse(coalescer.isStale(firstKey));
+
+        // A refresh starting at the same time as the event may not have seen it
+        coalescer.recordRefreshed(accountId, coalescer.startRefresh());
+        Assert.assertFalse(coalescer.isStale(secondKey));
+
+        clock.addDeltaFromReality(1000);
+        coalescer.recordRefreshed(accountId, coalescer.startRefresh());
+        Assert.assertTrue(coalescer.isStale(secondKey));
+        coalescer.recordSkippedStale();
+
+        // Other accounts and notifications recorded by older versions are never stale
+        Assert.assertFalse(coalescer.isStale(new OverdueAsyncBusNotificationKey(UUID.randomUUID(), OverdueAsyncBusNotificationAction.REFRESH, firstKey.getTriggerDate())));
+        Assert.assertFalse(coalescer.isStale(new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.REFRESH, null, null)));
+
+        Assert.assertEquals(coalescer.getNbProcessed(), 2L);
+        Assert.assertEquals(coalescer.getNbSkippedStale(), 1L);
+        final Gauge coalescingRatio = metricRegistry.getGauges().get("killbill.overdue.refresh.coalescingRatio");
+        Assert.assertEquals((Double) coalescingRatio.getValue(), 0.5, 0.001);
+    }
+}
@@ -18,6 +18,9 @@ package org.killbill.billing.overdue.notification;
 
 import java.util.UUID;
 
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.overdue.notification.OverdueAsyncBusNotificationKey.OverdueAsyncBusNotificationAction;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -50,4 +53,22 @@ public class TestOverdueNotificationKeyJson {
         final OverdueCheckNotificationKey obj = (OverdueCheckNotificationKey) mapper.readValue(json, claz);
         assertEquals(obj.getUuidKey().toString(), uuidString);
     }
+
+    @Test(groups = "fast")
+    public void testOverdueAsyncBusNotificationKeyJson() throws Exception {
+        final OverdueAsyncBusNotificationKey e = new OverdueAsyncBusNotificationKey(UUID.randomUUID(), OverdueAsyncBusNotificationAction.REFRESH, new DateTime(2018, 1, 1, 0, 0, DateTimeZone.UTC), 3);
+
+        final String json = mapper.writeValueAsString(e);
+        final OverdueAsyncBusNotificationKey obj = mapper.readValue(json, OverdueAsyncBusNotificationKey.class);
+        Assert.assertEquals(obj, e);
+        Assert.assertEquals(obj.getTriggerDate().compareTo(e.getTriggerDate()), 0);
+        Assert.assertEquals(obj.getNbCoalescedEvents(), 3);
+
+        // Notifications recorded by older versions
+        final String oldJson = "{\"uuidKey\":\"" + e.getUuidKey() + "\",\"action\":\"REFRESH\"}";
+        final OverdueAsyncBusNotificationKey oldObj = mapper.readValue(oldJson, OverdueAsyncBusNotificationKey.class);
+        Assert.assertEquals(oldObj, e);
+        Assert.assertNull(oldObj.getTriggerDate());
+        Assert.assertEquals(oldObj.getNbCoalescedEvents(), 0);
+    }
 }
@@ -18,18 +18,30 @@
 package org.killbill.billing.payment.api.svcs;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 
+import org.apache.shiro.util.ThreadContext;
 import org.joda.time.DateTime;
+import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountApiException;
+import org.killbill.billing.account.api.AccountInternalApi;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.invoice.api.InvoicePayment;
 import org.killbill.billing.payment.api.DefaultApiBase;
+import org.killbill.billing.payment.api.InvoicePaymentBulkItem;
+import org.killbill.billing.payment.api.InvoicePaymentBulkResult;
 import org.killbill.billing.payment.api.InvoicePaymentInternalApi;
 import org.killbill.billing.payment.api.Payment;
 import org.killbill.billing.payment.api.PaymentApiException;
@@ -37,15 +49,25 @@ import org.killbill.billing.payment.api.PaymentOptions;
 import org.killbill.billing.payment.api.PaymentTransaction;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.core.PaymentExecutors;
 import org.killbill.billing.payment.core.PaymentMethodProcessor;
 import org.killbill.billing.payment.core.PluginControlPaymentProcessor;
+import org.killbill.billing.util.callcontext.CallableWithRequestData;
+import org.killbill.billing.security.Logical;
+import org.killbill.billing.security.Permission;
+import org.killbill.billing.security.SecurityApiException;
+import org.killbill.billing.security.api.SecurityApi;
 import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.commons.request.Request;
+import org.killbill.commons.request.RequestData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 
 import static org.killbill.billing.payment.logging.PaymentLoggingHelper.logEnterAPICall;
@@ -58,17 +80,124 @@ public class DefaultInvoicePaymentInternalApi extends DefaultApiBase implements
     private final InvoiceInternalApi invoiceInternalApi;
     private final PluginControlPaymentProcessor pluginControlPaymentProcessor;
     private final PaymentMethodProcessor paymentMethodProcessor;
+    private final AccountInternalApi accountInternalApi;
+    private final PaymentExecutors paymentExecutors;
+    private final SecurityApi securityApi;
+    private final int maxBulkTasksInFlight;
 
     @Inject
     public DefaultInvoicePaymentInternalApi(final InvoiceInternalApi invoiceInternalApi,
                                             final PluginControlPaymentProcessor pluginControlPaymentProcessor,
                                             final PaymentMethodProcessor paymentMethodProcessor,
+                                            final AccountInternalApi accountInternalApi,
+                                            final PaymentExecutors paymentExecutors,
+                                            final SecurityApi securityApi,
                                             final PaymentConfig paymentConfig,
                                             final InternalCallContextFactory internalCallContextFactory) {
         super(paymentConfig, internalCallContextFactory);
         this.invoiceInternalApi = invoiceInternalApi;
         this.pluginControlPaymentProcessor = pluginControlPaymentProcessor;
         this.paymentMethodProcessor = paymentMethodProcessor;
+        this.accountInternalApi = accountInternalApi;
+        this.paymentExecutors = paymentExecutors;
+        this.securityApi = securityApi;
+        this.maxBulkTasksInFlight = Math.max(1, paymentConfig.getPaymentBulkThreadNb());
+    }
+
+    @Override
+    public Iterator<InvoicePaymentBulkResult> createPurchasesForInvoicePayments(final Iterable<InvoicePaymentBulkItem> items,
+                                                                               final Iterable<PluginProperty> properties,
+                                                                               final PaymentOptions paymentOptions,
+                                                                               final CallContext callContext) throws PaymentApiException {
+        // This API bypasses the public InvoicePaymentApi (and its permission interceptor), so the check happens here, once for the whole batch
+        checkForPermissions(Permission.PAYMENT_CAN_TRIGGER_PAYMENT, callContext);
+
+        // Payments for a same account would contend on the account lock anyway: process them in order, within the same task
+        final Map<UUID, List<InvoicePaymentBulkItem>> itemsByAccountId = new LinkedHashMap<UUID, List<InvoicePaymentBulkItem>>();
+        for (final InvoicePaymentBulkItem item : items) {
+            if (itemsByAccountId.get(item.getAccountId()) == null) {
+                itemsByAccountId.put(item.getAccountId(), new LinkedList<InvoicePaymentBulkItem>());
+            }
+            itemsByAccountId.get(item.getAccountId()).add(item);
+        }
+
+        // The bulk workers run on behalf of the caller: they inherit its request id, subject and MDC. Sharing the request id is safe
+        // since a given account is only ever handled by one task (the account lock is never re-entered concurrently).
+        final RequestData requestData = Request.getPerThreadRequestData();
+        final Map<String, String> mdcContextMap = MDC.getCopyOfContextMap();
+        final List<Callable<List<InvoicePaymentBulkResult>>> tasks = new ArrayList<Callable<List<InvoicePaymentBulkResult>>>(itemsByAccountId.size());
+        for (final Map.Entry<UUID, List<InvoicePaymentBulkItem>> entry : itemsByAccountId.entrySet()) {
+            tasks.add(new CallableWithRequestData<List<InvoicePaymentBulkResult>>(requestData,
+                                                                                  UUIDs.getRandom(),
+                                                                                  ThreadContext.getSecurityManager(),
+                                                                                  ThreadContext.getSubject(),
+                                                                                  mdcContextMap,
+                                                                                  new Callable<List<InvoicePaymentBulkResult>>() {
+                                                                                      @Override
+                                                                                      public List<InvoicePaymentBulkResult> call() {
+                                                                                          return createPurchasesForAccount(entry.getKey(), entry.getValue(), properties, paymentOptions, callContext);
+                                                                                      }
+                                                                                  }));
+        }
+
+        return new InvoicePaymentBulkResultIterator(paymentExecutors.getBulkExecutorService(), tasks, maxBulkTasksInFlight);
+    }
+
+    private List<InvoicePaymentBulkResult> createPurchasesForAccount(final UUID accountId,
+                                                                     final List<InvoicePaymentBulkItem> accountItems,
+                                                                     final Iterable<PluginProperty> properties,
+                                                                     final PaymentOptions paymentOptions,
+                                                                     final CallContext callContext) {
+        final List<InvoicePaymentBulkResult> results = new ArrayList<InvoicePaymentBulkResult>(accountItems.size());
+
+        // The account and its context are only looked-up once for all its invoices
+        final InternalCallContext internalCallContext;
+        final Account account;
+        try {
+            internalCallContext = internalCallContextFactory.createInternalCallContext(accountId, callContext);
+            account = accountInternalApi.getAccountById(accountId, internalCallContext);
+        } catch (final AccountApiException e) {
+            for (final InvoicePaymentBulkItem item : accountItems) {
+                results.add(new InvoicePaymentBulkResult(item, null, new PaymentApiException(e)));
+            }
+            return results;
+        } catch (final RuntimeException e) {
+            for (final InvoicePaymentBulkItem item : accountItems) {
+                results.add(new InvoicePaymentBulkResult(item, null, new PaymentApiException(e, ErrorCode.PAYMENT_INTERNAL_ERROR, e.getMessage())));
+            }
+            return results;
+        }
+
+        for (final InvoicePaymentBulkItem item : accountItems) {
+            try {
+                final BigDecimal amount = item.getAmount() != null ? item.getAmount() : invoiceInternalApi.getInvoiceById(item.getInvoiceId(), internalCallContext).getBalance();
+                // For external payments, a null payment method id means the external payment method
+                final UUID paymentMethodId = item.getPaymentMethodId() != null || paymentOptions.isExternalPayment() ? item.getPaymentMethodId() : account.getPaymentMethodId();
+                final String paymentTransactionExternalKey = item.getPaymentTransactionExternalKey() != null ? item.getPaymentTransactionExternalKey() : UUIDs.randomUUID().toString();
+                final InvoicePayment invoicePayment = createPurchaseForInvoicePayment(true,
+                                                                                      account,
+                                                                                      item.getInvoiceId(),
+                                                                                      paymentMethodId,
+                                                                                      null,
+                                                                                      amount,
+                                                                                      account.getCurrency(),
+                                                                                      null,
+                                                                                      item.getPaymentExternalKey(),
+                                                                                      paymentTransactionExternalKey,
+                                                                                      properties,
+                                                                                      paymentOptions,
+                                                                                      internalCallContext);
+                results.add(new InvoicePaymentBulkResult(item, invoicePayment, null));
+            } catch (final InvoiceApiException e) {
+                results.add(new InvoicePaymentBulkResult(item, null, new PaymentApiException(e)));
+            } catch (final PaymentApiException e) {
+                results.add(new InvoicePaymentBulkResult(item, null, e));
+            } catch (final RuntimeException e) {
+                log.warn("Unexpected failure while paying invoiceId='{}'", item.getInvoiceId(), e);
+                results.add(new InvoicePaymentBulkResult(item, null, new PaymentApiException(e, ErrorCode.PAYMENT_INTERNAL_ERROR, e.getMessage())));
+            }
+        }
+        return results;
     }
 
     @Override
@@ -147,4 +276,15 @@ public class DefaultInvoicePaymentInternalApi extends DefaultApiBase implements
 
         return paymentTransaction != null ? invoiceInternalApi.getInvoicePaymentByCookieId(paymentTransaction.getExternalKey(), callContext) : null;
     }
+
+    private void checkForPermissions(final Permission permission, final CallContext callContext) throws PaymentApiException {
+        // If authentication had been done (CorsBasicHttpAuthenticationFilter) we verify the correct permissions exist
+        if (securityApi.isSubjectAuthenticated()) {
+            try {
+                securityApi.checkCurrentUserPermissions(ImmutableList.of(permission), Logical.AND, callContext);
+            } catch (final SecurityApiException e) {
+                throw new PaymentApiException(ErrorCode.SECURITY_NOT_ENOUGH_PERMISSIONS);
+            }
+        }
+    }
 }
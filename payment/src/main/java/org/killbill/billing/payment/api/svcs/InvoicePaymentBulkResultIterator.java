@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.payment.api.svcs;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.killbill.billing.payment.api.InvoicePaymentBulkResult;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+
+//
+// Pipelines the bulk tasks (one per account) on the executor, keeping at most maxInFlight of them running at any time:
+// a new task is only submitted once a previous one has completed, and its results are handed over to the caller right away.
+//
+class InvoicePaymentBulkResultIterator extends AbstractIterator<InvoicePaymentBulkResult> {
+
+    private final CompletionService<List<InvoicePaymentBulkResult>> completionService;
+    private final Iterator<Callable<List<InvoicePaymentBulkResult>>> pendingTasks;
+
+    private Iterator<InvoicePaymentBulkResult> currentResults;
+    private int nbInFlight;
+
+    InvoicePaymentBulkResultIterator(final ExecutorService executorService,
+                                     final Iterable<Callable<List<InvoicePaymentBulkResult>>> tasks,
+                                     final int maxInFlight) {
+        this.completionService = new ExecutorCompletionService<List<InvoicePaymentBulkResult>>(executorService);
+        this.pendingTasks = tasks.iterator();
+        this.currentResults = ImmutableList.<InvoicePaymentBulkResult>of().iterator();
+        this.nbInFlight = 0;
+
+        while (nbInFlight < maxInFlight && submitNextTask()) {
+            // Fill the pipeline
+        }
+    }
+
+    @Override
+    protected InvoicePaymentBulkResult computeNext() {
+        while (!currentResults.hasNext()) {
+            if (nbInFlight == 0) {
+                return endOfData();
+            }
+
+            final Future<List<InvoicePaymentBulkResult>> completedTask;
+            try {
+                completedTask = completionService.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            nbInFlight--;
+            submitNextTask();
+
+            try {
+                currentResults = completedTask.get().iterator();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (final ExecutionException e) {
+                // Tasks report their failures as results: this is unexpected
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+        return currentResults.next();
+    }
+
+    private boolean submitNextTask() {
+        if (!pendingTasks.hasNext()) {
+            return false;
+        }
+        completionService.submit(pendingTasks.next());
+        nbInFlight++;
+        return true;
+    }
+}
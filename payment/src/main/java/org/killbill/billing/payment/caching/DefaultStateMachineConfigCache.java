@@ -19,6 +19,8 @@ package org.killbill.billing.payment.caching;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -29,6 +31,7 @@ import org.killbill.billing.ErrorCode;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.core.sm.CompiledPaymentStateMachine;
 import org.killbill.billing.payment.glue.PaymentModule;
 import org.killbill.billing.tenant.api.TenantInternalApi;
 import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
@@ -51,8 +54,11 @@ public class DefaultStateMachineConfigCache implements StateMachineConfigCache {
 
     private final CacheController<String, StateMachineConfig> cacheController;
     private final LoaderCallback loaderCallback;
+    // Compiled form of the cached configs, rebuilt whenever the cache hands out a different (reloaded) config
+    private final ConcurrentMap<String, CompiledPaymentStateMachine> compiledStateMachines = new ConcurrentHashMap<String, CompiledPaymentStateMachine>();
 
     private DefaultStateMachineConfig defaultPaymentStateMachineConfig;
+    private CompiledPaymentStateMachine defaultCompiledPaymentStateMachine;
 
     @Inject
     public DefaultStateMachineConfigCache(final TenantInternalApi tenantInternalApi,
@@ -80,6 +86,7 @@ public class DefaultStateMachineConfigCache implements StateMachineConfigCache {
         if (url != null) {
             try {
                 defaultPaymentStateMachineConfig = XMLLoader.getObjectFromString(Resources.getResource(url).toExternalForm(), DefaultStateMachineConfig.class);
+                defaultCompiledPaymentStateMachine = CompiledPaymentStateMachine.compile(defaultPaymentStateMachineConfig);
             } catch (final Exception e) {
                 // TODO 0.17 proper error code
                 throw new PaymentApiException(e, ErrorCode.PAYMENT_INTERNAL_ERROR, "Invalid default payment state machine config");
@@ -111,6 +118,24 @@ public class DefaultStateMachineConfigCache implements StateMachineConfigCache {
         }
     }
 
+    @Override
+    public CompiledPaymentStateMachine getCompiledPaymentStateMachine(final String pluginName, final InternalTenantContext tenantContext) throws PaymentApiException {
+        final StateMachineConfig stateMachineConfig = getPaymentStateMachineConfig(pluginName, tenantContext);
+        if (stateMachineConfig == defaultPaymentStateMachineConfig && defaultCompiledPaymentStateMachine != null) {
+            return defaultCompiledPaymentStateMachine;
+        }
+
+        final String pluginConfigKey = getCacheKeyName(pluginName, tenantContext);
+        final CompiledPaymentStateMachine compiledStateMachine = compiledStateMachines.get(pluginConfigKey);
+        if (compiledStateMachine != null && compiledStateMachine.getStateMachineConfig() == stateMachineConfig) {
+            return compiledStateMachine;
+        }
+
+        final CompiledPaymentStateMachine newCompiledStateMachine = CompiledPaymentStateMachine.compile(stateMachineConfig);
+        compiledStateMachines.put(pluginConfigKey, newCompiledStateMachine);
+        return newCompiledStateMachine;
+    }
+
     // See also DefaultTenantUserApi - we use the same conventions as the main XML cache (so we can re-use the invalidation code)
     private String getCacheKeyName(final String pluginName, final InternalTenantContext internalContext) {
         final StringBuilder tenantKey = new StringBuilder(TenantKey.PLUGIN_PAYMENT_STATE_MACHINE_.toString());
@@ -125,6 +150,7 @@ public class DefaultStateMachineConfigCache implements StateMachineConfigCache {
         if (!InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID.equals(tenantContext.getTenantRecordId()) && cacheController != null) {
             final String key = getCacheKeyName(pluginName, tenantContext);
             cacheController.remove(key);
+            compiledStateMachines.remove(key);
         }
     }
 
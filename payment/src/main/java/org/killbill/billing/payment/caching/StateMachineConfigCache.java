@@ -20,6 +20,7 @@ package org.killbill.billing.payment.caching;
 import org.killbill.automaton.StateMachineConfig;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.core.sm.CompiledPaymentStateMachine;
 
 public interface StateMachineConfigCache {
 
@@ -27,5 +28,7 @@ public interface StateMachineConfigCache {
 
     public StateMachineConfig getPaymentStateMachineConfig(String pluginName, InternalTenantContext tenantContext) throws PaymentApiException;
 
+    public CompiledPaymentStateMachine getCompiledPaymentStateMachine(String pluginName, InternalTenantContext tenantContext) throws PaymentApiException;
+
     public void clearPaymentStateMachineConfig(String pluginName, InternalTenantContext tenantContext);
 }
@@ -139,6 +139,11 @@ public class MultiTenantPaymentConfig extends MultiTenantConfigBase implements P
         return getPaymentControlPluginNames();
     }
 
+    @Override
+    public int getPaymentBulkThreadNb() {
+        return staticConfig.getPaymentBulkThreadNb();
+    }
+
     @Override
     public TimeSpan getJanitorRunningRate() {
         return staticConfig.getJanitorRunningRate();
@@ -149,6 +154,36 @@ public class MultiTenantPaymentConfig extends MultiTenantConfigBase implements P
         return staticConfig.getIncompleteAttemptsTimeSpanDelay();
     }
 
+    @Override
+    public TimeSpan getIncompleteTransactionsSweepWindow() {
+        return staticConfig.getIncompleteTransactionsSweepWindow();
+    }
+
+    @Override
+    public int getJanitorThreadNb() {
+        return staticConfig.getJanitorThreadNb();
+    }
+
+    @Override
+    public int getJanitorBatchSize() {
+        return staticConfig.getJanitorBatchSize();
+    }
+
+    @Override
+    public int getJanitorPluginMaxConcurrentCalls() {
+        return staticConfig.getJanitorPluginMaxConcurrentCalls();
+    }
+
+    @Override
+    public int getJanitorNbShards() {
+        return staticConfig.getJanitorNbShards();
+    }
+
+    @Override
+    public int getJanitorShardIndex() {
+        return staticConfig.getJanitorShardIndex();
+    }
+
     @Override
     public String getDefaultPaymentProvider() {
         return staticConfig.getDefaultPaymentProvider();
@@ -164,6 +199,66 @@ public class MultiTenantPaymentConfig extends MultiTenantConfigBase implements P
         return staticConfig.getPaymentPluginThreadNb();
     }
 
+    @Override
+    public int getPaymentPluginQueueSize() {
+        return staticConfig.getPaymentPluginQueueSize();
+    }
+
+    @Override
+    public boolean isPaymentPluginVirtualThreadsEnabled() {
+        return staticConfig.isPaymentPluginVirtualThreadsEnabled();
+    }
+
+    @Override
+    public int getPaymentPluginMaxConcurrentCalls() {
+        return staticConfig.getPaymentPluginMaxConcurrentCalls();
+    }
+
+    @Override
+    public boolean isPaymentPluginCircuitBreakerEnabled() {
+        return staticConfig.isPaymentPluginCircuitBreakerEnabled();
+    }
+
+    @Override
+    public int getPaymentPluginCircuitBreakerWindowSize() {
+        return staticConfig.getPaymentPluginCircuitBreakerWindowSize();
+    }
+
+    @Override
+    public int getPaymentPluginCircuitBreakerMinCalls() {
+        return staticConfig.getPaymentPluginCircuitBreakerMinCalls();
+    }
+
+    @Override
+    public int getPaymentPluginCircuitBreakerFailureRateThreshold() {
+        return staticConfig.getPaymentPluginCircuitBreakerFailureRateThreshold();
+    }
+
+    @Override
+    public TimeSpan getPaymentPluginCircuitBreakerLatencyThreshold() {
+        return staticConfig.getPaymentPluginCircuitBreakerLatencyThreshold();
+    }
+
+    @Override
+    public TimeSpan getPaymentPluginCircuitBreakerOpenDuration() {
+        return staticConfig.getPaymentPluginCircuitBreakerOpenDuration();
+    }
+
+    @Override
+    public int getPaymentPluginCircuitBreakerHalfOpenCalls() {
+        return staticConfig.getPaymentPluginCircuitBreakerHalfOpenCalls();
+    }
+
+    @Override
+    public boolean isPaymentPluginAdaptiveTimeoutEnabled() {
+        return staticConfig.isPaymentPluginAdaptiveTimeoutEnabled();
+    }
+
+    @Override
+    public TimeSpan getPaymentPluginAdaptiveTimeoutMin() {
+        return staticConfig.getPaymentPluginAdaptiveTimeoutMin();
+    }
+
     @Override
     public int getMaxGlobalLockRetries() {
         return staticConfig.getMaxGlobalLockRetries();
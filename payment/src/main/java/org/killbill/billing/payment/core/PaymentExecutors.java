@@ -17,6 +17,10 @@
 
 package org.killbill.billing.payment.core;
 
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
@@ -26,12 +30,23 @@ import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
+import org.killbill.billing.payment.dispatcher.PluginBulkhead;
+import org.killbill.billing.payment.dispatcher.PluginCircuitBreaker;
 import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.clock.Clock;
 import org.killbill.commons.concurrent.Executors;
 import org.killbill.commons.concurrent.WithProfilingThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
 
 public class PaymentExecutors {
 
+    private static final Logger log = LoggerFactory.getLogger(PaymentExecutors.class);
+
     private static final long TIMEOUT_EXECUTOR_SEC = 3L;
 
     private static final int DEFAULT_MIN_PLUGIN_THREADS = 5;
@@ -42,33 +57,58 @@ public class PaymentExecutors {
     public static final String JANITOR_EXECUTOR_NAMED = "JanitorExecutor";
     public static final String PLUGIN_EXECUTOR_NAMED = "PluginExecutor";
 
+    public static final String PLUGIN_METRICS_PREFIX = "killbill.payment.plugins";
+
     private final PaymentConfig paymentConfig;
+    private final Clock clock;
+    private final MetricRegistry metricRegistry;
 
-    private volatile ThreadPoolExecutor pluginExecutorService;
+    private final Map<String, PluginBulkhead> pluginBulkheads;
+    private final Map<String, PluginCircuitBreaker> pluginCircuitBreakers;
+
+    private volatile ExecutorService pluginExecutorService;
     private volatile ScheduledExecutorService janitorExecutorService;
+    private volatile ExecutorService janitorWorkerExecutorService;
+    private volatile ExecutorService bulkExecutorService;
 
     @Inject
-    public PaymentExecutors(PaymentConfig paymentConfig) {
+    public PaymentExecutors(final PaymentConfig paymentConfig, final Clock clock, final MetricRegistry metricRegistry) {
         this.paymentConfig = paymentConfig;
-
+        this.clock = clock;
+        this.metricRegistry = metricRegistry;
+        this.pluginBulkheads = new ConcurrentHashMap<String, PluginBulkhead>();
+        this.pluginCircuitBreakers = new ConcurrentHashMap<String, PluginCircuitBreaker>();
     }
 
     public void initialize() {
         this.pluginExecutorService = createPluginExecutorService();
-        this.pluginExecutorService.prestartAllCoreThreads();
         this.janitorExecutorService = createJanitorExecutorService();
+        this.janitorWorkerExecutorService = createJanitorWorkerExecutorService();
+        this.bulkExecutorService = createBulkExecutorService();
     }
 
 
     public void stop() throws InterruptedException {
         pluginExecutorService.shutdownNow();
         janitorExecutorService.shutdownNow();
+        if (janitorWorkerExecutorService != null) {
+            janitorWorkerExecutorService.shutdownNow();
+        }
+        bulkExecutorService.shutdownNow();
 
         pluginExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         pluginExecutorService = null;
 
         janitorExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         janitorExecutorService = null;
+
+        if (janitorWorkerExecutorService != null) {
+            janitorWorkerExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+            janitorWorkerExecutorService = null;
+        }
+
+        bulkExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        bulkExecutorService = null;
     }
 
     public ExecutorService getPluginExecutorService() {
@@ -79,13 +119,172 @@ public class PaymentExecutors {
         return janitorExecutorService;
     }
 
-    private ThreadPoolExecutor createPluginExecutorService() {
+    // Null when the janitor processes its batches sequentially
+    public ExecutorService getJanitorWorkerExecutorService() {
+        return janitorWorkerExecutorService;
+    }
+
+    public ExecutorService getBulkExecutorService() {
+        return bulkExecutorService;
+    }
+
+    public PluginBulkhead getPluginBulkhead(final String pluginName) {
+        PluginBulkhead bulkhead = pluginBulkheads.get(pluginName);
+        if (bulkhead == null) {
+            final PluginBulkhead newBulkhead = new PluginBulkhead(pluginName, paymentConfig.getPaymentPluginMaxConcurrentCalls());
+            bulkhead = pluginBulkheads.putIfAbsent(pluginName, newBulkhead);
+            if (bulkhead == null) {
+                bulkhead = newBulkhead;
+                registerBulkheadMetrics(bulkhead);
+            }
+        }
+        return bulkhead;
+    }
+
+    public Iterable<PluginBulkhead> getPluginBulkheads() {
+        return ImmutableList.<PluginBulkhead>copyOf(pluginBulkheads.values());
+    }
+
+    public PluginCircuitBreaker getPluginCircuitBreaker(final String pluginName) {
+        PluginCircuitBreaker circuitBreaker = pluginCircuitBreakers.get(pluginName);
+        if (circuitBreaker == null) {
+            final PluginCircuitBreaker newCircuitBreaker = new PluginCircuitBreaker(pluginName, paymentConfig, clock);
+            circuitBreaker = pluginCircuitBreakers.putIfAbsent(pluginName, newCircuitBreaker);
+            if (circuitBreaker == null) {
+                circuitBreaker = newCircuitBreaker;
+                registerCircuitBreakerMetrics(circuitBreaker);
+            }
+        }
+        return circuitBreaker;
+    }
+
+    public Iterable<PluginCircuitBreaker> getPluginCircuitBreakers() {
+        return ImmutableList.<PluginCircuitBreaker>copyOf(pluginCircuitBreakers.values());
+    }
+
+    private void registerBulkheadMetrics(final PluginBulkhead bulkhead) {
+        final String prefix = MetricRegistry.name(PLUGIN_METRICS_PREFIX, bulkhead.getPluginName());
+        registerGauge(MetricRegistry.name(prefix, "inFlight"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return bulkhead.getNbInFlight();
+            }
+        });
+        registerGauge(MetricRegistry.name(prefix, "dispatched"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return bulkhead.getNbDispatched();
+            }
+        });
+        registerGauge(MetricRegistry.name(prefix, "rejected"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return bulkhead.getNbRejected();
+            }
+        });
+        registerGauge(MetricRegistry.name(prefix, "abandoned"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return bulkhead.getNbAbandoned();
+            }
+        });
+        registerGauge(MetricRegistry.name(prefix, "queueTime", "maxMs"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return TimeUnit.NANOSECONDS.toMillis(bulkhead.getMaxQueueTimeNanos());
+            }
+        });
+        registerGauge(MetricRegistry.name(prefix, "runTime", "maxMs"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return TimeUnit.NANOSECONDS.toMillis(bulkhead.getMaxRunTimeNanos());
+            }
+        });
+    }
+
+    private void registerCircuitBreakerMetrics(final PluginCircuitBreaker circuitBreaker) {
+        final String prefix = MetricRegistry.name(PLUGIN_METRICS_PREFIX, circuitBreaker.getPluginName(), "circuitBreaker");
+        registerGauge(MetricRegistry.name(prefix, "state"), new Gauge<String>() {
+            @Override
+            public String getValue() {
+                return circuitBreaker.getState().toString();
+            }
+        });
+        registerGauge(MetricRegistry.name(prefix, "failureRate"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return circuitBreaker.getFailureRate();
+            }
+        });
+        registerGauge(MetricRegistry.name(prefix, "p99LatencyMs"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return circuitBreaker.getP99LatencyMillis();
+            }
+        });
+        registerGauge(MetricRegistry.name(prefix, "timeoutMs"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return circuitBreaker.getTimeoutMillis(paymentConfig.getPaymentPluginTimeout().getMillis());
+            }
+        });
+        registerGauge(MetricRegistry.name(prefix, "rejected"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return circuitBreaker.getNbRejected();
+            }
+        });
+        registerGauge(MetricRegistry.name(prefix, "trips"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return circuitBreaker.getNbTrips();
+            }
+        });
+    }
+
+    private void registerGauge(final String name, final Gauge<?> gauge) {
+        // Replace any stale gauge (e.g. PaymentExecutors re-created in tests)
+        metricRegistry.remove(name);
+        metricRegistry.register(name, gauge);
+    }
+
+    private ExecutorService createPluginExecutorService() {
+        if (paymentConfig.isPaymentPluginVirtualThreadsEnabled()) {
+            final ExecutorService virtualThreadExecutorService = createVirtualThreadExecutorService();
+            if (virtualThreadExecutorService != null) {
+                return virtualThreadExecutorService;
+            }
+        }
+
+        final ThreadPoolExecutor threadPoolExecutor = createPluginThreadPoolExecutor();
+        threadPoolExecutor.prestartAllCoreThreads();
+        return threadPoolExecutor;
+    }
+
+    // Virtual threads are only available in recent JVMs: the per plugin bulkheads are then the only concurrency limit
+    private ExecutorService createVirtualThreadExecutorService() {
+        try {
+            final Method newVirtualThreadPerTaskExecutor = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        } catch (final NoSuchMethodException e) {
+            log.warn("Virtual threads aren't supported by this JVM, falling back to a thread pool for plugin calls");
+            return null;
+        } catch (final Exception e) {
+            log.warn("Unable to create the virtual thread executor, falling back to a thread pool for plugin calls", e);
+            return null;
+        }
+    }
+
+    private ThreadPoolExecutor createPluginThreadPoolExecutor() {
+        // With a bounded queue, the pool grows up to the max number of threads when the queue is full and rejects calls beyond that
+        final int queueSize = paymentConfig.getPaymentPluginQueueSize();
+        final BlockingQueue<Runnable> queue = queueSize > 0 ? new LinkedBlockingQueue<Runnable>(queueSize) : new LinkedBlockingQueue<Runnable>();
         final int minThreadNb = DEFAULT_MIN_PLUGIN_THREADS < paymentConfig.getPaymentPluginThreadNb() ? DEFAULT_MIN_PLUGIN_THREADS : paymentConfig.getPaymentPluginThreadNb();
         return new WithProfilingThreadPoolExecutor(minThreadNb,
                                                    paymentConfig.getPaymentPluginThreadNb(),
                                                    10,
                                                    TimeUnit.MINUTES,
-                                                   new LinkedBlockingQueue<Runnable>(),
+                                                   queue,
                                                    new ThreadFactory() {
 
                                                        @Override
@@ -101,4 +300,15 @@ public class PaymentExecutors {
     private ScheduledExecutorService createJanitorExecutorService() {
         return Executors.newSingleThreadScheduledExecutor("PaymentJanitor");
     }
+
+    private ExecutorService createBulkExecutorService() {
+        return Executors.newFixedThreadPool(Math.max(1, paymentConfig.getPaymentBulkThreadNb()), "PaymentBulkWorker");
+    }
+
+    private ExecutorService createJanitorWorkerExecutorService() {
+        if (paymentConfig.getJanitorThreadNb() <= 1) {
+            return null;
+        }
+        return Executors.newFixedThreadPool(paymentConfig.getJanitorThreadNb(), "PaymentJanitorWorker");
+    }
 }
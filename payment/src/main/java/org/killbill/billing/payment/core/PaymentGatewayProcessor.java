@@ -32,6 +32,7 @@ import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.payment.api.PaymentApiException;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.payment.dao.PaymentDao;
+import org.killbill.billing.payment.dispatcher.PluginCallTracker;
 import org.killbill.billing.payment.dispatcher.PluginDispatcher;
 import org.killbill.billing.payment.dispatcher.PluginDispatcher.PluginDispatcherReturnType;
 import org.killbill.billing.payment.plugin.api.GatewayNotification;
@@ -49,7 +50,7 @@ import org.killbill.commons.locker.GlobalLocker;
 
 import com.google.common.base.MoreObjects;
 
-import static org.killbill.billing.payment.dispatcher.PaymentPluginDispatcher.dispatchWithExceptionHandling;
+import static org.killbill.billing.payment.dispatcher.PaymentPluginDispatcher.dispatchPaymentPluginCallWithExceptionHandling;
 
 public class PaymentGatewayProcessor extends ProcessorBase {
 
@@ -83,19 +84,21 @@ public class PaymentGatewayProcessor extends ProcessorBase {
         final PaymentPluginApi plugin = getPaymentPluginApi(pluginName);
 
         if (shouldDispatch) {
-            return dispatchWithExceptionHandling(null,
-                                                 pluginName,
-                                                 new Callable<PluginDispatcherReturnType<GatewayNotification>>() {
-                                                     @Override
-                                                     public PluginDispatcherReturnType<GatewayNotification> call() throws PaymentApiException {
-                                                         try {
-                                                             final GatewayNotification result = plugin.processNotification(notification, properties, callContext);
-                                                             return PluginDispatcher.createPluginDispatcherReturnType(result == null ? new DefaultNoOpGatewayNotification() : result);
-                                                         } catch (final PaymentPluginApiException e) {
-                                                             throw new PaymentApiException(e, ErrorCode.PAYMENT_PLUGIN_EXCEPTION, e.getErrorMessage());
-                                                         }
-                                                     }
-                                                 }, paymentPluginNotificationDispatcher);
+            return dispatchPaymentPluginCallWithExceptionHandling(null,
+                                                                  pluginName,
+                                                                  new Callable<PluginDispatcherReturnType<GatewayNotification>>() {
+                                                                      @Override
+                                                                      public PluginDispatcherReturnType<GatewayNotification> call() throws PaymentApiException {
+                                                                          try {
+                                                                              PluginCallTracker.onPluginCallStarted();
+                                                                              final GatewayNotification result = plugin.processNotification(notification, properties, callContext);
+                                                                              return PluginDispatcher.createPluginDispatcherReturnType(result == null ? new DefaultNoOpGatewayNotification() : result);
+                                                                          } catch (final PaymentPluginApiException e) {
+                                                                              PluginCallTracker.onPluginCallFailed();
+                                                                              throw new PaymentApiException(e, ErrorCode.PAYMENT_PLUGIN_EXCEPTION, e.getErrorMessage());
+                                                                          }
+                                                                      }
+                                                                  }, paymentPluginNotificationDispatcher);
         } else {
             try {
                 return plugin.processNotification(notification, properties, callContext);
@@ -110,21 +113,24 @@ public class PaymentGatewayProcessor extends ProcessorBase {
         final PaymentPluginApi plugin = getPaymentPluginApi(pluginName);
 
         if (shouldDispatch) {
-            return dispatchWithExceptionHandling(account,
-                                                 pluginName,
-                                                 new Callable<PluginDispatcherReturnType<HostedPaymentPageFormDescriptor>>() {
-                                                     @Override
-                                                     public PluginDispatcherReturnType<HostedPaymentPageFormDescriptor> call() throws PaymentApiException {
-                                                         try {
-                                                             final HostedPaymentPageFormDescriptor result = plugin.buildFormDescriptor(account.getId(), customFields, properties, callContext);
-                                                             return PluginDispatcher.createPluginDispatcherReturnType(result == null ? new DefaultNoOpHostedPaymentPageFormDescriptor(account.getId()) : result);
-                                                         } catch (final RuntimeException e) {
-                                                             throw new PaymentApiException(e, ErrorCode.PAYMENT_INTERNAL_ERROR, MoreObjects.firstNonNull(e.getMessage(), ""));
-                                                         } catch (final PaymentPluginApiException e) {
-                                                             throw new PaymentApiException(e, ErrorCode.PAYMENT_PLUGIN_EXCEPTION, e.getErrorMessage());
-                                                         }
-                                                     }
-                                                 }, paymentPluginFormDispatcher);
+            return dispatchPaymentPluginCallWithExceptionHandling(account,
+                                                                  pluginName,
+                                                                  new Callable<PluginDispatcherReturnType<HostedPaymentPageFormDescriptor>>() {
+                                                                      @Override
+                                                                      public PluginDispatcherReturnType<HostedPaymentPageFormDescriptor> call() throws PaymentApiException {
+                                                                          try {
+                                                                              PluginCallTracker.onPluginCallStarted();
+                                                                              final HostedPaymentPageFormDescriptor result = plugin.buildFormDescriptor(account.getId(), customFields, properties, callContext);
+                                                                              return PluginDispatcher.createPluginDispatcherReturnType(result == null ? new DefaultNoOpHostedPaymentPageFormDescriptor(account.getId()) : result);
+                                                                          } catch (final RuntimeException e) {
+                                                                              PluginCallTracker.onPluginCallFailed();
+                                                                              throw new PaymentApiException(e, ErrorCode.PAYMENT_INTERNAL_ERROR, MoreObjects.firstNonNull(e.getMessage(), ""));
+                                                                          } catch (final PaymentPluginApiException e) {
+                                                                              PluginCallTracker.onPluginCallFailed();
+                                                                              throw new PaymentApiException(e, ErrorCode.PAYMENT_PLUGIN_EXCEPTION, e.getErrorMessage());
+                                                                          }
+                                                                      }
+                                                                  }, paymentPluginFormDispatcher);
         } else {
             try {
                 return plugin.buildFormDescriptor(account.getId(), customFields, properties, callContext);
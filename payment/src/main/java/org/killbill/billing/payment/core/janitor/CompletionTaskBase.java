@@ -18,7 +18,14 @@
 package org.killbill.billing.payment.core.janitor;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountInternalApi;
@@ -45,6 +52,9 @@ import org.killbill.notificationq.api.NotificationQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Meter;
+import com.google.common.collect.ImmutableList;
+
 abstract class CompletionTaskBase<T> implements Runnable {
 
     private static final Logger log = LoggerFactory.getLogger(CompletionTaskBase.class);
@@ -59,6 +69,12 @@ abstract class CompletionTaskBase<T> implements Runnable {
     protected final GlobalLocker locker;
 
     protected NotificationQueue janitorQueue;
+    // Null when the batches are processed sequentially by the janitor thread
+    protected ExecutorService workerExecutorService;
+
+    // Number of entries left to process for the current run, and drain rate (see Janitor)
+    private final AtomicLong backlog;
+    private final Meter drained;
 
     private volatile boolean isStopped;
 
@@ -78,6 +94,8 @@ abstract class CompletionTaskBase<T> implements Runnable {
         this.retrySMHelper = retrySMHelper;
         this.accountInternalApi = accountInternalApi;
         this.locker = locker;
+        this.backlog = new AtomicLong();
+        this.drained = new Meter();
         this.isStopped = false;
     }
 
@@ -88,19 +106,21 @@ abstract class CompletionTaskBase<T> implements Runnable {
             return;
         }
 
+        final int batchSize = Math.max(1, paymentConfig.getJanitorBatchSize());
         final Iterator<T> iterator = getItemsForIteration().iterator();
         try {
+            final List<T> batch = new ArrayList<T>(batchSize);
             while (iterator.hasNext()) {
-                final T item = iterator.next();
+                batch.add(iterator.next());
+                if (batch.size() < batchSize && iterator.hasNext()) {
+                    continue;
+                }
                 if (isStopped) {
                     log.info("Janitor was requested to stop");
                     return;
                 }
-                try {
-                    doIteration(item);
-                } catch (final Exception e) {
-                    log.warn(e.getMessage());
-                }
+                processBatch(batch);
+                batch.clear();
             }
         } finally {
             // In case the loop stops early, make sure to close the underlying DB connection
@@ -110,6 +130,87 @@ abstract class CompletionTaskBase<T> implements Runnable {
         }
     }
 
+    private void processBatch(final List<T> batch) {
+        final Collection<List<T>> groups = groupForIteration(batch);
+        if (workerExecutorService == null || groups.size() == 1) {
+            for (final List<T> group : groups) {
+                if (isStopped) {
+                    return;
+                }
+                doIterationAndRecord(group);
+            }
+            return;
+        }
+
+        final List<Future<?>> futures = new ArrayList<Future<?>>(groups.size());
+        for (final List<T> group : groups) {
+            futures.add(workerExecutorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isStopped) {
+                        doIterationAndRecord(group);
+                    }
+                }
+            }));
+        }
+
+        // Wait for the whole batch before fetching the next one: the janitor never runs ahead of its workers
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Janitor was interrupted while waiting for its workers");
+                return;
+            } catch (final ExecutionException e) {
+                log.warn(e.getMessage());
+            }
+        }
+    }
+
+    private void doIterationAndRecord(final List<T> group) {
+        try {
+            doIterationForGroup(group);
+        } finally {
+            drained.mark(group.size());
+            final long remaining = backlog.addAndGet(-group.size());
+            if (remaining < 0) {
+                backlog.compareAndSet(remaining, 0);
+            }
+        }
+    }
+
+    // Items of a same group are processed in order by the same thread (e.g. to only grab the account lock once)
+    protected Collection<List<T>> groupForIteration(final List<T> batch) {
+        final List<List<T>> groups = new ArrayList<List<T>>(batch.size());
+        for (final T item : batch) {
+            groups.add(ImmutableList.<T>of(item));
+        }
+        return groups;
+    }
+
+    protected void doIterationForGroup(final List<T> group) {
+        for (final T item : group) {
+            try {
+                doIteration(item);
+            } catch (final Exception e) {
+                log.warn(e.getMessage());
+            }
+        }
+    }
+
+    protected void setBacklog(final long nbEntries) {
+        backlog.set(nbEntries);
+    }
+
+    public long getBacklog() {
+        return backlog.get();
+    }
+
+    public Meter getDrained() {
+        return drained;
+    }
+
     public synchronized void start() {
         this.isStopped = false;
     }
@@ -128,6 +229,10 @@ abstract class CompletionTaskBase<T> implements Runnable {
         this.janitorQueue = janitorQueue;
     }
 
+    public void attachWorkerExecutorService(final ExecutorService workerExecutorService) {
+        this.workerExecutorService = workerExecutorService;
+    }
+
     public interface JanitorIterationCallback {
         public <T> T doIteration();
     }
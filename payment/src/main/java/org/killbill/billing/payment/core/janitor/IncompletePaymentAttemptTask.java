@@ -87,10 +87,17 @@ public class IncompletePaymentAttemptTask extends CompletionTaskBase<PaymentAtte
 
     @Override
     public Iterable<PaymentAttemptModelDao> getItemsForIteration() {
-        final Pagination<PaymentAttemptModelDao> incompleteAttempts = paymentDao.getPaymentAttemptsByStateAcrossTenants(retrySMHelper.getInitialState().getName(), getCreatedDateBefore(), 0L, MAX_ATTEMPTS_PER_ITERATIONS);
+        // Each node only looks at its own shard of accounts
+        final Pagination<PaymentAttemptModelDao> incompleteAttempts = paymentDao.getPaymentAttemptsByStateAcrossTenants(retrySMHelper.getInitialState().getName(),
+                                                                                                                     getCreatedDateBefore(),
+                                                                                                                     Math.max(1, paymentConfig.getJanitorNbShards()),
+                                                                                                                     paymentConfig.getJanitorShardIndex(),
+                                                                                                                     0L,
+                                                                                                                     MAX_ATTEMPTS_PER_ITERATIONS);
         if (incompleteAttempts.getTotalNbRecords() > 0) {
             log.info("Janitor AttemptCompletionTask start run: found {} incomplete attempts", incompleteAttempts.getTotalNbRecords());
         }
+        setBacklog(incompleteAttempts.getTotalNbRecords());
         return incompleteAttempts;
     }
 
@@ -19,8 +19,15 @@ package org.killbill.billing.payment.core.janitor;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -38,6 +45,7 @@ import org.killbill.billing.payment.core.PaymentTransactionInfoPluginConverter;
 import org.killbill.billing.payment.core.sm.PaymentControlStateMachineHelper;
 import org.killbill.billing.payment.core.sm.PaymentStateMachineHelper;
 import org.killbill.billing.payment.dao.PaymentDao;
+import org.killbill.billing.payment.dao.PaymentMethodModelDao;
 import org.killbill.billing.payment.dao.PaymentModelDao;
 import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
@@ -60,6 +68,7 @@ import org.slf4j.LoggerFactory;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
@@ -73,6 +82,8 @@ public class IncompletePaymentTransactionTask extends CompletionTaskBase<Payment
                                                                                                           .build();
 
     private final PaymentPluginServiceRegistration paymentPluginServiceRegistration;
+    // Janitor calls per plugin are bounded, to leave room for the regular traffic while reconciling a large backlog
+    private final Map<String, Semaphore> pluginPermits;
 
     @Inject
     public IncompletePaymentTransactionTask(final InternalCallContextFactory internalCallContextFactory,
@@ -86,17 +97,119 @@ public class IncompletePaymentTransactionTask extends CompletionTaskBase<Payment
                                             final GlobalLocker locker) {
         super(internalCallContextFactory, paymentConfig, paymentDao, clock, paymentStateMachineHelper, retrySMHelper, accountInternalApi, locker);
         this.paymentPluginServiceRegistration = paymentPluginServiceRegistration;
+        this.pluginPermits = new ConcurrentHashMap<String, Semaphore>();
     }
 
     @Override
     public Iterable<PaymentTransactionModelDao> getItemsForIteration() {
-        // This is not triggered by Janitor proper but instead relies on bus event + notificationQ
-        return ImmutableList.of();
+        // This mostly relies on bus event + notificationQ. The sweep (disabled by default) lets each node reconcile its shard in bulk, e.g. after a gateway outage
+        final long sweepWindowMs = paymentConfig.getIncompleteTransactionsSweepWindow().getMillis();
+        if (sweepWindowMs <= 0) {
+            return ImmutableList.of();
+        }
+
+        final DateTime now = clock.getUTCNow();
+        // Calls still in flight can't be repaired yet
+        final DateTime createdBeforeDate = now.minus(paymentConfig.getPaymentPluginTimeout().getMillis());
+        final DateTime createdAfterDate = now.minus(sweepWindowMs);
+        final int nbShards = Math.max(1, paymentConfig.getJanitorNbShards());
+        final int shardIndex = paymentConfig.getJanitorShardIndex();
+        final int pageSize = Math.max(1, paymentConfig.getJanitorBatchSize());
+
+        final Long nbIncompleteTransactions = paymentDao.getCountByTransactionStatusAcrossTenants(TRANSACTION_STATUSES_TO_CONSIDER, createdBeforeDate, createdAfterDate, nbShards, shardIndex);
+        if (nbIncompleteTransactions == null || nbIncompleteTransactions == 0) {
+            setBacklog(0);
+            return ImmutableList.of();
+        }
+        log.info("Janitor IncompletePaymentTransactionTask start run: found {} incomplete transactions", nbIncompleteTransactions);
+        setBacklog(nbIncompleteTransactions);
+
+        return new Iterable<PaymentTransactionModelDao>() {
+            @Override
+            public Iterator<PaymentTransactionModelDao> iterator() {
+                return new AbstractIterator<PaymentTransactionModelDao>() {
+
+                    private Iterator<PaymentTransactionModelDao> currentPage = ImmutableList.<PaymentTransactionModelDao>of().iterator();
+                    private boolean isLastPage = false;
+                    private Long lastRecordId = 0L;
+
+                    @Override
+                    protected PaymentTransactionModelDao computeNext() {
+                        if (!currentPage.hasNext()) {
+                            if (isLastPage) {
+                                return endOfData();
+                            }
+                            // Seek from the last record id seen: entries repaired in the meantime don't shift the pages
+                            final List<PaymentTransactionModelDao> page = paymentDao.getByTransactionStatusAcrossTenants(TRANSACTION_STATUSES_TO_CONSIDER, createdBeforeDate, createdAfterDate, nbShards, shardIndex, lastRecordId, pageSize);
+                            isLastPage = page.size() < pageSize;
+                            if (page.isEmpty()) {
+                                return endOfData();
+                            }
+                            currentPage = page.iterator();
+                        }
+                        final PaymentTransactionModelDao next = currentPage.next();
+                        lastRecordId = next.getRecordId();
+                        return next;
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    protected Collection<List<PaymentTransactionModelDao>> groupForIteration(final List<PaymentTransactionModelDao> batch) {
+        final Map<Long, List<PaymentTransactionModelDao>> transactionsByAccountRecordId = new LinkedHashMap<Long, List<PaymentTransactionModelDao>>();
+        for (final PaymentTransactionModelDao paymentTransaction : batch) {
+            if (transactionsByAccountRecordId.get(paymentTransaction.getAccountRecordId()) == null) {
+                transactionsByAccountRecordId.put(paymentTransaction.getAccountRecordId(), new LinkedList<PaymentTransactionModelDao>());
+            }
+            transactionsByAccountRecordId.get(paymentTransaction.getAccountRecordId()).add(paymentTransaction);
+        }
+        return transactionsByAccountRecordId.values();
     }
 
     @Override
     public void doIteration(final PaymentTransactionModelDao paymentTransaction) {
-        // Nothing
+        doIterationForGroup(ImmutableList.<PaymentTransactionModelDao>of(paymentTransaction));
+    }
+
+    // All transactions belong to the same account: the account lock is only taken once, and the plugin is called once per payment
+    @Override
+    protected void doIterationForGroup(final List<PaymentTransactionModelDao> accountPaymentTransactions) {
+        final PaymentTransactionModelDao firstPaymentTransaction = accountPaymentTransactions.get(0);
+        final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContext(firstPaymentTransaction.getTenantRecordId(), firstPaymentTransaction.getAccountRecordId());
+        doJanitorOperationWithAccountLock(new JanitorIterationCallback() {
+            @Override
+            public Void doIteration() {
+                final Map<UUID, List<PaymentTransactionModelDao>> paymentTransactionsByPaymentId = new LinkedHashMap<UUID, List<PaymentTransactionModelDao>>();
+                for (final PaymentTransactionModelDao paymentTransaction : accountPaymentTransactions) {
+                    // State may have changed since we originally retrieved with no lock
+                    final PaymentTransactionModelDao rehydratedPaymentTransaction = paymentDao.getPaymentTransaction(paymentTransaction.getId(), internalTenantContext);
+                    if (!TRANSACTION_STATUSES_TO_CONSIDER.contains(rehydratedPaymentTransaction.getTransactionStatus())) {
+                        continue;
+                    }
+                    if (paymentTransactionsByPaymentId.get(rehydratedPaymentTransaction.getPaymentId()) == null) {
+                        paymentTransactionsByPaymentId.put(rehydratedPaymentTransaction.getPaymentId(), new LinkedList<PaymentTransactionModelDao>());
+                    }
+                    paymentTransactionsByPaymentId.get(rehydratedPaymentTransaction.getPaymentId()).add(rehydratedPaymentTransaction);
+                }
+
+                for (final List<PaymentTransactionModelDao> paymentTransactions : paymentTransactionsByPaymentId.values()) {
+                    try {
+                        final PaymentModelDao payment = paymentDao.getPayment(paymentTransactions.get(0).getPaymentId(), internalTenantContext);
+                        final List<PaymentTransactionInfoPlugin> paymentTransactionInfoPlugins = getPaymentTransactionInfoPlugins(payment, internalTenantContext);
+                        for (final PaymentTransactionModelDao paymentTransaction : paymentTransactions) {
+                            final PaymentTransactionInfoPlugin paymentTransactionInfoPlugin = findPaymentTransactionInfoPlugin(paymentTransactionInfoPlugins, payment, paymentTransaction);
+                            // No new notification is inserted for entries we can't repair: the existing notifications (if any) will take care of them
+                            updatePaymentAndTransactionInternal(payment, null, null, paymentTransaction, paymentTransactionInfoPlugin, internalTenantContext);
+                        }
+                    } catch (final RuntimeException e) {
+                        log.warn("Error repairing paymentId='{}'", paymentTransactions.get(0).getPaymentId(), e);
+                    }
+                }
+                return null;
+            }
+        }, internalTenantContext);
     }
 
     public void processNotification(final JanitorNotificationKey notificationKey, final UUID userToken, final Long accountRecordId, final long tenantRecordId) {
@@ -120,44 +233,88 @@ public class IncompletePaymentTransactionTask extends CompletionTaskBase<Payment
             public Void doIteration() {
                 // State may have changed since we originally retrieved with no lock
                 final PaymentTransactionModelDao rehydratedPaymentTransaction = paymentDao.getPaymentTransaction(notificationKey.getUuidKey(), internalTenantContext);
+                if (!TRANSACTION_STATUSES_TO_CONSIDER.contains(rehydratedPaymentTransaction.getTransactionStatus())) {
+                    // Already repaired (e.g. by the sweep), no need to call the plugin
+                    return null;
+                }
 
-                final TenantContext tenantContext = internalCallContextFactory.createTenantContext(internalTenantContext);
                 final PaymentModelDao payment = paymentDao.getPayment(rehydratedPaymentTransaction.getPaymentId(), internalTenantContext);
-
-                final PaymentTransactionInfoPlugin undefinedPaymentTransaction = new DefaultNoOpPaymentInfoPlugin(payment.getId(),
-                                                                                                                  rehydratedPaymentTransaction.getId(),
-                                                                                                                  rehydratedPaymentTransaction.getTransactionType(),
-                                                                                                                  rehydratedPaymentTransaction.getAmount(),
-                                                                                                                  rehydratedPaymentTransaction.getCurrency(),
-                                                                                                                  rehydratedPaymentTransaction.getCreatedDate(),
-                                                                                                                  rehydratedPaymentTransaction.getCreatedDate(),
-                                                                                                                  PaymentPluginStatus.UNDEFINED,
-                                                                                                                  null,
-                                                                                                                  null);
-                PaymentTransactionInfoPlugin paymentTransactionInfoPlugin;
-                try {
-                    final PaymentPluginApi paymentPluginApi = paymentPluginServiceRegistration.getPaymentPluginApi(payment.getPaymentMethodId(), false, internalTenantContext);
-                    final List<PaymentTransactionInfoPlugin> result = paymentPluginApi.getPaymentInfo(payment.getAccountId(), payment.getId(), ImmutableList.<PluginProperty>of(), tenantContext);
-                    paymentTransactionInfoPlugin = Iterables.tryFind(result, new Predicate<PaymentTransactionInfoPlugin>() {
-                        @Override
-                        public boolean apply(final PaymentTransactionInfoPlugin input) {
-                            return input.getKbTransactionPaymentId().equals(rehydratedPaymentTransaction.getId());
-                        }
-                    }).or(new Supplier<PaymentTransactionInfoPlugin>() {
-                        @Override
-                        public PaymentTransactionInfoPlugin get() {
-                            return undefinedPaymentTransaction;
-                        }
-                    });
-                } catch (final Exception e) {
-                    paymentTransactionInfoPlugin = undefinedPaymentTransaction;
-                }
+                final List<PaymentTransactionInfoPlugin> paymentTransactionInfoPlugins = getPaymentTransactionInfoPlugins(payment, internalTenantContext);
+                final PaymentTransactionInfoPlugin paymentTransactionInfoPlugin = findPaymentTransactionInfoPlugin(paymentTransactionInfoPlugins, payment, rehydratedPaymentTransaction);
                 updatePaymentAndTransactionIfNeeded(payment, notificationKey.getAttemptNumber(), userToken, rehydratedPaymentTransaction, paymentTransactionInfoPlugin, internalTenantContext);
                 return null;
             }
         }, internalTenantContext);
     }
 
+    // Returns null if the plugin couldn't be called
+    private List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPlugins(final PaymentModelDao payment, final InternalTenantContext internalTenantContext) {
+        final TenantContext tenantContext = internalCallContextFactory.createTenantContext(internalTenantContext);
+        Semaphore permits = null;
+        try {
+            final PaymentMethodModelDao paymentMethod = paymentPluginServiceRegistration.getPaymentMethodById(payment.getPaymentMethodId(), false, internalTenantContext);
+            final PaymentPluginApi paymentPluginApi = paymentPluginServiceRegistration.getPaymentPluginApi(paymentMethod.getPluginName());
+            permits = getPluginPermits(paymentMethod.getPluginName());
+            if (permits != null) {
+                permits.acquire();
+            }
+            return paymentPluginApi.getPaymentInfo(payment.getAccountId(), payment.getId(), ImmutableList.<PluginProperty>of(), tenantContext);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permits = null;
+            return null;
+        } catch (final Exception e) {
+            return null;
+        } finally {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    private Semaphore getPluginPermits(final String pluginName) {
+        final int maxConcurrentCalls = paymentConfig.getJanitorPluginMaxConcurrentCalls();
+        if (maxConcurrentCalls <= 0) {
+            return null;
+        }
+        Semaphore permits = pluginPermits.get(pluginName);
+        if (permits == null) {
+            final Semaphore newPermits = new Semaphore(maxConcurrentCalls);
+            permits = pluginPermits.putIfAbsent(pluginName, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+        return permits;
+    }
+
+    private PaymentTransactionInfoPlugin findPaymentTransactionInfoPlugin(@Nullable final List<PaymentTransactionInfoPlugin> paymentTransactionInfoPlugins, final PaymentModelDao payment, final PaymentTransactionModelDao paymentTransaction) {
+        final PaymentTransactionInfoPlugin undefinedPaymentTransaction = new DefaultNoOpPaymentInfoPlugin(payment.getId(),
+                                                                                                          paymentTransaction.getId(),
+                                                                                                          paymentTransaction.getTransactionType(),
+                                                                                                          paymentTransaction.getAmount(),
+                                                                                                          paymentTransaction.getCurrency(),
+                                                                                                          paymentTransaction.getCreatedDate(),
+                                                                                                          paymentTransaction.getCreatedDate(),
+                                                                                                          PaymentPluginStatus.UNDEFINED,
+                                                                                                          null,
+                                                                                                          null);
+        if (paymentTransactionInfoPlugins == null) {
+            return undefinedPaymentTransaction;
+        }
+        return Iterables.tryFind(paymentTransactionInfoPlugins, new Predicate<PaymentTransactionInfoPlugin>() {
+            @Override
+            public boolean apply(final PaymentTransactionInfoPlugin input) {
+                return paymentTransaction.getId().equals(input.getKbTransactionPaymentId());
+            }
+        }).or(new Supplier<PaymentTransactionInfoPlugin>() {
+            @Override
+            public PaymentTransactionInfoPlugin get() {
+                return undefinedPaymentTransaction;
+            }
+        });
+    }
+
     @Override
     public void processPaymentEvent(final PaymentInternalEvent event, final NotificationQueue janitorQueue) {
         if (!TRANSACTION_STATUSES_TO_CONSIDER.contains(event.getStatus())) {
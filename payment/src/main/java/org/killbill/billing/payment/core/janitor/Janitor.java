@@ -29,6 +29,8 @@ import org.killbill.billing.payment.core.PaymentExecutors;
 import org.killbill.billing.payment.glue.DefaultPaymentService;
 import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
 import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.billing.util.metrics.TimedNotificationQueueHandler;
+import org.killbill.clock.Clock;
 import org.killbill.commons.locker.GlobalLocker;
 import org.killbill.notificationq.api.NotificationEvent;
 import org.killbill.notificationq.api.NotificationQueue;
@@ -39,6 +41,10 @@ import org.killbill.notificationq.api.NotificationQueueService.NotificationQueue
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+
 /**
  * Takes care of incomplete payment/transactions.
  */
@@ -49,9 +55,13 @@ public class Janitor {
     private static final int TERMINATION_TIMEOUT_SEC = 5;
     public static final String QUEUE_NAME = "janitor";
 
+    public static final String METRICS_PREFIX = "killbill.payment.janitor";
+
     private final NotificationQueueService notificationQueueService;
     private final PaymentConfig paymentConfig;
     private final PaymentExecutors paymentExecutors;
+    private final MetricRegistry metricRegistry;
+    private final Clock clock;
 
     private final IncompletePaymentAttemptTask incompletePaymentAttemptTask;
     private final IncompletePaymentTransactionTask incompletePaymentTransactionTask;
@@ -66,35 +76,69 @@ public class Janitor {
                    final GlobalLocker locker,
                    final PaymentConfig paymentConfig,
                    final NotificationQueueService notificationQueueService,
-                   final PaymentExecutors paymentExecutors) {
+                   final PaymentExecutors paymentExecutors,
+                   final MetricRegistry metricRegistry,
+                   final Clock clock) {
         this.incompletePaymentAttemptTask = incompletePaymentAttemptTask;
         this.incompletePaymentTransactionTask = incompletePaymentTransactionTask;
         this.notificationQueueService = notificationQueueService;
         this.paymentExecutors = paymentExecutors;
         this.paymentConfig = paymentConfig;
+        this.metricRegistry = metricRegistry;
+        this.clock = clock;
     }
 
     public void initialize() throws NotificationQueueAlreadyExists {
+        final NotificationQueueHandler notificationQueueHandler = new NotificationQueueHandler() {
+            @Override
+            public void handleReadyNotification(final NotificationEvent notificationKey, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
+                if (!(notificationKey instanceof JanitorNotificationKey)) {
+                    log.error("Janitor service received an unexpected event className='{}", notificationKey.getClass());
+                    return;
+
+                }
+                final JanitorNotificationKey janitorKey = (JanitorNotificationKey) notificationKey;
+                if (janitorKey.getTaskName().equals(incompletePaymentTransactionTask.getClass().toString())) {
+                    incompletePaymentTransactionTask.processNotification(janitorKey, userToken, accountRecordId, tenantRecordId);
+                }
+            }
+        };
         janitorQueue = notificationQueueService.createNotificationQueue(KILLBILL_SERVICES.PAYMENT_SERVICE.getServiceName(),
                                                                         QUEUE_NAME,
-                                                                        new NotificationQueueHandler() {
-                                                                            @Override
-                                                                            public void handleReadyNotification(final NotificationEvent notificationKey, final DateTime eventDateTime, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
-                                                                                if (!(notificationKey instanceof JanitorNotificationKey)) {
-                                                                                    log.error("Janitor service received an unexpected event className='{}", notificationKey.getClass());
-                                                                                    return;
-
-                                                                                }
-                                                                                final JanitorNotificationKey janitorKey = (JanitorNotificationKey) notificationKey;
-                                                                                if (janitorKey.getTaskName().equals(incompletePaymentTransactionTask.getClass().toString())) {
-                                                                                    incompletePaymentTransactionTask.processNotification(janitorKey, userToken, accountRecordId, tenantRecordId);
-                                                                                }
-                                                                            }
-                                                                        }
-                                                                       );
+                                                                        new TimedNotificationQueueHandler(KILLBILL_SERVICES.PAYMENT_SERVICE.getServiceName(), QUEUE_NAME, notificationQueueHandler));
 
         incompletePaymentTransactionTask.attachJanitorQueue(janitorQueue);
         incompletePaymentAttemptTask.attachJanitorQueue(janitorQueue);
+
+        registerMetrics();
+    }
+
+    private void registerMetrics() {
+        registerTaskMetrics("attempts", incompletePaymentAttemptTask);
+        registerTaskMetrics("transactions", incompletePaymentTransactionTask);
+        // Transactions waiting for their next janitor notification
+        registerMetric(MetricRegistry.name(METRICS_PREFIX, "notifications", "ready"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return janitorQueue.getNbReadyEntries(clock.getUTCNow());
+            }
+        });
+    }
+
+    private void registerTaskMetrics(final String name, final CompletionTaskBase<?> task) {
+        registerMetric(MetricRegistry.name(METRICS_PREFIX, name, "backlog"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return task.getBacklog();
+            }
+        });
+        registerMetric(MetricRegistry.name(METRICS_PREFIX, name, "drained"), task.getDrained());
+    }
+
+    private void registerMetric(final String name, final Metric metric) {
+        // Replace any stale metric (e.g. Janitor re-created in tests)
+        metricRegistry.remove(name);
+        metricRegistry.register(name, metric);
     }
 
     public void start() {
@@ -104,6 +148,8 @@ public class Janitor {
         incompletePaymentTransactionTask.start();
 
         janitorExecutor = paymentExecutors.getJanitorExecutorService();
+        incompletePaymentAttemptTask.attachWorkerExecutorService(paymentExecutors.getJanitorWorkerExecutorService());
+        incompletePaymentTransactionTask.attachWorkerExecutorService(paymentExecutors.getJanitorWorkerExecutorService());
 
         janitorQueue.startQueue();
 
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.core.sm;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.killbill.automaton.LinkStateMachine;
+import org.killbill.automaton.MissingEntryException;
+import org.killbill.automaton.Operation;
+import org.killbill.automaton.OperationResult;
+import org.killbill.automaton.State;
+import org.killbill.automaton.StateMachine;
+import org.killbill.automaton.StateMachineConfig;
+import org.killbill.automaton.Transition;
+import org.killbill.billing.payment.api.TransactionType;
+
+//
+// Resolved form of a (per tenant) payment StateMachineConfig, built once when the config is loaded in the cache:
+// - states are indexed, so that the state lookup is a single hash lookup instead of a scan of all state machines
+// - the operation of each transaction type is indexed by TransactionType ordinal
+// - the next state for each (state, transaction type, operation result) is stored in a flat array (following the link state machines)
+// - success states are flagged, instead of relying on state name conventions for each transition
+// The automaton still runs the operation (State#runOperation): the leaving and entering state callbacks use the
+// next state table to reject unsupported operations before the plugin call and to resolve the state to record
+//
+public class CompiledPaymentStateMachine {
+
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+    private static final OperationResult[] OPERATION_RESULTS = OperationResult.values();
+
+    private static final int NO_STATE = -1;
+
+    private final StateMachineConfig stateMachineConfig;
+    private final Map<String, Integer> stateIndexesByName;
+    private final Map<State, Integer> stateIndexes;
+    private final State[] states;
+    private final boolean[] successStates;
+    private final Operation[] operations;
+    // [stateIndex][transactionType.ordinal() * nbOperationResults + operationResult.ordinal()] -> next state index
+    private final int[][] nextStates;
+
+    public static CompiledPaymentStateMachine compile(final StateMachineConfig stateMachineConfig) {
+        return new CompiledPaymentStateMachine(stateMachineConfig);
+    }
+
+    private CompiledPaymentStateMachine(final StateMachineConfig stateMachineConfig) {
+        this.stateMachineConfig = stateMachineConfig;
+        this.stateIndexesByName = new HashMap<String, Integer>();
+        this.stateIndexes = new IdentityHashMap<State, Integer>();
+
+        int nbStates = 0;
+        for (final StateMachine stateMachine : stateMachineConfig.getStateMachines()) {
+            nbStates += stateMachine.getStates().length;
+        }
+        this.states = new State[nbStates];
+        this.successStates = new boolean[nbStates];
+
+        int stateIndex = 0;
+        for (final StateMachine stateMachine : stateMachineConfig.getStateMachines()) {
+            for (final State state : stateMachine.getStates()) {
+                states[stateIndex] = state;
+                successStates[stateIndex] = PaymentStateMachineHelper.isSuccessStateName(state.getName());
+                // Keep the first one, like StateMachineConfig#getStateMachineForState
+                if (!stateIndexesByName.containsKey(state.getName())) {
+                    stateIndexesByName.put(state.getName(), stateIndex);
+                }
+                stateIndexes.put(state, stateIndex);
+                stateIndex++;
+            }
+        }
+
+        this.operations = new Operation[TRANSACTION_TYPES.length];
+        for (final TransactionType transactionType : TRANSACTION_TYPES) {
+            try {
+                operations[transactionType.ordinal()] = PaymentStateMachineHelper.findOperationForTransaction(stateMachineConfig, transactionType);
+            } catch (final MissingEntryException e) {
+                // Not supported by this config: the lookup will fail at runtime with the automaton error
+                operations[transactionType.ordinal()] = null;
+            } catch (final IllegalStateException e) {
+                operations[transactionType.ordinal()] = null;
+            }
+        }
+
+        this.nextStates = new int[nbStates][TRANSACTION_TYPES.length * OPERATION_RESULTS.length];
+        for (final int[] row : nextStates) {
+            Arrays.fill(row, NO_STATE);
+        }
+        for (final StateMachine stateMachine : stateMachineConfig.getStateMachines()) {
+            for (final Transition transition : stateMachine.getTransitions()) {
+                final Integer initialStateIndex = stateIndexes.get(transition.getInitialState());
+                final Integer finalStateIndex = stateIndexes.get(transition.getFinalState());
+                final int transactionTypeIndex = getTransactionTypeIndex(transition.getOperation());
+                if (initialStateIndex == null || finalStateIndex == null || transactionTypeIndex == NO_STATE) {
+                    continue;
+                }
+                nextStates[initialStateIndex][getColumn(transactionTypeIndex, transition.getOperationResult())] = finalStateIndex;
+            }
+        }
+        // Operations starting in another state machine go through the link (e.g. AUTH_SUCCESS -> CAPTURE_INIT)
+        final LinkStateMachine[] linkStateMachines = stateMachineConfig.getLinkStateMachines();
+        if (linkStateMachines != null) {
+            for (final LinkStateMachine linkStateMachine : linkStateMachines) {
+                final Integer initialStateIndex = stateIndexes.get(linkStateMachine.getInitialState());
+                final Integer linkedStateIndex = stateIndexes.get(linkStateMachine.getFinalState());
+                if (initialStateIndex == null || linkedStateIndex == null) {
+                    continue;
+                }
+                final int[] row = nextStates[initialStateIndex];
+                final int[] linkedRow = nextStates[linkedStateIndex];
+                for (int i = 0; i < row.length; i++) {
+                    if (row[i] == NO_STATE) {
+                        row[i] = linkedRow[i];
+                    }
+                }
+            }
+        }
+    }
+
+    public StateMachineConfig getStateMachineConfig() {
+        return stateMachineConfig;
+    }
+
+    public State getState(final String stateName) throws MissingEntryException {
+        final Integer stateIndex = stateIndexesByName.get(stateName);
+        if (stateIndex == null) {
+            // Will throw the MissingEntryException
+            return stateMachineConfig.getStateMachineForState(stateName).getState(stateName);
+        }
+        return states[stateIndex];
+    }
+
+    public Operation getOperation(final TransactionType transactionType) throws MissingEntryException {
+        final Operation operation = operations[transactionType.ordinal()];
+        if (operation == null) {
+            // Will throw the MissingEntryException
+            return PaymentStateMachineHelper.findOperationForTransaction(stateMachineConfig, transactionType);
+        }
+        return operation;
+    }
+
+    public boolean isSuccessState(final State state) {
+        final Integer stateIndex = stateIndexes.get(state);
+        return stateIndex != null && successStates[stateIndex];
+    }
+
+    @Nullable
+    public State getNextState(final State state, final TransactionType transactionType, final OperationResult operationResult) {
+        final Integer stateIndex = stateIndexes.get(state);
+        if (stateIndex == null) {
+            return null;
+        }
+        final int nextStateIndex = nextStates[stateIndex][getColumn(transactionType.ordinal(), operationResult)];
+        return nextStateIndex == NO_STATE ? null : states[nextStateIndex];
+    }
+
+    // Whether the transaction type can run from that state, i.e. there is a next state for at least one operation result
+    public boolean hasTransitions(final State state, final TransactionType transactionType) {
+        final Integer stateIndex = stateIndexes.get(state);
+        if (stateIndex == null) {
+            // Unknown state: let the automaton decide
+            return true;
+        }
+        final int[] row = nextStates[stateIndex];
+        final int firstColumn = getColumn(transactionType.ordinal(), OPERATION_RESULTS[0]);
+        for (int i = firstColumn; i < firstColumn + OPERATION_RESULTS.length; i++) {
+            if (row[i] != NO_STATE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int getTransactionTypeIndex(final Operation operation) {
+        for (int i = 0; i < operations.length; i++) {
+            if (operations[i] != null && operations[i].equals(operation)) {
+                return i;
+            }
+        }
+        return NO_STATE;
+    }
+
+    private static int getColumn(final int transactionTypeIndex, final OperationResult operationResult) {
+        return transactionTypeIndex * OPERATION_RESULTS.length + operationResult.ordinal();
+    }
+}
@@ -112,6 +112,11 @@ public class PaymentAutomatonDAOHelper {
 
     public void processPaymentInfoPlugin(final TransactionStatus transactionStatus, @Nullable final PaymentTransactionInfoPlugin paymentInfoPlugin,
                                          final String currentPaymentStateName) {
+        processPaymentInfoPlugin(transactionStatus, paymentInfoPlugin, currentPaymentStateName, paymentSMHelper.isSuccessState(currentPaymentStateName));
+    }
+
+    public void processPaymentInfoPlugin(final TransactionStatus transactionStatus, @Nullable final PaymentTransactionInfoPlugin paymentInfoPlugin,
+                                         final String currentPaymentStateName, final boolean isSuccessState) {
         final BigDecimal processedAmount;
         if (TransactionStatus.SUCCESS.equals(transactionStatus) || TransactionStatus.PENDING.equals(transactionStatus)) {
             if (paymentInfoPlugin == null || paymentInfoPlugin.getAmount() == null) {
@@ -132,7 +137,7 @@ public class PaymentAutomatonDAOHelper {
         final String gatewayErrorMsg = paymentInfoPlugin == null ? null : paymentInfoPlugin.getGatewayError();
 
         final PaymentAndTransactionModelDao paymentAndTransactionModelDao;
-        if (paymentSMHelper.isSuccessState(currentPaymentStateName)) {
+        if (isSuccessState) {
             final String lastSuccessPaymentState = currentPaymentStateName;
             paymentAndTransactionModelDao = paymentDao.updatePaymentAndTransactionOnCompletion(paymentStateContext.getAccount().getId(),
                                                                                                paymentStateContext.getAttemptId(),
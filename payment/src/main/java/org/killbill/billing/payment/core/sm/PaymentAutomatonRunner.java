@@ -34,8 +34,6 @@ import org.killbill.automaton.OperationResult;
 import org.killbill.automaton.State;
 import org.killbill.automaton.State.EnteringStateCallback;
 import org.killbill.automaton.State.LeavingStateCallback;
-import org.killbill.automaton.StateMachine;
-import org.killbill.automaton.StateMachineConfig;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.callcontext.InternalCallContext;
@@ -238,10 +236,11 @@ public class PaymentAutomatonRunner {
                                           final PaymentStateContext paymentStateContext,
                                           final PaymentAutomatonDAOHelper daoHelper) throws PaymentApiException {
         try {
-            final StateMachineConfig stateMachineConfig = paymentSMHelper.getStateMachineConfig(daoHelper.getPaymentProviderPluginName(includeDeletedPaymentMethod), paymentStateContext.getInternalCallContext());
-            final StateMachine initialStateMachine = stateMachineConfig.getStateMachineForState(initialStateName);
-            final State initialState = initialStateMachine.getState(initialStateName);
-            final Operation operation = paymentSMHelper.getOperationForTransaction(stateMachineConfig, transactionType);
+            final CompiledPaymentStateMachine compiledStateMachine = paymentSMHelper.getCompiledStateMachine(daoHelper.getPaymentProviderPluginName(includeDeletedPaymentMethod), paymentStateContext.getInternalCallContext());
+            // Used by the entering state callback
+            paymentStateContext.setCompiledStateMachine(compiledStateMachine);
+            final State initialState = compiledStateMachine.getState(initialStateName);
+            final Operation operation = compiledStateMachine.getOperation(transactionType);
 
             initialState.runOperation(operation, operationCallback, enteringStateCallback, leavingStateCallback);
         } catch (final MissingEntryException e) {
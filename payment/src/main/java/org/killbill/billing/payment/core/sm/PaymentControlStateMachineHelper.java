@@ -17,6 +17,9 @@
 
 package org.killbill.billing.payment.core.sm;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -42,6 +45,8 @@ public class PaymentControlStateMachineHelper {
     private final Operation operation;
     private final State initialState;
     private final State retriedState;
+    // Resolved once, the config isn't per tenant
+    private final Map<String, State> statesByName;
 
     @Inject
     public PaymentControlStateMachineHelper(@Named(PaymentModule.STATE_MACHINE_RETRY) final StateMachineConfig retryStateMachineConfig) throws MissingEntryException {
@@ -50,10 +55,16 @@ public class PaymentControlStateMachineHelper {
         this.operation = stateMachine.getOperation(RETRY_OPERATION_NAME);
         this.initialState = stateMachine.getState(INIT_STATE_NAME);
         this.retriedState = stateMachine.getState(RETRIED_STATE_NAME);
+        this.statesByName = new HashMap<String, State>();
+        for (final State state : stateMachine.getStates()) {
+            statesByName.put(state.getName(), state);
+        }
     }
 
     public State getState(final String stateName) throws MissingEntryException {
-        return stateMachine.getState(stateName);
+        final State state = statesByName.get(stateName);
+        // Will throw the MissingEntryException
+        return state != null ? state : stateMachine.getState(stateName);
     }
 
     public Operation getOperation() {
@@ -25,6 +25,7 @@ import javax.annotation.Nullable;
 
 import org.joda.time.DateTime;
 import org.killbill.automaton.OperationResult;
+import org.killbill.automaton.State;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.catalog.api.Currency;
@@ -68,6 +69,11 @@ public class PaymentStateContext {
     // This is purely a performance improvement to avoid fetching the existing transactions for that payment throughout the state machine
     private List<PaymentTransactionModelDao> onLeavingStateExistingTransactions;
 
+    // Set by the PaymentAutomatonRunner before running the operation
+    private CompiledPaymentStateMachine compiledStateMachine;
+    // Set in the leavingState callback: the state the operation runs from (after following the link state machines)
+    private State leavingState;
+
     // Immutable
     private final Account account;
     private final TransactionType transactionType;
@@ -160,6 +166,22 @@ public class PaymentStateContext {
         this.onLeavingStateExistingTransactions = onLeavingStateExistingTransactions;
     }
 
+    public CompiledPaymentStateMachine getCompiledStateMachine() {
+        return compiledStateMachine;
+    }
+
+    public void setCompiledStateMachine(final CompiledPaymentStateMachine compiledStateMachine) {
+        this.compiledStateMachine = compiledStateMachine;
+    }
+
+    public State getLeavingState() {
+        return leavingState;
+    }
+
+    public void setLeavingState(final State leavingState) {
+        this.leavingState = leavingState;
+    }
+
     public PaymentTransactionInfoPlugin getPaymentTransactionInfoPlugin() {
         return paymentTransactionInfoPlugin;
     }
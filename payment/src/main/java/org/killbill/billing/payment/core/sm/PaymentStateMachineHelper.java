@@ -204,13 +204,21 @@ public class PaymentStateMachineHelper {
         return stateMachineConfigCache.getPaymentStateMachineConfig(pluginName, internalCallContext);
     }
 
+    public CompiledPaymentStateMachine getCompiledStateMachine(final String pluginName, final InternalCallContext internalCallContext) throws PaymentApiException {
+        return stateMachineConfigCache.getCompiledPaymentStateMachine(pluginName, internalCallContext);
+    }
+
     public Operation getOperationForTransaction(final StateMachineConfig stateMachineConfig, final TransactionType transactionType) throws MissingEntryException {
+        return findOperationForTransaction(stateMachineConfig, transactionType);
+    }
+
+    static Operation findOperationForTransaction(final StateMachineConfig stateMachineConfig, final TransactionType transactionType) throws MissingEntryException {
         final StateMachine stateMachine = getStateMachineForTransaction(stateMachineConfig, transactionType);
         // Only one operation defined, this is the current PaymentStates.xml model
         return stateMachine.getOperations()[0];
     }
 
-    private StateMachine getStateMachineForTransaction(final StateMachineConfig stateMachineConfig, final TransactionType transactionType) throws MissingEntryException {
+    private static StateMachine getStateMachineForTransaction(final StateMachineConfig stateMachineConfig, final TransactionType transactionType) throws MissingEntryException {
         switch (transactionType) {
             case AUTHORIZE:
                 return stateMachineConfig.getStateMachine(AUTHORIZE_STATE_MACHINE_NAME);
@@ -233,6 +241,10 @@ public class PaymentStateMachineHelper {
 
     // A better way would be to change the xml to add attributes to the state (e.g isTerminal, isSuccess, isInit,...)
     public boolean isSuccessState(final String stateName) {
+        return isSuccessStateName(stateName);
+    }
+
+    static boolean isSuccessStateName(final String stateName) {
         return stateName.endsWith("SUCCESS") || stateName.startsWith("CHARGEBACK");
     }
 }
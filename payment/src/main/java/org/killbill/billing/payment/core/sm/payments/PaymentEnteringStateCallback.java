@@ -27,6 +27,7 @@ import org.killbill.billing.payment.api.DefaultPaymentErrorEvent;
 import org.killbill.billing.payment.api.PaymentApiException;
 import org.killbill.billing.payment.api.TransactionStatus;
 import org.killbill.billing.payment.core.PaymentTransactionInfoPluginConverter;
+import org.killbill.billing.payment.core.sm.CompiledPaymentStateMachine;
 import org.killbill.billing.payment.core.sm.PaymentAutomatonDAOHelper;
 import org.killbill.billing.payment.core.sm.PaymentStateContext;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
@@ -55,7 +56,16 @@ public abstract class PaymentEnteringStateCallback implements EnteringStateCallb
             final PaymentTransactionInfoPlugin paymentInfoPlugin = paymentStateContext.getPaymentTransactionInfoPlugin();
             final TransactionStatus transactionStatus = PaymentTransactionInfoPluginConverter.toTransactionStatus(paymentInfoPlugin);
             // The bus event will be posted from the transaction
-            daoHelper.processPaymentInfoPlugin(transactionStatus, paymentInfoPlugin, newState.getName());
+            final CompiledPaymentStateMachine compiledStateMachine = paymentStateContext.getCompiledStateMachine();
+            if (compiledStateMachine != null) {
+                // Same transition as the one the automaton followed, resolved from the next state table
+                final State leavingState = paymentStateContext.getLeavingState();
+                final State nextState = leavingState != null && operationResult != null ? compiledStateMachine.getNextState(leavingState, paymentStateContext.getTransactionType(), operationResult) : null;
+                final State resolvedState = nextState != null ? nextState : newState;
+                daoHelper.processPaymentInfoPlugin(transactionStatus, paymentInfoPlugin, resolvedState.getName(), compiledStateMachine.isSuccessState(resolvedState));
+            } else {
+                daoHelper.processPaymentInfoPlugin(transactionStatus, paymentInfoPlugin, newState.getName());
+            }
         } else if (!paymentStateContext.isApiPayment()) {
             //
             // If there is NO transaction to update (because payment transaction did not occur), then there is something wrong happening (maybe a missing defaultPaymentMethodId, ...)
@@ -20,8 +20,10 @@ package org.killbill.billing.payment.core.sm.payments;
 import org.killbill.automaton.OperationException;
 import org.killbill.automaton.State;
 import org.killbill.automaton.State.LeavingStateCallback;
+import org.killbill.billing.ErrorCode;
 import org.killbill.billing.payment.api.PaymentApiException;
 import org.killbill.billing.payment.api.TransactionStatus;
+import org.killbill.billing.payment.core.sm.CompiledPaymentStateMachine;
 import org.killbill.billing.payment.core.sm.PaymentAutomatonDAOHelper;
 import org.killbill.billing.payment.core.sm.PaymentStateContext;
 import org.slf4j.Logger;
@@ -44,6 +46,13 @@ public abstract class PaymentLeavingStateCallback implements LeavingStateCallbac
         logger.debug("Leaving state {}", oldState.getName());
 
         try {
+            // Reject the operation before creating the transaction and calling the plugin, instead of failing on the missing transition afterwards
+            final CompiledPaymentStateMachine compiledStateMachine = paymentStateContext.getCompiledStateMachine();
+            if (compiledStateMachine != null && !compiledStateMachine.hasTransitions(oldState, paymentStateContext.getTransactionType())) {
+                throw new PaymentApiException(ErrorCode.PAYMENT_INVALID_OPERATION, paymentStateContext.getTransactionType(), oldState.getName());
+            }
+            paymentStateContext.setLeavingState(oldState);
+
             // We always create a new transaction (even in case of PAYMENT_FAILURE or PLUGIN_FAILURE) except for PENDING payments (completion)
             if (paymentStateContext.getPaymentTransactionModelDao() == null || paymentStateContext.getPaymentTransactionModelDao().getTransactionStatus() != TransactionStatus.PENDING) {
                 daoHelper.createNewPaymentTransaction();
@@ -19,6 +19,7 @@ package org.killbill.billing.payment.core.sm.payments;
 
 import java.math.BigDecimal;
 import java.util.Iterator;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.killbill.automaton.Operation.OperationCallback;
 import org.killbill.automaton.OperationException;
@@ -33,6 +34,7 @@ import org.killbill.billing.payment.core.sm.OperationCallbackBase;
 import org.killbill.billing.payment.core.sm.PaymentAutomatonDAOHelper;
 import org.killbill.billing.payment.core.sm.PaymentStateContext;
 import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
+import org.killbill.billing.payment.dispatcher.PluginCallTracker;
 import org.killbill.billing.payment.dispatcher.PluginDispatcher;
 import org.killbill.billing.payment.dispatcher.PluginDispatcher.PluginDispatcherReturnType;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
@@ -88,6 +90,10 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
 
     @Override
     protected OperationException unwrapExceptionFromDispatchedTask(final PaymentApiException e) {
+        if (e.getCause() instanceof RejectedExecutionException) {
+            // The plugin was never called (too many concurrent calls): we know for sure the transaction did not happen
+            return convertToErroredPaymentState(e, PaymentPluginStatus.CANCELED);
+        }
         return convertToUnknownTransactionStatusAndErroredPaymentState(e);
     }
 
@@ -98,7 +104,10 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
     //   be fixed by Janitor.
     //
     private OperationException convertToUnknownTransactionStatusAndErroredPaymentState(final Exception e) {
+        return convertToErroredPaymentState(e, PaymentPluginStatus.UNDEFINED);
+    }
 
+    private OperationException convertToErroredPaymentState(final Exception e, final PaymentPluginStatus paymentPluginStatus) {
         final PaymentTransactionInfoPlugin paymentInfoPlugin = new DefaultNoOpPaymentInfoPlugin(paymentStateContext.getPaymentId(),
                                                                                                 paymentStateContext.getTransactionId(),
                                                                                                 paymentStateContext.getTransactionType(),
@@ -106,7 +115,7 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
                                                                                                 paymentStateContext.getCurrency(),
                                                                                                 paymentStateContext.getCallContext().getCreatedDate(),
                                                                                                 paymentStateContext.getCallContext().getCreatedDate(),
-                                                                                                PaymentPluginStatus.UNDEFINED,
+                                                                                                paymentPluginStatus,
                                                                                                 null,
                                                                                                 null);
         paymentStateContext.setPaymentTransactionInfoPlugin(paymentInfoPlugin);
@@ -124,7 +133,7 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
     protected abstract PaymentTransactionInfoPlugin doCallSpecificOperationCallback() throws PaymentPluginApiException;
 
     private OperationResult doOperationCallbackWithDispatchAndAccountLock(String pluginName) throws OperationException {
-        return dispatchWithAccountLockAndTimeout(pluginName, new DispatcherCallback<PluginDispatcherReturnType<OperationResult>, OperationException>() {
+        return dispatchPaymentPluginCallWithAccountLockAndTimeout(pluginName, new DispatcherCallback<PluginDispatcherReturnType<OperationResult>, OperationException>() {
             @Override
             public PluginDispatcherReturnType<OperationResult> doOperation() throws OperationException {
                 final OperationResult result = doSimpleOperationCallback();
@@ -150,15 +159,27 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
             // about running through the state machine to bring the transaction/payment into a new state.
             //
             if (paymentStateContext.getOverridePluginOperationResult() == null) {
-                final PaymentTransactionInfoPlugin paymentInfoPlugin = doCallSpecificOperationCallback();
+                PluginCallTracker.onPluginCallStarted();
+                final PaymentTransactionInfoPlugin paymentInfoPlugin;
+                try {
+                    paymentInfoPlugin = doCallSpecificOperationCallback();
+                } catch (final RuntimeException e) {
+                    PluginCallTracker.onPluginCallFailed();
+                    throw e;
+                }
                 //
                 // We catch null paymentInfoPlugin and throw a RuntimeException to end up in an UNKNOWN transactionStatus
                 // That way we can use the null paymentInfoPlugin when a PaymentPluginApiException is thrown and correctly
                 // make the transition to PLUGIN_FAILURE
                 //
                 if (paymentInfoPlugin == null) {
+                    PluginCallTracker.onPluginCallFailed();
                     throw new IllegalStateException("Payment plugin returned a null result");
                 }
+                // A declined transaction is a gateway answer, an unknown outcome isn't
+                if (paymentInfoPlugin.getStatus() == PaymentPluginStatus.UNDEFINED) {
+                    PluginCallTracker.onPluginCallFailed();
+                }
 
                 logger.debug("Plugin returned paymentTransactionInfoPlugin='{}'", paymentInfoPlugin);
                 paymentStateContext.setPaymentTransactionInfoPlugin(paymentInfoPlugin);
@@ -179,6 +200,7 @@ public abstract class PaymentOperation extends OperationCallbackBase<PaymentTran
                 return paymentStateContext.getOverridePluginOperationResult();
             }
         } catch (final PaymentPluginApiException e) {
+            PluginCallTracker.onPluginCallFailed();
             throw new PaymentApiException(e, ErrorCode.PAYMENT_PLUGIN_EXCEPTION, e.getErrorMessage());
         }
     }
@@ -20,6 +20,7 @@ package org.killbill.billing.payment.dao;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
@@ -62,9 +63,12 @@ import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
+import org.killbill.billing.util.entity.dao.EntitySearchIndexHelper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.search.SearchDocument;
+import org.killbill.billing.util.search.SearchIndex;
 import org.killbill.billing.util.tag.dao.TagSqlDao;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
@@ -80,6 +84,7 @@ import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
+import static org.killbill.billing.payment.glue.PaymentModule.PAYMENT_SEARCH_INDEX_NAMED;
 import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
 public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, PaymentApiException> implements PaymentDao {
@@ -90,15 +95,28 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
     private final PersistentBus eventBus;
     private final Clock clock;
     private final AuditDao auditDao;
+    private final EntitySearchIndexHelper<PaymentModelDao, Payment> searchIndexHelper;
 
     @Inject
     public DefaultPaymentDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
-                             final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory, final PersistentBus eventBus, final AuditDao auditDao) {
+                             final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory, final PersistentBus eventBus, final AuditDao auditDao,
+                             @Named(PAYMENT_SEARCH_INDEX_NAMED) final SearchIndex searchIndex) {
         super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory), PaymentSqlDao.class);
         this.paginationHelper = new DefaultPaginationSqlDaoHelper(transactionalSqlDao);
         this.eventBus = eventBus;
         this.clock = clock;
         this.auditDao = auditDao;
+        this.searchIndexHelper = new EntitySearchIndexHelper<PaymentModelDao, Payment>(searchIndex, transactionalSqlDao, PaymentSqlDao.class) {
+            @Override
+            protected SearchDocument toSearchDocument(final PaymentModelDao model) {
+                // See searchQuery in PaymentSqlDao.sql.stg
+                return new SearchDocument(model.getRecordId(),
+                                          Arrays.asList(model.getId().toString(),
+                                                        model.getAccountId() == null ? null : model.getAccountId().toString(),
+                                                        model.getPaymentMethodId() == null ? null : model.getPaymentMethodId().toString()),
+                                          Arrays.asList(model.getExternalKey()));
+            }
+        };
     }
 
     @Override
@@ -152,17 +170,22 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
 
     @Override
     public Pagination<PaymentAttemptModelDao> getPaymentAttemptsByStateAcrossTenants(final String stateName, final DateTime createdBeforeDate, final Long offset, final Long limit) {
+        return getPaymentAttemptsByStateAcrossTenants(stateName, createdBeforeDate, 1, 0, offset, limit);
+    }
+
+    @Override
+    public Pagination<PaymentAttemptModelDao> getPaymentAttemptsByStateAcrossTenants(final String stateName, final DateTime createdBeforeDate, final int nbShards, final int shardIndex, final Long offset, final Long limit) {
 
         final Date createdBefore = createdBeforeDate.toDate();
         return paginationHelper.getPagination(PaymentAttemptSqlDao.class, new PaginationIteratorBuilder<PaymentAttemptModelDao, Entity, PaymentAttemptSqlDao>() {
                                                   @Override
                                                   public Long getCount(final PaymentAttemptSqlDao sqlDao, final InternalTenantContext context) {
-                                                      return sqlDao.getCountByStateNameAcrossTenants(stateName, createdBefore);
+                                                      return sqlDao.getCountByStateNameAcrossTenants(stateName, createdBefore, nbShards, shardIndex);
                                                   }
 
                                                   @Override
                                                   public Iterator<PaymentAttemptModelDao> build(final PaymentAttemptSqlDao sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
-                                                      return sqlDao.getByStateNameAcrossTenants(stateName, createdBefore, offset, limit, ordering.toString());
+                                                      return sqlDao.getByStateNameAcrossTenants(stateName, createdBefore, nbShards, shardIndex, offset, limit, ordering.toString());
                                                   }
                                               },
                                               offset,
@@ -221,6 +244,28 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
                                              );
     }
 
+    @Override
+    public List<PaymentTransactionModelDao> getByTransactionStatusAcrossTenants(final Iterable<TransactionStatus> transactionStatuses, final DateTime createdBeforeDate, final DateTime createdAfterDate, final int nbShards, final int shardIndex, final Long fromRecordId, final int limit) {
+        final Collection<String> allTransactionStatus = ImmutableList.copyOf(Iterables.transform(transactionStatuses, Functions.toStringFunction()));
+        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<PaymentTransactionModelDao>>() {
+            @Override
+            public List<PaymentTransactionModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.become(TransactionSqlDao.class).getByTransactionStatusPriorDateAcrossTenantsForShard(allTransactionStatus, createdBeforeDate.toDate(), createdAfterDate.toDate(), nbShards, shardIndex, fromRecordId, limit);
+            }
+        });
+    }
+
+    @Override
+    public Long getCountByTransactionStatusAcrossTenants(final Iterable<TransactionStatus> transactionStatuses, final DateTime createdBeforeDate, final DateTime createdAfterDate, final int nbShards, final int shardIndex) {
+        final Collection<String> allTransactionStatus = ImmutableList.copyOf(Iterables.transform(transactionStatuses, Functions.toStringFunction()));
+        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<Long>() {
+            @Override
+            public Long inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.become(TransactionSqlDao.class).getCountByTransactionStatusPriorDateAcrossTenantsForShard(allTransactionStatus, createdBeforeDate.toDate(), createdAfterDate.toDate(), nbShards, shardIndex);
+            }
+        });
+    }
+
     @Override
     public List<PaymentTransactionModelDao> getPaymentTransactionsByExternalKey(final String transactionExternalKey, final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<PaymentTransactionModelDao>>() {
@@ -267,6 +312,10 @@ public class DefaultPaymentDao extends EntityDaoBase<PaymentModelDao, Payment, P
         // Optimization: if the search key looks like a state name (e.g. _ERRORED), assume the user is searching by state only
         final List<String> paymentStates = expandSearchFilterToStateNames(searchKey);
 
+        if (paymentStates.isEmpty() && searchIndexHelper.isEnabled()) {
+            return searchIndexHelper.search(searchKey, offset, limit, context);
+        }
+
         final String likeSearchKey = String.format("%%%s%%", searchKey);
         return paginationHelper.getPagination(PaymentSqlDao.class,
                                               new PaginationIteratorBuilder<PaymentModelDao, Payment, PaymentSqlDao>() {
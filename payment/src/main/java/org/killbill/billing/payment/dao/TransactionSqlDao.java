@@ -69,6 +69,22 @@ public interface TransactionSqlDao extends EntitySqlDao<PaymentTransactionModelD
                                                                                       @Bind("rowCount") final Long rowCount,
                                                                                       @Define("ordering") final String ordering);
 
+    @SqlQuery
+    Long getCountByTransactionStatusPriorDateAcrossTenantsForShard(@BindIn("statuses") final Collection<String> statuses,
+                                                                   @Bind("createdBeforeDate") final Date createdBeforeDate,
+                                                                   @Bind("createdAfterDate") final Date createdAfterDate,
+                                                                   @Bind("nbShards") final int nbShards,
+                                                                   @Bind("shardIndex") final int shardIndex);
+
+    @SqlQuery
+    List<PaymentTransactionModelDao> getByTransactionStatusPriorDateAcrossTenantsForShard(@BindIn("statuses") final Collection<String> statuses,
+                                                                                          @Bind("createdBeforeDate") final Date createdBeforeDate,
+                                                                                          @Bind("createdAfterDate") final Date createdAfterDate,
+                                                                                          @Bind("nbShards") final int nbShards,
+                                                                                          @Bind("shardIndex") final int shardIndex,
+                                                                                          @Bind("fromRecordId") final Long fromRecordId,
+                                                                                          @Bind("rowCount") final int rowCount);
+
     @SqlQuery
     public List<PaymentTransactionModelDao> getByPaymentId(@Bind("paymentId") final UUID paymentId,
                                                            @SmartBindBean final InternalTenantContext context);
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.dispatcher;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//
+// Holds the bulkhead permit acquired by the caller until the task completes and records the queue and run times.
+// If the caller gives up (timeout) before the task is picked up by the executor, the task is abandoned: the
+// permit is released right away and the plugin is never called.
+//
+class CallableWithBulkhead<T> implements Callable<T> {
+
+    private final PluginBulkhead bulkhead;
+    private final Callable<T> delegate;
+    private final long submittedNanos;
+    private final AtomicBoolean claimed;
+
+    CallableWithBulkhead(final PluginBulkhead bulkhead, final Callable<T> delegate) {
+        this.bulkhead = bulkhead;
+        this.delegate = delegate;
+        this.submittedNanos = System.nanoTime();
+        this.claimed = new AtomicBoolean(false);
+    }
+
+    @Override
+    public T call() throws Exception {
+        if (!claimed.compareAndSet(false, true)) {
+            // The caller already gave up on us
+            return null;
+        }
+
+        final long startNanos = System.nanoTime();
+        bulkhead.recordQueueTime(startNanos - submittedNanos);
+        try {
+            return delegate.call();
+        } finally {
+            bulkhead.recordRunTime(System.nanoTime() - startNanos);
+            bulkhead.release();
+        }
+    }
+
+    // Returns true if the task had not started yet (and will never run)
+    boolean abandon() {
+        if (claimed.compareAndSet(false, true)) {
+            bulkhead.recordAbandoned();
+            bulkhead.release();
+            return true;
+        }
+        return false;
+    }
+
+    // The executor refused the task (queue full or executor shutting down)
+    void reject() {
+        if (claimed.compareAndSet(false, true)) {
+            bulkhead.recordRejected();
+            bulkhead.release();
+        }
+    }
+}
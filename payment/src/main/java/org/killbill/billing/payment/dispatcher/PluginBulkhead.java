@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.dispatcher;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+//
+// Per plugin concurrency limit (bulkhead) and dispatch statistics: a slow gateway can only hold up to maxConcurrentCalls
+// caller threads and executor slots, further calls are rejected right away instead of piling up in the executor queue.
+//
+public class PluginBulkhead {
+
+    private final String pluginName;
+    private final int maxConcurrentCalls;
+    // Null when there is no limit
+    private final Semaphore permits;
+
+    private final AtomicLong nbInFlight = new AtomicLong();
+    private final AtomicLong nbDispatched = new AtomicLong();
+    private final AtomicLong nbRejected = new AtomicLong();
+    private final AtomicLong nbAbandoned = new AtomicLong();
+    private final AtomicLong totalQueueTimeNanos = new AtomicLong();
+    private final AtomicLong maxQueueTimeNanos = new AtomicLong();
+    private final AtomicLong totalRunTimeNanos = new AtomicLong();
+    private final AtomicLong maxRunTimeNanos = new AtomicLong();
+
+    public PluginBulkhead(final String pluginName, final int maxConcurrentCalls) {
+        this.pluginName = pluginName;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = maxConcurrentCalls > 0 ? new Semaphore(maxConcurrentCalls) : null;
+    }
+
+    public boolean tryAcquire() {
+        if (permits != null && !permits.tryAcquire()) {
+            nbRejected.incrementAndGet();
+            return false;
+        }
+        nbInFlight.incrementAndGet();
+        return true;
+    }
+
+    public void release() {
+        nbInFlight.decrementAndGet();
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    void recordRejected() {
+        nbRejected.incrementAndGet();
+    }
+
+    void recordAbandoned() {
+        nbAbandoned.incrementAndGet();
+    }
+
+    void recordQueueTime(final long queueTimeNanos) {
+        nbDispatched.incrementAndGet();
+        totalQueueTimeNanos.addAndGet(queueTimeNanos);
+        updateMax(maxQueueTimeNanos, queueTimeNanos);
+    }
+
+    void recordRunTime(final long runTimeNanos) {
+        totalRunTimeNanos.addAndGet(runTimeNanos);
+        updateMax(maxRunTimeNanos, runTimeNanos);
+    }
+
+    private static void updateMax(final AtomicLong max, final long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    public String getPluginName() {
+        return pluginName;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public long getNbInFlight() {
+        return nbInFlight.get();
+    }
+
+    public long getNbDispatched() {
+        return nbDispatched.get();
+    }
+
+    public long getNbRejected() {
+        return nbRejected.get();
+    }
+
+    public long getNbAbandoned() {
+        return nbAbandoned.get();
+    }
+
+    public long getTotalQueueTimeNanos() {
+        return totalQueueTimeNanos.get();
+    }
+
+    public long getMaxQueueTimeNanos() {
+        return maxQueueTimeNanos.get();
+    }
+
+    public long getTotalRunTimeNanos() {
+        return totalRunTimeNanos.get();
+    }
+
+    public long getMaxRunTimeNanos() {
+        return maxRunTimeNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("PluginBulkhead{");
+        sb.append("pluginName='").append(pluginName).append('\'');
+        sb.append(", maxConcurrentCalls=").append(maxConcurrentCalls);
+        sb.append(", nbInFlight=").append(nbInFlight);
+        sb.append(", nbDispatched=").append(nbDispatched);
+        sb.append(", nbRejected=").append(nbRejected);
+        sb.append(", nbAbandoned=").append(nbAbandoned);
+        sb.append(", totalQueueTimeNanos=").append(totalQueueTimeNanos);
+        sb.append(", totalRunTimeNanos=").append(totalRunTimeNanos);
+        sb.append('}');
+        return sb.toString();
+    }
+}
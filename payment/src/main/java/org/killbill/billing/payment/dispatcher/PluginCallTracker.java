@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.dispatcher;
+
+import java.util.concurrent.Callable;
+
+//
+// What the circuit breaker gets to know about a dispatched payment plugin call. The dispatched task runs on a plugin thread
+// and first grabs the account lock: the code invoking the plugin marks the start of the actual plugin call (so that neither
+// the queue time nor the account lock wait count against the plugin) and whether the plugin (or the gateway behind it)
+// failed. Business outcomes (declined transactions, control plugin aborts, validation errors, lock failures) aren't failures.
+//
+public class PluginCallTracker {
+
+    private static final ThreadLocal<PluginCallTracker> CURRENT = new ThreadLocal<PluginCallTracker>();
+
+    private volatile boolean started;
+    private volatile long startedNanos;
+    private volatile boolean failed;
+
+    // No-op if the current thread isn't running a call going through a circuit breaker
+    public static void onPluginCallStarted() {
+        final PluginCallTracker tracker = CURRENT.get();
+        if (tracker != null) {
+            tracker.startedNanos = System.nanoTime();
+            tracker.started = true;
+        }
+    }
+
+    public static void onPluginCallFailed() {
+        final PluginCallTracker tracker = CURRENT.get();
+        if (tracker != null) {
+            tracker.failed = true;
+        }
+    }
+
+    <T> Callable<T> wrap(final Callable<T> delegate) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                CURRENT.set(PluginCallTracker.this);
+                try {
+                    return delegate.call();
+                } finally {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    boolean isStarted() {
+        return started;
+    }
+
+    long getStartedNanos() {
+        return startedNanos;
+    }
+
+    boolean isFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.dispatcher;
+
+import java.util.Arrays;
+
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//
+// Per plugin circuit breaker, based on a sliding window of the last calls:
+// - CLOSED: calls go through. The breaker trips when the error rate (or the p99 latency) over the window goes above the threshold
+// - OPEN: calls are rejected right away, until the open duration has elapsed
+// - HALF_OPEN: only a limited number of probe calls go through. If they all succeed the breaker closes, otherwise it re-opens
+//
+// The same window is used to derive the plugin timeout from the observed p99 latency (adaptive timeout).
+//
+public class PluginCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginCircuitBreaker.class);
+
+    // The adaptive timeout leaves that much headroom above the observed p99 latency
+    private static final int ADAPTIVE_TIMEOUT_P99_MULTIPLIER = 2;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String pluginName;
+    private final Clock clock;
+    private final boolean enabled;
+    private final boolean adaptiveTimeoutEnabled;
+    private final int minCalls;
+    private final int failureRateThreshold;
+    private final long latencyThresholdMillis;
+    private final long openDurationMillis;
+    private final int halfOpenMaxCalls;
+    private final long adaptiveTimeoutMinMillis;
+
+    private final boolean[] failures;
+    private final long[] latenciesMillis;
+    private final int p99RefreshInterval;
+
+    private int position;
+    private int nbCalls;
+    private int nbFailures;
+    private int nbCallsSinceP99Refresh;
+    private long p99LatencyMillis;
+
+    private State state;
+    private long openedAtMillis;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+    private long nbRejected;
+    private long nbTrips;
+
+    public PluginCircuitBreaker(final String pluginName, final PaymentConfig paymentConfig, final Clock clock) {
+        this.pluginName = pluginName;
+        this.clock = clock;
+        this.enabled = paymentConfig.isPaymentPluginCircuitBreakerEnabled();
+        this.adaptiveTimeoutEnabled = paymentConfig.isPaymentPluginAdaptiveTimeoutEnabled();
+        final int windowSize = Math.max(1, paymentConfig.getPaymentPluginCircuitBreakerWindowSize());
+        this.minCalls = Math.min(windowSize, Math.max(1, paymentConfig.getPaymentPluginCircuitBreakerMinCalls()));
+        this.failureRateThreshold = paymentConfig.getPaymentPluginCircuitBreakerFailureRateThreshold();
+        this.latencyThresholdMillis = paymentConfig.getPaymentPluginCircuitBreakerLatencyThreshold().getMillis();
+        this.openDurationMillis = paymentConfig.getPaymentPluginCircuitBreakerOpenDuration().getMillis();
+        this.halfOpenMaxCalls = Math.max(1, paymentConfig.getPaymentPluginCircuitBreakerHalfOpenCalls());
+        this.adaptiveTimeoutMinMillis = paymentConfig.getPaymentPluginAdaptiveTimeoutMin().getMillis();
+        this.failures = new boolean[windowSize];
+        this.latenciesMillis = new long[windowSize];
+        this.p99RefreshInterval = Math.max(1, windowSize / 10);
+        this.state = State.CLOSED;
+    }
+
+    //
+    // Returns the state in which the call was let through (to be passed back to onCompletion), or null if the call is rejected
+    //
+    public synchronized State tryAcquire() {
+        if (!enabled) {
+            return State.CLOSED;
+        }
+
+        if (state == State.OPEN) {
+            if (clock.getUTCNow().getMillis() - openedAtMillis < openDurationMillis) {
+                nbRejected++;
+                return null;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= halfOpenMaxCalls) {
+                nbRejected++;
+                return null;
+            }
+            halfOpenInFlight++;
+        }
+
+        return state;
+    }
+
+    public synchronized void onCompletion(final State acquiredState, final boolean failed, final long latencyMillis) {
+        final boolean slow = latencyThresholdMillis > 0 && latencyMillis > latencyThresholdMillis;
+        recordInWindow(failed, latencyMillis);
+
+        if (!enabled) {
+            return;
+        }
+
+        if (acquiredState == State.HALF_OPEN) {
+            if (state != State.HALF_OPEN) {
+                // Probe from a previous half-open period
+                return;
+            }
+            halfOpenInFlight--;
+            if (failed || slow) {
+                transitionTo(State.OPEN);
+            } else if (++halfOpenSuccesses >= halfOpenMaxCalls) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED && shouldTrip()) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    // The call didn't reach the plugin (rejected by the bulkhead, caller interrupted): free the probe slot without recording anything
+    public synchronized void release(final State acquiredState) {
+        if (enabled && acquiredState == State.HALF_OPEN && state == State.HALF_OPEN) {
+            halfOpenInFlight--;
+        }
+    }
+
+    public synchronized long getTimeoutMillis(final long defaultTimeoutMillis) {
+        if (!adaptiveTimeoutEnabled || nbCalls < minCalls) {
+            return defaultTimeoutMillis;
+        }
+        // Never go above the configured timeout
+        return Math.min(defaultTimeoutMillis, Math.max(adaptiveTimeoutMinMillis, p99LatencyMillis * ADAPTIVE_TIMEOUT_P99_MULTIPLIER));
+    }
+
+    private void recordInWindow(final boolean failed, final long latencyMillis) {
+        if (nbCalls == failures.length) {
+            // Evict the oldest entry
+            if (failures[position]) {
+                nbFailures--;
+            }
+        } else {
+            nbCalls++;
+        }
+        failures[position] = failed;
+        latenciesMillis[position] = latencyMillis;
+        if (failed) {
+            nbFailures++;
+        }
+        position = (position + 1) % failures.length;
+
+        if (++nbCallsSinceP99Refresh >= p99RefreshInterval || nbCalls <= minCalls) {
+            nbCallsSinceP99Refresh = 0;
+            p99LatencyMillis = computeP99();
+        }
+    }
+
+    private long computeP99() {
+        final long[] sorted = Arrays.copyOf(latenciesMillis, nbCalls);
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(0.99 * nbCalls) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private boolean shouldTrip() {
+        if (nbCalls < minCalls) {
+            return false;
+        }
+        if (nbFailures * 100L >= (long) failureRateThreshold * nbCalls) {
+            return true;
+        }
+        return latencyThresholdMillis > 0 && p99LatencyMillis > latencyThresholdMillis;
+    }
+
+    private void transitionTo(final State newState) {
+        log.info("Circuit breaker for plugin='{}' transitioning from {} to {} (nbCalls={}, nbFailures={}, p99LatencyMillis={})",
+                 pluginName, state, newState, nbCalls, nbFailures, p99LatencyMillis);
+        state = newState;
+        halfOpenInFlight = 0;
+        halfOpenSuccesses = 0;
+        if (newState == State.OPEN) {
+            openedAtMillis = clock.getUTCNow().getMillis();
+            nbTrips++;
+        } else if (newState == State.CLOSED) {
+            // Start from a clean slate, to avoid tripping again on the calls which failed (or were slow) before the incident was over:
+            // the adaptive timeout falls back to the configured one until the window is warm again
+            Arrays.fill(failures, false);
+            Arrays.fill(latenciesMillis, 0L);
+            position = 0;
+            nbCalls = 0;
+            nbFailures = 0;
+            nbCallsSinceP99Refresh = 0;
+            p99LatencyMillis = 0;
+        }
+    }
+
+    public String getPluginName() {
+        return pluginName;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getP99LatencyMillis() {
+        return p99LatencyMillis;
+    }
+
+    public synchronized int getFailureRate() {
+        return nbCalls == 0 ? 0 : (int) (nbFailures * 100L / nbCalls);
+    }
+
+    public synchronized long getNbRejected() {
+        return nbRejected;
+    }
+
+    public synchronized long getNbTrips() {
+        return nbTrips;
+    }
+}
@@ -22,12 +22,17 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import javax.annotation.Nullable;
+
 import org.apache.shiro.util.ThreadContext;
 import org.killbill.billing.payment.core.PaymentExecutors;
+import org.killbill.billing.payment.dispatcher.PluginCircuitBreaker.State;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.callcontext.CallableWithRequestData;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.ProfilingData;
 import org.killbill.commons.request.Request;
@@ -49,12 +54,23 @@ public class PluginDispatcher<ReturnType> {
 
     // TODO Once we switch fully to automata, should this throw PaymentPluginApiException instead?
     public ReturnType dispatchWithTimeout(final Callable<PluginDispatcherReturnType<ReturnType>> task) throws TimeoutException, ExecutionException, InterruptedException {
-        return dispatchWithTimeout(task, timeoutSeconds, DEFAULT_PLUGIN_TIMEOUT_UNIT);
+        return dispatchWithTimeout(null, task);
+    }
+
+    // When a plugin name is specified, the call goes through that plugin's circuit breaker and bulkhead and may be rejected (RejectedExecutionException)
+    public ReturnType dispatchWithTimeout(@Nullable final String pluginName, final Callable<PluginDispatcherReturnType<ReturnType>> task) throws TimeoutException, ExecutionException, InterruptedException {
+        return dispatchWithTimeout(pluginName, task, timeoutSeconds, DEFAULT_PLUGIN_TIMEOUT_UNIT);
     }
 
     @VisibleForTesting
     ReturnType dispatchWithTimeout(final Callable<PluginDispatcherReturnType<ReturnType>> task, final long timeout, final TimeUnit unit)
             throws TimeoutException, ExecutionException, InterruptedException {
+        return dispatchWithTimeout(null, task, timeout, unit);
+    }
+
+    @VisibleForTesting
+    ReturnType dispatchWithTimeout(@Nullable final String pluginName, final Callable<PluginDispatcherReturnType<ReturnType>> task, final long timeout, final TimeUnit unit)
+            throws TimeoutException, ExecutionException, InterruptedException {
 
         final ExecutorService pluginExecutor = paymentExecutors.getPluginExecutorService();
 
@@ -66,8 +82,13 @@ public class PluginDispatcher<ReturnType> {
                                                                                                                      MDC.getCopyOfContextMap(),
                                                                                                                      task);
 
-        final Future<PluginDispatcherReturnType<ReturnType>> future = pluginExecutor.submit(callableWithRequestData);
-        final PluginDispatcherReturnType<ReturnType> pluginDispatcherResult = future.get(timeout, unit);
+        final PluginDispatcherReturnType<ReturnType> pluginDispatcherResult;
+        if (pluginName == null) {
+            final Future<PluginDispatcherReturnType<ReturnType>> future = pluginExecutor.submit(callableWithRequestData);
+            pluginDispatcherResult = future.get(timeout, unit);
+        } else {
+            pluginDispatcherResult = dispatchWithCircuitBreaker(pluginExecutor, pluginName, callableWithRequestData, timeout, unit);
+        }
 
         if (pluginDispatcherResult instanceof WithProfilingPluginDispatcherReturnType) {
             // Transfer state from dispatch thread into current one.
@@ -79,6 +100,111 @@ public class PluginDispatcher<ReturnType> {
         return pluginDispatcherResult.getReturnType();
     }
 
+    private PluginDispatcherReturnType<ReturnType> dispatchWithCircuitBreaker(final ExecutorService pluginExecutor,
+                                                                              final String pluginName,
+                                                                              final Callable<PluginDispatcherReturnType<ReturnType>> callable,
+                                                                              final long timeout,
+                                                                              final TimeUnit unit) throws TimeoutException, ExecutionException, InterruptedException {
+        final PluginCircuitBreaker circuitBreaker = paymentExecutors.getPluginCircuitBreaker(pluginName);
+        final State acquiredState = circuitBreaker.tryAcquire();
+        if (acquiredState == null) {
+            // Don't wait for the full timeout on a gateway which is known to be failing
+            throw new RejectedExecutionException(String.format("Circuit breaker is %s for plugin='%s'", circuitBreaker.getState(), pluginName));
+        }
+
+        // The configured timeout bounds the whole dispatch (queue, account lock and plugin call), the adaptive one only the plugin call
+        final long pluginTimeoutMillis = circuitBreaker.getTimeoutMillis(unit.toMillis(timeout));
+        final PluginCallTracker tracker = new PluginCallTracker();
+        try {
+            final PluginDispatcherReturnType<ReturnType> result = dispatchWithBulkhead(pluginExecutor, paymentExecutors.getPluginBulkhead(pluginName), tracker, callable, timeout, unit, pluginTimeoutMillis);
+            onCompletion(circuitBreaker, acquiredState, tracker, false);
+            return result;
+        } catch (final TimeoutException e) {
+            onCompletion(circuitBreaker, acquiredState, tracker, true);
+            throw e;
+        } catch (final ExecutionException e) {
+            // Only plugin failures reported through the tracker count, not business errors (e.g. control plugin abort, lock failure)
+            onCompletion(circuitBreaker, acquiredState, tracker, false);
+            throw e;
+        } catch (final RejectedExecutionException e) {
+            circuitBreaker.release(acquiredState);
+            throw e;
+        } catch (final InterruptedException e) {
+            circuitBreaker.release(acquiredState);
+            throw e;
+        }
+    }
+
+    private static void onCompletion(final PluginCircuitBreaker circuitBreaker, final State acquiredState, final PluginCallTracker tracker, final boolean timedOut) {
+        if (!tracker.isStarted()) {
+            // The plugin was never called (still queued or waiting for the account lock, plugin bypassed): nothing to learn about the gateway
+            circuitBreaker.release(acquiredState);
+            return;
+        }
+        circuitBreaker.onCompletion(acquiredState, timedOut || tracker.isFailed(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - tracker.getStartedNanos()));
+    }
+
+    private PluginDispatcherReturnType<ReturnType> dispatchWithBulkhead(final ExecutorService pluginExecutor,
+                                                                        final PluginBulkhead bulkhead,
+                                                                        final PluginCallTracker tracker,
+                                                                        final Callable<PluginDispatcherReturnType<ReturnType>> callable,
+                                                                        final long timeout,
+                                                                        final TimeUnit unit,
+                                                                        final long pluginTimeoutMillis) throws TimeoutException, ExecutionException, InterruptedException {
+        // Fail fast rather than queuing behind a slow gateway
+        if (!bulkhead.tryAcquire()) {
+            throw new RejectedExecutionException(String.format("Too many concurrent calls for plugin='%s' (max=%s)", bulkhead.getPluginName(), bulkhead.getMaxConcurrentCalls()));
+        }
+
+        final CallableWithBulkhead<PluginDispatcherReturnType<ReturnType>> callableWithBulkhead = new CallableWithBulkhead<PluginDispatcherReturnType<ReturnType>>(bulkhead, tracker.wrap(callable));
+        final Future<PluginDispatcherReturnType<ReturnType>> future;
+        try {
+            future = pluginExecutor.submit(callableWithBulkhead);
+        } catch (final RejectedExecutionException e) {
+            callableWithBulkhead.reject();
+            throw e;
+        }
+
+        try {
+            return waitForPluginCall(future, tracker, timeout, unit, pluginTimeoutMillis);
+        } catch (final TimeoutException e) {
+            // Don't call the plugin if we timed out while still queued, nobody is waiting for the result anymore
+            if (callableWithBulkhead.abandon()) {
+                future.cancel(false);
+            }
+            throw e;
+        } catch (final InterruptedException e) {
+            if (callableWithBulkhead.abandon()) {
+                future.cancel(false);
+            }
+            throw e;
+        }
+    }
+
+    private PluginDispatcherReturnType<ReturnType> waitForPluginCall(final Future<PluginDispatcherReturnType<ReturnType>> future,
+                                                                     final PluginCallTracker tracker,
+                                                                     final long timeout,
+                                                                     final TimeUnit unit,
+                                                                     final long pluginTimeoutMillis) throws TimeoutException, ExecutionException, InterruptedException {
+        final long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        final long pluginTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(pluginTimeoutMillis);
+        while (true) {
+            final long nowNanos = System.nanoTime();
+            // Until the plugin call has started, check back every plugin timeout
+            final long pluginDeadlineNanos = (tracker.isStarted() ? tracker.getStartedNanos() : nowNanos) + pluginTimeoutNanos;
+            final long waitNanos = Math.min(deadlineNanos - nowNanos, pluginDeadlineNanos - nowNanos);
+            try {
+                return future.get(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+            } catch (final TimeoutException e) {
+                final long afterNanos = System.nanoTime();
+                if (afterNanos - deadlineNanos >= 0 ||
+                    (tracker.isStarted() && afterNanos - (tracker.getStartedNanos() + pluginTimeoutNanos) >= 0)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
     public interface PluginDispatcherReturnType<ReturnType> {
         public ReturnType getReturnType();
     }
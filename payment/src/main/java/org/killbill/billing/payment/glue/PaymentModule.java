@@ -64,8 +64,11 @@ import org.killbill.billing.payment.retry.DefaultRetryService.DefaultRetryServic
 import org.killbill.billing.payment.retry.RetryService;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.killbill.billing.util.config.definition.SearchConfig;
 import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
 import org.killbill.billing.util.glue.KillBillModule;
+import org.killbill.billing.util.search.NGramSearchIndex;
+import org.killbill.billing.util.search.SearchIndex;
 import org.killbill.xmlloader.XMLLoader;
 import org.skife.config.ConfigurationObjectFactory;
 
@@ -78,6 +81,7 @@ import com.google.inject.name.Names;
 public class PaymentModule extends KillBillModule {
 
     public static final String STATIC_CONFIG = "StaticConfig";
+    public static final String PAYMENT_SEARCH_INDEX_NAMED = "PaymentSearchIndex";
 
     public static final String RETRYABLE_NAMED = "Retryable";
 
@@ -95,6 +99,8 @@ public class PaymentModule extends KillBillModule {
     }
 
     protected void installPaymentDao() {
+        final SearchConfig searchConfig = new ConfigurationObjectFactory(skifeConfigSource).build(SearchConfig.class);
+        bind(SearchIndex.class).annotatedWith(Names.named(PAYMENT_SEARCH_INDEX_NAMED)).toInstance(new NGramSearchIndex(searchConfig));
         bind(PaymentDao.class).to(DefaultPaymentDao.class).asEagerSingleton();
         // Payment Control Plugin Dao
         bind(InvoicePaymentControlDao.class).asEagerSingleton();
@@ -66,7 +66,7 @@ import org.killbill.billing.payment.retry.BaseRetryService.RetryServiceScheduler
 import org.killbill.billing.payment.retry.DefaultFailureCallResult;
 import org.killbill.billing.payment.retry.DefaultOnSuccessPaymentControlResult;
 import org.killbill.billing.payment.retry.DefaultPriorPaymentControlResult;
-import org.killbill.billing.util.api.TagUserApi;
+import org.killbill.billing.tag.TagInternalApi;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.definition.PaymentConfig;
@@ -98,7 +98,7 @@ public final class InvoicePaymentControlPluginApi implements PaymentControlPlugi
 
     private final PaymentConfig paymentConfig;
     private final InvoiceInternalApi invoiceApi;
-    private final TagUserApi tagApi;
+    private final TagInternalApi tagApi;
     private final PaymentDao paymentDao;
     private final InvoicePaymentControlDao controlDao;
     private final RetryServiceScheduler retryServiceScheduler;
@@ -110,7 +110,7 @@ public final class InvoicePaymentControlPluginApi implements PaymentControlPlugi
 
     @Inject
     public InvoicePaymentControlPluginApi(final PaymentConfig paymentConfig,
-                                          final InvoiceInternalApi invoiceApi, final TagUserApi tagApi,
+                                          final InvoiceInternalApi invoiceApi, final TagInternalApi tagApi,
                                           final PaymentDao paymentDao, final InvoicePaymentControlDao invoicePaymentControlDao,
                                           @Named(PaymentModule.RETRYABLE_NAMED) final RetryServiceScheduler retryServiceScheduler,
                                           final InternalCallContextFactory internalCallContextFactory, final Clock clock,
@@ -690,7 +690,8 @@ public final class InvoicePaymentControlPluginApi implements PaymentControlPlugi
     }
 
     private boolean isAccountAutoPayOff(final UUID accountId, final CallContext callContext) {
-        final List<Tag> accountTags = tagApi.getTagsForAccount(accountId, false, callContext);
+        // Read from the database: the tags cached for the user api can be stale
+        final List<Tag> accountTags = tagApi.getTagsForAccount(false, internalCallContextFactory.createInternalTenantContext(accountId, callContext));
         return ControlTagType.isAutoPayOff(Collections2.transform(accountTags, new Function<Tag, UUID>() {
             @Override
             public UUID apply(final Tag tag) {
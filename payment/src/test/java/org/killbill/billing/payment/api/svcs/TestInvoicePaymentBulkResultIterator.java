@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.payment.api.svcs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.killbill.billing.payment.PaymentTestSuiteNoDB;
+import org.killbill.billing.payment.api.InvoicePaymentBulkItem;
+import org.killbill.billing.payment.api.InvoicePaymentBulkResult;
+import org.killbill.commons.concurrent.Executors;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestInvoicePaymentBulkResultIterator extends PaymentTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testBoundedPipeline() throws Exception {
+        final int nbAccounts = 50;
+        final int maxInFlight = 3;
+        final AtomicInteger nbRunning = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        final List<Callable<List<InvoicePaymentBulkResult>>> tasks = new ArrayList<Callable<List<InvoicePaymentBulkResult>>>();
+        for (int i = 0; i < nbAccounts; i++) {
+            final UUID accountId = UUID.randomUUID();
+            tasks.add(new Callable<List<InvoicePaymentBulkResult>>() {
+                @Override
+                public List<InvoicePaymentBulkResult> call() throws Exception {
+                    final int running = nbRunning.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), running));
+                    }
+                    Thread.sleep(5);
+                    nbRunning.decrementAndGet();
+                    return ImmutableList.<InvoicePaymentBulkResult>of(createResult(accountId), createResult(accountId));
+                }
+            });
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(10, "TestPaymentBulkWorker");
+        try {
+            final InvoicePaymentBulkResultIterator iterator = new InvoicePaymentBulkResultIterator(executorService, tasks, maxInFlight);
+            int nbResults = 0;
+            while (iterator.hasNext()) {
+                Assert.assertNotNull(iterator.next().getItem().getAccountId());
+                nbResults++;
+            }
+            Assert.assertEquals(nbResults, nbAccounts * 2);
+            Assert.assertTrue(maxRunning.get() <= maxInFlight, "maxRunning=" + maxRunning.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testNoTask() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(1, "TestPaymentBulkWorker");
+        try {
+            final InvoicePaymentBulkResultIterator iterator = new InvoicePaymentBulkResultIterator(executorService, ImmutableList.<Callable<List<InvoicePaymentBulkResult>>>of(), 3);
+            Assert.assertFalse(iterator.hasNext());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private InvoicePaymentBulkResult createResult(final UUID accountId) {
+        return new InvoicePaymentBulkResult(new InvoicePaymentBulkItem(accountId, UUID.randomUUID(), null, null, null, null), null, null);
+    }
+}
@@ -17,8 +17,13 @@
 
 package org.killbill.billing.payment.core.janitor;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.killbill.billing.account.api.AccountInternalApi;
 import org.killbill.billing.payment.PaymentTestSuiteWithEmbeddedDB;
@@ -31,6 +36,7 @@ import org.killbill.billing.payment.dao.PaymentDao;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.clock.Clock;
+import org.killbill.commons.concurrent.Executors;
 import org.killbill.commons.locker.GlobalLocker;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -69,6 +75,52 @@ public class TestCompletionTaskBase extends PaymentTestSuiteWithEmbeddedDB {
         Assert.assertFalse(paymentAttemptModelDaoIterator.hasNext());
     }
 
+    @Test(groups = "slow")
+    public void testProcessBatchesWithWorkers() throws Exception {
+        final ImmutableList.Builder<PaymentAttemptModelDao> builder = ImmutableList.<PaymentAttemptModelDao>builder();
+        for (int i = 0; i < 250; i++) {
+            builder.add(new PaymentAttemptModelDao());
+        }
+        final List<PaymentAttemptModelDao> paymentAttemptModelDaos = builder.build();
+
+        final AtomicInteger nbProcessed = new AtomicInteger();
+        final Set<String> threadNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final IncompletePaymentAttemptTask incompletePaymentAttemptTask = new IncompletePaymentAttemptTask(internalCallContextFactory,
+                                                                                                           paymentConfig,
+                                                                                                           paymentDao,
+                                                                                                           clock,
+                                                                                                           paymentSMHelper,
+                                                                                                           paymentControlStateMachineHelper,
+                                                                                                           accountApi,
+                                                                                                           pluginControlPaymentAutomatonRunner,
+                                                                                                           locker) {
+            @Override
+            public Iterable<PaymentAttemptModelDao> getItemsForIteration() {
+                setBacklog(paymentAttemptModelDaos.size());
+                return paymentAttemptModelDaos;
+            }
+
+            @Override
+            public void doIteration(final PaymentAttemptModelDao attempt) {
+                threadNames.add(Thread.currentThread().getName());
+                nbProcessed.incrementAndGet();
+            }
+        };
+
+        final ExecutorService workerExecutorService = Executors.newFixedThreadPool(4, "TestJanitorWorker");
+        try {
+            incompletePaymentAttemptTask.attachWorkerExecutorService(workerExecutorService);
+            incompletePaymentAttemptTask.run();
+        } finally {
+            workerExecutorService.shutdownNow();
+        }
+
+        Assert.assertEquals(nbProcessed.get(), paymentAttemptModelDaos.size());
+        Assert.assertFalse(threadNames.contains(Thread.currentThread().getName()));
+        Assert.assertEquals(incompletePaymentAttemptTask.getBacklog(), 0L);
+        Assert.assertEquals(incompletePaymentAttemptTask.getDrained().getCount(), (long) paymentAttemptModelDaos.size());
+    }
+
     private final class IncompletePaymentAttemptTaskWithException extends IncompletePaymentAttemptTask {
 
         private final Iterable<PaymentAttemptModelDao> itemsForIteration;
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.core.sm;
+
+import org.killbill.automaton.MissingEntryException;
+import org.killbill.automaton.OperationResult;
+import org.killbill.automaton.State;
+import org.killbill.automaton.StateMachineConfig;
+import org.killbill.billing.payment.PaymentTestSuiteNoDB;
+import org.killbill.billing.payment.api.TransactionType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestCompiledPaymentStateMachine extends PaymentTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testCompiledDefaultStateMachine() throws Exception {
+        final CompiledPaymentStateMachine compiledStateMachine = stateMachineConfigCache.getCompiledPaymentStateMachine("any", internalCallContext);
+        final StateMachineConfig stateMachineConfig = stateMachineConfigCache.getPaymentStateMachineConfig("any", internalCallContext);
+        Assert.assertSame(compiledStateMachine.getStateMachineConfig(), stateMachineConfig);
+        // Built once
+        Assert.assertSame(stateMachineConfigCache.getCompiledPaymentStateMachine("other", internalCallContext), compiledStateMachine);
+
+        // Same objects as the automaton lookups
+        final State authInit = compiledStateMachine.getState("AUTH_INIT");
+        Assert.assertSame(authInit, stateMachineConfig.getStateMachineForState("AUTH_INIT").getState("AUTH_INIT"));
+        for (final TransactionType transactionType : TransactionType.values()) {
+            Assert.assertSame(compiledStateMachine.getOperation(transactionType), paymentSMHelper.getOperationForTransaction(stateMachineConfig, transactionType));
+        }
+
+        // Direct transitions
+        Assert.assertEquals(compiledStateMachine.getNextState(authInit, TransactionType.AUTHORIZE, OperationResult.SUCCESS).getName(), "AUTH_SUCCESS");
+        Assert.assertEquals(compiledStateMachine.getNextState(authInit, TransactionType.AUTHORIZE, OperationResult.PENDING).getName(), "AUTH_PENDING");
+        Assert.assertEquals(compiledStateMachine.getNextState(authInit, TransactionType.AUTHORIZE, OperationResult.FAILURE).getName(), "AUTH_FAILED");
+        Assert.assertEquals(compiledStateMachine.getNextState(authInit, TransactionType.AUTHORIZE, OperationResult.EXCEPTION).getName(), "AUTH_ERRORED");
+        Assert.assertNull(compiledStateMachine.getNextState(authInit, TransactionType.REFUND, OperationResult.SUCCESS));
+        Assert.assertTrue(compiledStateMachine.hasTransitions(authInit, TransactionType.AUTHORIZE));
+        Assert.assertFalse(compiledStateMachine.hasTransitions(authInit, TransactionType.REFUND));
+
+        // Transitions through the link state machines
+        final State bigBangInit = compiledStateMachine.getState(paymentSMHelper.getInitStateNameForTransaction());
+        Assert.assertEquals(compiledStateMachine.getNextState(bigBangInit, TransactionType.PURCHASE, OperationResult.SUCCESS).getName(), "PURCHASE_SUCCESS");
+        final State authSuccess = compiledStateMachine.getState("AUTH_SUCCESS");
+        Assert.assertEquals(compiledStateMachine.getNextState(authSuccess, TransactionType.CAPTURE, OperationResult.FAILURE).getName(), "CAPTURE_FAILED");
+        Assert.assertNull(compiledStateMachine.getNextState(bigBangInit, TransactionType.CAPTURE, OperationResult.SUCCESS));
+        Assert.assertTrue(compiledStateMachine.hasTransitions(authSuccess, TransactionType.CAPTURE));
+        Assert.assertFalse(compiledStateMachine.hasTransitions(authSuccess, TransactionType.AUTHORIZE));
+
+        Assert.assertTrue(compiledStateMachine.isSuccessState(authSuccess));
+        Assert.assertFalse(compiledStateMachine.isSuccessState(authInit));
+        Assert.assertTrue(compiledStateMachine.isSuccessState(compiledStateMachine.getState("CHARGEBACK_FAILED")));
+
+        try {
+            compiledStateMachine.getState("UNKNOWN_STATE");
+            Assert.fail();
+        } catch (final MissingEntryException e) {
+            // Expected
+        }
+    }
+}
@@ -23,7 +23,9 @@ import java.util.UUID;
 
 import javax.annotation.Nullable;
 
+import org.killbill.automaton.OperationException;
 import org.killbill.automaton.State;
+import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.payment.PaymentTestSuiteWithEmbeddedDB;
@@ -86,6 +88,24 @@ public class TestPaymentLeavingStateCallback extends PaymentTestSuiteWithEmbedde
         Assert.assertEquals(paymentDao.getTransactionsForPayment(paymentId, internalCallContext).size(), 2);
     }
 
+    @Test(groups = "slow")
+    public void testLeaveStateWithoutTransition() throws Exception {
+        setUp(null);
+        paymentStateContext.setCompiledStateMachine(stateMachineConfigCache.getCompiledPaymentStateMachine("any", internalCallContext));
+
+        // No CAPTURE transition out of CAPTURE_SUCCESS
+        try {
+            callback.leavingState(paymentStateContext.getCompiledStateMachine().getState("CAPTURE_SUCCESS"));
+            Assert.fail();
+        } catch (final OperationException e) {
+            Assert.assertEquals(((PaymentApiException) e.getCause()).getCode(), ErrorCode.PAYMENT_INVALID_OPERATION.getCode());
+        }
+
+        // Verify no transaction was created
+        Assert.assertNull(paymentStateContext.getPaymentTransactionModelDao());
+        Assert.assertNull(paymentStateContext.getLeavingState());
+    }
+
     private void verifyPaymentTransaction() {
         Assert.assertNotNull(paymentStateContext.getPaymentTransactionModelDao().getPaymentId());
         Assert.assertEquals(paymentStateContext.getPaymentTransactionModelDao().getTransactionExternalKey(), paymentStateContext.getPaymentTransactionExternalKey());
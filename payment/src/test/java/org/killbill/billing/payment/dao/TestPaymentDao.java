@@ -507,6 +507,21 @@ public class TestPaymentDao extends PaymentTestSuiteWithEmbeddedDB {
             final PaymentTransactionModelDao nextEntry = iterator.next();
             Assert.assertEquals(nextEntry.getTransactionStatus(), TransactionStatus.UNKNOWN);
         }
+
+        // Seek through the same entries, 7 at a time
+        Assert.assertEquals(paymentDao.getCountByTransactionStatusAcrossTenants(ImmutableList.of(TransactionStatus.UNKNOWN), clock.getUTCNow(), createdDate1, 1, 0), new Long(NB_ENTRIES));
+        int nbSeen = 0;
+        Long lastRecordId = 0L;
+        List<PaymentTransactionModelDao> page;
+        do {
+            page = paymentDao.getByTransactionStatusAcrossTenants(ImmutableList.of(TransactionStatus.UNKNOWN), clock.getUTCNow(), createdDate1, 1, 0, lastRecordId, 7);
+            for (final PaymentTransactionModelDao entry : page) {
+                Assert.assertTrue(entry.getRecordId() > lastRecordId);
+                lastRecordId = entry.getRecordId();
+            }
+            nbSeen += page.size();
+        } while (page.size() == 7);
+        Assert.assertEquals(nbSeen, NB_ENTRIES);
     }
 
     @Test(groups = "slow")
@@ -542,6 +557,13 @@ public class TestPaymentDao extends PaymentTestSuiteWithEmbeddedDB {
 
         final Pagination<PaymentAttemptModelDao> result = paymentDao.getPaymentAttemptsByStateAcrossTenants(stateName, createdBeforeDate, 0L, 2L);
         Assert.assertEquals(result.getTotalNbRecords().longValue(), 2L);
+
+        // Both attempts were inserted with the same account record id
+        final long shardIndex = internalCallContext.getAccountRecordId() % 2;
+        final Pagination<PaymentAttemptModelDao> resultForShard = paymentDao.getPaymentAttemptsByStateAcrossTenants(stateName, createdBeforeDate, 2, (int) shardIndex, 0L, 2L);
+        Assert.assertEquals(resultForShard.getTotalNbRecords().longValue(), 2L);
+        final Pagination<PaymentAttemptModelDao> resultForOtherShard = paymentDao.getPaymentAttemptsByStateAcrossTenants(stateName, createdBeforeDate, 2, (int) (1 - shardIndex), 0L, 2L);
+        Assert.assertEquals(resultForOtherShard.getTotalNbRecords().longValue(), 0L);
     }
 
     @Test(groups = "slow")
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.dispatcher;
+
+import org.killbill.billing.payment.PaymentTestSuiteNoDB;
+import org.killbill.billing.payment.dispatcher.PluginCircuitBreaker.State;
+import org.killbill.billing.util.config.definition.PaymentConfig;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestPluginCircuitBreaker extends PaymentTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testTripAndRecover() {
+        final PluginCircuitBreaker circuitBreaker = new PluginCircuitBreaker("gateway", createPaymentConfig(), clock);
+
+        // 10 calls, 5 failures: 50% error rate
+        for (int i = 0; i < 10; i++) {
+            final State acquiredState = circuitBreaker.tryAcquire();
+            Assert.assertEquals(acquiredState, State.CLOSED);
+            circuitBreaker.onCompletion(acquiredState, i % 2 == 0, 100);
+        }
+        Assert.assertEquals(circuitBreaker.getState(), State.OPEN);
+        Assert.assertEquals(circuitBreaker.getNbTrips(), 1L);
+
+        // Fail fast while open
+        Assert.assertNull(circuitBreaker.tryAcquire());
+        Assert.assertEquals(circuitBreaker.getNbRejected(), 1L);
+
+        // Limited probe traffic once the open duration has elapsed
+        clock.addDeltaFromReality(31000);
+        final State probe1 = circuitBreaker.tryAcquire();
+        final State probe2 = circuitBreaker.tryAcquire();
+        Assert.assertEquals(probe1, State.HALF_OPEN);
+        Assert.assertEquals(probe2, State.HALF_OPEN);
+        Assert.assertNull(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onCompletion(probe1, false, 100);
+        circuitBreaker.onCompletion(probe2, false, 100);
+        Assert.assertEquals(circuitBreaker.getState(), State.CLOSED);
+        Assert.assertEquals(circuitBreaker.tryAcquire(), State.CLOSED);
+    }
+
+    @Test(groups = "fast")
+    public void testFailedProbeReopens() {
+        final PluginCircuitBreaker circuitBreaker = new PluginCircuitBreaker("gateway", createPaymentConfig(), clock);
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.onCompletion(circuitBreaker.tryAcquire(), true, 100);
+        }
+        Assert.assertEquals(circuitBreaker.getState(), State.OPEN);
+
+        clock.addDeltaFromReality(31000);
+        final State probe = circuitBreaker.tryAcquire();
+        Assert.assertEquals(probe, State.HALF_OPEN);
+        circuitBreaker.onCompletion(probe, true, 100);
+        Assert.assertEquals(circuitBreaker.getState(), State.OPEN);
+        Assert.assertNull(circuitBreaker.tryAcquire());
+    }
+
+    @Test(groups = "fast")
+    public void testAdaptiveTimeout() {
+        final PluginCircuitBreaker circuitBreaker = new PluginCircuitBreaker("gateway", createPaymentConfig(), clock);
+
+        // Not enough data yet
+        Assert.assertEquals(circuitBreaker.getTimeoutMillis(30000L), 30000L);
+
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.onCompletion(circuitBreaker.tryAcquire(), false, 2000);
+        }
+        Assert.assertEquals(circuitBreaker.getState(), State.CLOSED);
+        Assert.assertEquals(circuitBreaker.getP99LatencyMillis(), 2000L);
+        Assert.assertEquals(circuitBreaker.getTimeoutMillis(30000L), 4000L);
+        // Never above the configured timeout
+        Assert.assertEquals(circuitBreaker.getTimeoutMillis(3000L), 3000L);
+    }
+
+    @Test(groups = "fast")
+    public void testLatencyTripResetsWindowOnClose() {
+        final PaymentConfig paymentConfig = createPaymentConfig();
+        Mockito.when(paymentConfig.getPaymentPluginCircuitBreakerLatencyThreshold()).thenReturn(new TimeSpan("1s"));
+        final PluginCircuitBreaker circuitBreaker = new PluginCircuitBreaker("gateway", paymentConfig, clock);
+
+        // No failure, but all calls are slow
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.onCompletion(circuitBreaker.tryAcquire(), false, 2000);
+        }
+        Assert.assertEquals(circuitBreaker.getState(), State.OPEN);
+
+        clock.addDeltaFromReality(31000);
+        final State probe1 = circuitBreaker.tryAcquire();
+        final State probe2 = circuitBreaker.tryAcquire();
+        circuitBreaker.onCompletion(probe1, false, 100);
+        circuitBreaker.onCompletion(probe2, false, 100);
+        Assert.assertEquals(circuitBreaker.getState(), State.CLOSED);
+
+        // The slow calls from before the incident are forgotten
+        circuitBreaker.onCompletion(circuitBreaker.tryAcquire(), false, 100);
+        Assert.assertEquals(circuitBreaker.getState(), State.CLOSED);
+        Assert.assertEquals(circuitBreaker.getNbTrips(), 1L);
+        Assert.assertEquals(circuitBreaker.getP99LatencyMillis(), 100L);
+        Assert.assertEquals(circuitBreaker.getTimeoutMillis(30000L), 30000L);
+    }
+
+    private PaymentConfig createPaymentConfig() {
+        final PaymentConfig paymentConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(paymentConfig.isPaymentPluginCircuitBreakerEnabled()).thenReturn(true);
+        Mockito.when(paymentConfig.isPaymentPluginAdaptiveTimeoutEnabled()).thenReturn(true);
+        Mockito.when(paymentConfig.getPaymentPluginCircuitBreakerWindowSize()).thenReturn(20);
+        Mockito.when(paymentConfig.getPaymentPluginCircuitBreakerMinCalls()).thenReturn(10);
+        Mockito.when(paymentConfig.getPaymentPluginCircuitBreakerFailureRateThreshold()).thenReturn(50);
+        Mockito.when(paymentConfig.getPaymentPluginCircuitBreakerLatencyThreshold()).thenReturn(new TimeSpan("0s"));
+        Mockito.when(paymentConfig.getPaymentPluginCircuitBreakerOpenDuration()).thenReturn(new TimeSpan("30s"));
+        Mockito.when(paymentConfig.getPaymentPluginCircuitBreakerHalfOpenCalls()).thenReturn(2);
+        Mockito.when(paymentConfig.getPaymentPluginAdaptiveTimeoutMin()).thenReturn(new TimeSpan("1s"));
+        return paymentConfig;
+    }
+}
@@ -28,6 +28,7 @@ import org.killbill.billing.payment.PaymentTestSuiteNoDB;
 import org.killbill.billing.payment.api.PaymentApiException;
 import org.killbill.billing.payment.dispatcher.PluginDispatcher.PluginDispatcherReturnType;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.callcontext.CallableWithRequestData;
 import org.killbill.commons.request.Request;
 import org.killbill.commons.request.RequestData;
 import org.slf4j.MDC;
@@ -151,4 +152,89 @@ public class TestPluginDispatcher extends PaymentTestSuiteNoDB {
         Assert.assertEquals(actualRequestId, requestId);
     }
 
+    @Test(groups = "fast")
+    public void testDispatchWithPluginBulkhead() throws TimeoutException, ExecutionException, InterruptedException {
+        final String result = stringPluginDispatcher.dispatchWithTimeout("bulkheadPlugin", new Callable<PluginDispatcherReturnType<String>>() {
+            @Override
+            public PluginDispatcherReturnType<String> call() throws Exception {
+                return PluginDispatcher.<String>createPluginDispatcherReturnType("ok");
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(result, "ok");
+
+        final PluginBulkhead bulkhead = paymentExecutors.getPluginBulkhead("bulkheadPlugin");
+        Assert.assertEquals(bulkhead.getNbDispatched(), 1L);
+        Assert.assertEquals(bulkhead.getNbInFlight(), 0L);
+        Assert.assertEquals(bulkhead.getNbRejected(), 0L);
+    }
+
+    @Test(groups = "fast")
+    public void testBulkheadRejectsAndAbandons() throws Exception {
+        final PluginBulkhead bulkhead = new PluginBulkhead("slowPlugin", 1);
+        Assert.assertTrue(bulkhead.tryAcquire());
+        Assert.assertFalse(bulkhead.tryAcquire());
+        Assert.assertEquals(bulkhead.getNbRejected(), 1L);
+
+        final CallableWithBulkhead<String> callable = new CallableWithBulkhead<String>(bulkhead, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                Assert.fail("Abandoned task shouldn't be called");
+                return null;
+            }
+        });
+        // Caller timed out before the task was picked up: the permit is released and the plugin never called
+        Assert.assertTrue(callable.abandon());
+        Assert.assertNull(callable.call());
+        Assert.assertEquals(bulkhead.getNbAbandoned(), 1L);
+        Assert.assertEquals(bulkhead.getNbInFlight(), 0L);
+        Assert.assertTrue(bulkhead.tryAcquire());
+    }
+
+    @Test(groups = "fast")
+    public void testOnlyPluginFailuresCountAgainstTheCircuitBreaker() throws Exception {
+        final PluginCircuitBreaker circuitBreaker = paymentExecutors.getPluginCircuitBreaker("trackedPlugin");
+
+        // Business error (e.g. validation, control plugin abort) before the plugin is called: not recorded
+        try {
+            stringPluginDispatcher.dispatchWithTimeout("trackedPlugin", new Callable<PluginDispatcherReturnType<String>>() {
+                @Override
+                public PluginDispatcherReturnType<String> call() throws Exception {
+                    throw new PaymentApiException(ErrorCode.PAYMENT_INVALID_PARAMETER, "amount", "invalid");
+                }
+            }, 1, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof PaymentApiException);
+        }
+        Assert.assertEquals(circuitBreaker.getFailureRate(), 0);
+
+        // Successful plugin call: the time spent before the call started (e.g. account lock wait) isn't part of the latency
+        final String result = stringPluginDispatcher.dispatchWithTimeout("trackedPlugin", new Callable<PluginDispatcherReturnType<String>>() {
+            @Override
+            public PluginDispatcherReturnType<String> call() throws Exception {
+                Thread.sleep(200);
+                PluginCallTracker.onPluginCallStarted();
+                return PluginDispatcher.<String>createPluginDispatcherReturnType("ok");
+            }
+        }, 1, TimeUnit.SECONDS);
+        Assert.assertEquals(result, "ok");
+        Assert.assertEquals(circuitBreaker.getFailureRate(), 0);
+        Assert.assertTrue(circuitBreaker.getP99LatencyMillis() < 200);
+
+        // Plugin failure
+        try {
+            stringPluginDispatcher.dispatchWithTimeout("trackedPlugin", new Callable<PluginDispatcherReturnType<String>>() {
+                @Override
+                public PluginDispatcherReturnType<String> call() throws Exception {
+                    PluginCallTracker.onPluginCallStarted();
+                    PluginCallTracker.onPluginCallFailed();
+                    throw new PaymentApiException(ErrorCode.PAYMENT_PLUGIN_EXCEPTION, "gateway unreachable");
+                }
+            }, 1, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof PaymentApiException);
+        }
+        Assert.assertEquals(circuitBreaker.getFailureRate(), 50);
+    }
 }
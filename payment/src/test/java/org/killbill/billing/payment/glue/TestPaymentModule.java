@@ -29,6 +29,7 @@ import org.killbill.billing.payment.TestPaymentHelper;
 import org.killbill.billing.payment.provider.MockPaymentProviderPlugin;
 import org.killbill.billing.payment.provider.MockPaymentProviderPluginModule;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.security.api.SecurityApi;
 import org.killbill.billing.tag.TagInternalApi;
 import org.killbill.billing.util.api.TagUserApi;
 import org.killbill.billing.util.config.definition.PaymentConfig;
@@ -64,6 +65,9 @@ public class TestPaymentModule extends PaymentModule {
 
         final TagUserApi tagUserApi = Mockito.mock(TagUserApi.class);
         bind(TagUserApi.class).toInstance(tagUserApi);
+
+        final SecurityApi securityApi = Mockito.mock(SecurityApi.class);
+        bind(SecurityApi.class).toInstance(securityApi);
     }
 
     @Override
@@ -82,6 +82,7 @@ public class DefaultServerService implements ServerService {
         } catch (final EventBusException e) {
             log.warn("Failed to unregister PushNotificationListener", e);
         }
+        pushNotificationListener.stop();
         pushNotificationRetryService.stop();
     }
 }
@@ -59,6 +59,35 @@ public class MultiTenantNotificationConfig extends MultiTenantConfigBase impleme
         return getPushNotificationsRetries();
     }
 
+    @Override
+    public int getPushNotificationsBatchSize() {
+        return staticConfig.getPushNotificationsBatchSize();
+    }
+
+    @Override
+    public int getPushNotificationsBatchSize(@Param("dummy") final InternalTenantContext tenantContext) {
+        final String result = getStringTenantConfig("getPushNotificationsBatchSize", tenantContext);
+        if (result != null) {
+            return Integer.parseInt(result);
+        }
+        return getPushNotificationsBatchSize();
+    }
+
+    @Override
+    public int getPushNotificationsMaxConcurrency() {
+        return staticConfig.getPushNotificationsMaxConcurrency();
+    }
+
+    @Override
+    public int getPushNotificationsQueueCapacity() {
+        return staticConfig.getPushNotificationsQueueCapacity();
+    }
+
+    @Override
+    public TimeSpan getPushNotificationsDeliveryTimeout() {
+        return staticConfig.getPushNotificationsDeliveryTimeout();
+    }
+
     @Override
     protected Class<? extends KillbillConfig> getConfigClass() {
         return NotificationConfig.class;
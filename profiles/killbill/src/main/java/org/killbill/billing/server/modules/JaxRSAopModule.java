@@ -31,6 +31,9 @@ import org.aopalliance.intercept.MethodInvocation;
 import org.killbill.billing.jaxrs.resources.JaxrsResource;
 import org.killbill.billing.util.entity.dao.DBRouterUntyped;
 import org.killbill.billing.util.glue.KillbillApiAopModule;
+import org.killbill.billing.util.metrics.LatencyHistogram;
+import org.killbill.billing.util.metrics.LatencyMetrics;
+import org.killbill.billing.util.metrics.TransactionTracer;
 import org.killbill.commons.profiling.Profiling.WithProfilingCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,16 +82,25 @@ public class JaxRSAopModule extends AbstractModule {
 
         @Override
         public Object invoke(final MethodInvocation invocation) throws Throwable {
-            return DBRouterUntyped.withRODBIAllowed(isRODBIAllowed(invocation),
-                                                    new WithProfilingCallback<Object, Throwable>() {
-                                                        @Override
-                                                        public Object execute() throws Throwable {
-                                                            logger.debug("Entering JAX-RS call {}, arguments: {}", invocation.getMethod(), invocation.getArguments());
-                                                            final Object proceed = invocation.proceed();
-                                                            logger.debug("Exiting  JXA-RS call {}, returning: {}", invocation.getMethod(), proceed);
-                                                            return proceed;
-                                                        }
-                                                    });
+            final Method method = invocation.getMethod();
+            final LatencyHistogram histogram = LatencyMetrics.getInstance().getHistogram(LatencyMetrics.JAXRS, method.getDeclaringClass(), method);
+            final String previousOrigin = TransactionTracer.getInstance().enterOrigin(histogram.getName());
+            final long startNanos = System.nanoTime();
+            try {
+                return DBRouterUntyped.withRODBIAllowed(isRODBIAllowed(invocation),
+                                                        new WithProfilingCallback<Object, Throwable>() {
+                                                            @Override
+                                                            public Object execute() throws Throwable {
+                                                                logger.debug("Entering JAX-RS call {}, arguments: {}", invocation.getMethod(), invocation.getArguments());
+                                                                final Object proceed = invocation.proceed();
+                                                                logger.debug("Exiting  JXA-RS call {}, returning: {}", invocation.getMethod(), proceed);
+                                                                return proceed;
+                                                            }
+                                                        });
+            } finally {
+                histogram.recordNanos(System.nanoTime() - startNanos);
+                TransactionTracer.getInstance().exitOrigin(previousOrigin);
+            }
         }
 
         private boolean isRODBIAllowed(final MethodInvocation invocation) {
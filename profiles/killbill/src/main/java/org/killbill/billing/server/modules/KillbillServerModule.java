@@ -88,6 +88,8 @@ import org.killbill.billing.util.glue.NonEntityDaoModule;
 import org.killbill.billing.util.glue.RecordIdModule;
 import org.killbill.billing.util.glue.SecurityModule;
 import org.killbill.billing.util.glue.TagStoreModule;
+import org.killbill.billing.util.glue.TracingModule;
+import org.killbill.billing.util.metrics.LatencyMetricsExporter;
 import org.killbill.clock.Clock;
 import org.killbill.clock.ClockMock;
 import org.killbill.commons.embeddeddb.EmbeddedDB;
@@ -193,6 +195,7 @@ public class KillbillServerModule extends KillbillPlatformModule {
         install(new TagStoreModule(configSource));
         install(new TemplateModule(configSource));
         install(new DefaultTenantModule(configSource));
+        install(new TracingModule(configSource));
         install(new UsageModule(configSource));
         install(new DefaultJaxrsModule(configSource));
     }
@@ -224,6 +227,8 @@ public class KillbillServerModule extends KillbillPlatformModule {
         bind(InvoiceItemResource.class).asEagerSingleton();
 
         bind(KillbillEventHandler.class).asEagerSingleton();
+
+        bind(LatencyMetricsExporter.class).asEagerSingleton();
     }
 
     protected void configureFilters() {
@@ -0,0 +1,428 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.jaxrs.json.NotificationJson;
+import org.killbill.clock.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ning.http.client.AsyncCompletionHandler;
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.AsyncHttpClient.BoundRequestBuilder;
+import com.ning.http.client.Response;
+
+//
+// Delivery of the push notifications, off the bus dispatch threads:
+// - each callback (tenant, url) has its own in-memory queue, so a slow callback only delays its own notifications
+// - at most maxConcurrency POSTs are in flight per callback, the next ones are sent from the completion handlers
+// - tenants can opt in to batching (see NotificationConfig#getPushNotificationsBatchSize): the queued notifications are then
+//   sent as a JSON array, up to batchSize per POST
+// - outcomes are handed back to the listener, which schedules the retries (per notification) as before. The completion handler
+//   does database calls, so it runs on the callbackExecutor, not on the AsyncHttpClient I/O threads
+// - the delivery lag (time between the queuing and the successful POST) is tracked across all tenants, and per tenant for the
+//   first MAX_TENANT_METRICS tenants seen
+// - endpoints without any activity for ENDPOINT_IDLE_TIMEOUT_MILLIS are evicted, along with the metric of their tenant
+//
+public class PushNotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PushNotificationDispatcher.class);
+
+    private static final String METRICS_PREFIX = "killbill.push-notifications";
+    private static final int MAX_TENANT_METRICS = 100;
+    private static final long ENDPOINT_IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000L; // 10 minutes
+
+    public interface PushNotificationCompletionHandler {
+
+        // Called when the notification has been delivered (2xx response)
+        void onDelivered(PendingPushNotification notification);
+
+        // Called when the notification should be retried (timeout, non 2xx response, queue full, shutdown)
+        void onRetryableFailure(PendingPushNotification notification, String reason);
+
+        // Called when the notification won't be retried (e.g. invalid url)
+        void onFailure(PendingPushNotification notification);
+    }
+
+    private final AsyncHttpClient httpClient;
+    private final ObjectMapper mapper;
+    private final Clock clock;
+    private final PushNotificationCompletionHandler completionHandler;
+    private final Executor callbackExecutor;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+    private final MetricRegistry metricRegistry;
+    private final Histogram deliveryLag;
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+    private final ConcurrentMap<UUID, Histogram> tenantDeliveryLags = new ConcurrentHashMap<UUID, Histogram>();
+    private final AtomicInteger nbQueued = new AtomicInteger();
+    private final AtomicLong lastEvictionMillis;
+
+    private volatile boolean isStopped = false;
+
+    public PushNotificationDispatcher(final AsyncHttpClient httpClient,
+                                      final ObjectMapper mapper,
+                                      final Clock clock,
+                                      final MetricRegistry metricRegistry,
+                                      final PushNotificationCompletionHandler completionHandler,
+                                      final Executor callbackExecutor,
+                                      final int maxConcurrency,
+                                      final int queueCapacity) {
+        this.httpClient = httpClient;
+        this.mapper = mapper;
+        this.clock = clock;
+        this.completionHandler = completionHandler;
+        this.callbackExecutor = callbackExecutor;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.queueCapacity = queueCapacity;
+        this.metricRegistry = metricRegistry;
+        this.lastEvictionMillis = new AtomicLong(clock.getUTCNow().getMillis());
+        this.deliveryLag = metricRegistry.histogram(MetricRegistry.name(METRICS_PREFIX, "deliveryLag"));
+
+        final String queuedName = MetricRegistry.name(METRICS_PREFIX, "queued");
+        metricRegistry.remove(queuedName);
+        metricRegistry.register(queuedName, new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return nbQueued.get();
+            }
+        });
+    }
+
+    public void enqueue(final UUID tenantId, final String url, final NotificationJson notification, final int attemptNumber, final int batchSize, @Nullable final UUID guardToken) {
+        final long now = clock.getUTCNow().getMillis();
+        final PendingPushNotification pending = new PendingPushNotification(tenantId, url, notification, attemptNumber, now, guardToken);
+
+        evictIdleEndpoints(now);
+
+        final String endpointKey = tenantId + " " + url;
+        Endpoint endpoint = endpoints.get(endpointKey);
+        if (endpoint == null) {
+            endpoints.putIfAbsent(endpointKey, new Endpoint(tenantId, url, getTenantDeliveryLag(tenantId)));
+            endpoint = endpoints.get(endpointKey);
+        }
+        endpoint.batchSize = Math.max(1, batchSize);
+        endpoint.lastActivityMillis = now;
+
+        if (isStopped || endpoint.nbQueued.get() >= queueCapacity) {
+            // Don't hold on to more notifications in memory: the retry queue will pick it up
+            completionHandler.onRetryableFailure(pending, isStopped ? "Shutdown" : "Queue full");
+            return;
+        }
+
+        endpoint.queue.add(pending);
+        endpoint.nbQueued.incrementAndGet();
+        nbQueued.incrementAndGet();
+        drain(endpoint);
+    }
+
+    // Hand the queued (not yet sent) notifications over to the retry queue
+    public void stop() {
+        isStopped = true;
+        for (final Endpoint endpoint : endpoints.values()) {
+            PendingPushNotification pending;
+            while ((pending = poll(endpoint)) != null) {
+                completionHandler.onRetryableFailure(pending, "Shutdown");
+            }
+        }
+    }
+
+    @Nullable
+    private Histogram getTenantDeliveryLag(final UUID tenantId) {
+        final Histogram histogram = tenantDeliveryLags.get(tenantId);
+        if (histogram != null || tenantDeliveryLags.size() >= MAX_TENANT_METRICS) {
+            return histogram;
+        }
+        tenantDeliveryLags.putIfAbsent(tenantId, metricRegistry.histogram(MetricRegistry.name(METRICS_PREFIX, "deliveryLag", tenantId.toString())));
+        return tenantDeliveryLags.get(tenantId);
+    }
+
+    // At most once per idle timeout, from the enqueuing thread
+    private void evictIdleEndpoints(final long now) {
+        final long lastEviction = lastEvictionMillis.get();
+        if (now - lastEviction < ENDPOINT_IDLE_TIMEOUT_MILLIS || !lastEvictionMillis.compareAndSet(lastEviction, now)) {
+            return;
+        }
+
+        for (final Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            final Endpoint endpoint = entry.getValue();
+            if (endpoint.nbQueued.get() == 0 && endpoint.nbInFlight.get() == 0 && now - endpoint.lastActivityMillis >= ENDPOINT_IDLE_TIMEOUT_MILLIS) {
+                // A concurrent enqueue may still hand a notification to the evicted endpoint, which drains it as usual
+                endpoints.remove(entry.getKey(), endpoint);
+            }
+        }
+
+        final Set<UUID> activeTenantIds = new HashSet<UUID>();
+        for (final Endpoint endpoint : endpoints.values()) {
+            activeTenantIds.add(endpoint.tenantId);
+        }
+        for (final UUID tenantId : tenantDeliveryLags.keySet()) {
+            if (!activeTenantIds.contains(tenantId)) {
+                tenantDeliveryLags.remove(tenantId);
+                metricRegistry.remove(MetricRegistry.name(METRICS_PREFIX, "deliveryLag", tenantId.toString()));
+            }
+        }
+    }
+
+    private void drain(final Endpoint endpoint) {
+        while (!isStopped) {
+            final int nbInFlight = endpoint.nbInFlight.get();
+            if (nbInFlight >= maxConcurrency || endpoint.queue.isEmpty()) {
+                return;
+            }
+            if (!endpoint.nbInFlight.compareAndSet(nbInFlight, nbInFlight + 1)) {
+                continue;
+            }
+
+            final List<PendingPushNotification> batch = new ArrayList<PendingPushNotification>(endpoint.batchSize);
+            PendingPushNotification pending;
+            while (batch.size() < endpoint.batchSize && (pending = poll(endpoint)) != null) {
+                batch.add(pending);
+            }
+            if (batch.isEmpty()) {
+                // Raced with another sender, re-check the queue
+                endpoint.nbInFlight.decrementAndGet();
+                continue;
+            }
+
+            post(endpoint, batch);
+        }
+    }
+
+    private PendingPushNotification poll(final Endpoint endpoint) {
+        final PendingPushNotification pending = endpoint.queue.poll();
+        if (pending != null) {
+            endpoint.nbQueued.decrementAndGet();
+            nbQueued.decrementAndGet();
+        }
+        return pending;
+    }
+
+    private void post(final Endpoint endpoint, final List<PendingPushNotification> batch) {
+        try {
+            final String body;
+            if (endpoint.batchSize > 1) {
+                final List<NotificationJson> notifications = new ArrayList<NotificationJson>(batch.size());
+                for (final PendingPushNotification pending : batch) {
+                    notifications.add(pending.getNotification());
+                }
+                body = mapper.writeValueAsString(notifications);
+            } else {
+                body = mapper.writeValueAsString(batch.get(0).getNotification());
+            }
+            log.info("Sending push notification url='{}', body='{}', attemptRetryNumber='{}'", endpoint.url, body, batch.get(0).getAttemptNumber());
+
+            final BoundRequestBuilder builder = httpClient.preparePost(endpoint.url);
+            builder.setBody(body);
+            builder.addHeader(PushNotificationListener.HTTP_HEADER_CONTENT_TYPE, PushNotificationListener.CONTENT_TYPE_JSON);
+            builder.execute(new AsyncCompletionHandler<Response>() {
+                @Override
+                public Response onCompleted(final Response response) throws Exception {
+                    try {
+                        if (response.getStatusCode() >= 200 && response.getStatusCode() < 300) {
+                            recordDelivered(endpoint, batch);
+                        } else {
+                            retry(batch, "statusCode=" + response.getStatusCode());
+                        }
+                    } finally {
+                        onPostCompleted(endpoint);
+                    }
+                    return response;
+                }
+
+                @Override
+                public void onThrowable(final Throwable t) {
+                    try {
+                        if (t instanceof TimeoutException) {
+                            retry(batch, "Timeout");
+                        } else {
+                            log.warn("Failed to push notification url='{}', tenantId='{}'", endpoint.url, endpoint.tenantId, t);
+                            fail(batch);
+                        }
+                    } finally {
+                        onPostCompleted(endpoint);
+                    }
+                }
+            });
+        } catch (final IOException e) {
+            log.warn("Failed to push notification url='{}', tenantId='{}'", endpoint.url, endpoint.tenantId, e);
+            fail(batch);
+            // We're called from drain, which moves on to the next ones
+            endpoint.nbInFlight.decrementAndGet();
+        } catch (final RuntimeException e) {
+            // E.g. invalid url
+            log.warn("Failed to push notification url='{}', tenantId='{}'", endpoint.url, endpoint.tenantId, e);
+            fail(batch);
+            endpoint.nbInFlight.decrementAndGet();
+        }
+    }
+
+    private void onPostCompleted(final Endpoint endpoint) {
+        endpoint.lastActivityMillis = clock.getUTCNow().getMillis();
+        endpoint.nbInFlight.decrementAndGet();
+        drain(endpoint);
+    }
+
+    private void retry(final Iterable<PendingPushNotification> batch, final String reason) {
+        runCallback(batch, new Runnable() {
+            @Override
+            public void run() {
+                for (final PendingPushNotification pending : batch) {
+                    completionHandler.onRetryableFailure(pending, reason);
+                }
+            }
+        });
+    }
+
+    private void fail(final Iterable<PendingPushNotification> batch) {
+        runCallback(batch, new Runnable() {
+            @Override
+            public void run() {
+                for (final PendingPushNotification pending : batch) {
+                    completionHandler.onFailure(pending);
+                }
+            }
+        });
+    }
+
+    private void recordDelivered(final Endpoint endpoint, final Iterable<PendingPushNotification> batch) {
+        final long now = clock.getUTCNow().getMillis();
+        for (final PendingPushNotification pending : batch) {
+            deliveryLag.update(now - pending.getQueuedDateMillis());
+            if (endpoint.deliveryLag != null) {
+                endpoint.deliveryLag.update(now - pending.getQueuedDateMillis());
+            }
+        }
+        runCallback(batch, new Runnable() {
+            @Override
+            public void run() {
+                for (final PendingPushNotification pending : batch) {
+                    completionHandler.onDelivered(pending);
+                }
+            }
+        });
+    }
+
+    private void runCallback(final Iterable<PendingPushNotification> batch, final Runnable callback) {
+        try {
+            callbackExecutor.execute(callback);
+        } catch (final RejectedExecutionException e) {
+            // Shutting down: the guard entries in the retry queue (if any) will resend them
+            log.warn("Dropping push notification callback for notifications={}", batch, e);
+        }
+    }
+
+    private final class Endpoint {
+
+        private final UUID tenantId;
+        private final String url;
+        private final Queue<PendingPushNotification> queue = new ConcurrentLinkedQueue<PendingPushNotification>();
+        // ConcurrentLinkedQueue#size isn't constant time
+        private final AtomicInteger nbQueued = new AtomicInteger();
+        private final AtomicInteger nbInFlight = new AtomicInteger();
+        // Per tenant histogram, null once MAX_TENANT_METRICS is reached
+        private final Histogram deliveryLag;
+
+        private volatile int batchSize = 1;
+        private volatile long lastActivityMillis;
+
+        private Endpoint(final UUID tenantId, final String url, @Nullable final Histogram deliveryLag) {
+            this.tenantId = tenantId;
+            this.url = url;
+            this.deliveryLag = deliveryLag;
+        }
+    }
+
+    public static final class PendingPushNotification {
+
+        private final UUID tenantId;
+        private final String url;
+        private final NotificationJson notification;
+        private final int attemptNumber;
+        private final long queuedDateMillis;
+        private final UUID guardToken;
+
+        private PendingPushNotification(final UUID tenantId, final String url, final NotificationJson notification, final int attemptNumber, final long queuedDateMillis, @Nullable final UUID guardToken) {
+            this.tenantId = tenantId;
+            this.url = url;
+            this.notification = notification;
+            this.attemptNumber = attemptNumber;
+            this.queuedDateMillis = queuedDateMillis;
+            this.guardToken = guardToken;
+        }
+
+        public UUID getTenantId() {
+            return tenantId;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public NotificationJson getNotification() {
+            return notification;
+        }
+
+        public int getAttemptNumber() {
+            return attemptNumber;
+        }
+
+        public long getQueuedDateMillis() {
+            return queuedDateMillis;
+        }
+
+        // User token of the guard entry recorded in the retry queue (see PushNotificationListener), if any
+        public UUID getGuardToken() {
+            return guardToken;
+        }
+
+        @Override
+        public String toString() {
+            return "PendingPushNotification{" +
+                   "tenantId=" + tenantId +
+                   ", url='" + url + '\'' +
+                   ", attemptNumber=" + attemptNumber +
+                   ", guardToken=" + guardToken +
+                   '}';
+        }
+    }
+}
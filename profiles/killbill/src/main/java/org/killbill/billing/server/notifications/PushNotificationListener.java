@@ -21,9 +21,12 @@ package org.killbill.billing.server.notifications;
 import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.joda.time.DateTime;
@@ -32,7 +35,8 @@ import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.jaxrs.json.NotificationJson;
 import org.killbill.billing.notification.plugin.api.ExtBusEvent;
 import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
-import org.killbill.billing.server.DefaultServerService;
+import org.killbill.billing.server.notifications.PushNotificationDispatcher.PendingPushNotification;
+import org.killbill.billing.server.notifications.PushNotificationDispatcher.PushNotificationCompletionHandler;
 import org.killbill.billing.tenant.api.TenantApiException;
 import org.killbill.billing.tenant.api.TenantKV.TenantKey;
 import org.killbill.billing.tenant.api.TenantUserApi;
@@ -40,7 +44,9 @@ import org.killbill.billing.util.callcontext.CallContextFactory;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.config.definition.NotificationConfig;
+import org.killbill.billing.util.UUIDs;
 import org.killbill.clock.Clock;
+import org.killbill.commons.concurrent.Executors;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
@@ -48,14 +54,10 @@ import org.skife.config.TimeSpan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.ning.http.client.AsyncCompletionHandler;
+import com.codahale.metrics.MetricRegistry;
 import com.ning.http.client.AsyncHttpClient;
-import com.ning.http.client.AsyncHttpClient.BoundRequestBuilder;
 import com.ning.http.client.AsyncHttpClientConfig;
-import com.ning.http.client.ListenableFuture;
-import com.ning.http.client.Response;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
@@ -72,6 +74,7 @@ public class PushNotificationListener {
     public static final String CONTENT_TYPE_JSON = "application/json; charset=UTF-8";
 
     private static final int TIMEOUT_NOTIFICATION = 15; // 15 seconds
+    private static final int TERMINATION_TIMEOUT_SEC = 5;
 
     private final TenantUserApi tenantApi;
     private final CallContextFactory contextFactory;
@@ -81,11 +84,16 @@ public class PushNotificationListener {
     private final InternalCallContextFactory internalCallContextFactory;
     private final Clock clock;
     private final NotificationConfig notificationConfig;
+    private final ExecutorService callbackExecutor;
+    private final PushNotificationDispatcher dispatcher;
+    // Guard tokens recorded by this node: false while the notification is queued or in flight, true once it has been
+    // delivered, re-scheduled or dropped. Entries are removed when the guard entry comes due
+    private final ConcurrentMap<UUID, Boolean> guards = new ConcurrentHashMap<UUID, Boolean>();
 
     @Inject
     public PushNotificationListener(final ObjectMapper mapper, final TenantUserApi tenantApi, final CallContextFactory contextFactory,
                                     final NotificationQueueService notificationQueueService, final InternalCallContextFactory internalCallContextFactory,
-                                    final Clock clock, final NotificationConfig notificationConfig) {
+                                    final Clock clock, final NotificationConfig notificationConfig, final MetricRegistry metricRegistry) {
         this.httpClient = new AsyncHttpClient(new AsyncHttpClientConfig.Builder().setRequestTimeout(TIMEOUT_NOTIFICATION * 1000).build());
         this.tenantApi = tenantApi;
         this.contextFactory = contextFactory;
@@ -94,6 +102,32 @@ public class PushNotificationListener {
         this.internalCallContextFactory = internalCallContextFactory;
         this.clock = clock;
         this.notificationConfig = notificationConfig;
+        // The completion callbacks access the database, keep them off the AsyncHttpClient I/O threads
+        this.callbackExecutor = Executors.newFixedThreadPool(Math.max(1, notificationConfig.getPushNotificationsMaxConcurrency()), "PushNotificationCallback");
+        this.dispatcher = new PushNotificationDispatcher(httpClient,
+                                                         mapper,
+                                                         clock,
+                                                         metricRegistry,
+                                                         new PushNotificationCompletionHandler() {
+                                                             @Override
+                                                             public void onDelivered(final PendingPushNotification notification) {
+                                                                 completeGuard(notification);
+                                                             }
+
+                                                             @Override
+                                                             public void onRetryableFailure(final PendingPushNotification notification, final String reason) {
+                                                                 saveRetryPushNotificationInQueue(notification.getTenantId(), notification.getUrl(), notification.getNotification(), notification.getAttemptNumber(), reason);
+                                                                 completeGuard(notification);
+                                                             }
+
+                                                             @Override
+                                                             public void onFailure(final PendingPushNotification notification) {
+                                                                 completeGuard(notification);
+                                                             }
+                                                         },
+                                                         callbackExecutor,
+                                                         notificationConfig.getPushNotificationsMaxConcurrency(),
+                                                         notificationConfig.getPushNotificationsQueueCapacity());
     }
 
     @AllowConcurrentEvents
@@ -106,79 +140,95 @@ public class PushNotificationListener {
                 // Optimization - see https://github.com/killbill/killbill/issues/297
                 return;
             }
-            dispatchCallback(event.getTenantId(), event, callbacks);
+            dispatchCallback(event.getTenantId(), event, callbacks, context);
         } catch (final TenantApiException e) {
             log.warn("Failed to retrieve push notification callback for tenant {}", event.getTenantId());
-        } catch (final IOException e) {
-            log.warn("Failed to retrieve push notification callback for tenant {}", event.getTenantId());
         }
     }
 
+    // Stop sending: the queued notifications are moved to the retry queue
+    public void stop() {
+        dispatcher.stop();
+    }
+
     public void shutdown() {
         httpClient.close();
+        callbackExecutor.shutdown();
+        try {
+            if (!callbackExecutor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                log.warn("PushNotificationCallback executor failed to complete termination within {} sec", TERMINATION_TIMEOUT_SEC);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("PushNotificationCallback executor stop sequence got interrupted");
+        }
     }
 
-    private void dispatchCallback(final UUID tenantId, final ExtBusEvent event, final Iterable<String> callbacks) throws IOException {
+    // Queued for delivery, the bus thread doesn't wait for the callbacks to answer
+    private void dispatchCallback(final UUID tenantId, final ExtBusEvent event, final Iterable<String> callbacks, final TenantContext context) {
         final NotificationJson notification = new NotificationJson(event);
-        final String body = mapper.writeValueAsString(notification);
+        final int batchSize = notificationConfig.getPushNotificationsBatchSize(internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(context));
         for (final String cur : callbacks) {
-            doPost(tenantId, cur, body, notification, TIMEOUT_NOTIFICATION, 0);
+            enqueue(tenantId, cur, notification, 0, batchSize);
         }
     }
 
-    private boolean doPost(final UUID tenantId, final String url, final String body, final NotificationJson notification,
-                           final int timeoutSec, final int attemptRetryNumber) {
-        log.info("Sending push notification url='{}', body='{}', attemptRetryNumber='{}'", url, body, attemptRetryNumber);
-        final BoundRequestBuilder builder = httpClient.preparePost(url);
-        builder.setBody(body == null ? "{}" : body);
-        builder.addHeader(HTTP_HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON);
+    public void resendPushNotification(final PushNotificationKey key) {
+        final NotificationJson notification = new NotificationJson(key.getEventType() != null ? key.getEventType().toString() : null,
+                                                                   key.getAccountId(),
+                                                                   key.getObjectType() != null ? key.getObjectType().toString() : null,
+                                                                   key.getObjectId(),
+                                                                   key.getMetaData());
+        final TenantContext context = contextFactory.createTenantContext(null, key.getTenantId());
+        final int batchSize = notificationConfig.getPushNotificationsBatchSize(internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(context));
+        enqueue(key.getTenantId(), key.getUrl(), notification, key.getAttemptNumber(), batchSize);
+    }
 
-        final Response response;
-        try {
-            final ListenableFuture<Response> futureStatus =
-                    builder.execute(new AsyncCompletionHandler<Response>() {
-                        @Override
-                        public Response onCompleted(final Response response) throws Exception {
-                            return response;
-                        }
-                    });
-            response = futureStatus.get(timeoutSec, TimeUnit.SECONDS);
-        } catch (final TimeoutException toe) {
-            saveRetryPushNotificationInQueue(tenantId, url, notification, attemptRetryNumber, "Timeout");
-            return false;
-        } catch (final Exception e) {
-            log.warn("Failed to push notification url='{}', tenantId='{}'", url, tenantId, e);
-            return false;
+    // The guard entry of a notification came due
+    public void onGuardDue(final PushNotificationKey key, final UUID guardToken) {
+        final Boolean completed = guards.get(guardToken);
+        if (completed == null) {
+            // Not queued by this node since it started (e.g. the node stopped before the delivery): send it again
+            resendPushNotification(key);
+        } else if (completed) {
+            guards.remove(guardToken);
+        } else {
+            // Still queued or in flight (slow callback): check again later rather than sending a duplicate
+            if (!recordInRetryQueue(key, getGuardTime(), guardToken)) {
+                guards.remove(guardToken);
+            }
         }
+    }
 
-        if (response.getStatusCode() >= 200 && response.getStatusCode() < 300) {
-            return true;
+    // The bus event (or the retry notification) is acked as soon as we return, so the notification is first recorded in the retry queue:
+    // the guard entry resends it if this node stops before the notification is delivered (or re-scheduled). The guard isn't removed on
+    // delivery, it is simply ignored when it comes due (see onGuardDue)
+    private void enqueue(final UUID tenantId, final String url, final NotificationJson notification, final int attemptNumber, final int batchSize) {
+        final PushNotificationKey guardKey = toPushNotificationKey(tenantId, url, notification, attemptNumber);
+        final UUID guardToken = UUIDs.randomUUID();
+        guards.put(guardToken, Boolean.FALSE);
+        final UUID recordedGuardToken;
+        if (recordInRetryQueue(guardKey, getGuardTime(), guardToken)) {
+            recordedGuardToken = guardToken;
         } else {
-            saveRetryPushNotificationInQueue(tenantId, url, notification, attemptRetryNumber, "statusCode=" + response.getStatusCode());
-            return false;
+            guards.remove(guardToken);
+            recordedGuardToken = null;
         }
+        dispatcher.enqueue(tenantId, url, notification, attemptNumber, batchSize, recordedGuardToken);
     }
 
-    public void resendPushNotification(final PushNotificationKey key) throws JsonProcessingException {
+    private void completeGuard(final PendingPushNotification notification) {
+        if (notification.getGuardToken() != null) {
+            guards.replace(notification.getGuardToken(), Boolean.FALSE, Boolean.TRUE);
+        }
+    }
 
-        final NotificationJson notification = new NotificationJson(key.getEventType() != null ? key.getEventType().toString() : null,
-                                                                   key.getAccountId(),
-                                                                   key.getObjectType() != null ? key.getObjectType().toString() : null,
-                                                                   key.getObjectId(),
-                                                                   key.getMetaData());
-        final String body = mapper.writeValueAsString(notification);
-        doPost(key.getTenantId(), key.getUrl(), body, notification, TIMEOUT_NOTIFICATION, key.getAttemptNumber());
+    private DateTime getGuardTime() {
+        return clock.getUTCNow().plusMillis((int) notificationConfig.getPushNotificationsDeliveryTimeout().getMillis());
     }
 
     private void saveRetryPushNotificationInQueue(final UUID tenantId, final String url, final NotificationJson notificationJson, final int attemptRetryNumber, final String reason) {
-        final PushNotificationKey key = new PushNotificationKey(tenantId,
-                                                                notificationJson.getAccountId(),
-                                                                notificationJson.getEventType(),
-                                                                notificationJson.getObjectType(),
-                                                                notificationJson.getObjectId(),
-                                                                attemptRetryNumber + 1,
-                                                                notificationJson.getMetaData(),
-                                                                url);
+        final PushNotificationKey key = toPushNotificationKey(tenantId, url, notificationJson, attemptRetryNumber + 1);
 
         final TenantContext tenantContext = contextFactory.createTenantContext(null, tenantId);
         final DateTime nextNotificationTime = getNextNotificationTime(key.getAttemptNumber(), internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(tenantContext));
@@ -189,16 +239,34 @@ public class PushNotificationListener {
         }
         log.warn("Push notification {} is re-scheduled to be sent at {}, url='{}', reason='{}'", key, nextNotificationTime, key.getUrl(), reason);
 
+        recordInRetryQueue(key, nextNotificationTime, null);
+    }
+
+    private boolean recordInRetryQueue(final PushNotificationKey key, final DateTime notificationTime, @Nullable final UUID userToken) {
+        final TenantContext tenantContext = contextFactory.createTenantContext(null, key.getTenantId());
         final Long accountRecordId = internalCallContextFactory.getRecordIdFromObject(key.getAccountId(), ObjectType.ACCOUNT, tenantContext);
         final Long tenantRecordId = internalCallContextFactory.getRecordIdFromObject(key.getTenantId(), ObjectType.TENANT, tenantContext);
         try {
             final NotificationQueue notificationQueue = notificationQueueService.getNotificationQueue(KILLBILL_SERVICES.SERVER_SERVICE.getServiceName(), PushNotificationRetryService.QUEUE_NAME);
-            notificationQueue.recordFutureNotification(nextNotificationTime, key, null, MoreObjects.firstNonNull(accountRecordId, new Long(0)), tenantRecordId);
+            notificationQueue.recordFutureNotification(notificationTime, key, userToken, MoreObjects.firstNonNull(accountRecordId, new Long(0)), tenantRecordId);
+            return true;
         } catch (final NoSuchNotificationQueue noSuchNotificationQueue) {
             log.error("Failed to push notification url='{}', tenantId='{}'", key.getUrl(), key.getTenantId(), noSuchNotificationQueue);
         } catch (final IOException e) {
             log.error("Failed to push notification url='{}', tenantId='{}'", key.getUrl(), key.getTenantId(), e);
         }
+        return false;
+    }
+
+    private PushNotificationKey toPushNotificationKey(final UUID tenantId, final String url, final NotificationJson notificationJson, final int attemptNumber) {
+        return new PushNotificationKey(tenantId,
+                                       notificationJson.getAccountId(),
+                                       notificationJson.getEventType(),
+                                       notificationJson.getObjectType(),
+                                       notificationJson.getObjectId(),
+                                       attemptNumber,
+                                       notificationJson.getMetaData(),
+                                       url);
     }
 
     private DateTime getNextNotificationTime(final int attemptNumber, final InternalTenantContext tenantContext) {
@@ -32,7 +32,6 @@ import org.killbill.notificationq.api.NotificationQueueService.NotificationQueue
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.inject.Inject;
 
 public class PushNotificationRetryService {
@@ -67,10 +66,11 @@ public class PushNotificationRetryService {
                                                                                   return;
                                                                               }
                                                                               final PushNotificationKey key = (PushNotificationKey) notificationKey;
-                                                                              try {
+                                                                              if (userToken != null) {
+                                                                                  // Guard entry (see PushNotificationListener)
+                                                                                  pushNotificationListener.onGuardDue(key, userToken);
+                                                                              } else {
                                                                                   pushNotificationListener.resendPushNotification(key);
-                                                                              } catch (JsonProcessingException e) {
-                                                                                  log.error("Failed to push notification url='{}', tenantId='{}'", key.getUrl(), key.getTenantId(), e);
                                                                               }
                                                                           }
                                                                       }
@@ -29,6 +29,7 @@ import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
 import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.cache.CacheManagerAware;
 import org.apache.shiro.codec.Base64;
 import org.apache.shiro.codec.Hex;
 import org.apache.shiro.realm.jdbc.JdbcRealm;
@@ -74,6 +75,14 @@ public class KillbillJdbcTenantRealm extends JdbcRealm {
         return authenticationInfo;
     }
 
+    @Override
+    protected void afterCacheManagerSet() {
+        super.afterCacheManagerSet();
+        if (getCredentialsMatcher() instanceof CacheManagerAware) {
+            ((CacheManagerAware) getCredentialsMatcher()).setCacheManager(getCacheManager());
+        }
+    }
+
     private void configureSecurity() {
         setSaltStyle(SaltStyle.COLUMN);
         setCredentialsMatcher(KillbillCredentialsMatcher.getCredentialsMatcher(securityConfig));
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+import org.killbill.billing.jaxrs.json.NotificationJson;
+import org.killbill.billing.server.log.ServerTestSuiteNoDB;
+import org.killbill.billing.server.notifications.PushNotificationDispatcher.PendingPushNotification;
+import org.killbill.billing.server.notifications.PushNotificationDispatcher.PushNotificationCompletionHandler;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
+import com.ning.http.client.AsyncCompletionHandler;
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.AsyncHttpClient.BoundRequestBuilder;
+import com.ning.http.client.Response;
+
+public class TestPushNotificationDispatcher extends ServerTestSuiteNoDB {
+
+    private static final String URL = "http://127.0.0.1:8080/callback";
+
+    private AsyncHttpClient httpClient;
+    private BoundRequestBuilder requestBuilder;
+    private MetricRegistry metricRegistry;
+    private PushNotificationCompletionHandler completionHandler;
+    private Queue<Runnable> callbacks;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+
+        httpClient = Mockito.mock(AsyncHttpClient.class);
+        requestBuilder = Mockito.mock(BoundRequestBuilder.class);
+        Mockito.when(httpClient.preparePost(URL)).thenReturn(requestBuilder);
+        metricRegistry = new MetricRegistry();
+        completionHandler = Mockito.mock(PushNotificationCompletionHandler.class);
+        callbacks = new LinkedList<Runnable>();
+    }
+
+    @Test(groups = "fast")
+    public void testCallbacksRunOnCallbackExecutor() throws Exception {
+        final PushNotificationDispatcher dispatcher = createDispatcher(2, 10);
+        final UUID tenantId = UUID.randomUUID();
+        final UUID guardToken = UUID.randomUUID();
+
+        dispatcher.enqueue(tenantId, URL, createNotification(), 0, 1, guardToken);
+        dispatcher.enqueue(tenantId, URL, createNotification(), 0, 1, null);
+        final ArgumentCaptor<AsyncCompletionHandler> handlers = ArgumentCaptor.forClass(AsyncCompletionHandler.class);
+        Mockito.verify(requestBuilder, Mockito.times(2)).execute(handlers.capture());
+
+        // Completions, as seen from the AsyncHttpClient I/O threads
+        handlers.getAllValues().get(0).onCompleted(createResponse(200));
+        handlers.getAllValues().get(1).onCompleted(createResponse(503));
+        Mockito.verifyZeroInteractions(completionHandler);
+
+        Assert.assertEquals(callbacks.size(), 2);
+        while (!callbacks.isEmpty()) {
+            callbacks.poll().run();
+        }
+        final ArgumentCaptor<PendingPushNotification> delivered = ArgumentCaptor.forClass(PendingPushNotification.class);
+        Mockito.verify(completionHandler).onDelivered(delivered.capture());
+        Assert.assertEquals(delivered.getValue().getGuardToken(), guardToken);
+        Mockito.verify(completionHandler).onRetryableFailure(Mockito.<PendingPushNotification>any(), Mockito.eq("statusCode=503"));
+
+        // Global and per tenant histograms
+        Assert.assertEquals(metricRegistry.getHistograms().keySet(), ImmutableSet.<String>of("killbill.push-notifications.deliveryLag",
+                                                                                             "killbill.push-notifications.deliveryLag." + tenantId));
+        Assert.assertEquals(metricRegistry.getHistograms().get("killbill.push-notifications.deliveryLag").getCount(), 1);
+        Assert.assertEquals(metricRegistry.getHistograms().get("killbill.push-notifications.deliveryLag." + tenantId).getCount(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testTenantMetricsAreBoundedAndIdleEndpointsEvicted() throws Exception {
+        final PushNotificationDispatcher dispatcher = createDispatcher(1, 10);
+        final ArgumentCaptor<AsyncCompletionHandler> handlers = ArgumentCaptor.forClass(AsyncCompletionHandler.class);
+
+        for (int i = 0; i < 150; i++) {
+            dispatcher.enqueue(UUID.randomUUID(), URL, createNotification(), 0, 1, null);
+        }
+        Mockito.verify(requestBuilder, Mockito.times(150)).execute(handlers.capture());
+        for (final AsyncCompletionHandler handler : handlers.getAllValues()) {
+            handler.onCompleted(createResponse(200));
+        }
+        // Global histogram plus 100 tenants
+        Assert.assertEquals(metricRegistry.getHistograms().size(), 101);
+
+        // All endpoints are now idle
+        clock.addDeltaFromReality(11 * 60 * 1000);
+        final UUID tenantId = UUID.randomUUID();
+        dispatcher.enqueue(tenantId, URL, createNotification(), 0, 1, null);
+        Assert.assertEquals(metricRegistry.getHistograms().keySet(), ImmutableSet.<String>of("killbill.push-notifications.deliveryLag",
+                                                                                             "killbill.push-notifications.deliveryLag." + tenantId));
+    }
+
+    @Test(groups = "fast")
+    public void testQueueFullAndStop() throws Exception {
+        final PushNotificationDispatcher dispatcher = createDispatcher(1, 1);
+        final UUID tenantId = UUID.randomUUID();
+
+        // In flight
+        dispatcher.enqueue(tenantId, URL, createNotification(), 0, 1, null);
+        // Queued
+        dispatcher.enqueue(tenantId, URL, createNotification(), 0, 1, null);
+        Mockito.verify(requestBuilder, Mockito.times(1)).execute(Mockito.<AsyncCompletionHandler>any());
+
+        dispatcher.enqueue(tenantId, URL, createNotification(), 0, 1, null);
+        Mockito.verify(completionHandler).onRetryableFailure(Mockito.<PendingPushNotification>any(), Mockito.eq("Queue full"));
+
+        dispatcher.stop();
+        Mockito.verify(completionHandler).onRetryableFailure(Mockito.<PendingPushNotification>any(), Mockito.eq("Shutdown"));
+        Mockito.verify(requestBuilder, Mockito.times(1)).execute(Mockito.<AsyncCompletionHandler>any());
+    }
+
+    private PushNotificationDispatcher createDispatcher(final int maxConcurrency, final int queueCapacity) {
+        return new PushNotificationDispatcher(httpClient,
+                                              new ObjectMapper(),
+                                              clock,
+                                              metricRegistry,
+                                              completionHandler,
+                                              new Executor() {
+                                                  @Override
+                                                  public void execute(final Runnable command) {
+                                                      callbacks.add(command);
+                                                  }
+                                              },
+                                              maxConcurrency,
+                                              queueCapacity);
+    }
+
+    private NotificationJson createNotification() {
+        return new NotificationJson("INVOICE_CREATION", UUID.randomUUID(), "INVOICE", UUID.randomUUID(), null);
+    }
+
+    private Response createResponse(final int statusCode) {
+        final Response response = Mockito.mock(Response.class);
+        Mockito.when(response.getStatusCode()).thenReturn(statusCode);
+        return response;
+    }
+}
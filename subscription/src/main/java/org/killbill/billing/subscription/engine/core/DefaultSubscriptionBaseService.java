@@ -45,6 +45,7 @@ import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.CallOrigin;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.metrics.TimedNotificationQueueHandler;
 import org.killbill.bus.api.BusEvent;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
@@ -132,7 +133,7 @@ public class DefaultSubscriptionBaseService implements EventListener, Subscripti
 
             subscriptionEventQueue = notificationQueueService.createNotificationQueue(KILLBILL_SERVICES.SUBSCRIPTION_BASE_SERVICE.getServiceName(),
                                                                                       NOTIFICATION_QUEUE_NAME,
-                                                                                      queueHandler);
+                                                                                      new TimedNotificationQueueHandler(KILLBILL_SERVICES.SUBSCRIPTION_BASE_SERVICE.getServiceName(), NOTIFICATION_QUEUE_NAME, queueHandler));
         } catch (final NotificationQueueAlreadyExists e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.audit;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.platform.api.LifecycleHandlerType;
+import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
+import org.killbill.billing.util.audit.dao.AuditDao;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.definition.AuditConfig;
+import org.killbill.clock.Clock;
+import org.killbill.commons.concurrent.Executors;
+import org.skife.config.TimeSpan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//
+// Online job moving the audit logs older than the (per tenant) retention from audit_log to audit_log_archive:
+// - rows are moved in small batches, one transaction per batch, to keep locks short on the hot table
+// - the audit log queries read across both tables, so the move is transparent to the readers (and to the audit caches)
+// - if several nodes move the same rows, the archive primary key makes all but one of the transactions roll back
+//
+public class DefaultAuditLogArchiveService implements AuditLogArchiveService {
+
+    public static final String AUDIT_LOG_ARCHIVE_SERVICE_NAME = "audit-log-archive-service";
+
+    private static final int TERMINATION_TIMEOUT_SEC = 5;
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultAuditLogArchiveService.class);
+
+    private final AuditDao auditDao;
+    private final AuditConfig auditConfig;
+    private final InternalCallContextFactory internalCallContextFactory;
+    private final Clock clock;
+
+    private ScheduledExecutorService archiveExecutor;
+    private volatile boolean isStopped;
+
+    @Inject
+    public DefaultAuditLogArchiveService(final AuditDao auditDao, final AuditConfig auditConfig, final InternalCallContextFactory internalCallContextFactory, final Clock clock) {
+        this.auditDao = auditDao;
+        this.auditConfig = auditConfig;
+        this.internalCallContextFactory = internalCallContextFactory;
+        this.clock = clock;
+        this.isStopped = false;
+    }
+
+    @Override
+    public String getName() {
+        return AUDIT_LOG_ARCHIVE_SERVICE_NAME;
+    }
+
+    @Override
+    public int getRegistrationOrdering() {
+        return KILLBILL_SERVICES.BROADCAST_SERVICE.getRegistrationOrdering() + 1;
+    }
+
+    @LifecycleHandlerType(LifecycleLevel.INIT_SERVICE)
+    public void initialize() {
+        this.archiveExecutor = Executors.newSingleThreadScheduledExecutor("AuditLogArchiveExecutor");
+        this.isStopped = false;
+    }
+
+    @LifecycleHandlerType(LifecycleLevel.START_SERVICE)
+    public void start() {
+        final TimeUnit rateUnit = auditConfig.getAuditLogArchiveRate().getUnit();
+        final long period = auditConfig.getAuditLogArchiveRate().getPeriod();
+        archiveExecutor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    archiveAuditLogsForAllTenants();
+                } catch (final RuntimeException e) {
+                    // Don't prevent subsequent executions
+                    logger.warn("Failed to archive audit logs", e);
+                }
+            }
+        }, period, period, rateUnit);
+    }
+
+    @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
+    public void stop() {
+        if (isStopped) {
+            logger.warn("AuditLogArchiveExecutor is already in a stopped state");
+            return;
+        }
+        try {
+            archiveExecutor.shutdown();
+            final boolean success = archiveExecutor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS);
+            if (!success) {
+                logger.warn("AuditLogArchiveExecutor failed to complete termination within {} sec", TERMINATION_TIMEOUT_SEC);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("AuditLogArchiveExecutor stop sequence got interrupted");
+        } finally {
+            isStopped = true;
+        }
+    }
+
+    @Override
+    public int archiveAuditLogs(final Long tenantRecordId) {
+        final InternalTenantContext context = internalCallContextFactory.createInternalTenantContext(tenantRecordId, null);
+        final TimeSpan retention = auditConfig.getAuditLogRetention(context);
+        if (retention.getMillis() <= 0) {
+            return 0;
+        }
+
+        final DateTime createdDateBoundary = clock.getUTCNow().minus(retention.getMillis());
+        final int batchSize = auditConfig.getAuditLogArchiveBatchSize();
+        int nbArchived = 0;
+        int nbArchivedInBatch;
+        do {
+            nbArchivedInBatch = auditDao.archiveAuditLogs(createdDateBoundary, batchSize, context);
+            nbArchived += nbArchivedInBatch;
+        } while (nbArchivedInBatch == batchSize && !isStopped);
+
+        return nbArchived;
+    }
+
+    private void archiveAuditLogsForAllTenants() {
+        final List<Long> tenantRecordIds = auditDao.getTenantRecordIds();
+        for (final Long tenantRecordId : tenantRecordIds) {
+            if (isStopped) {
+                return;
+            }
+
+            try {
+                final int nbArchived = archiveAuditLogs(tenantRecordId);
+                if (nbArchived > 0) {
+                    logger.info("Archived {} audit logs for tenantRecordId='{}'", nbArchived, tenantRecordId);
+                }
+            } catch (final RuntimeException e) {
+                logger.warn("Failed to archive audit logs for tenantRecordId='{}'", tenantRecordId, e);
+            }
+        }
+    }
+}
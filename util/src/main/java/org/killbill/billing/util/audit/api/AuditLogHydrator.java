@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.audit.api;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.api.AuditLevel;
+import org.killbill.billing.util.audit.AuditLog;
+import org.killbill.billing.util.audit.dao.AuditDao;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.dao.TableName;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+//
+// Bulk counterpart of AuditUserApi#getAuditLogs, for list endpoints: the audit logs of a whole page of objects are
+// loaded with a constant number of queries (see AuditDao#getAuditLogsForIds), instead of one lookup per object.
+//
+public class AuditLogHydrator {
+
+    // Size of the IN clauses
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private final AuditDao auditDao;
+    private final InternalCallContextFactory internalCallContextFactory;
+
+    @Inject
+    public AuditLogHydrator(final AuditDao auditDao, final InternalCallContextFactory internalCallContextFactory) {
+        this.auditDao = auditDao;
+        this.internalCallContextFactory = internalCallContextFactory;
+    }
+
+    /**
+     * @return the audit logs for each object id (an empty list for unknown objects)
+     */
+    public Map<UUID, List<AuditLog>> getAuditLogs(final Collection<UUID> objectIds, final ObjectType objectType, final AuditLevel auditLevel, final TenantContext context) {
+        final Map<UUID, List<AuditLog>> result = new HashMap<UUID, List<AuditLog>>();
+
+        // Optimization - bail early
+        final TableName tableName = DefaultAuditUserApi.getTableNameFromObjectType(objectType);
+        if (!AuditLevel.NONE.equals(auditLevel) && tableName != null && !objectIds.isEmpty()) {
+            final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(context);
+            for (final List<UUID> objectIdsForQuery : Iterables.partition(objectIds, MAX_IDS_PER_QUERY)) {
+                result.putAll(auditDao.getAuditLogsForIds(tableName, objectIdsForQuery, auditLevel, internalTenantContext));
+            }
+        }
+
+        for (final UUID objectId : objectIds) {
+            if (result.get(objectId) == null) {
+                result.put(objectId, ImmutableList.<AuditLog>of());
+            }
+        }
+        return result;
+    }
+}
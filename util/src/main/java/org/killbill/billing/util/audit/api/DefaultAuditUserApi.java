@@ -87,7 +87,7 @@ public class DefaultAuditUserApi implements AuditUserApi {
         return auditDao.getAuditLogsForId(tableName, objectId, auditLevel, internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(context));
     }
 
-    private TableName getTableNameFromObjectType(final ObjectType objectType) {
+    static TableName getTableNameFromObjectType(final ObjectType objectType) {
         for (final TableName tableName : TableName.values()) {
             if (objectType.equals(tableName.getObjectType())) {
                 return tableName;
@@ -16,9 +16,12 @@
 
 package org.killbill.billing.util.audit.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.api.AuditLevel;
 import org.killbill.billing.util.audit.AuditLog;
@@ -38,5 +41,13 @@ public interface AuditDao {
 
     public List<AuditLog> getAuditLogsForId(TableName tableName, UUID objectId, AuditLevel auditLevel, InternalTenantContext context);
 
+    // Bulk version of getAuditLogsForId: the audit logs of all the objects are loaded at once (and the audit caches populated)
+    public Map<UUID, List<AuditLog>> getAuditLogsForIds(TableName tableName, Collection<UUID> objectIds, AuditLevel auditLevel, InternalTenantContext context);
+
     List<AuditLogWithHistory> getAuditLogsWithHistoryForId(HistorySqlDao sqlDao, TableName tableName, UUID objectId, AuditLevel auditLevel, InternalTenantContext context);
+
+    public List<Long> getTenantRecordIds();
+
+    // Move (at most) rowCount audit logs created before the boundary to the archive table, returns the number of audit logs moved
+    public int archiveAuditLogs(DateTime createdDateBoundary, int rowCount, InternalTenantContext context);
 }
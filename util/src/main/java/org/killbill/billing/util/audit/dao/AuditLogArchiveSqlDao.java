@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.audit.dao;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.unstable.BindIn;
+
+@KillBillSqlDaoStringTemplate
+public interface AuditLogArchiveSqlDao {
+
+    @SqlQuery
+    public List<Long> getTenantRecordIds();
+
+    @SqlQuery
+    public List<Long> getAuditLogRecordIdsToArchive(@Bind("createdDateBoundary") final Date createdDateBoundary,
+                                                    @Bind("rowCount") final int rowCount,
+                                                    @Bind("tenantRecordId") final Long tenantRecordId);
+
+    @SqlUpdate
+    public int archiveAuditLogs(@BindIn("recordIds") final Collection<Long> recordIds,
+                                @Bind("tenantRecordId") final Long tenantRecordId);
+
+    @SqlUpdate
+    public int deleteArchivedAuditLogs(@BindIn("recordIds") final Collection<Long> recordIds,
+                                       @Bind("tenantRecordId") final Long tenantRecordId);
+}
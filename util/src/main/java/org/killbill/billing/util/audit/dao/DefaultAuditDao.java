@@ -18,15 +18,19 @@
 
 package org.killbill.billing.util.audit.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.api.AuditLevel;
@@ -37,6 +41,8 @@ import org.killbill.billing.util.audit.DefaultAccountAuditLogs;
 import org.killbill.billing.util.audit.DefaultAccountAuditLogsForObjectType;
 import org.killbill.billing.util.audit.DefaultAuditLog;
 import org.killbill.billing.util.audit.DefaultAuditLogWithHistory;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.EntityHistoryModelDao;
@@ -50,12 +56,18 @@ import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperInvocationHandler;
 import org.killbill.clock.Clock;
+import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
 
 import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
@@ -64,12 +76,16 @@ import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 public class DefaultAuditDao implements AuditDao {
 
     private final DBRouter<NonEntitySqlDao> dbRouter;
+    private final DBRouter<AuditLogArchiveSqlDao> archiveDbRouter;
     private final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
+    private final CacheControllerDispatcher cacheControllerDispatcher;
 
     @Inject
     public DefaultAuditDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory) {
         this.dbRouter = new DBRouter<NonEntitySqlDao>(dbi, roDbi, NonEntitySqlDao.class);
+        this.archiveDbRouter = new DBRouter<AuditLogArchiveSqlDao>(dbi, roDbi, AuditLogArchiveSqlDao.class);
         this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory);
+        this.cacheControllerDispatcher = cacheControllerDispatcher;
     }
 
     @Override
@@ -180,6 +196,80 @@ public class DefaultAuditDao implements AuditDao {
         }
     }
 
+    @Override
+    public Map<UUID, List<AuditLog>> getAuditLogsForIds(final TableName tableName, final Collection<UUID> objectIds, final AuditLevel auditLevel, final InternalTenantContext context) {
+        final Map<UUID, List<AuditLog>> result = new HashMap<UUID, List<AuditLog>>();
+        if (objectIds.isEmpty()) {
+            return result;
+        }
+
+        final Collection<String> ids = Collections2.transform(objectIds, Functions.toStringFunction());
+        final NonEntitySqlDao nonEntitySqlDao = dbRouter.onDemand(true);
+        final Map<Long, UUID> recordIdIdMappings = RecordIdIdMappings.toMap(nonEntitySqlDao.getRecordIdIdMappingsForIds(tableName.getTableName(), ids, context));
+
+        // Audit logs point to the history rows, for tables with history
+        final TableName historyTableName = tableName.getHistoryTableName();
+        final TableName auditedTableName;
+        final Map<Long, UUID> targetRecordIdIdMappings;
+        if (historyTableName != null) {
+            auditedTableName = historyTableName;
+            targetRecordIdIdMappings = RecordIdIdMappings.toMap(nonEntitySqlDao.getHistoryRecordIdIdMappingsForIds(tableName.getTableName(), historyTableName.getTableName(), ids, context));
+        } else {
+            auditedTableName = tableName;
+            targetRecordIdIdMappings = recordIdIdMappings;
+        }
+
+        final Map<UUID, List<AuditLogModelDao>> auditLogsPerId = new HashMap<UUID, List<AuditLogModelDao>>();
+        for (final UUID objectId : recordIdIdMappings.values()) {
+            auditLogsPerId.put(objectId, new ArrayList<AuditLogModelDao>());
+        }
+        if (!targetRecordIdIdMappings.isEmpty()) {
+            final List<AuditLogModelDao> auditLogs = transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<AuditLogModelDao>>() {
+                @Override
+                public List<AuditLogModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                    return entitySqlDaoWrapperFactory.become(EntitySqlDao.class).getAuditLogsForTargetRecordIds(auditedTableName.name(),
+                                                                                                               targetRecordIdIdMappings.keySet(),
+                                                                                                               context);
+                }
+            });
+            // Ordered by record id
+            for (final AuditLogModelDao auditLog : auditLogs) {
+                final UUID objectId = targetRecordIdIdMappings.get(auditLog.getTargetRecordId());
+                if (objectId != null) {
+                    auditLogsPerId.get(objectId).add(auditLog);
+                }
+            }
+        }
+
+        populateAuditCaches(tableName, recordIdIdMappings, auditLogsPerId);
+
+        for (final UUID objectId : auditLogsPerId.keySet()) {
+            result.put(objectId, filterAuditLogs(auditLevel, buildAuditLogsFromModelDao(auditLogsPerId.get(objectId), tableName.getObjectType(), objectId)));
+        }
+        return result;
+    }
+
+    // Same keys as the AuditSqlDao cached queries used by getAuditLogsForId
+    private void populateAuditCaches(final TableName tableName, final Map<Long, UUID> recordIdIdMappings, final Map<UUID, List<AuditLogModelDao>> auditLogsPerId) {
+        final TableName historyTableName = tableName.getHistoryTableName();
+        final CacheController<String, List> cacheController = cacheControllerDispatcher == null ?
+                                                              null :
+                                                              cacheControllerDispatcher.getCacheController(historyTableName != null ? CacheType.AUDIT_LOG_VIA_HISTORY : CacheType.AUDIT_LOG);
+        if (cacheController == null) {
+            return;
+        }
+
+        for (final Entry<Long, UUID> recordIdIdMapping : recordIdIdMappings.entrySet()) {
+            final String key;
+            if (historyTableName != null) {
+                key = EntitySqlDaoWrapperInvocationHandler.buildCacheKey(ImmutableMap.<Integer, Object>of(0, historyTableName.name(), 1, historyTableName.getTableName(), 2, recordIdIdMapping.getKey()));
+            } else {
+                key = EntitySqlDaoWrapperInvocationHandler.buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName.name(), 1, recordIdIdMapping.getKey()));
+            }
+            cacheController.putIfAbsent(key, auditLogsPerId.get(recordIdIdMapping.getValue()));
+        }
+    }
+
     @Override
     public List<AuditLogWithHistory> getAuditLogsWithHistoryForId(final HistorySqlDao transactional, final TableName tableName, final UUID objectId, final AuditLevel auditLevel, final InternalTenantContext context) {
         final TableName historyTableName = tableName.getHistoryTableName();
@@ -217,6 +307,29 @@ public class DefaultAuditDao implements AuditDao {
         });
     }
 
+    @Override
+    public List<Long> getTenantRecordIds() {
+        return archiveDbRouter.onDemand(true).getTenantRecordIds();
+    }
+
+    @Override
+    public int archiveAuditLogs(final DateTime createdDateBoundary, final int rowCount, final InternalTenantContext context) {
+        // Audit logs are read across both tables, so the audit caches don't need to be invalidated
+        return archiveDbRouter.inTransaction(false, new TransactionCallback<Integer>() {
+            @Override
+            public Integer inTransaction(final Handle handle, final TransactionStatus status) throws Exception {
+                final AuditLogArchiveSqlDao sqlDao = handle.attach(AuditLogArchiveSqlDao.class);
+                final List<Long> recordIds = sqlDao.getAuditLogRecordIdsToArchive(createdDateBoundary.toDate(), rowCount, context.getTenantRecordId());
+                if (recordIds.isEmpty()) {
+                    return 0;
+                }
+
+                sqlDao.archiveAuditLogs(recordIds, context.getTenantRecordId());
+                return sqlDao.deleteArchivedAuditLogs(recordIds, context.getTenantRecordId());
+            }
+        });
+    }
+
     private List<AuditLog> doGetAuditLogsForId(final TableName tableName, final UUID objectId, final AuditLevel auditLevel, final InternalTenantContext context) {
         final Long recordId = dbRouter.onDemand(true).getRecordIdFromObject(objectId.toString(), tableName.getTableName());
         if (recordId == null) {
@@ -52,6 +52,8 @@ public @interface Cachable {
     String ACCOUNT_BCD_CACHE_NAME = "account-bcd";
     String ACCOUNT_ID_FROM_BUNDLE_ID_CACHE_NAME = "account-id-from-bundle-id";
     String BUNDLE_ID_FROM_SUBSCRIPTION_ID_CACHE_NAME = "bundle-id-from-subscription-id";
+    String ACCOUNT_TAGS_CACHE_NAME = "account-tags";
+    String ACCOUNT_CUSTOM_FIELDS_CACHE_NAME = "account-custom-fields";
 
     CacheType value();
 
@@ -107,7 +109,13 @@ public @interface Cachable {
         ACCOUNT_ID_FROM_BUNDLE_ID(ACCOUNT_ID_FROM_BUNDLE_ID_CACHE_NAME, UUID.class, UUID.class, false),
 
         /* Entitlement id to Bundle id cache */
-        BUNDLE_ID_FROM_SUBSCRIPTION_ID(BUNDLE_ID_FROM_SUBSCRIPTION_ID_CACHE_NAME, UUID.class, UUID.class, false);
+        BUNDLE_ID_FROM_SUBSCRIPTION_ID(BUNDLE_ID_FROM_SUBSCRIPTION_ID_CACHE_NAME, UUID.class, UUID.class, false),
+
+        /* Mapping from 'accountRecordId' -> active account tags 'List<TagModelDao>' */
+        ACCOUNT_TAGS(ACCOUNT_TAGS_CACHE_NAME, Long.class, List.class, false),
+
+        /* Mapping from 'accountRecordId' -> active account custom fields 'List<CustomFieldModelDao>' */
+        ACCOUNT_CUSTOM_FIELDS(ACCOUNT_CUSTOM_FIELDS_CACHE_NAME, Long.class, List.class, false);
 
         private final String cacheName;
         private final Class keyType;
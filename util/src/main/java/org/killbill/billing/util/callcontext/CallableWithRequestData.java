@@ -15,7 +15,7 @@
  * under the License.
  */
 
-package org.killbill.billing.payment.dispatcher;
+package org.killbill.billing.util.callcontext;
 
 import java.util.Map;
 import java.util.Random;
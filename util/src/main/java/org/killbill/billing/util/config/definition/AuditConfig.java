@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config.definition;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+import org.skife.config.Param;
+import org.skife.config.TimeSpan;
+
+public interface AuditConfig extends KillbillConfig {
+
+    @Config("org.killbill.audit.archive.retention")
+    @Default("0d")
+    @Description("Age after which audit logs are moved to the archive table (0 to disable archiving)")
+    public TimeSpan getAuditLogRetention();
+
+    @Config("org.killbill.audit.archive.retention")
+    @Default("0d")
+    @Description("Age after which audit logs are moved to the archive table (0 to disable archiving)")
+    public TimeSpan getAuditLogRetention(@Param("dummy") final InternalTenantContext tenantContext);
+
+    @Config("org.killbill.audit.archive.batchSize")
+    @Default("500")
+    @Description("Number of audit logs moved to the archive table per transaction")
+    public int getAuditLogArchiveBatchSize();
+
+    @Config("org.killbill.audit.archive.rate")
+    @Default("1h")
+    @Description("Rate at which the audit log archive task is scheduled")
+    public TimeSpan getAuditLogArchiveRate();
+}
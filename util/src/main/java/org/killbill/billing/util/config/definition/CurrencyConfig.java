@@ -20,6 +20,7 @@ package org.killbill.billing.util.config.definition;
 import org.skife.config.Config;
 import org.skife.config.Default;
 import org.skife.config.Description;
+import org.skife.config.TimeSpan;
 
 public interface CurrencyConfig extends KillbillConfig {
 
@@ -27,4 +28,24 @@ public interface CurrencyConfig extends KillbillConfig {
     @Default("killbill-currency-plugin")
     @Description("Default currency provider to use")
     public String getDefaultCurrencyProvider();
+
+    @Config("org.killbill.currency.rates.cache.ttl")
+    @Default("30m")
+    @Description("How long the rates returned by the currency provider are cached (0 to disable)")
+    public TimeSpan getRatesCacheTTL();
+
+    @Config("org.killbill.currency.rates.cache.refreshAhead")
+    @Default("20m")
+    @Description("Age after which cached rates are reloaded in the background, while still being served (0 to disable)")
+    public TimeSpan getRatesCacheRefreshAhead();
+
+    @Config("org.killbill.currency.rates.cache.dateBucket")
+    @Default("0s")
+    @Description("Conversion dates within the same bucket share the rates effective at the start of the bucket (0 to key by exact date)")
+    public TimeSpan getRatesCacheDateBucket();
+
+    @Config("org.killbill.currency.rates.cache.maxSize")
+    @Default("1000")
+    @Description("Maximum number of (base currency, date bucket) rate sets cached")
+    public int getRatesCacheMaxSize();
 }
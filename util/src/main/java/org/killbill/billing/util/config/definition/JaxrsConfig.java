@@ -35,6 +35,11 @@ public interface JaxrsConfig extends KillbillConfig {
     @Description("Total timeout for all callables associated to a given api call (parallel mode)")
     TimeSpan getJaxrsTimeout();
 
+    @Config("org.killbill.jaxrs.html.render.max.in.flight")
+    @Default("4")
+    @Description("Maximum number of invoices rendered in parallel for a given bulk HTML api call (capped to half the jaxrs executor threads)")
+    int getJaxrsHtmlRenderMaxInFlight();
+
     @Config("org.killbill.jaxrs.location.full.url")
     @Default("true")
     @Description("Type of return for the jaxrs response location URL")
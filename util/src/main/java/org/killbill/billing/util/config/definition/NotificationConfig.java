@@ -38,4 +38,28 @@ public interface NotificationConfig extends KillbillConfig {
     @Description("Delay before which unresolved push notifications should be retried")
     List<TimeSpan> getPushNotificationsRetries(@Param("dummy") final InternalTenantContext tenantContext);
 
-}
\ No newline at end of file
+    @Config("org.killbill.billing.server.notifications.batchSize")
+    @Default("1")
+    @Description("Maximum number of notifications sent in a single POST (as a JSON array) to a callback; 1 disables batching")
+    int getPushNotificationsBatchSize();
+
+    @Config("org.killbill.billing.server.notifications.batchSize")
+    @Default("1")
+    @Description("Maximum number of notifications sent in a single POST (as a JSON array) to a callback; 1 disables batching")
+    int getPushNotificationsBatchSize(@Param("dummy") final InternalTenantContext tenantContext);
+
+    @Config("org.killbill.billing.server.notifications.maxConcurrency")
+    @Default("4")
+    @Description("Maximum number of concurrent POSTs to a callback")
+    int getPushNotificationsMaxConcurrency();
+
+    @Config("org.killbill.billing.server.notifications.queueCapacity")
+    @Default("10000")
+    @Description("Maximum number of notifications waiting to be sent to a callback, beyond which they go through the retry queue")
+    int getPushNotificationsQueueCapacity();
+
+    @Config("org.killbill.billing.server.notifications.deliveryTimeout")
+    @Default("5m")
+    @Description("Notifications waiting to be sent are also recorded in the retry queue at that delay: the entry is postponed while the notification is still queued or in flight, and sends it again if the node stopped before delivering it (it may then be delivered twice)")
+    TimeSpan getPushNotificationsDeliveryTimeout();
+}
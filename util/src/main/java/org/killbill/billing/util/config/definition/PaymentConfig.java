@@ -99,6 +99,11 @@ public interface PaymentConfig extends KillbillConfig {
     @Description("Default payment control plugin names")
     List<String> getPaymentControlPluginNames(@Param("dummy") final InternalTenantContext tenantContext);
 
+    @Config("org.killbill.payment.bulk.threads.nb")
+    @Default("10")
+    @Description("Number of threads used to process bulk payment requests (maximum number of accounts processed in parallel)")
+    int getPaymentBulkThreadNb();
+
     @Config("org.killbill.payment.janitor.rate")
     @Default("1h")
     @Description("Rate at which janitor tasks are scheduled")
@@ -109,6 +114,36 @@ public interface PaymentConfig extends KillbillConfig {
     @Description("Delay before which unresolved attempt should be retried")
     TimeSpan getIncompleteAttemptsTimeSpanDelay();
 
+    @Config("org.killbill.payment.janitor.transactions.window")
+    @Default("0s")
+    @Description("How far back the janitor sweeps UNKNOWN and PENDING transactions on each run (0s disables the sweep and only relies on the janitor notifications)")
+    TimeSpan getIncompleteTransactionsSweepWindow();
+
+    @Config("org.killbill.payment.janitor.threads.nb")
+    @Default("1")
+    @Description("Number of threads used by the janitor to process a batch")
+    int getJanitorThreadNb();
+
+    @Config("org.killbill.payment.janitor.batch.size")
+    @Default("100")
+    @Description("Number of entries the janitor processes in parallel before fetching the next ones")
+    int getJanitorBatchSize();
+
+    @Config("org.killbill.payment.janitor.plugin.concurrency.max")
+    @Default("0")
+    @Description("Maximum number of concurrent janitor calls per payment plugin (0 means bounded by the number of janitor threads only)")
+    int getJanitorPluginMaxConcurrentCalls();
+
+    @Config("org.killbill.payment.janitor.shards.nb")
+    @Default("1")
+    @Description("Number of janitor shards: each node only sweeps the accounts whose record id modulo the number of shards is its shard index")
+    int getJanitorNbShards();
+
+    @Config("org.killbill.payment.janitor.shard.index")
+    @Default("0")
+    @Description("Janitor shard index of this node, between 0 and the number of shards - 1")
+    int getJanitorShardIndex();
+
     @Config("org.killbill.payment.provider.default")
     // See ExternalPaymentProviderPlugin.PLUGIN_NAME
     @Default("__external_payment__")
@@ -125,6 +160,66 @@ public interface PaymentConfig extends KillbillConfig {
     @Description("Number of threads for plugin executor dispatcher")
     int getPaymentPluginThreadNb();
 
+    @Config("org.killbill.payment.plugin.threads.queue.size")
+    @Default("0")
+    @Description("Maximum number of plugin calls waiting for a plugin executor thread, further calls are rejected (0 means unbounded)")
+    int getPaymentPluginQueueSize();
+
+    @Config("org.killbill.payment.plugin.threads.virtual")
+    @Default("false")
+    @Description("Whether plugin calls should be dispatched on virtual threads (ignored if the JVM does not support them)")
+    boolean isPaymentPluginVirtualThreadsEnabled();
+
+    @Config("org.killbill.payment.plugin.concurrency.max")
+    @Default("0")
+    @Description("Maximum number of concurrent calls per plugin, further calls are rejected (0 means no limit)")
+    int getPaymentPluginMaxConcurrentCalls();
+
+    @Config("org.killbill.payment.plugin.circuitBreaker.enabled")
+    @Default("false")
+    @Description("Whether calls to a failing plugin should be rejected right away (circuit breaker)")
+    boolean isPaymentPluginCircuitBreakerEnabled();
+
+    @Config("org.killbill.payment.plugin.circuitBreaker.window.size")
+    @Default("100")
+    @Description("Number of most recent plugin calls used to compute the error rate and latency percentiles")
+    int getPaymentPluginCircuitBreakerWindowSize();
+
+    @Config("org.killbill.payment.plugin.circuitBreaker.minCalls")
+    @Default("20")
+    @Description("Minimum number of plugin calls in the window before the circuit breaker can trip")
+    int getPaymentPluginCircuitBreakerMinCalls();
+
+    @Config("org.killbill.payment.plugin.circuitBreaker.failureRate.threshold")
+    @Default("50")
+    @Description("Error rate (percentage) above which the circuit breaker trips")
+    int getPaymentPluginCircuitBreakerFailureRateThreshold();
+
+    @Config("org.killbill.payment.plugin.circuitBreaker.latency.threshold")
+    @Default("0s")
+    @Description("p99 latency above which the circuit breaker trips (0 to disable)")
+    TimeSpan getPaymentPluginCircuitBreakerLatencyThreshold();
+
+    @Config("org.killbill.payment.plugin.circuitBreaker.open.duration")
+    @Default("30s")
+    @Description("Time during which calls are rejected once the circuit breaker has tripped")
+    TimeSpan getPaymentPluginCircuitBreakerOpenDuration();
+
+    @Config("org.killbill.payment.plugin.circuitBreaker.halfOpen.calls")
+    @Default("3")
+    @Description("Number of probe calls which need to succeed for the circuit breaker to close again")
+    int getPaymentPluginCircuitBreakerHalfOpenCalls();
+
+    @Config("org.killbill.payment.plugin.timeout.adaptive")
+    @Default("false")
+    @Description("Whether the plugin timeout should be derived from the observed p99 latency (capped by org.killbill.payment.plugin.timeout)")
+    boolean isPaymentPluginAdaptiveTimeoutEnabled();
+
+    @Config("org.killbill.payment.plugin.timeout.adaptive.min")
+    @Default("1s")
+    @Description("Minimum timeout when the plugin timeout is derived from the observed latency")
+    TimeSpan getPaymentPluginAdaptiveTimeoutMin();
+
     @Config("org.killbill.payment.globalLock.retries")
     @Default("50")
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config.definition;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+import org.skife.config.TimeSpan;
+
+public interface SearchConfig extends KillbillConfig {
+
+    @Config("org.killbill.billing.util.search.index.enabled")
+    @Default("false")
+    @Description("Whether the account and payment searches should be served by the in-memory search index instead of database scans")
+    public boolean isSearchIndexEnabled();
+
+    @Config("org.killbill.billing.util.search.index.maxTenants")
+    @Default("100")
+    @Description("Maximum number of tenants kept in the search index, per entity type (least recently used tenants are reloaded on demand)")
+    public int getSearchIndexMaxTenants();
+
+    @Config("org.killbill.billing.util.search.index.catchUpWindow")
+    @Default("5m")
+    @Description("The history records applied to the search index within that window are replayed again at each refresh, to pick up the transactions which committed out of order (transactions lasting longer than that are only picked up when the index is reloaded)")
+    public TimeSpan getSearchIndexCatchUpWindow();
+}
@@ -21,6 +21,7 @@ import org.skife.config.Config;
 import org.skife.config.Default;
 import org.skife.config.DefaultNull;
 import org.skife.config.Description;
+import org.skife.config.TimeSpan;
 
 public interface SecurityConfig extends KillbillConfig {
 
@@ -34,6 +35,16 @@ public interface SecurityConfig extends KillbillConfig {
     @Description("Sets the number of times submitted credentials will be hashed before comparing to the credentials stored in the system")
     public Integer getShiroNbHashIterations();
 
+    @Config("org.killbill.security.verifiedCredentialsCache.ttl")
+    @Default("1m")
+    @Description("How long successfully verified credentials are remembered, to skip the hashing on subsequent authentications (0 to disable)")
+    public TimeSpan getVerifiedCredentialsCacheTTL();
+
+    @Config("org.killbill.security.verifiedCredentialsCache.hmacKey")
+    @DefaultNull
+    @Description("Secret used to derive the verified credentials cache keys, it needs to be the same on all nodes to share the cache (random per node if not set)")
+    public String getVerifiedCredentialsCacheHmacKey();
+
     // LDAP Realm
 
     @Config("org.killbill.security.ldap.userDnTemplate")
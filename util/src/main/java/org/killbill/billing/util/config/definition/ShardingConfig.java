@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config.definition;
+
+import java.util.List;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+import org.skife.config.TimeSpan;
+
+public interface ShardingConfig extends KillbillConfig {
+
+    @Config("org.killbill.sharding.enabled")
+    @Default("false")
+    @Description("Whether each node processes the notifications of its own account buckets (requires the STICKY_POLLING notification queue mode)")
+    public boolean isShardingEnabled();
+
+    @Config("org.killbill.sharding.nbBuckets")
+    @Default("1024")
+    @Description("Number of account buckets (account record id modulo the number of buckets) distributed across the nodes")
+    public int getNbBuckets();
+
+    @Config("org.killbill.sharding.heartbeat")
+    @Default("5s")
+    @Description("Rate at which each node updates its node info and refreshes the bucket assignment")
+    public TimeSpan getHeartbeatRate();
+
+    @Config("org.killbill.sharding.nodeTimeout")
+    @Default("30s")
+    @Description("Time after which a node which didn't update its node info is considered gone (its buckets are reassigned)")
+    public TimeSpan getNodeTimeout();
+
+    @Config("org.killbill.sharding.notificationq.queues")
+    @Default("invoice-service:next-billing-date-queue,subscription-service:subscription-events,entitlement-service:entitlement-events")
+    @Description("Sharded notification queues (full queue names)")
+    public List<String> getShardedNotificationQueues();
+
+    @Config("org.killbill.sharding.notificationq.lookAhead")
+    @Default("1m")
+    @Description("How far in the future notifications are adopted by the owner of their account bucket")
+    public TimeSpan getNotificationLookAhead();
+
+    @Config("org.killbill.sharding.affinity.enabled")
+    @Default("false")
+    @Description("Whether the bus events and the notifications of all queues are dispatched to the node owning their account bucket, " +
+                 "per-account work being serialized in memory on that node (requires sharding and the STICKY_POLLING bus and notification queue modes)")
+    public boolean isAffinityEnabled();
+
+    @Config("org.killbill.sharding.affinity.rate")
+    @Default("1s")
+    @Description("Rate at which each node adopts the bus events and notifications of its account buckets, in affinity mode")
+    public TimeSpan getAffinityRate();
+}
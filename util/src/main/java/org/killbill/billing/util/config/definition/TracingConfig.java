@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config.definition;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+import org.skife.config.TimeSpan;
+
+public interface TracingConfig extends KillbillConfig {
+
+    @Config("org.killbill.tracing.slow.threshold")
+    @Default("1s")
+    @Description("Duration above which a transaction, a lock wait or a lock hold is reported as slow")
+    public TimeSpan getSlowThreshold();
+
+    @Config("org.killbill.tracing.slow.maxRecords")
+    @Default("200")
+    @Description("Number of recent slow transactions and locks kept in memory (see the admin API)")
+    public int getMaxSlowRecords();
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config.tenant;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.config.definition.AuditConfig;
+import org.killbill.billing.util.config.definition.KillbillConfig;
+import org.killbill.billing.util.glue.AuditModule;
+import org.skife.config.TimeSpan;
+
+public class MultiTenantAuditConfig extends MultiTenantConfigBase implements AuditConfig {
+
+    private final AuditConfig staticConfig;
+
+    @Inject
+    public MultiTenantAuditConfig(@Named(AuditModule.STATIC_CONFIG) final AuditConfig staticConfig, final CacheConfig cacheConfig) {
+        super(cacheConfig);
+        this.staticConfig = staticConfig;
+    }
+
+    @Override
+    public TimeSpan getAuditLogRetention() {
+        return staticConfig.getAuditLogRetention();
+    }
+
+    @Override
+    public TimeSpan getAuditLogRetention(final InternalTenantContext tenantContext) {
+        final String result = getStringTenantConfig("getAuditLogRetention", tenantContext);
+        if (result != null) {
+            return new TimeSpan(result);
+        }
+        return getAuditLogRetention();
+    }
+
+    @Override
+    public int getAuditLogArchiveBatchSize() {
+        return staticConfig.getAuditLogArchiveBatchSize();
+    }
+
+    @Override
+    public TimeSpan getAuditLogArchiveRate() {
+        return staticConfig.getAuditLogArchiveRate();
+    }
+
+    @Override
+    protected Class<? extends KillbillConfig> getConfigClass() {
+        return AuditConfig.class;
+    }
+}
@@ -16,6 +16,10 @@
 
 package org.killbill.billing.util.customfield.dao;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -27,7 +31,7 @@ import org.killbill.billing.util.entity.dao.EntityModelDao;
 import org.killbill.billing.util.entity.dao.EntityModelDaoBase;
 import org.killbill.billing.util.tag.dao.TagModelDao;
 
-public class CustomFieldModelDao extends EntityModelDaoBase implements EntityModelDao<CustomField> {
+public class CustomFieldModelDao extends EntityModelDaoBase implements EntityModelDao<CustomField>, Externalizable {
 
     private String fieldName;
     private String fieldValue;
@@ -179,4 +183,34 @@ public class CustomFieldModelDao extends EntityModelDaoBase implements EntityMod
         return TableName.CUSTOM_FIELD_HISTORY;
     }
 
+    // Cached in the account-custom-fields cache (see DefaultCustomFieldDao)
+    @Override
+    public void writeExternal(final ObjectOutput out) throws IOException {
+        out.writeObject(id);
+        out.writeObject(createdDate);
+        out.writeObject(updatedDate);
+        out.writeObject(getRecordId());
+        out.writeObject(getAccountRecordId());
+        out.writeObject(getTenantRecordId());
+        out.writeObject(fieldName);
+        out.writeObject(fieldValue);
+        out.writeObject(objectId);
+        out.writeObject(objectType);
+        out.writeObject(isActive);
+    }
+
+    @Override
+    public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+        this.id = (UUID) in.readObject();
+        this.createdDate = (DateTime) in.readObject();
+        this.updatedDate = (DateTime) in.readObject();
+        setRecordId((Long) in.readObject());
+        setAccountRecordId((Long) in.readObject());
+        setTenantRecordId((Long) in.readObject());
+        this.fieldName = (String) in.readObject();
+        this.fieldValue = (String) in.readObject();
+        this.objectId = (UUID) in.readObject();
+        this.objectType = (ObjectType) in.readObject();
+        this.isActive = (Boolean) in.readObject();
+    }
 }
@@ -36,7 +36,11 @@ import org.killbill.billing.util.api.CustomFieldApiException;
 import org.killbill.billing.util.audit.AuditLogWithHistory;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.audit.dao.AuditDao;
+import org.killbill.billing.util.cache.AccountCustomFieldsCacheLoader;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.cache.CacheLoaderArgument;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.customfield.api.DefaultCustomFieldCreationEvent;
@@ -66,12 +70,17 @@ import com.google.inject.Inject;
 
 import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
+//
+// The custom fields of an account are cached (ACCOUNT_CUSTOM_FIELDS, keyed by account record id), see DefaultTagDao.
+//
 public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, CustomField, CustomFieldApiException> implements CustomFieldDao {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultCustomFieldDao.class);
 
     private final PersistentBus bus;
     private final AuditDao auditDao;
+    private final CacheController<Long, List> accountCustomFieldsCacheController;
+    private final AccountCustomFieldsCacheLoader.LoaderCallback accountCustomFieldsLoaderCallback;
 
     @Inject
     public DefaultCustomFieldDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final Clock clock, final CacheControllerDispatcher controllerDispatcher,
@@ -79,6 +88,13 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
         super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, controllerDispatcher, nonEntityDao, internalCallContextFactory), CustomFieldSqlDao.class);
         this.bus = bus;
         this.auditDao = auditDao;
+        this.accountCustomFieldsCacheController = controllerDispatcher == null ? null : controllerDispatcher.<Long, List>getCacheController(CacheType.ACCOUNT_CUSTOM_FIELDS);
+        this.accountCustomFieldsLoaderCallback = new AccountCustomFieldsCacheLoader.LoaderCallback() {
+            @Override
+            public List loadAccountCustomFields(final Long accountRecordId, final InternalTenantContext context) {
+                return ImmutableList.<CustomFieldModelDao>copyOf(getCustomFieldsForAccountFromDB(context));
+            }
+        };
     }
 
     @Override
@@ -105,7 +121,17 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public List<CustomFieldModelDao> getCustomFieldsForAccount(final InternalTenantContext context) {
+        if (context.getAccountRecordId() == null || accountCustomFieldsCacheController == null) {
+            return getCustomFieldsForAccountFromDB(context);
+        }
+
+        final CacheLoaderArgument cacheLoaderArgument = new CacheLoaderArgument(null, new Object[]{accountCustomFieldsLoaderCallback}, context);
+        return (List<CustomFieldModelDao>) accountCustomFieldsCacheController.get(context.getAccountRecordId(), cacheLoaderArgument);
+    }
+
+    private List<CustomFieldModelDao> getCustomFieldsForAccountFromDB(final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<CustomFieldModelDao>>() {
             @Override
             public List<CustomFieldModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
@@ -131,7 +157,7 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
                 return null;
             }
         });
-
+        invalidateAccountCustomFields(context);
     }
 
     @Override
@@ -170,6 +196,25 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
                 return null;
             }
         });
+        invalidateAccountCustomFields(context);
+    }
+
+    @Override
+    public void create(final CustomFieldModelDao entity, final InternalCallContext context) throws CustomFieldApiException {
+        super.create(entity, context);
+        invalidateAccountCustomFields(context);
+    }
+
+    @Override
+    public void create(final Iterable<CustomFieldModelDao> entities, final InternalCallContext context) throws CustomFieldApiException {
+        super.create(entities, context);
+        invalidateAccountCustomFields(context);
+    }
+
+    private void invalidateAccountCustomFields(final InternalTenantContext context) {
+        if (context.getAccountRecordId() != null && accountCustomFieldsCacheController != null) {
+            accountCustomFieldsCacheController.remove(context.getAccountRecordId());
+        }
     }
 
     @Override
@@ -18,14 +18,38 @@ package org.killbill.billing.util.email.templates;
 
 import java.util.Map;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.samskivert.mustache.Mustache;
 import com.samskivert.mustache.Template;
 
 public class MustacheTemplateEngine implements TemplateEngine {
 
+    private static final int MAX_COMPILED_TEMPLATES = 200;
+
+    // Compiled templates are immutable and thread-safe: they are keyed by the template text itself, so a template
+    // updated by a tenant is simply a new entry (the old one is eventually evicted)
+    private final LoadingCache<String, Template> compiledTemplates = CacheBuilder.newBuilder()
+                                                                                 .maximumSize(MAX_COMPILED_TEMPLATES)
+                                                                                 .build(new CacheLoader<String, Template>() {
+                                                                                     @Override
+                                                                                     public Template load(final String templateText) {
+                                                                                         return Mustache.compiler().nullValue("").compile(templateText);
+                                                                                     }
+                                                                                 });
+
     @Override
     public String executeTemplateText(final String templateText, final Map<String, Object> data) {
-        final Template template = Mustache.compiler().nullValue("").compile(templateText);
+        final Template template;
+        try {
+            template = compiledTemplates.getUnchecked(templateText);
+        } catch (final UncheckedExecutionException e) {
+            // Surface the MustacheException as if the template had been compiled inline
+            throw Throwables.propagate(e.getCause());
+        }
         return template.execute(data);
     }
 }
@@ -36,6 +36,8 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
     private final Long totalNbRecords;
     private final Long maxNbRecords;
     private final Iterator<T> delegateIterator;
+    // Keyset pagination only (see DefaultPaginationSqlDaoHelper)
+    private final String nextContinuationToken;
 
     // Builders when the streaming API can't be used (should only be used for tests)
     // Notes: elements should be the entire records set (regardless of filtering) otherwise maxNbRecords won't be accurate
@@ -59,7 +61,12 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
 
     // Constructor for DAO -> API bridge
     public DefaultPagination(final Pagination original, final Long limit, final Iterator<T> delegate) {
-        this(original.getCurrentOffset(), limit, original.getTotalNbRecords(), original.getMaxNbRecords(), delegate);
+        this(original.getCurrentOffset(),
+             limit,
+             original.getTotalNbRecords(),
+             original.getMaxNbRecords(),
+             delegate,
+             original instanceof DefaultPagination ? ((DefaultPagination) original).getNextContinuationToken() : null);
     }
 
     // Constructor for DAO getAll calls
@@ -70,12 +77,20 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
     public DefaultPagination(final Long currentOffset, final Long limit,
                              @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
                              final Iterator<T> delegateIterator) {
+        this(currentOffset, limit, totalNbRecords, maxNbRecords, delegateIterator, null);
+    }
+
+    public DefaultPagination(@Nullable final Long currentOffset, final Long limit,
+                             @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
+                             final Iterator<T> delegateIterator,
+                             @Nullable final String nextContinuationToken) {
         this.currentOffset = currentOffset;
         // See DefaultPaginationSqlDaoHelper
         this.limit = Math.abs(limit);
         this.totalNbRecords = totalNbRecords;
         this.maxNbRecords = maxNbRecords;
         this.delegateIterator = delegateIterator;
+        this.nextContinuationToken = nextContinuationToken;
     }
 
     @Override
@@ -102,6 +117,11 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
 
     @Override
     public Long getNextOffset() {
+        if (currentOffset == null) {
+            // Keyset pagination, see getNextContinuationToken
+            return null;
+        }
+
         final long candidate = currentOffset + limit;
         if (totalNbRecords != null && candidate >= totalNbRecords) {
             // No more results
@@ -115,6 +135,11 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
         }
     }
 
+    // Null when there are no more results (or when using offset pagination)
+    public String getNextContinuationToken() {
+        return nextContinuationToken;
+    }
+
     @Override
     public Long getMaxNbRecords() {
         return maxNbRecords;
@@ -132,6 +157,7 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
         sb.append(", nextOffset=").append(getNextOffset());
         sb.append(", totalNbRecords=").append(totalNbRecords);
         sb.append(", maxNbRecords=").append(maxNbRecords);
+        sb.append(", nextContinuationToken=").append(nextContinuationToken);
         sb.append('}');
         return sb.toString();
     }
@@ -20,7 +20,9 @@ package org.killbill.billing.util.entity.dao;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
+import java.util.List;
 
 import javax.annotation.Nullable;
 
@@ -31,6 +33,10 @@ import org.killbill.billing.util.entity.Pagination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.BaseEncoding;
+
 public class DefaultPaginationSqlDaoHelper {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultPaginationSqlDaoHelper.class);
@@ -72,6 +78,69 @@ public class DefaultPaginationSqlDaoHelper {
         // We usually always want to wrap our queries in an EntitySqlDaoTransactionWrapper... except here.
         // Since we want to stream the results out, we don't want to auto-commit when this method returns.
         final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemandForStreamingResults(sqlDaoClazz);
+        final Long maxNbRecords = getMaxNbRecords(sqlDao, paginationIteratorBuilder, ordering, context);
+        final Iterator<M> results = paginationIteratorBuilder.build((S) sqlDao, offset, limit, ordering, context);
+
+        final Long totalNbRecords = totalNbRecordsOrNull == null ? maxNbRecords : totalNbRecordsOrNull;
+
+        return new DefaultPagination<M>(offset, limit, totalNbRecords, maxNbRecords, results);
+    }
+
+    //
+    // Keyset (seek) pagination: instead of an offset, the page starts right after the record id encoded in the continuation token.
+    // The cost of a page doesn't depend on how deep it is, and pages stay consistent when rows are inserted or deleted concurrently.
+    // - the page is materialized (limit is bounded by the caller), so that the next continuation token is known upfront
+    // - the counts are optional (they are the expensive part on large tables)
+    // - the ordering is carried by the token, the sign of the limit is only used for the first page
+    //
+    public <E extends Entity, M extends EntityModelDao<E>, S extends EntitySqlDao<M, E>> Pagination<M> getPaginationFromContinuationToken(final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz,
+                                                                                                                                          final PaginationIteratorBuilder<M, E, S> paginationIteratorBuilder,
+                                                                                                                                          @Nullable final String continuationToken,
+                                                                                                                                          final Long limitMaybeNegative,
+                                                                                                                                          final boolean withCount,
+                                                                                                                                          final InternalTenantContext context) {
+        final ContinuationToken fromToken = continuationToken == null ? null : ContinuationToken.decode(continuationToken);
+        final Ordering ordering = fromToken != null ? fromToken.getOrdering() : (limitMaybeNegative >= 0 ? Ordering.ASC : Ordering.DESC);
+        final Long fromRecordId = fromToken != null ? fromToken.getRecordId() : null;
+        final Long limit = Math.abs(limitMaybeNegative);
+
+        final List<M> results = transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<M>>() {
+            @Override
+            public List<M> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final EntitySqlDao<M, E> sqlDao = entitySqlDaoWrapperFactory.become(sqlDaoClazz);
+                final Iterator<M> iterator = paginationIteratorBuilder.buildFromRecordId((S) sqlDao, fromRecordId, limit, ordering, context);
+                try {
+                    return ImmutableList.<M>copyOf(iterator);
+                } finally {
+                    closeIterator(iterator);
+                }
+            }
+        });
+
+        Long totalNbRecords = null;
+        Long maxNbRecords = null;
+        if (withCount) {
+            final Long totalNbRecordsOrNull = transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<Long>() {
+                @Override
+                public Long inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                    final EntitySqlDao<M, E> sqlDao = entitySqlDaoWrapperFactory.become(sqlDaoClazz);
+                    return paginationIteratorBuilder.getCount((S) sqlDao, context);
+                }
+            });
+            maxNbRecords = getMaxNbRecords(transactionalSqlDao.onDemandForStreamingResults(sqlDaoClazz), paginationIteratorBuilder, ordering, context);
+            totalNbRecords = totalNbRecordsOrNull == null ? maxNbRecords : totalNbRecordsOrNull;
+        }
+
+        // A short page means we've reached the end
+        final String nextContinuationToken = results.size() < limit || results.isEmpty() ? null : new ContinuationToken(ordering, results.get(results.size() - 1).getRecordId()).encode();
+
+        return new DefaultPagination<M>(null, limit, totalNbRecords, maxNbRecords, results.iterator(), nextContinuationToken);
+    }
+
+    private <E extends Entity, M extends EntityModelDao<E>, S extends EntitySqlDao<M, E>> Long getMaxNbRecords(final EntitySqlDao<M, E> sqlDao,
+                                                                                                             final PaginationIteratorBuilder<M, E, S> paginationIteratorBuilder,
+                                                                                                             final Ordering ordering,
+                                                                                                             @Nullable final InternalTenantContext context) {
         final Long maxNbRecords;
         if (context == null) {
             maxNbRecords = null;
@@ -83,18 +152,7 @@ public class DefaultPaginationSqlDaoHelper {
             final boolean veryLargeDataSet = simplePaginationIterator.hasNext();
 
             // Make sure to free resources (https://github.com/killbill/killbill/issues/853)
-            if (simplePaginationIterator instanceof Closeable) {
-                // Always the case with the current implementation (simplePaginationIterator is a org.skife.jdbi.v2.ResultIterator)
-                try {
-                    ((Closeable) simplePaginationIterator).close();
-                } catch (final IOException e) {
-                    logger.warn("Unable to close iterator", e);
-                }
-            } else {
-                while (simplePaginationIterator.hasNext()) {
-                    simplePaginationIterator.next();
-                }
-            }
+            closeIterator(simplePaginationIterator);
 
             if (veryLargeDataSet) {
                 maxNbRecords = null;
@@ -102,11 +160,22 @@ public class DefaultPaginationSqlDaoHelper {
                 maxNbRecords = sqlDao.getCount(context);
             }
         }
-        final Iterator<M> results = paginationIteratorBuilder.build((S) sqlDao, offset, limit, ordering, context);
-
-        final Long totalNbRecords = totalNbRecordsOrNull == null ? maxNbRecords : totalNbRecordsOrNull;
+        return maxNbRecords;
+    }
 
-        return new DefaultPagination<M>(offset, limit, totalNbRecords, maxNbRecords, results);
+    private static void closeIterator(final Iterator<?> iterator) {
+        if (iterator instanceof Closeable) {
+            // Always the case with the current implementation (iterator is a org.skife.jdbi.v2.ResultIterator)
+            try {
+                ((Closeable) iterator).close();
+            } catch (final IOException e) {
+                logger.warn("Unable to close iterator", e);
+            }
+        } else {
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+        }
     }
 
     public abstract static class PaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> {
@@ -117,10 +186,61 @@ public class DefaultPaginationSqlDaoHelper {
         public abstract Long getCount(final S sqlDao, final InternalTenantContext context);
 
         public abstract Iterator<M> build(final S sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context);
+
+        // Keyset pagination: return the first limit records after fromRecordId (from the start if null), in record id order.
+        // Search queries would need to override it to apply their filter
+        public Iterator<M> buildFromRecordId(final S sqlDao, @Nullable final Long fromRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+            final Long minRecordId = ordering == Ordering.ASC && fromRecordId != null ? fromRecordId : 0L;
+            final Long maxRecordId = ordering == Ordering.DESC && fromRecordId != null ? fromRecordId : Long.MAX_VALUE;
+            return sqlDao.getFromRecordId(minRecordId, maxRecordId, limit, ordering.toString(), context);
+        }
     }
 
     public enum Ordering {
         ASC,
         DESC
     }
+
+    // Opaque (base64url) representation of the position of the last record returned: <version>:<ordering>:<recordId>
+    public static class ContinuationToken {
+
+        private static final String VERSION = "1";
+        private static final String SEPARATOR = ":";
+        private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+
+        private final Ordering ordering;
+        private final Long recordId;
+
+        public ContinuationToken(final Ordering ordering, final Long recordId) {
+            this.ordering = ordering;
+            this.recordId = recordId;
+        }
+
+        public static ContinuationToken decode(final String continuationToken) {
+            final String[] parts;
+            try {
+                parts = new String(ENCODING.decode(continuationToken), StandardCharsets.UTF_8).split(SEPARATOR);
+            } catch (final IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid continuation token " + continuationToken, e);
+            }
+            Preconditions.checkArgument(parts.length == 3 && VERSION.equals(parts[0]), "Invalid continuation token %s", continuationToken);
+            try {
+                return new ContinuationToken(Ordering.valueOf(parts[1]), Long.valueOf(parts[2]));
+            } catch (final IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid continuation token " + continuationToken, e);
+            }
+        }
+
+        public String encode() {
+            return ENCODING.encode((VERSION + SEPARATOR + ordering + SEPARATOR + recordId).getBytes(StandardCharsets.UTF_8));
+        }
+
+        public Ordering getOrdering() {
+            return ordering;
+        }
+
+        public Long getRecordId() {
+            return recordId;
+        }
+    }
 }
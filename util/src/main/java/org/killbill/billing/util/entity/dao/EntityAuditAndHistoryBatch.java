@@ -0,0 +1,238 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.dao.EntityAudit;
+import org.killbill.billing.util.dao.EntityHistoryModelDao;
+import org.killbill.billing.util.dao.TableName;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+//
+// History and audit rows of the @Audited calls of a transaction (see EntitySqlDaoWrapperInvocationHandler), written as
+// JDBC batches (one for the history rows and one for the audit rows, per table) right before the transaction commits:
+// - rows are flushed in the same transaction, so they are committed (or rolled back) with the entity changes
+// - audit rows point to the history record ids, which batches don't return: these are read back afterwards, bounded by the
+//   last history record id of the targets before the batch, and by tenant (the entity rows are locked by the transaction)
+// - any read of the audit or history tables through the transaction sql daos flushes the pending rows first
+//
+public class EntityAuditAndHistoryBatch {
+
+    private final CacheControllerDispatcher cacheControllerDispatcher;
+
+    private final List<PendingChange> pendingChanges = new LinkedList<PendingChange>();
+
+    public EntityAuditAndHistoryBatch(@Nullable final CacheControllerDispatcher cacheControllerDispatcher) {
+        this.cacheControllerDispatcher = cacheControllerDispatcher;
+    }
+
+    public boolean isEmpty() {
+        return pendingChanges.isEmpty();
+    }
+
+    public void add(final EntitySqlDao sqlDao,
+                    final EntityModelDao entity,
+                    final Long entityRecordId,
+                    final ChangeType changeType,
+                    final InternalCallContext context,
+                    final InternalCallContext auditContext) {
+        pendingChanges.add(new PendingChange(sqlDao, entity, entityRecordId, changeType, context, auditContext));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void flush() {
+        if (pendingChanges.isEmpty()) {
+            return;
+        }
+
+        // Keep the order of the changes, per table
+        final Map<TableName, List<PendingChange>> changesPerTable = new LinkedHashMap<TableName, List<PendingChange>>();
+        for (final PendingChange pendingChange : pendingChanges) {
+            if (changesPerTable.get(pendingChange.tableName) == null) {
+                changesPerTable.put(pendingChange.tableName, new ArrayList<PendingChange>());
+            }
+            changesPerTable.get(pendingChange.tableName).add(pendingChange);
+        }
+        pendingChanges.clear();
+
+        for (final TableName tableName : changesPerTable.keySet()) {
+            final List<PendingChange> changes = changesPerTable.get(tableName);
+            final EntitySqlDao sqlDao = changes.get(0).sqlDao;
+
+            final List<Long> historyRecordIds;
+            if (tableName.getHistoryTableName() != null) {
+                final Map<Long, List<Integer>> changesPerTenant = getChangesPerTenant(changes);
+                final Map<Long, Long> lastHistoryRecordIdPerTenant = getLastHistoryRecordIds(sqlDao, changes, changesPerTenant);
+
+                final List<EntityHistoryModelDao> histories = new ArrayList<EntityHistoryModelDao>(changes.size());
+                final List<InternalCallContext> contexts = new ArrayList<InternalCallContext>(changes.size());
+                for (final PendingChange change : changes) {
+                    histories.add(new EntityHistoryModelDao(change.entity, change.entityRecordId, change.changeType, null, change.context.getCreatedDate()));
+                    contexts.add(change.context);
+                }
+                sqlDao.addHistoriesFromTransaction(histories, contexts);
+
+                historyRecordIds = getHistoryRecordIds(sqlDao, tableName.getHistoryTableName(), changes, changesPerTenant, lastHistoryRecordIdPerTenant);
+            } else {
+                historyRecordIds = new ArrayList<Long>(changes.size());
+                for (final PendingChange change : changes) {
+                    historyRecordIds.add(change.entityRecordId);
+                }
+            }
+
+            // Note: audit entries point to the history record id
+            final TableName destinationTableName = MoreObjects.firstNonNull(tableName.getHistoryTableName(), tableName);
+            final List<EntityAudit> audits = new ArrayList<EntityAudit>(changes.size());
+            final List<InternalCallContext> auditContexts = new ArrayList<InternalCallContext>(changes.size());
+            for (int i = 0; i < changes.size(); i++) {
+                final PendingChange change = changes.get(i);
+                audits.add(new EntityAudit(destinationTableName, historyRecordIds.get(i), change.changeType, change.context.getCreatedDate()));
+                auditContexts.add(change.auditContext);
+            }
+            sqlDao.insertAuditsFromTransaction(audits, auditContexts);
+
+            for (final PendingChange change : changes) {
+                invalidateAuditCaches(tableName, change.entityRecordId);
+            }
+        }
+    }
+
+    // Indexes of the changes, per tenant record id
+    private Map<Long, List<Integer>> getChangesPerTenant(final List<PendingChange> changes) {
+        final Map<Long, List<Integer>> changesPerTenant = new LinkedHashMap<Long, List<Integer>>();
+        for (int i = 0; i < changes.size(); i++) {
+            final Long tenantRecordId = changes.get(i).context.getTenantRecordId();
+            if (changesPerTenant.get(tenantRecordId) == null) {
+                changesPerTenant.put(tenantRecordId, new ArrayList<Integer>());
+            }
+            changesPerTenant.get(tenantRecordId).add(i);
+        }
+        return changesPerTenant;
+    }
+
+    // Most recent history record id of the targets, before the batch is written
+    @SuppressWarnings("unchecked")
+    private Map<Long, Long> getLastHistoryRecordIds(final EntitySqlDao sqlDao, final List<PendingChange> changes, final Map<Long, List<Integer>> changesPerTenant) {
+        final Map<Long, Long> lastHistoryRecordIdPerTenant = new HashMap<Long, Long>();
+        for (final Long tenantRecordId : changesPerTenant.keySet()) {
+            final List<Integer> changeIndexes = changesPerTenant.get(tenantRecordId);
+            final Long lastHistoryRecordId = sqlDao.getMaxHistoryRecordIdForTargetRecordIds(getTargetRecordIds(changes, changeIndexes), changes.get(changeIndexes.get(0)).context);
+            lastHistoryRecordIdPerTenant.put(tenantRecordId, MoreObjects.firstNonNull(lastHistoryRecordId, 0L));
+        }
+        return lastHistoryRecordIdPerTenant;
+    }
+
+    // The history record ids, in the order of the changes: the rows past the last history record id of the targets are exactly
+    // the ones of the batch, as no other transaction can write history rows for entities locked by this transaction. Within the
+    // batch, record ids are allocated in insertion order.
+    @SuppressWarnings("unchecked")
+    private List<Long> getHistoryRecordIds(final EntitySqlDao sqlDao,
+                                           final TableName historyTableName,
+                                           final List<PendingChange> changes,
+                                           final Map<Long, List<Integer>> changesPerTenant,
+                                           final Map<Long, Long> lastHistoryRecordIdPerTenant) {
+        final Long[] historyRecordIds = new Long[changes.size()];
+        for (final Long tenantRecordId : changesPerTenant.keySet()) {
+            final List<Integer> changeIndexes = changesPerTenant.get(tenantRecordId);
+            final List<Long> historyRecordIdsForTenant = sqlDao.getHistoryRecordIdsForTargetRecordIdsFrom(lastHistoryRecordIdPerTenant.get(tenantRecordId),
+                                                                                                          getTargetRecordIds(changes, changeIndexes),
+                                                                                                          changes.get(changeIndexes.get(0)).context);
+            Preconditions.checkState(historyRecordIdsForTenant.size() == changeIndexes.size(),
+                                     "Expected %s new history rows in table %s, found %s", changeIndexes.size(), historyTableName, historyRecordIdsForTenant.size());
+            for (int i = 0; i < changeIndexes.size(); i++) {
+                historyRecordIds[changeIndexes.get(i)] = historyRecordIdsForTenant.get(i);
+            }
+        }
+        return Arrays.asList(historyRecordIds);
+    }
+
+    private Set<Long> getTargetRecordIds(final List<PendingChange> changes, final List<Integer> changeIndexes) {
+        final Set<Long> targetRecordIds = new HashSet<Long>();
+        for (final Integer changeIndex : changeIndexes) {
+            targetRecordIds.add(changes.get(changeIndex).entityRecordId);
+        }
+        return targetRecordIds;
+    }
+
+    // We need to invalidate the caches. There is a small window of doom here where caches will be stale.
+    // TODO Knowledge on how the key is constructed is also in AuditSqlDao
+    private void invalidateAuditCaches(final TableName tableName, final Long entityRecordId) {
+        if (cacheControllerDispatcher == null) {
+            return;
+        }
+
+        if (tableName.getHistoryTableName() != null) {
+            final CacheController<String, List> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG_VIA_HISTORY);
+            if (cacheController != null) {
+                final String key = EntitySqlDaoWrapperInvocationHandler.buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName.getHistoryTableName(), 1, tableName.getHistoryTableName(), 2, entityRecordId));
+                cacheController.remove(key);
+            }
+        } else {
+            final CacheController<String, List> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG);
+            if (cacheController != null) {
+                final String key = EntitySqlDaoWrapperInvocationHandler.buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName, 1, entityRecordId));
+                cacheController.remove(key);
+            }
+        }
+    }
+
+    private static final class PendingChange {
+
+        private final EntitySqlDao sqlDao;
+        private final TableName tableName;
+        private final EntityModelDao entity;
+        private final Long entityRecordId;
+        private final ChangeType changeType;
+        private final InternalCallContext context;
+        private final InternalCallContext auditContext;
+
+        private PendingChange(final EntitySqlDao sqlDao,
+                              final EntityModelDao entity,
+                              final Long entityRecordId,
+                              final ChangeType changeType,
+                              final InternalCallContext context,
+                              final InternalCallContext auditContext) {
+            this.sqlDao = sqlDao;
+            this.tableName = entity.getTableName();
+            this.entity = entity;
+            this.entityRecordId = entityRecordId;
+            this.changeType = changeType;
+            this.context = context;
+            this.auditContext = auditContext;
+        }
+    }
+}
@@ -25,6 +25,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import org.killbill.billing.BillingExceptionBase;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -203,6 +205,27 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
                                               context);
     }
 
+    @Override
+    public Pagination<M> get(@Nullable final String continuationToken, final Long limit, final boolean withCount, final InternalTenantContext context) {
+        return paginationHelper.getPaginationFromContinuationToken(realSqlDao,
+                                                                   new PaginationIteratorBuilder<M, E, EntitySqlDao<M, E>>() {
+                                                                       @Override
+                                                                       public Long getCount(final EntitySqlDao<M, E> sqlDao, final InternalTenantContext context) {
+                                                                           // Only need to compute it once, because no search filter has been applied (see DefaultPaginationSqlDaoHelper)
+                                                                           return null;
+                                                                       }
+
+                                                                       @Override
+                                                                       public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                                           return sqlDao.get(offset, limit, getNaturalOrderingColumns(), ordering.toString(), context);
+                                                                       }
+                                                                   },
+                                                                   continuationToken,
+                                                                   limit,
+                                                                   withCount,
+                                                                   context);
+    }
+
     @Override
     public Long getCount(final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<Long>() {
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.entity.DefaultPagination;
+import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
+import org.killbill.billing.util.search.SearchDocument;
+import org.killbill.billing.util.search.SearchIndex;
+
+import com.google.common.base.Function;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+
+//
+// Serve the search APIs from a SearchIndex:
+// - the first search for a tenant loads the index from the table
+// - subsequent searches first replay the history records written since the last one (cheap range query on the history table primary key),
+//   so changes made by other nodes are picked up as well. The history records applied within the catch-up window (see SearchConfig) are
+//   replayed again, to catch transactions which committed out of order (a history record id is allocated at insert time, not at commit time)
+// - the matching rows are then fetched by record id, for the requested page only
+//
+public abstract class EntitySearchIndexHelper<M extends EntityModelDao<E>, E extends Entity> {
+
+    private static final int FETCH_BATCH_SIZE = 1000;
+
+    private final SearchIndex searchIndex;
+    private final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
+    private final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz;
+
+    public EntitySearchIndexHelper(final SearchIndex searchIndex,
+                                   final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao,
+                                   final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz) {
+        this.searchIndex = searchIndex;
+        this.transactionalSqlDao = transactionalSqlDao;
+        this.sqlDaoClazz = sqlDaoClazz;
+    }
+
+    // Fields to index for that entity
+    protected abstract SearchDocument toSearchDocument(final M model);
+
+    public boolean isEnabled() {
+        return searchIndex.isEnabled();
+    }
+
+    public Pagination<M> search(final String searchKey, final Long offset, final Long limitMaybeNegative, final InternalTenantContext context) {
+        // See DefaultPaginationSqlDaoHelper
+        final Ordering ordering = limitMaybeNegative >= 0 ? Ordering.ASC : Ordering.DESC;
+        final Long limit = Math.abs(limitMaybeNegative);
+
+        return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<Pagination<M>>() {
+            @Override
+            public Pagination<M> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final EntitySqlDao<M, E> sqlDao = entitySqlDaoWrapperFactory.become(sqlDaoClazz);
+                refresh(sqlDao, context);
+
+                final long[] recordIds = MoreObjects.firstNonNull(searchIndex.search(context.getTenantRecordId(), searchKey), new long[0]);
+                final List<Long> pageRecordIds = new ArrayList<Long>();
+                for (long i = offset; i < recordIds.length && pageRecordIds.size() < limit; i++) {
+                    pageRecordIds.add(ordering == Ordering.ASC ? recordIds[(int) i] : recordIds[recordIds.length - 1 - (int) i]);
+                }
+
+                final Map<Long, M> modelsByRecordId = getByRecordIds(sqlDao, pageRecordIds, context);
+                final List<M> results = new ArrayList<M>(pageRecordIds.size());
+                for (final Long recordId : pageRecordIds) {
+                    final M model = modelsByRecordId.get(recordId);
+                    if (model != null) {
+                        results.add(model);
+                    }
+                }
+
+                return new DefaultPagination<M>(offset, limit, (long) recordIds.length, searchIndex.size(context.getTenantRecordId()), results.iterator());
+            }
+        });
+    }
+
+    private void refresh(final EntitySqlDao<M, E> sqlDao, final InternalTenantContext context) {
+        final Long tenantRecordId = context.getTenantRecordId();
+        final Long maxHistoryRecordId = MoreObjects.firstNonNull(sqlDao.getMaxHistoryRecordId(context), 0L);
+        final Long checkpoint = searchIndex.getCheckpoint(tenantRecordId);
+        if (checkpoint == null) {
+            // Changes committed while we go through the table will be replayed next time
+            searchIndex.load(tenantRecordId,
+                             Iterators.transform(sqlDao.getAll(context),
+                                                 new Function<M, SearchDocument>() {
+                                                     @Override
+                                                     public SearchDocument apply(final M model) {
+                                                         return toSearchDocument(model);
+                                                     }
+                                                 }),
+                             maxHistoryRecordId);
+            return;
+        }
+
+        final Long catchUpCheckpoint = MoreObjects.firstNonNull(searchIndex.getCatchUpCheckpoint(tenantRecordId), checkpoint);
+        if (maxHistoryRecordId <= catchUpCheckpoint) {
+            return;
+        }
+
+        final List<Long> changedRecordIds = sqlDao.getHistoryTargetRecordIdsInRange(catchUpCheckpoint, maxHistoryRecordId, context);
+        final Map<Long, M> modelsByRecordId = getByRecordIds(sqlDao, changedRecordIds, context);
+        final List<SearchDocument> updated = new LinkedList<SearchDocument>();
+        final List<Long> removed = new LinkedList<Long>();
+        for (final Long recordId : changedRecordIds) {
+            final M model = modelsByRecordId.get(recordId);
+            if (model == null) {
+                // Deleted
+                removed.add(recordId);
+            } else {
+                updated.add(toSearchDocument(model));
+            }
+        }
+        searchIndex.update(tenantRecordId, updated, removed, maxHistoryRecordId);
+    }
+
+    private Map<Long, M> getByRecordIds(final EntitySqlDao<M, E> sqlDao, final List<Long> recordIds, final InternalTenantContext context) {
+        final Map<Long, M> modelsByRecordId = new HashMap<Long, M>();
+        for (final List<Long> batch : Lists.partition(recordIds, FETCH_BATCH_SIZE)) {
+            for (final M model : sqlDao.getByRecordIds(batch, context)) {
+                modelsByRecordId.put(model.getRecordId(), model);
+            }
+        }
+        return modelsByRecordId;
+    }
+}
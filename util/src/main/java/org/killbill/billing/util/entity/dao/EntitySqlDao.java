@@ -18,6 +18,7 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -35,11 +36,13 @@ import org.killbill.commons.jdbi.statement.SmartFetchSize;
 import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.killbill.commons.jdbi.binder.SmartBindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
 import org.skife.jdbi.v2.sqlobject.mixins.CloseMe;
 import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 @KillBillSqlDaoStringTemplate
 public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> extends AuditSqlDao, HistorySqlDao<M, E>, Transactional<EntitySqlDao<M, E>>, CloseMe {
@@ -49,6 +52,12 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
     public Object create(@SmartBindBean final M entity,
                          @SmartBindBean final InternalCallContext context) throws EntityPersistenceException;
 
+    // Batch version of create, with one context per entity (entities of different accounts can be created in the same batch)
+    @SqlBatch
+    @Audited(ChangeType.INSERT)
+    public void createBatch(@SmartBindBean final Iterable<M> entities,
+                            @SmartBindBean final Iterable<InternalCallContext> contexts);
+
     @SqlQuery
     public M getById(@Bind("id") final String id,
                      @SmartBindBean final InternalTenantContext context);
@@ -57,6 +66,14 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
     public M getByRecordId(@Bind("recordId") final Long recordId,
                            @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    public List<M> getByIds(@BindIn("ids") final Collection<String> ids,
+                            @SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public List<M> getByRecordIds(@BindIn("recordIds") final Collection<Long> recordIds,
+                                  @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public List<M> getByAccountRecordId(@SmartBindBean final InternalTenantContext context);
 
@@ -94,6 +111,14 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                            @Define("ordering") final String ordering,
                            @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> getFromRecordId(@Bind("minRecordId") final Long minRecordId,
+                                       @Bind("maxRecordId") final Long maxRecordId,
+                                       @Bind("rowCount") final Long rowCount,
+                                       @Define("ordering") final String ordering,
+                                       @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getCount(@SmartBindBean final InternalTenantContext context);
 
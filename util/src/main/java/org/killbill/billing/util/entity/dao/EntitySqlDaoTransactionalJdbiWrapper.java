@@ -24,6 +24,8 @@ import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.metrics.TraceRecord;
+import org.killbill.billing.util.metrics.TransactionTracer;
 import org.killbill.clock.Clock;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
@@ -71,7 +73,10 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
         @Override
         public ReturnType inTransaction(final EntitySqlDao<M, E> transactionalSqlDao, final TransactionStatus status) throws Exception {
             final EntitySqlDaoWrapperFactory factoryEntitySqlDao = new EntitySqlDaoWrapperFactory(h, clock, cacheControllerDispatcher, internalCallContextFactory);
-            return entitySqlDaoTransactionWrapper.inTransaction(factoryEntitySqlDao);
+            final ReturnType returnType = entitySqlDaoTransactionWrapper.inTransaction(factoryEntitySqlDao);
+            // Right before commit
+            factoryEntitySqlDao.flushAuditAndHistory();
+            return returnType;
         }
     }
 
@@ -89,6 +94,8 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
 
         final Handle handle = dbRouter.getHandle(requestedRO);
         logger.debug("DBI handle created, transaction: {}", debugInfo);
+        final TraceRecord transactionTrace = TransactionTracer.getInstance().startTransaction(requestedRO);
+        boolean failed = true;
         try {
             final EntitySqlDao<EntityModelDao<Entity>, Entity> entitySqlDao = handle.attach(InitialEntitySqlDao.class);
             // The transaction isolation level is now set at the pool level: this avoids 3 roundtrips for each transaction
@@ -97,8 +104,10 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
             logger.debug("Starting transaction {}", debugInfo);
             final ReturnType returnType = entitySqlDao.inTransaction(new JdbiTransaction<ReturnType, EntityModelDao<Entity>, Entity>(handle, entitySqlDaoTransactionWrapper));
             logger.debug("Exiting  transaction {}, returning {}", debugInfo, returnType);
+            failed = false;
             return returnType;
         } finally {
+            TransactionTracer.getInstance().endTransaction(transactionTrace, failed);
             handle.close();
             logger.debug("DBI handle closed,  transaction: {}", debugInfo);
         }
@@ -49,10 +49,13 @@ import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheLoaderArgument;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
-import org.killbill.billing.util.dao.EntityAudit;
-import org.killbill.billing.util.dao.EntityHistoryModelDao;
+import org.killbill.billing.util.dao.AuditSqlDao;
+import org.killbill.billing.util.dao.HistorySqlDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.metrics.LatencyHistogram;
+import org.killbill.billing.util.metrics.LatencyMetrics;
+import org.killbill.billing.util.metrics.TransactionTracer;
 import org.killbill.clock.Clock;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.Profiling.WithProfilingCallback;
@@ -96,6 +99,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
     private final Clock clock;
     private final InternalCallContextFactory internalCallContextFactory;
     private final Profiling<Object, Throwable> prof;
+    private final EntityAuditAndHistoryBatch auditAndHistoryBatch;
 
     public EntitySqlDaoWrapperInvocationHandler(final Class<S> sqlDaoClass,
                                                 final S sqlDao,
@@ -103,7 +107,9 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                                                 final Clock clock,
                                                 // Special DAO that don't require caching can invoke EntitySqlDaoWrapperInvocationHandler with no caching (e.g NoCachingTenantDao)
                                                 @Nullable final CacheControllerDispatcher cacheControllerDispatcher,
-                                                final InternalCallContextFactory internalCallContextFactory) {
+                                                final InternalCallContextFactory internalCallContextFactory,
+                                                // Shared by all the sql daos of the transaction
+                                                final EntityAuditAndHistoryBatch auditAndHistoryBatch) {
         this.sqlDaoClass = sqlDaoClass;
         this.sqlDao = sqlDao;
         this.handle = handle;
@@ -111,10 +117,24 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.internalCallContextFactory = internalCallContextFactory;
         this.prof = new Profiling<Object, Throwable>();
+        this.auditAndHistoryBatch = auditAndHistoryBatch;
     }
 
     @Override
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        // Always-on latency, per sql dao and method (the profiling below is only enabled on demand)
+        final LatencyHistogram histogram = LatencyMetrics.getInstance().getHistogram(LatencyMetrics.DAO, sqlDaoClass, method);
+        final long startNanos = System.nanoTime();
+        try {
+            final Object result = invokeWithProfiling(proxy, method, args);
+            TransactionTracer.getInstance().recordStatement(result);
+            return result;
+        } finally {
+            histogram.recordNanos(System.nanoTime() - startNanos);
+        }
+    }
+
+    private Object invokeWithProfiling(final Object proxy, final Method method, final Object[] args) throws Throwable {
         try {
             return prof.executeWithProfiling(ProfilingFeatureType.DAO, getProfilingId(null, method), new WithProfilingCallback<Object, Throwable>() {
                 @Override
@@ -192,6 +212,11 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         final Audited auditedAnnotation = method.getAnnotation(Audited.class);
         final Cachable cachableAnnotation = method.getAnnotation(Cachable.class);
 
+        // The history and audit rows of the transaction are written lazily: make sure these are visible to the queries reading them
+        if (auditedAnnotation == null && !auditAndHistoryBatch.isEmpty() && isAuditOrHistoryQuery(method)) {
+            auditAndHistoryBatch.flush();
+        }
+
         // This can't be AUDIT'ed and CACHABLE'd at the same time as we only cache 'get'
         if (auditedAnnotation != null) {
             return invokeWithAuditAndHistory(auditedAnnotation, method, args);
@@ -202,6 +227,12 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         }
     }
 
+    // All the queries on the audit and history tables are declared in AuditSqlDao and HistorySqlDao
+    private boolean isAuditOrHistoryQuery(final Method method) {
+        return AuditSqlDao.class.equals(method.getDeclaringClass()) ||
+               HistorySqlDao.class.equals(method.getDeclaringClass());
+    }
+
     private Object invokeRaw(final Method method, final Object[] args) throws Throwable {
         return prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, getProfilingId("raw", method), new WithProfilingCallback<Object, Throwable>() {
             @Override
@@ -312,8 +343,10 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
     }
 
     private Object invokeWithAuditAndHistory(final Audited auditedAnnotation, final Method method, final Object[] args) throws Throwable {
-        final InternalCallContext context = retrieveContextFromArguments(args);
         final List<String> entityIds = retrieveEntityIdsFromArguments(method, args);
+        // Batch calls can pass one context per entity instead (see EntitySqlDao#createBatch)
+        final List<InternalCallContext> contexts = retrieveContextsFromArguments(args);
+        final InternalCallContext context = contexts == null ? retrieveContextFromArguments(args) : contexts.get(0);
 
         final ChangeType changeType = auditedAnnotation.value();
 
@@ -321,10 +354,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         final Map<String, M> deletedEntities = new HashMap<String, M>();
         // Unfortunately, we cannot just look at DELETE as "markAsInactive" operations are often treated as UPDATE
         if (changeType == ChangeType.UPDATE || changeType == ChangeType.DELETE) {
-            for (final String entityId : entityIds) {
-                deletedEntities.put(entityId, sqlDao.getById(entityId, context));
-                printSQLWarnings();
-            }
+            deletedEntities.putAll(getByIds(entityIds, context));
         }
 
         // Real jdbc call
@@ -335,9 +365,13 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
             }
         });
 
+        // Re-hydrate the entities after the change (especially needed for create calls)
+        final Map<String, M> reHydratedEntities = changeType == ChangeType.DELETE ? ImmutableMap.<String, M>of() : getByIds(entityIds, context);
+
         M m = null;
-        for (final String entityId : entityIds) {
-            m = updateHistoryAndAudit(entityId, deletedEntities.get(entityId), changeType, context);
+        for (int i = 0; i < entityIds.size(); i++) {
+            final String entityId = entityIds.get(i);
+            m = updateHistoryAndAudit(entityId, reHydratedEntities.get(entityId), deletedEntities.get(entityId), changeType, contexts == null ? context : contexts.get(i));
         }
 
         // PERF: override the return value with the reHydrated entity to avoid an extra 'get' in the transaction,
@@ -399,7 +433,24 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                rawKey;
     }
 
-    private M updateHistoryAndAudit(final String entityId, @Nullable final M deletedEntity, final ChangeType changeType, final InternalCallContext context) throws Throwable {
+    // Single multi-id select for batch calls
+    private Map<String, M> getByIds(final List<String> entityIds, final InternalCallContext context) {
+        final Map<String, M> entities = new HashMap<String, M>();
+        if (entityIds.size() == 1) {
+            final M entity = sqlDao.getById(entityIds.get(0), context);
+            if (entity != null) {
+                entities.put(entityIds.get(0), entity);
+            }
+        } else if (entityIds.size() > 1) {
+            for (final M entity : sqlDao.getByIds(entityIds, context)) {
+                entities.put(entity.getId().toString(), entity);
+            }
+        }
+        printSQLWarnings();
+        return entities;
+    }
+
+    private M updateHistoryAndAudit(final String entityId, @Nullable final M updatedEntity, @Nullable final M deletedEntity, final ChangeType changeType, final InternalCallContext context) throws Throwable {
         final Object reHydratedEntity = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, getProfilingId("history/audit", null), new WithProfilingCallback<Object, Throwable>() {
             @Override
             public M execute() throws Throwable {
@@ -408,23 +459,13 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                     reHydratedEntity = deletedEntity;
                 } else {
                     // See note above regarding "markAsInactive" operations
-                    reHydratedEntity = MoreObjects.firstNonNull(sqlDao.getById(entityId, context), deletedEntity);
-                    printSQLWarnings();
+                    reHydratedEntity = MoreObjects.firstNonNull(updatedEntity, deletedEntity);
                 }
                 Preconditions.checkNotNull(reHydratedEntity, "reHydratedEntity cannot be null");
                 final Long entityRecordId = reHydratedEntity.getRecordId();
-                final TableName tableName = reHydratedEntity.getTableName();
-
-                // Note: audit entries point to the history record id
-                final Long historyRecordId;
-                if (tableName.getHistoryTableName() != null) {
-                    historyRecordId = insertHistory(entityRecordId, reHydratedEntity, changeType, context);
-                } else {
-                    historyRecordId = entityRecordId;
-                }
 
-                // Make sure to re-hydrate the object (especially needed for create calls)
-                insertAudits(tableName, reHydratedEntity, entityRecordId, historyRecordId, changeType, context);
+                // The history and audit rows are written right before the transaction commits (see EntityAuditAndHistoryBatch)
+                auditAndHistoryBatch.add(sqlDao, reHydratedEntity, entityRecordId, changeType, context, getAuditContext(reHydratedEntity, entityRecordId, changeType, context));
                 return reHydratedEntity;
             }
         });
@@ -493,6 +534,20 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         return entityIds;
     }
 
+    // Null unless one of the arguments is a (non empty) list of contexts
+    private List<InternalCallContext> retrieveContextsFromArguments(final Object[] args) {
+        for (final Object arg : args) {
+            if (!(arg instanceof Iterable)) {
+                continue;
+            }
+            final Iterator iterator = ((Iterable) arg).iterator();
+            if (iterator.hasNext() && iterator.next() instanceof InternalCallContext) {
+                return ImmutableList.<InternalCallContext>copyOf((Iterable<InternalCallContext>) arg);
+            }
+        }
+        return null;
+    }
+
     private InternalCallContext retrieveContextFromArguments(final Object[] args) {
         for (final Object arg : args) {
             if (!(arg instanceof InternalCallContext)) {
@@ -503,47 +558,18 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         return null;
     }
 
-    private Long insertHistory(final Long entityRecordId, final M entityModelDao, final ChangeType changeType, final InternalCallContext context) {
-        final EntityHistoryModelDao<M, E> history = new EntityHistoryModelDao<M, E>(entityModelDao, entityRecordId, changeType, null, context.getCreatedDate());
-        final Long recordId = sqlDao.addHistoryFromTransaction(history, context);
-        printSQLWarnings();
-        return recordId;
-    }
-
-    private void insertAudits(final TableName tableName, final M entityModelDao, final Long entityRecordId, final Long historyRecordId, final ChangeType changeType, final InternalCallContext contextMaybeWithoutAccountRecordId) {
-        final TableName destinationTableName = MoreObjects.firstNonNull(tableName.getHistoryTableName(), tableName);
-        final EntityAudit audit = new EntityAudit(destinationTableName, historyRecordId, changeType, contextMaybeWithoutAccountRecordId.getCreatedDate());
-
-        final InternalCallContext context;
+    private InternalCallContext getAuditContext(final M entityModelDao, final Long entityRecordId, final ChangeType changeType, final InternalCallContext contextMaybeWithoutAccountRecordId) {
         // Populate the account record id when creating the account record
-        if (TableName.ACCOUNT.equals(tableName) && ChangeType.INSERT.equals(changeType)) {
+        if (TableName.ACCOUNT.equals(entityModelDao.getTableName()) && ChangeType.INSERT.equals(changeType)) {
             // AccountModelDao in practice
             final TimeZoneAwareEntity accountModelDao = (TimeZoneAwareEntity) entityModelDao;
-            context = internalCallContextFactory.createInternalCallContext(accountModelDao, entityRecordId, contextMaybeWithoutAccountRecordId);
+            return internalCallContextFactory.createInternalCallContext(accountModelDao, entityRecordId, contextMaybeWithoutAccountRecordId);
         } else {
-            context = contextMaybeWithoutAccountRecordId;
-        }
-        sqlDao.insertAuditFromTransaction(audit, context);
-        printSQLWarnings();
-
-        // We need to invalidate the caches. There is a small window of doom here where caches will be stale.
-        // TODO Knowledge on how the key is constructed is also in AuditSqlDao
-        if (tableName.getHistoryTableName() != null) {
-            final CacheController<String, List> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG_VIA_HISTORY);
-            if (cacheController != null) {
-                final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName.getHistoryTableName(), 1, tableName.getHistoryTableName(), 2, entityRecordId));
-                cacheController.remove(key);
-            }
-        } else {
-            final CacheController<String, List> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG);
-            if (cacheController != null) {
-                final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName, 1, entityRecordId));
-                cacheController.remove(key);
-            }
+            return contextMaybeWithoutAccountRecordId;
         }
     }
 
-    private String buildCacheKey(final Map<Integer, Object> keyPieces) {
+    public static String buildCacheKey(final Map<Integer, Object> keyPieces) {
         final StringBuilder cacheKey = new StringBuilder();
         for (int i = 0; i < keyPieces.size(); i++) {
             // To normalize the arguments and avoid casing issues, we make all pieces of the key uppercase.
@@ -17,11 +17,21 @@
 package org.killbill.billing.util.export.dao;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.Blob;
 import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -32,18 +42,31 @@ import org.killbill.billing.util.api.DatabaseExportOutputStream;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.validation.DefaultColumnInfo;
 import org.killbill.billing.util.validation.dao.DatabaseSchemaDao;
+import org.killbill.commons.concurrent.Executors;
 import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.exceptions.CallbackFailedException;
 import org.skife.jdbi.v2.IDBI;
 import org.skife.jdbi.v2.ResultIterator;
 import org.skife.jdbi.v2.tweak.HandleCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Joiner;
+import com.google.common.io.CountingOutputStream;
+
 @Singleton
 public class DatabaseExportDao {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseExportDao.class);
 
+    private static final String EXPORT_THREAD_PREFIX = "export-th";
+
+    private static final int COLUMN_TYPE_LONG = 0;
+    private static final int COLUMN_TYPE_DECIMAL = 1;
+    private static final int COLUMN_TYPE_DATE = 2;
+    private static final int COLUMN_TYPE_BYTES = 3;
+    private static final int COLUMN_TYPE_STRING = 4;
+
     private final DatabaseSchemaDao databaseSchemaDao;
     private final IDBI dbi;
 
@@ -54,6 +77,20 @@ public class DatabaseExportDao {
         this.dbi = dbi;
     }
 
+    public enum TenantExportFormat {
+        /* Length-prefixed, typed values (see TableExportWriter / TableExportReader) */
+        BINARY,
+        /* Same layout as CSVExportOutputStream */
+        CSV
+    }
+
+    public interface TenantExportOutput {
+
+        // Called once per exported table, possibly concurrently. The output must first be truncated to offset bytes (0 for a new
+        // export, the end of the last complete segment when resuming) and new segments appended from there
+        OutputStream openTable(String tableName, long offset) throws IOException;
+    }
+
     private enum TableType {
         /* TableName.ACCOUNT */
         KB_ACCOUNT("record_id", "tenant_record_id"),
@@ -196,4 +233,209 @@ public class DatabaseExportDao {
             }
         });
     }
+
+    /**
+     * Export all the tenant data, one output per table. Tables are exported in parallel, each over its own connection.
+     * <p/>
+     * Rows are exported by record_id order, in segments of {@code rowsPerSegment} rows: once a segment has been fully
+     * written to the table output, the checkpoints map is updated with the last record_id exported for that table and
+     * the byte offset of the end of that segment in the table output.
+     * To resume an interrupted export, pass the same checkpoints map back: each table output is re-opened at its
+     * checkpoint offset (see {@link TenantExportOutput#openTable(String, long)}), dropping any partially written segment.
+     *
+     * @param out            the per table outputs
+     * @param format         the export format (each segment is gzip compressed)
+     * @param checkpoints    last exported record_id and output offset, per table name (updated during the export)
+     * @param nbThreads      number of tables exported concurrently
+     * @param rowsPerSegment number of rows per segment
+     * @param context        the tenant context
+     * @throws IOException if a table could not be exported (other tables are interrupted)
+     */
+    public void exportDataForTenant(final TenantExportOutput out,
+                                    final TenantExportFormat format,
+                                    final ConcurrentMap<String, TenantExportCheckpoint> checkpoints,
+                                    final int nbThreads,
+                                    final int rowsPerSegment,
+                                    final InternalTenantContext context) throws IOException {
+        if (context.getTenantRecordId() == null) {
+            return;
+        }
+
+        final List<DefaultColumnInfo> columns = databaseSchemaDao.getColumnInfoList();
+        final Map<String, List<ColumnInfo>> columnsPerTable = new LinkedHashMap<String, List<ColumnInfo>>();
+        for (final ColumnInfo column : columns) {
+            if (columnsPerTable.get(column.getTableName()) == null) {
+                columnsPerTable.put(column.getTableName(), new ArrayList<ColumnInfo>());
+            }
+            columnsPerTable.get(column.getTableName()).add(column);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(nbThreads, EXPORT_THREAD_PREFIX);
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (final List<ColumnInfo> columnsForTable : columnsPerTable.values()) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        exportDataForTenantAndTable(out, format, checkpoints, rowsPerSegment, columnsForTable, context);
+                        return null;
+                    }
+                }));
+            }
+
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (final ExecutionException e) {
+            // IOExceptions thrown by the writers are wrapped by jDBI
+            final Throwable cause = e.getCause() instanceof CallbackFailedException && e.getCause().getCause() != null ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void exportDataForTenantAndTable(final TenantExportOutput out,
+                                             final TenantExportFormat format,
+                                             final ConcurrentMap<String, TenantExportCheckpoint> checkpoints,
+                                             final int rowsPerSegment,
+                                             final List<ColumnInfo> columnsForTable,
+                                             final InternalTenantContext context) throws IOException {
+        final String tableName = columnsForTable.get(0).getTableName();
+
+        String tenantRecordIdColumnName = null;
+        int recordIdIndex = -1;
+        final List<String> columnNames = new ArrayList<String>(columnsForTable.size());
+        final int[] columnTypes = new int[columnsForTable.size()];
+        for (int i = 0; i < columnsForTable.size(); i++) {
+            final ColumnInfo column = columnsForTable.get(i);
+            columnNames.add(column.getColumnName());
+            columnTypes[i] = getColumnType(column.getDataType());
+            if ("record_id".equals(column.getColumnName())) {
+                recordIdIndex = i;
+            } else if (TableType.KB_PER_ACCOUNT.getTenantRecordIdColumnName().equals(column.getColumnName())) {
+                tenantRecordIdColumnName = column.getColumnName();
+            } else if (tenantRecordIdColumnName == null && TableType.NOTIFICATION.getTenantRecordIdColumnName().equals(column.getColumnName())) {
+                tenantRecordIdColumnName = column.getColumnName();
+            }
+        }
+
+        // Don't export non-tenant specific tables. The record_id is required for the checkpoints
+        if (tenantRecordIdColumnName == null || recordIdIndex == -1) {
+            return;
+        }
+
+        final String query = String.format("select %s from %s where %s = ? and record_id > ? order by record_id limit %s",
+                                           Joiner.on(", ").join(columnNames), tableName, tenantRecordIdColumnName, rowsPerSegment);
+
+        final TableExportWriter writer = new TableExportWriter(tableName, columnNames, format);
+        // Reused across rows and segments
+        final Object[] values = new Object[columnNames.size()];
+        final TenantExportCheckpoint checkpoint = checkpoints.get(tableName);
+        final long startOffset = checkpoint == null ? 0L : checkpoint.getOffset();
+        // Count the bytes written, to record where each complete segment ends
+        final CountingOutputStream tableOut = new CountingOutputStream(out.openTable(tableName, startOffset));
+        try {
+            Long lastRecordId = checkpoint == null ? 0L : checkpoint.getLastRecordId();
+            while (true) {
+                final Long segmentLastRecordId = exportSegment(query, lastRecordId, recordIdIndex, columnTypes, values, writer, tableOut, context);
+                if (segmentLastRecordId == null) {
+                    break;
+                }
+                lastRecordId = segmentLastRecordId;
+                // The segment has been flushed to the table output (see TableExportWriter#endSegment)
+                checkpoints.put(tableName, new TenantExportCheckpoint(lastRecordId, startOffset + tableOut.getCount()));
+            }
+        } finally {
+            tableOut.close();
+        }
+    }
+
+    // Returns the record_id of the last row exported, null if there was nothing left to export
+    private Long exportSegment(final String query,
+                               final Long fromRecordId,
+                               final int recordIdIndex,
+                               final int[] columnTypes,
+                               final Object[] values,
+                               final TableExportWriter writer,
+                               final OutputStream tableOut,
+                               final InternalTenantContext context) {
+        return dbi.withHandle(new HandleCallback<Long>() {
+            @Override
+            public Long withHandle(final Handle handle) throws Exception {
+                Long lastRecordId = null;
+                final PreparedStatement statement = handle.getConnection().prepareStatement(query);
+                try {
+                    statement.setLong(1, context.getTenantRecordId());
+                    statement.setLong(2, fromRecordId);
+                    final ResultSet resultSet = statement.executeQuery();
+                    try {
+                        while (resultSet.next()) {
+                            for (int i = 0; i < values.length; i++) {
+                                values[i] = getValue(resultSet, i + 1, columnTypes[i]);
+                            }
+                            if (!writer.isInSegment()) {
+                                writer.startSegment(tableOut);
+                            }
+                            writer.writeRow(values);
+                            lastRecordId = resultSet.getLong(recordIdIndex + 1);
+                        }
+                    } finally {
+                        resultSet.close();
+                    }
+                } finally {
+                    statement.close();
+                }
+
+                if (writer.isInSegment()) {
+                    writer.endSegment();
+                }
+                return lastRecordId;
+            }
+        });
+    }
+
+    private int getColumnType(final String dataType) {
+        final String type = dataType == null ? null : dataType.toLowerCase();
+        if ("bigint".equals(type) || "int".equals(type) || "integer".equals(type) || "smallint".equals(type) || "tinyint".equals(type)) {
+            return COLUMN_TYPE_LONG;
+        } else if ("decimal".equals(type) || "numeric".equals(type)) {
+            return COLUMN_TYPE_DECIMAL;
+        } else if ("datetime".equals(type) || "timestamp".equals(type)) {
+            return COLUMN_TYPE_DATE;
+        } else if ("blob".equals(type) || "mediumblob".equals(type) || "longblob".equals(type) || "varbinary".equals(type) || "bytea".equals(type)) {
+            return COLUMN_TYPE_BYTES;
+        } else {
+            // Also for clobs (h2): see exportDataForAccountAndTable
+            return COLUMN_TYPE_STRING;
+        }
+    }
+
+    private Object getValue(final ResultSet resultSet, final int index, final int columnType) throws SQLException {
+        final Object value;
+        switch (columnType) {
+            case COLUMN_TYPE_LONG:
+                value = resultSet.getLong(index);
+                break;
+            case COLUMN_TYPE_DECIMAL:
+                value = resultSet.getBigDecimal(index);
+                break;
+            case COLUMN_TYPE_DATE:
+                value = resultSet.getTimestamp(index);
+                break;
+            case COLUMN_TYPE_BYTES:
+                value = resultSet.getBytes(index);
+                break;
+            default:
+                value = resultSet.getString(index);
+                break;
+        }
+        return resultSet.wasNull() ? null : value;
+    }
 }
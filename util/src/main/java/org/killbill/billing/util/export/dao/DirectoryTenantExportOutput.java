@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export.dao;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+//
+// Writes each table to <directory>/<table name>.gz. On resume, the file is first truncated to the checkpoint offset so that
+// new segments are appended right after the last complete one (a partially written gzip member would break the reader).
+//
+public class DirectoryTenantExportOutput implements DatabaseExportDao.TenantExportOutput {
+
+    private final File directory;
+
+    public DirectoryTenantExportOutput(final File directory) {
+        this.directory = directory;
+    }
+
+    public File getTableFile(final String tableName) {
+        return new File(directory, tableName + ".gz");
+    }
+
+    @Override
+    public OutputStream openTable(final String tableName, final long offset) throws IOException {
+        final File file = getTableFile(tableName);
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < offset) {
+                throw new IOException(String.format("Export file %s is shorter (%s bytes) than its checkpoint (%s bytes)", file, raf.length(), offset));
+            }
+            raf.setLength(offset);
+        } finally {
+            raf.close();
+        }
+        return new BufferedOutputStream(new FileOutputStream(file, true), 64 * 1024);
+    }
+}
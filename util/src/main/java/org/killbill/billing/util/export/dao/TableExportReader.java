@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export.dao;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+//
+// Reads back a table exported in the BINARY format (see TableExportWriter), one segment at a time. A truncated trailing
+// segment (export interrupted before its checkpoint was recorded) is ignored: on resume, the output is truncated back to
+// the checkpoint offset and its rows are exported again.
+//
+public class TableExportReader implements Closeable {
+
+    private final DataInputStream in;
+
+    private String tableName;
+    private List<String> columnNames;
+
+    public TableExportReader(final InputStream in) throws IOException {
+        // GZIPInputStream reads concatenated gzip members as one stream
+        this.in = new DataInputStream(new GZIPInputStream(in, 64 * 1024));
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * @return the rows of the next segment, or null if there are no more (complete) segments
+     */
+    public List<Object[]> readSegment() throws IOException {
+        try {
+            final int magic;
+            try {
+                magic = in.readInt();
+            } catch (final EOFException e) {
+                return null;
+            }
+            if (magic != TableExportWriter.MAGIC) {
+                throw new IOException("Invalid export segment header " + Integer.toHexString(magic));
+            }
+
+            tableName = readString();
+            final int nbColumns = in.readInt();
+            columnNames = new ArrayList<String>(nbColumns);
+            for (int i = 0; i < nbColumns; i++) {
+                columnNames.add(readString());
+            }
+
+            final List<Object[]> rows = new ArrayList<Object[]>();
+            while (in.readByte() == TableExportWriter.ROW) {
+                final Object[] row = new Object[nbColumns];
+                for (int i = 0; i < nbColumns; i++) {
+                    row[i] = readValue();
+                }
+                rows.add(row);
+            }
+            return rows;
+        } catch (final EOFException e) {
+            // Truncated segment
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Object readValue() throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+            case TableExportWriter.TYPE_NULL:
+                return null;
+            case TableExportWriter.TYPE_LONG:
+                return in.readLong();
+            case TableExportWriter.TYPE_STRING:
+                return readString();
+            case TableExportWriter.TYPE_BYTES:
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            case TableExportWriter.TYPE_DATE:
+                return new Date(in.readLong());
+            case TableExportWriter.TYPE_DECIMAL:
+                return new BigDecimal(readString());
+            default:
+                throw new IOException("Invalid export value type " + type);
+        }
+    }
+
+    private String readString() throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export.dao;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import com.google.common.io.BaseEncoding;
+
+//
+// Writes the rows of one table as a sequence of gzip members (segments). Each segment is self-contained (it repeats the
+// table header), so a table export can be resumed by appending new segments to the existing output:
+// - BINARY: magic, table name, column names, then for each row a ROW marker followed by the tagged values, then END
+// - CSV: same layout as CSVExportOutputStream ('-- table' header line, '|' separated values)
+// See TableExportReader for the BINARY format.
+//
+public class TableExportWriter {
+
+    static final int MAGIC = 0x4B425831;
+
+    static final byte END = 0;
+    static final byte ROW = 1;
+
+    static final byte TYPE_NULL = 0;
+    static final byte TYPE_LONG = 1;
+    static final byte TYPE_STRING = 2;
+    static final byte TYPE_BYTES = 3;
+    static final byte TYPE_DATE = 4;
+    static final byte TYPE_DECIMAL = 5;
+
+    private static final String CSV_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+    private final String tableName;
+    private final List<String> columnNames;
+    private final DatabaseExportDao.TenantExportFormat format;
+
+    private GZIPOutputStream segment;
+    private DataOutputStream segmentData;
+    private final StringBuilder csvLine = new StringBuilder();
+
+    public TableExportWriter(final String tableName, final List<String> columnNames, final DatabaseExportDao.TenantExportFormat format) {
+        this.tableName = tableName;
+        this.columnNames = columnNames;
+        this.format = format;
+    }
+
+    public boolean isInSegment() {
+        return segment != null;
+    }
+
+    public void startSegment(final OutputStream out) throws IOException {
+        segment = new GZIPOutputStream(new NonClosingOutputStream(out), 64 * 1024);
+        segmentData = new DataOutputStream(segment);
+
+        if (format == DatabaseExportDao.TenantExportFormat.BINARY) {
+            segmentData.writeInt(MAGIC);
+            writeString(tableName);
+            segmentData.writeInt(columnNames.size());
+            for (final String columnName : columnNames) {
+                writeString(columnName);
+            }
+        } else {
+            csvLine.setLength(0);
+            csvLine.append("-- ").append(tableName).append(' ');
+            for (int i = 0; i < columnNames.size(); i++) {
+                if (i > 0) {
+                    csvLine.append('|');
+                }
+                csvLine.append(columnNames.get(i));
+            }
+            csvLine.append('\n');
+            segmentData.write(csvLine.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // The values array can be reused by the caller across rows
+    public void writeRow(final Object[] values) throws IOException {
+        if (format == DatabaseExportDao.TenantExportFormat.BINARY) {
+            segmentData.writeByte(ROW);
+            for (final Object value : values) {
+                writeValue(value);
+            }
+        } else {
+            csvLine.setLength(0);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    csvLine.append('|');
+                }
+                appendCSVValue(values[i]);
+            }
+            csvLine.append('\n');
+            segmentData.write(csvLine.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public void endSegment() throws IOException {
+        if (format == DatabaseExportDao.TenantExportFormat.BINARY) {
+            segmentData.writeByte(END);
+        }
+        segmentData.flush();
+        // Complete the gzip member, without closing the underlying stream
+        segment.finish();
+        segment.close();
+        segment = null;
+        segmentData = null;
+    }
+
+    private void writeValue(final Object value) throws IOException {
+        if (value == null) {
+            segmentData.writeByte(TYPE_NULL);
+        } else if (value instanceof Long) {
+            segmentData.writeByte(TYPE_LONG);
+            segmentData.writeLong((Long) value);
+        } else if (value instanceof byte[]) {
+            segmentData.writeByte(TYPE_BYTES);
+            segmentData.writeInt(((byte[]) value).length);
+            segmentData.write((byte[]) value);
+        } else if (value instanceof Date) {
+            segmentData.writeByte(TYPE_DATE);
+            segmentData.writeLong(((Date) value).getTime());
+        } else if (value instanceof BigDecimal) {
+            segmentData.writeByte(TYPE_DECIMAL);
+            writeString(((BigDecimal) value).toPlainString());
+        } else {
+            segmentData.writeByte(TYPE_STRING);
+            writeString(value.toString());
+        }
+    }
+
+    // Unlike writeUTF, not limited to 64KB
+    private void writeString(final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        segmentData.writeInt(bytes.length);
+        segmentData.write(bytes);
+    }
+
+    private void appendCSVValue(final Object value) {
+        if (value == null) {
+            return;
+        } else if (value instanceof byte[]) {
+            csvLine.append(BaseEncoding.base64().encode((byte[]) value));
+        } else if (value instanceof Date) {
+            csvLine.append(new DateTime(((Date) value).getTime(), DateTimeZone.UTC).toString(CSV_DATE_FORMAT));
+        } else if (value instanceof BigDecimal) {
+            csvLine.append(((BigDecimal) value).toPlainString());
+        } else if (value instanceof String) {
+            // Same escaping as CSVExportOutputStream
+            csvLine.append(((String) value).replace("\n", "\\N{LINE FEED}")
+                                           .replace("|", "\\N{VERTICAL LINE}"));
+        } else {
+            csvLine.append(value);
+        }
+    }
+
+    private static final class NonClosingOutputStream extends OutputStream {
+
+        private final OutputStream delegate;
+
+        private NonClosingOutputStream(final OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.flush();
+        }
+    }
+}
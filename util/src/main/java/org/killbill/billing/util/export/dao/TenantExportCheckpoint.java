@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export.dao;
+
+//
+// Progress of a table export: the last exported record_id and the size of the table output at that point, i.e. the end
+// of the last complete segment. Anything written past that offset belongs to an interrupted segment and is discarded on resume.
+//
+public class TenantExportCheckpoint {
+
+    private final long lastRecordId;
+    private final long offset;
+
+    public TenantExportCheckpoint(final long lastRecordId, final long offset) {
+        this.lastRecordId = lastRecordId;
+        this.offset = offset;
+    }
+
+    public long getLastRecordId() {
+        return lastRecordId;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public String toString() {
+        return "TenantExportCheckpoint{" +
+               "lastRecordId=" + lastRecordId +
+               ", offset=" + offset +
+               '}';
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final TenantExportCheckpoint that = (TenantExportCheckpoint) o;
+        return lastRecordId == that.lastRecordId && offset == that.offset;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (lastRecordId ^ (lastRecordId >>> 32));
+        result = 31 * result + (int) (offset ^ (offset >>> 32));
+        return result;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.util.globallocker;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.locker.LockFailedException;
+import org.killbill.commons.request.Request;
+import org.killbill.commons.request.RequestData;
+
+//
+// Serializes the local callers of a global lock in memory (org.killbill.sharding.affinity.enabled): with account affinity,
+// the work for one account runs on a single node, so contention happens between local threads:
+// - callers first queue on an in-memory lock per service and key (FIFO ordering, no polling), then take the global lock,
+//   which is then normally free (it only guards against another node still processing entries it claimed earlier)
+// - the global lock is released before the local one, so the next local caller finds it free
+// - in-memory locks are reentrant for the same owner as the global ones (the request id, or the thread if there is none)
+//   and are dropped once they have no more users
+// - the caller's retry budget (number of tries times the duration of one try of the delegate) is shared between the local wait
+//   and the global lock tries, so the caller doesn't wait longer than it would have without the local ordering
+//
+public class LocalOrderingGlobalLocker implements GlobalLocker {
+
+    private final GlobalLocker delegate;
+    private final long lockTryMillis;
+
+    // Guarded by itself
+    private final Map<String, LocalLock> localLocks = new HashMap<String, LocalLock>();
+
+    // lockTryMillis is how long one try of the delegate takes (see GlobalLockerBase)
+    public LocalOrderingGlobalLocker(final GlobalLocker delegate, final long lockTryMillis) {
+        this.delegate = delegate;
+        this.lockTryMillis = lockTryMillis;
+    }
+
+    @Override
+    public GlobalLock lockWithNumberOfTries(final String service, final String lockKey, final int retry) throws LockFailedException {
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retry * lockTryMillis);
+        final String localLockName = getLocalLockName(service, lockKey);
+        final LocalLock localLock = acquireLocalLock(localLockName, deadlineNanos);
+
+        // The global lock is normally free by now: give it the rest of the budget, with at least one try
+        final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        final int remainingTries = (int) Math.max(1, Math.min(retry, (remainingMillis + lockTryMillis - 1) / lockTryMillis));
+
+        final GlobalLock lock;
+        try {
+            lock = delegate.lockWithNumberOfTries(service, lockKey, remainingTries);
+        } catch (final LockFailedException e) {
+            releaseLocalLock(localLockName, localLock);
+            throw e;
+        } catch (final RuntimeException e) {
+            releaseLocalLock(localLockName, localLock);
+            throw e;
+        }
+
+        return new GlobalLock() {
+            @Override
+            public void release() {
+                try {
+                    lock.release();
+                } finally {
+                    releaseLocalLock(localLockName, localLock);
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean isFree(final String service, final String lockKey) {
+        synchronized (localLocks) {
+            if (localLocks.get(getLocalLockName(service, lockKey)) != null) {
+                return false;
+            }
+        }
+        return delegate.isFree(service, lockKey);
+    }
+
+    // Visible for testing
+    int getNbLocalLocks() {
+        synchronized (localLocks) {
+            return localLocks.size();
+        }
+    }
+
+    // Visible for testing
+    int getNbLocalWaiters(final String service, final String lockKey) {
+        final LocalLock localLock;
+        synchronized (localLocks) {
+            localLock = localLocks.get(getLocalLockName(service, lockKey));
+        }
+        return localLock == null ? 0 : localLock.getNbWaiters();
+    }
+
+    private LocalLock acquireLocalLock(final String localLockName, final long deadlineNanos) throws LockFailedException {
+        final LocalLock localLock;
+        synchronized (localLocks) {
+            LocalLock existingLock = localLocks.get(localLockName);
+            if (existingLock == null) {
+                existingLock = new LocalLock();
+                localLocks.put(localLockName, existingLock);
+            }
+            existingLock.nbUsers++;
+            localLock = existingLock;
+        }
+
+        boolean acquired = false;
+        try {
+            acquired = localLock.lock(getOwner(), deadlineNanos);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!acquired) {
+                removeUser(localLockName, localLock);
+            }
+        }
+        if (!acquired) {
+            throw new LockFailedException();
+        }
+        return localLock;
+    }
+
+    private void releaseLocalLock(final String localLockName, final LocalLock localLock) {
+        localLock.unlock();
+        removeUser(localLockName, localLock);
+    }
+
+    private void removeUser(final String localLockName, final LocalLock localLock) {
+        synchronized (localLocks) {
+            localLock.nbUsers--;
+            if (localLock.nbUsers == 0) {
+                localLocks.remove(localLockName);
+            }
+        }
+    }
+
+    private static String getLocalLockName(final String service, final String lockKey) {
+        return service + "-" + lockKey;
+    }
+
+    // Same reentrancy semantics as the global locks (see org.killbill.commons.locker.ReentrantLock)
+    private static Object getOwner() {
+        final RequestData requestData = Request.getPerThreadRequestData();
+        return requestData != null && requestData.getRequestId() != null ? requestData.getRequestId() : Thread.currentThread();
+    }
+
+    private static final class LocalLock {
+
+        // Waiting owners, in arrival order
+        private final Queue<Object> waiters = new ArrayDeque<Object>();
+
+        private Object owner = null;
+        private int holdCount = 0;
+
+        // Number of callers holding or waiting for the lock (reentrant acquisitions count as users too), guarded by localLocks
+        private int nbUsers = 0;
+
+        private synchronized boolean lock(final Object newOwner, final long deadlineNanos) throws InterruptedException {
+            if (newOwner.equals(owner)) {
+                holdCount++;
+                return true;
+            }
+
+            // Unique per caller (the same owner can wait from several threads)
+            final Object ticket = new Object[]{newOwner};
+            waiters.add(ticket);
+            try {
+                while (owner != null || waiters.peek() != ticket) {
+                    final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                    if (remainingMillis <= 0) {
+                        return false;
+                    }
+                    wait(remainingMillis);
+                }
+                owner = newOwner;
+                holdCount = 1;
+                return true;
+            } finally {
+                waiters.remove(ticket);
+                // The next waiter may be first in line now
+                notifyAll();
+            }
+        }
+
+        private synchronized void unlock() {
+            holdCount--;
+            if (holdCount == 0) {
+                owner = null;
+                notifyAll();
+            }
+        }
+
+        private synchronized int getNbWaiters() {
+            return waiters.size();
+        }
+    }
+}
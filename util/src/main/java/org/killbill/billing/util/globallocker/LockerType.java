@@ -17,5 +17,7 @@
 package org.killbill.billing.util.globallocker;
 
 public enum LockerType {
-    ACCNT_INV_PAY
+    ACCNT_INV_PAY,
+    // Per tenant, see DefaultOverdueService
+    OVERDUE_SWEEP
 }
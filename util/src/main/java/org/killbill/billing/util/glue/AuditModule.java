@@ -20,26 +20,45 @@ package org.killbill.billing.util.glue;
 
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.util.api.AuditUserApi;
+import org.killbill.billing.util.audit.AuditLogArchiveService;
+import org.killbill.billing.util.audit.DefaultAuditLogArchiveService;
+import org.killbill.billing.util.audit.api.AuditLogHydrator;
 import org.killbill.billing.util.audit.api.DefaultAuditUserApi;
 import org.killbill.billing.util.audit.dao.AuditDao;
 import org.killbill.billing.util.audit.dao.DefaultAuditDao;
+import org.killbill.billing.util.config.definition.AuditConfig;
+import org.killbill.billing.util.config.tenant.MultiTenantAuditConfig;
+import org.skife.config.ConfigurationObjectFactory;
+
+import com.google.inject.name.Names;
 
 public class AuditModule extends KillBillModule {
 
+    public static final String STATIC_CONFIG = "StaticConfig";
+
     public AuditModule(final KillbillConfigSource configSource) {
         super(configSource);
     }
 
+    protected void installConfig() {
+        final AuditConfig auditConfig = new ConfigurationObjectFactory(skifeConfigSource).build(AuditConfig.class);
+        bind(AuditConfig.class).annotatedWith(Names.named(STATIC_CONFIG)).toInstance(auditConfig);
+        bind(AuditConfig.class).to(MultiTenantAuditConfig.class).asEagerSingleton();
+    }
+
     protected void installDaos() {
         bind(AuditDao.class).to(DefaultAuditDao.class).asEagerSingleton();
     }
 
     protected void installUserApi() {
         bind(AuditUserApi.class).to(DefaultAuditUserApi.class).asEagerSingleton();
+        bind(AuditLogHydrator.class).asEagerSingleton();
+        bind(AuditLogArchiveService.class).to(DefaultAuditLogArchiveService.class).asEagerSingleton();
     }
 
     @Override
     protected void configure() {
+        installConfig();
         installDaos();
         installUserApi();
     }
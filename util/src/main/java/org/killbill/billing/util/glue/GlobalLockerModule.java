@@ -23,17 +23,24 @@ import java.io.IOException;
 import javax.sql.DataSource;
 
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.definition.ShardingConfig;
+import org.killbill.billing.util.globallocker.LocalOrderingGlobalLocker;
+import org.killbill.billing.util.metrics.TracingGlobalLocker;
 import org.killbill.commons.embeddeddb.EmbeddedDB;
 import org.killbill.commons.locker.GlobalLocker;
 import org.killbill.commons.locker.memory.MemoryGlobalLocker;
 import org.killbill.commons.locker.mysql.MySqlGlobalLocker;
 import org.killbill.commons.locker.postgresql.PostgreSQLGlobalLocker;
+import org.skife.config.ConfigurationObjectFactory;
 
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 
 public class GlobalLockerModule extends KillBillModule {
 
+    // Duration of one lock try of the lockers above (GlobalLockerBase#DEFAULT_TIMEOUT_MILLIS)
+    private static final long LOCK_TRY_MILLIS = 100L;
+
     public GlobalLockerModule(final KillbillConfigSource configSource) {
         super(configSource);
     }
@@ -42,12 +49,21 @@ public class GlobalLockerModule extends KillBillModule {
     @Singleton
     // Note: we need to inject the pooled DataSource here, not the (direct) one from EmbeddedDB
     protected GlobalLocker provideGlobalLocker(final DataSource dataSource, final EmbeddedDB embeddedDB) throws IOException {
+        final GlobalLocker globalLocker;
         if (EmbeddedDB.DBEngine.MYSQL.equals(embeddedDB.getDBEngine())) {
-            return new MySqlGlobalLocker(dataSource);
+            globalLocker = new MySqlGlobalLocker(dataSource);
         } else if (EmbeddedDB.DBEngine.POSTGRESQL.equals(embeddedDB.getDBEngine())) {
-            return new PostgreSQLGlobalLocker(dataSource);
+            globalLocker = new PostgreSQLGlobalLocker(dataSource);
+        } else {
+            globalLocker = new MemoryGlobalLocker();
+        }
+
+        // With account affinity, contention is local: serialize the local callers in memory first
+        final ShardingConfig shardingConfig = new ConfigurationObjectFactory(skifeConfigSource).build(ShardingConfig.class);
+        if (shardingConfig.isShardingEnabled() && shardingConfig.isAffinityEnabled()) {
+            return new TracingGlobalLocker(new LocalOrderingGlobalLocker(globalLocker, LOCK_TRY_MILLIS));
         } else {
-            return new MemoryGlobalLocker();
+            return new TracingGlobalLocker(globalLocker);
         }
     }
 
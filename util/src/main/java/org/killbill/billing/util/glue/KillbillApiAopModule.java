@@ -25,12 +25,15 @@ import org.killbill.billing.KillbillApi;
 import org.killbill.billing.osgi.api.ROTenantContext;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.entity.dao.DBRouterUntyped;
+import org.killbill.billing.util.metrics.LatencyMetrics;
+import org.killbill.billing.util.metrics.TimedMethodInterceptor;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.Profiling.WithProfilingCallback;
 import org.killbill.commons.profiling.ProfilingFeature.ProfilingFeatureType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.eventbus.Subscribe;
 import com.google.inject.AbstractModule;
 import com.google.inject.matcher.Matcher;
 import com.google.inject.matcher.Matchers;
@@ -56,11 +59,32 @@ public class KillbillApiAopModule extends AbstractModule {
         }
     };
 
+    private static final Matcher<Method> BUS_HANDLER_METHOD_MATCHER = new Matcher<Method>() {
+        @Override
+        public boolean matches(final Method method) {
+            return !method.isSynthetic() && method.getAnnotation(Subscribe.class) != null;
+        }
+
+        @Override
+        public Matcher<Method> and(final Matcher<? super Method> other) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Matcher<Method> or(final Matcher<? super Method> other) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
     @Override
     protected void configure() {
         bindInterceptor(Matchers.subclassesOf(KillbillApi.class),
                         Matchers.not(SYNTHETIC_METHOD_MATCHER),
                         new ProfilingMethodInterceptor());
+        // Bus handlers latency
+        bindInterceptor(Matchers.any(),
+                        BUS_HANDLER_METHOD_MATCHER,
+                        new TimedMethodInterceptor(LatencyMetrics.BUS));
     }
 
     public static class ProfilingMethodInterceptor implements MethodInterceptor {
@@ -18,13 +18,21 @@
 package org.killbill.billing.util.glue;
 
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.definition.ShardingConfig;
+import org.killbill.billing.util.nodes.BusEventSharding;
 import org.killbill.billing.util.nodes.DefaultKillbillNodesApi;
 import org.killbill.billing.util.nodes.DefaultKillbillNodesService;
 import org.killbill.billing.util.nodes.KillbillNodesService;
 import org.killbill.billing.util.nodes.KillbillNodesApi;
 import org.killbill.billing.util.nodes.NodeInfoMapper;
+import org.killbill.billing.util.nodes.NotificationQueueSharding;
 import org.killbill.billing.util.nodes.dao.DefaultNodeInfoDao;
 import org.killbill.billing.util.nodes.dao.NodeInfoDao;
+import org.killbill.bus.api.PersistentBusConfig;
+import org.skife.config.ConfigurationObjectFactory;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.name.Names;
 
 public class NodesModule extends KillBillModule {
 
@@ -32,6 +40,16 @@ public class NodesModule extends KillBillModule {
         super(configSource);
     }
 
+    protected void installConfig() {
+        final ShardingConfig shardingConfig = new ConfigurationObjectFactory(skifeConfigSource).build(ShardingConfig.class);
+        bind(ShardingConfig.class).toInstance(shardingConfig);
+
+        // Same configuration as the main bus (see the platform BusModule)
+        final PersistentBusConfig persistentBusConfig = new ConfigurationObjectFactory(skifeConfigSource).buildWithReplacements(PersistentBusConfig.class,
+                                                                                                                                ImmutableMap.<String, String>of("instanceName", "main"));
+        bind(PersistentBusConfig.class).annotatedWith(Names.named(BusEventSharding.MAIN_BUS_CONFIG)).toInstance(persistentBusConfig);
+    }
+
     protected void installDaos() {
         bind(NodeInfoDao.class).to(DefaultNodeInfoDao.class).asEagerSingleton();
     }
@@ -40,11 +58,14 @@ public class NodesModule extends KillBillModule {
         bind(KillbillNodesApi.class).to(DefaultKillbillNodesApi.class).asEagerSingleton();
         bind(KillbillNodesService.class).to(DefaultKillbillNodesService.class).asEagerSingleton();
         bind(NodeInfoMapper.class).asEagerSingleton();
+        bind(NotificationQueueSharding.class).asEagerSingleton();
+        bind(BusEventSharding.class).asEagerSingleton();
     }
 
 
     @Override
     protected void configure() {
+        installConfig();
         installDaos();
         installUserApi();
     }
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+//
+// Allocation-free latency histogram (HDR-style log-linear buckets), recording microseconds:
+// - values below 8us have their own bucket, above that each power of two is split into 8 sub-buckets (12.5% precision),
+//   up to ~19 hours (larger values are clamped)
+// - recording is lock-free: each thread increments the counters of its stripe (picked by thread id), and the stripes are
+//   only summed up when a snapshot is taken
+// - the counts are cumulative since the last reset (a reset racing with recording threads can lose a few increments)
+// Usable as a codahale Reservoir, see LatencyMetrics.
+//
+public class LatencyHistogram implements Reservoir {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+    static final int NB_BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    // Per stripe: the bucket counts, followed by the sum and the max of the recorded values
+    private static final int SUM_INDEX = NB_BUCKETS;
+    private static final int MAX_INDEX = NB_BUCKETS + 1;
+
+    private static final int NB_STRIPES = 4;
+
+    private final String name;
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<AtomicLongArray>(NB_STRIPES);
+
+    public LatencyHistogram() {
+        this(null);
+    }
+
+    public LatencyHistogram(@Nullable final String name) {
+        this.name = name;
+    }
+
+    // Name in LatencyMetrics (null if not registered)
+    public String getName() {
+        return name;
+    }
+
+    public void recordNanos(final long durationNanos) {
+        update(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+    }
+
+    @Override
+    public void update(final long valueMicros) {
+        final long value = Math.min(Math.max(valueMicros, 0), MAX_VALUE);
+        final AtomicLongArray stripe = getStripe();
+        stripe.incrementAndGet(bucketIndex(value));
+        stripe.addAndGet(SUM_INDEX, value);
+        long max = stripe.get(MAX_INDEX);
+        while (value > max && !stripe.compareAndSet(MAX_INDEX, max, value)) {
+            max = stripe.get(MAX_INDEX);
+        }
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public LatencySnapshot getSnapshot() {
+        final long[] counts = new long[NB_BUCKETS];
+        long sum = 0;
+        long max = 0;
+        for (int s = 0; s < NB_STRIPES; s++) {
+            final AtomicLongArray stripe = stripes.get(s);
+            if (stripe == null) {
+                continue;
+            }
+            for (int i = 0; i < NB_BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+            sum += stripe.get(SUM_INDEX);
+            max = Math.max(max, stripe.get(MAX_INDEX));
+        }
+        return new LatencySnapshot(counts, sum, max);
+    }
+
+    public void reset() {
+        for (int s = 0; s < NB_STRIPES; s++) {
+            final AtomicLongArray stripe = stripes.get(s);
+            if (stripe == null) {
+                continue;
+            }
+            for (int i = 0; i < stripe.length(); i++) {
+                stripe.set(i, 0);
+            }
+        }
+    }
+
+    private AtomicLongArray getStripe() {
+        final int index = (int) (Thread.currentThread().getId() & (NB_STRIPES - 1));
+        final AtomicLongArray stripe = stripes.get(index);
+        if (stripe != null) {
+            return stripe;
+        }
+        // Allocated once per stripe, on first use
+        stripes.compareAndSet(index, null, new AtomicLongArray(NB_BUCKETS + 2));
+        return stripes.get(index);
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketLowerBound(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        final int subBucket = index % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + subBucket)) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    // Highest value recorded in that bucket
+    static long bucketUpperBound(final int index) {
+        return index + 1 < NB_BUCKETS ? bucketLowerBound(index + 1) - 1 : MAX_VALUE;
+    }
+
+    public static class LatencySnapshot extends Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private LatencySnapshot(final long[] counts, final long sum, final long max) {
+            this.counts = counts;
+            long total = 0;
+            for (final long bucketCount : counts) {
+                total += bucketCount;
+            }
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        // The percentiles are reported as the highest value of their bucket (capped by the max)
+        @Override
+        public double getValue(final double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+            if (count == 0) {
+                return 0.0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < NB_BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        // One value per non-empty bucket (the recorded values themselves aren't kept)
+        @Override
+        public long[] getValues() {
+            final long[] values = new long[NB_BUCKETS];
+            int nbValues = 0;
+            for (int i = 0; i < NB_BUCKETS; i++) {
+                if (counts[i] > 0) {
+                    values[nbValues++] = Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return Arrays.copyOf(values, nbValues);
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public double getMean() {
+            return count == 0 ? 0.0 : (double) sum / count;
+        }
+
+        @Override
+        public long getMin() {
+            for (int i = 0; i < NB_BUCKETS; i++) {
+                if (counts[i] > 0) {
+                    return bucketLowerBound(i);
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public double getStdDev() {
+            if (count <= 1) {
+                return 0.0;
+            }
+            final double mean = getMean();
+            double variance = 0.0;
+            for (int i = 0; i < NB_BUCKETS; i++) {
+                if (counts[i] > 0) {
+                    final double diff = (bucketLowerBound(i) + bucketUpperBound(i)) / 2.0 - mean;
+                    variance += counts[i] * diff * diff;
+                }
+            }
+            return Math.sqrt(variance / (count - 1));
+        }
+
+        @Override
+        public void dump(final OutputStream output) {
+            final PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            try {
+                for (final long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+
+//
+// Process-wide registry of the always-on latency histograms (DAO methods, JAX-RS resources, bus and notification queue handlers):
+// - a single instance, since the DAO invocation handlers and the queue handlers aren't created by Guice
+// - histograms are looked up by (kind, class, method) without allocating once created, so they can be used on hot paths
+// - once exported (see LatencyMetricsExporter), every histogram is also registered in the MetricRegistry as killbill.latency.<name>
+//
+public class LatencyMetrics {
+
+    public static final String DAO = "dao";
+    public static final String JAXRS = "jaxrs";
+    public static final String BUS = "bus";
+    public static final String NOTIFICATION_QUEUE = "notificationq";
+
+    private static final String METRICS_PREFIX = "killbill.latency";
+
+    private static final LatencyMetrics INSTANCE = new LatencyMetrics();
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+    private final ConcurrentMap<String, ConcurrentMap<Class<?>, ConcurrentMap<Method, LatencyHistogram>>> methodHistograms = new ConcurrentHashMap<String, ConcurrentMap<Class<?>, ConcurrentMap<Method, LatencyHistogram>>>();
+
+    private volatile MetricRegistry metricRegistry;
+
+    public static LatencyMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    LatencyMetrics() {
+    }
+
+    public LatencyHistogram getHistogram(final String kind, final Class<?> clazz, final Method method) {
+        ConcurrentMap<Class<?>, ConcurrentMap<Method, LatencyHistogram>> histogramsForKind = methodHistograms.get(kind);
+        if (histogramsForKind == null) {
+            methodHistograms.putIfAbsent(kind, new ConcurrentHashMap<Class<?>, ConcurrentMap<Method, LatencyHistogram>>());
+            histogramsForKind = methodHistograms.get(kind);
+        }
+        ConcurrentMap<Method, LatencyHistogram> histogramsForClass = histogramsForKind.get(clazz);
+        if (histogramsForClass == null) {
+            histogramsForKind.putIfAbsent(clazz, new ConcurrentHashMap<Method, LatencyHistogram>());
+            histogramsForClass = histogramsForKind.get(clazz);
+        }
+        LatencyHistogram histogram = histogramsForClass.get(method);
+        if (histogram == null) {
+            histogram = getHistogram(MetricRegistry.name(kind, clazz.getSimpleName(), method.getName()));
+            histogramsForClass.putIfAbsent(method, histogram);
+        }
+        return histogram;
+    }
+
+    public LatencyHistogram getHistogram(final String name) {
+        final LatencyHistogram histogram = histograms.get(name);
+        if (histogram != null) {
+            return histogram;
+        }
+
+        final LatencyHistogram newHistogram = new LatencyHistogram(name);
+        final LatencyHistogram existingHistogram = histograms.putIfAbsent(name, newHistogram);
+        if (existingHistogram != null) {
+            return existingHistogram;
+        }
+        register(name, newHistogram);
+        return newHistogram;
+    }
+
+    public SortedMap<String, LatencyHistogram> getHistograms(@Nullable final String prefix) {
+        final SortedMap<String, LatencyHistogram> result = new TreeMap<String, LatencyHistogram>();
+        for (final Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            if (prefix == null || entry.getKey().startsWith(prefix)) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    public synchronized void exportTo(final MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        for (final Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            register(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void register(final String name, final LatencyHistogram histogram) {
+        final MetricRegistry registry = metricRegistry;
+        if (registry == null) {
+            return;
+        }
+        final String metricName = MetricRegistry.name(METRICS_PREFIX, name);
+        try {
+            registry.register(metricName, new Histogram(histogram));
+        } catch (final IllegalArgumentException ignored) {
+            // Already registered (exported concurrently)
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.lang.reflect.Method;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+// Records the latency of the intercepted methods, per declaring class and method (see LatencyMetrics), and tags their
+// transactions and locks with that origin (see TransactionTracer)
+public class TimedMethodInterceptor implements MethodInterceptor {
+
+    private final String kind;
+
+    public TimedMethodInterceptor(final String kind) {
+        this.kind = kind;
+    }
+
+    @Override
+    public Object invoke(final MethodInvocation invocation) throws Throwable {
+        final Method method = invocation.getMethod();
+        final LatencyHistogram histogram = LatencyMetrics.getInstance().getHistogram(kind, method.getDeclaringClass(), method);
+        final String previousOrigin = TransactionTracer.getInstance().enterOrigin(histogram.getName());
+        final long startNanos = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            histogram.recordNanos(System.nanoTime() - startNanos);
+            TransactionTracer.getInstance().exitOrigin(previousOrigin);
+        }
+    }
+}
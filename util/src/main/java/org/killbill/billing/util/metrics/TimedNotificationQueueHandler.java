@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.notificationq.api.NotificationEvent;
+import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueHandler;
+
+import com.codahale.metrics.MetricRegistry;
+
+// Records the latency of a notification queue handler (see LatencyMetrics), and tags its transactions and locks with
+// that origin (see TransactionTracer)
+public class TimedNotificationQueueHandler implements NotificationQueueHandler {
+
+    private final NotificationQueueHandler delegate;
+    private final LatencyHistogram histogram;
+
+    public TimedNotificationQueueHandler(final String svcName, final String queueName, final NotificationQueueHandler delegate) {
+        this.delegate = delegate;
+        this.histogram = LatencyMetrics.getInstance().getHistogram(MetricRegistry.name(LatencyMetrics.NOTIFICATION_QUEUE, svcName, queueName));
+    }
+
+    @Override
+    public void handleReadyNotification(final NotificationEvent eventJson, final DateTime eventDateTime, final UUID userToken, final Long searchKey1, final Long searchKey2) {
+        final String previousOrigin = TransactionTracer.getInstance().enterOrigin(histogram.getName());
+        final long startNanos = System.nanoTime();
+        try {
+            delegate.handleReadyNotification(eventJson, eventDateTime, userToken, searchKey1, searchKey2);
+        } finally {
+            histogram.recordNanos(System.nanoTime() - startNanos);
+            TransactionTracer.getInstance().exitOrigin(previousOrigin);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+//
+// A traced transaction or global lock (see TransactionTracer). The counters are only updated by the thread running the
+// transaction (or owning the lock), and read concurrently by the admin API while it is in progress.
+//
+public class TraceRecord {
+
+    public enum Type {
+        TRANSACTION,
+        LOCK
+    }
+
+    private final Type type;
+    private final String origin;
+    private final long threadId;
+    private final String threadName;
+    private final long startTimeMillis;
+    private final long startNanos;
+    private final boolean readOnly;
+    private final String lockService;
+    private final String lockKey;
+
+    private volatile long endNanos;
+    private volatile long acquiredNanos;
+    private volatile int nbStatements;
+    private volatile long nbRowsTouched;
+    private volatile boolean failed;
+    private volatile List<String> heldLocks;
+
+    TraceRecord(final Type type, final String origin, final boolean readOnly, final String lockService, final String lockKey) {
+        this.type = type;
+        this.origin = origin;
+        this.threadId = Thread.currentThread().getId();
+        this.threadName = Thread.currentThread().getName();
+        this.startTimeMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.readOnly = readOnly;
+        this.lockService = lockService;
+        this.lockKey = lockKey;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public DateTime getStartDate() {
+        return new DateTime(startTimeMillis, DateTimeZone.UTC);
+    }
+
+    public boolean isInProgress() {
+        return endNanos == 0;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    // Transaction duration, or total lock wait and hold time (so far, if still in progress)
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis((isInProgress() ? System.nanoTime() : endNanos) - startNanos);
+    }
+
+    public Boolean getReadOnly() {
+        return type == Type.TRANSACTION ? readOnly : null;
+    }
+
+    public Integer getNbStatements() {
+        return type == Type.TRANSACTION ? nbStatements : null;
+    }
+
+    public Long getNbRowsTouched() {
+        return type == Type.TRANSACTION ? nbRowsTouched : null;
+    }
+
+    // Global locks held by the thread when the transaction ended
+    public List<String> getHeldLocks() {
+        return heldLocks;
+    }
+
+    public String getLockService() {
+        return lockService;
+    }
+
+    public String getLockKey() {
+        return lockKey;
+    }
+
+    public Long getLockWaitMillis() {
+        if (type != Type.LOCK) {
+            return null;
+        }
+        final long acquired = acquiredNanos;
+        return acquired == 0 ? getDurationMillis() : TimeUnit.NANOSECONDS.toMillis(acquired - startNanos);
+    }
+
+    long getThreadId() {
+        return threadId;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    long getAcquiredNanos() {
+        return acquiredNanos;
+    }
+
+    long getEndNanos() {
+        return endNanos;
+    }
+
+    // Single writer (the owning thread)
+    @SuppressWarnings("NonAtomicOperationOnVolatileField")
+    void addStatement(final long nbRows) {
+        nbStatements++;
+        nbRowsTouched += nbRows;
+    }
+
+    void setAcquired(final long nanos) {
+        acquiredNanos = nanos;
+    }
+
+    void setHeldLocks(final List<String> heldLocks) {
+        this.heldLocks = heldLocks;
+    }
+
+    void end(final long nanos, final boolean failed) {
+        this.failed = failed;
+        this.endNanos = nanos;
+    }
+
+    String lockName() {
+        return lockService + ":" + lockKey;
+    }
+}
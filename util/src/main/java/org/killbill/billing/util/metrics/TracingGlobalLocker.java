@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.GlobalLocker;
+import org.killbill.commons.locker.LockFailedException;
+
+// Records the wait and hold times of the global locks (see TransactionTracer)
+public class TracingGlobalLocker implements GlobalLocker {
+
+    private final GlobalLocker delegate;
+
+    public TracingGlobalLocker(final GlobalLocker delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public GlobalLock lockWithNumberOfTries(final String service, final String lockKey, final int retry) throws LockFailedException {
+        final TransactionTracer tracer = TransactionTracer.getInstance();
+        final TraceRecord trace = tracer.startLock(service, lockKey);
+        boolean acquired = false;
+        try {
+            final GlobalLock lock = delegate.lockWithNumberOfTries(service, lockKey, retry);
+            acquired = true;
+            tracer.lockAcquired(trace);
+            return new GlobalLock() {
+                @Override
+                public void release() {
+                    try {
+                        lock.release();
+                    } finally {
+                        tracer.lockReleased(trace);
+                    }
+                }
+            };
+        } finally {
+            if (!acquired) {
+                tracer.lockFailed(trace);
+            }
+        }
+    }
+
+    @Override
+    public boolean isFree(final String service, final String lockKey) {
+        return delegate.isFree(service, lockKey);
+    }
+}
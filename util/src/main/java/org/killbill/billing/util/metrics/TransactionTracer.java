@@ -0,0 +1,276 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.killbill.billing.util.config.definition.TracingConfig;
+import org.killbill.billing.util.jackson.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+//
+// Tracing of the transactions (see EntitySqlDaoTransactionalJdbiWrapper) and global locks (see TracingGlobalLocker), to find
+// the sources of database and account lock contention:
+// - transactions record their duration, number of statements and rows touched (read or written), locks their wait and hold times
+// - records are tagged with the origin of the work done by the thread (JAX-RS resource, bus or notification queue handler,
+//   named as in LatencyMetrics), or the thread name if there is none
+// - records over the threshold are logged as JSON by the org.killbill.billing.SlowTransactions logger, and the most recent
+//   ones are kept in a ring buffer
+// - records in progress are tracked too, since a stall is usually caused by a transaction or a lock which hasn't completed yet
+// A single instance, like LatencyMetrics: the DAO wrappers aren't created by Guice.
+//
+public class TransactionTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionTracer.class);
+    private static final Logger slowLogger = LoggerFactory.getLogger("org.killbill.billing.SlowTransactions");
+
+    private static final TransactionTracer INSTANCE = new TransactionTracer();
+
+    private static final Comparator<TraceRecord> BY_START = new Comparator<TraceRecord>() {
+        @Override
+        public int compare(final TraceRecord o1, final TraceRecord o2) {
+            return Long.compare(o1.getStartNanos(), o2.getStartNanos());
+        }
+    };
+
+    private final ThreadLocal<ThreadState> threadStates = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState();
+        }
+    };
+    private final Set<TraceRecord> inProgress = Collections.newSetFromMap(new ConcurrentHashMap<TraceRecord, Boolean>());
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile long slowThresholdNanos = TimeUnit.SECONDS.toNanos(1);
+
+    // Guarded by this
+    private TraceRecord[] slowRecords = new TraceRecord[200];
+    private int nextSlowRecord = 0;
+
+    public static TransactionTracer getInstance() {
+        return INSTANCE;
+    }
+
+    TransactionTracer() {
+    }
+
+    @Inject
+    public void configure(final TracingConfig tracingConfig) {
+        configure(TimeUnit.MILLISECONDS.toNanos(tracingConfig.getSlowThreshold().getMillis()), tracingConfig.getMaxSlowRecords());
+    }
+
+    synchronized void configure(final long slowThresholdNanos, final int maxSlowRecords) {
+        this.slowThresholdNanos = slowThresholdNanos;
+        if (Math.max(1, maxSlowRecords) != slowRecords.length) {
+            slowRecords = new TraceRecord[Math.max(1, maxSlowRecords)];
+            nextSlowRecord = 0;
+        }
+    }
+
+    /**
+     * Set the origin of the work done by the current thread
+     *
+     * @param origin the origin name
+     * @return the previous origin, to restore with exitOrigin
+     */
+    public String enterOrigin(@Nullable final String origin) {
+        final ThreadState threadState = threadStates.get();
+        final String previousOrigin = threadState.origin;
+        threadState.origin = origin;
+        return previousOrigin;
+    }
+
+    public void exitOrigin(@Nullable final String previousOrigin) {
+        threadStates.get().origin = previousOrigin;
+    }
+
+    public TraceRecord startTransaction(final boolean readOnly) {
+        final ThreadState threadState = threadStates.get();
+        final TraceRecord transaction = new TraceRecord(TraceRecord.Type.TRANSACTION, threadState.getOrigin(), readOnly, null, null);
+        threadState.transactions.push(transaction);
+        inProgress.add(transaction);
+        return transaction;
+    }
+
+    // Called for each sql dao call, the result is used to estimate the number of rows touched
+    public void recordStatement(@Nullable final Object result) {
+        final TraceRecord transaction = threadStates.get().transactions.peek();
+        if (transaction != null) {
+            transaction.addStatement(getNbRows(result));
+        }
+    }
+
+    public void endTransaction(final TraceRecord transaction, final boolean failed) {
+        final long endNanos = System.nanoTime();
+        transaction.end(endNanos, failed);
+        threadStates.get().transactions.remove(transaction);
+        inProgress.remove(transaction);
+
+        final long durationNanos = endNanos - transaction.getStartNanos();
+        LatencyMetrics.getInstance().getHistogram(transaction.getReadOnly() ? "transaction.ro" : "transaction.rw").recordNanos(durationNanos);
+        if (durationNanos >= slowThresholdNanos) {
+            transaction.setHeldLocks(getHeldLocks(transaction.getThreadId()));
+            recordSlow(transaction);
+        }
+    }
+
+    public TraceRecord startLock(final String lockService, final String lockKey) {
+        final TraceRecord lock = new TraceRecord(TraceRecord.Type.LOCK, threadStates.get().getOrigin(), false, lockService, lockKey);
+        inProgress.add(lock);
+        return lock;
+    }
+
+    public void lockAcquired(final TraceRecord lock) {
+        final long acquiredNanos = System.nanoTime();
+        lock.setAcquired(acquiredNanos);
+        LatencyMetrics.getInstance().getHistogram(MetricRegistry.name("lock", lock.getLockService(), "wait")).recordNanos(acquiredNanos - lock.getStartNanos());
+    }
+
+    public void lockFailed(final TraceRecord lock) {
+        endLock(lock, true);
+    }
+
+    public void lockReleased(final TraceRecord lock) {
+        endLock(lock, false);
+        LatencyMetrics.getInstance().getHistogram(MetricRegistry.name("lock", lock.getLockService(), "held")).recordNanos(lock.getEndNanos() - lock.getAcquiredNanos());
+    }
+
+    private void endLock(final TraceRecord lock, final boolean failed) {
+        final long endNanos = System.nanoTime();
+        lock.end(endNanos, failed);
+        inProgress.remove(lock);
+        if (endNanos - lock.getStartNanos() >= slowThresholdNanos) {
+            recordSlow(lock);
+        }
+    }
+
+    /**
+     * @param minDurationMillis minimum duration so far
+     * @return the transactions and locks in progress, oldest first
+     */
+    public List<TraceRecord> getInProgress(final long minDurationMillis) {
+        final List<TraceRecord> result = new ArrayList<TraceRecord>();
+        for (final TraceRecord record : inProgress) {
+            if (record.getDurationMillis() >= minDurationMillis) {
+                result.add(record);
+            }
+        }
+        Collections.sort(result, BY_START);
+        return result;
+    }
+
+    /**
+     * @param minDurationMillis minimum duration
+     * @return the most recent slow transactions and locks, most recent first
+     */
+    public synchronized List<TraceRecord> getSlowRecords(final long minDurationMillis) {
+        final List<TraceRecord> result = new ArrayList<TraceRecord>(slowRecords.length);
+        for (int i = 1; i <= slowRecords.length; i++) {
+            final TraceRecord record = slowRecords[(nextSlowRecord - i + slowRecords.length) % slowRecords.length];
+            if (record == null) {
+                break;
+            }
+            if (record.getDurationMillis() >= minDurationMillis) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void clearSlowRecords() {
+        slowRecords = new TraceRecord[slowRecords.length];
+        nextSlowRecord = 0;
+    }
+
+    private void recordSlow(final TraceRecord record) {
+        synchronized (this) {
+            slowRecords[nextSlowRecord] = record;
+            nextSlowRecord = (nextSlowRecord + 1) % slowRecords.length;
+        }
+
+        if (slowLogger.isWarnEnabled()) {
+            try {
+                slowLogger.warn(objectMapper.writeValueAsString(record));
+            } catch (final JsonProcessingException e) {
+                logger.warn("Unable to serialize slow {} record", record.getType(), e);
+            }
+        }
+    }
+
+    // Only computed for slow transactions
+    private List<String> getHeldLocks(final long threadId) {
+        final List<String> heldLocks = new ArrayList<String>();
+        for (final TraceRecord record : inProgress) {
+            if (record.getType() == TraceRecord.Type.LOCK && record.getThreadId() == threadId && record.getAcquiredNanos() != 0) {
+                heldLocks.add(record.lockName());
+            }
+        }
+        return heldLocks;
+    }
+
+    static long getNbRows(@Nullable final Object result) {
+        if (result == null) {
+            return 0;
+        } else if (result instanceof Integer) {
+            // Update count
+            return (Integer) result;
+        } else if (result instanceof int[]) {
+            // Batch update counts
+            long nbRows = 0;
+            for (final int count : (int[]) result) {
+                nbRows += Math.max(count, 0);
+            }
+            return nbRows;
+        } else if (result instanceof Collection) {
+            return ((Collection) result).size();
+        } else if (result instanceof Iterator) {
+            // Streamed, unknown
+            return 0;
+        } else {
+            return 1;
+        }
+    }
+
+    private static final class ThreadState {
+
+        private final Deque<TraceRecord> transactions = new ArrayDeque<TraceRecord>(2);
+        private String origin;
+
+        private String getOrigin() {
+            return origin == null ? Thread.currentThread().getName() : origin;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.util.nodes;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.killbill.billing.util.config.definition.ShardingConfig;
+import org.killbill.billing.util.nodes.dao.QueueShardingSqlDao;
+import org.killbill.bus.api.PersistentBusConfig;
+import org.killbill.queue.api.PersistentQueueConfig.PersistentQueueMode;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//
+// Account affinity of the internal bus (org.killbill.sharding.affinity.enabled), on top of the STICKY_POLLING bus mode in
+// which each node only dispatches the events it created (creating_owner):
+// - each node periodically adopts the bus events of its account buckets (see NodeBuckets) which aren't claimed yet, so that
+//   all the handlers for one account run on the same node (see LocalOrderingGlobalLocker for the local serialization)
+// - routing is best-effort: the node posting an event can still dispatch it before the owner adopts it
+// - events without an account (search_key1 is null) stay on the node which created them
+//
+public class BusEventSharding {
+
+    public static final String MAIN_BUS_CONFIG = "mainBusConfig";
+
+    private static final Logger logger = LoggerFactory.getLogger(BusEventSharding.class);
+
+    private final IDBI dbi;
+    private final PersistentBusConfig persistentBusConfig;
+    private final boolean isEnabled;
+
+    @Inject
+    public BusEventSharding(final IDBI dbi, @Named(MAIN_BUS_CONFIG) final PersistentBusConfig persistentBusConfig, final ShardingConfig shardingConfig) {
+        this.dbi = dbi;
+        this.persistentBusConfig = persistentBusConfig;
+
+        final boolean isSticky = persistentBusConfig.getPersistentQueueMode() == PersistentQueueMode.STICKY_POLLING;
+        final boolean isAffinityEnabled = shardingConfig.isShardingEnabled() && shardingConfig.isAffinityEnabled();
+        if (isAffinityEnabled && !isSticky) {
+            logger.warn("Bus event affinity requires the STICKY_POLLING bus mode (current mode is {}): affinity disabled", persistentBusConfig.getPersistentQueueMode());
+        }
+        this.isEnabled = isAffinityEnabled && isSticky;
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Adopt the bus events of the buckets owned by that node
+     *
+     * @param nodeBuckets the current bucket assignment
+     * @param nodeName    the local node name
+     * @return the number of adopted bus events
+     */
+    public int adoptBusEvents(final NodeBuckets nodeBuckets, final String nodeName) {
+        final List<Integer> buckets = nodeBuckets.getBuckets(nodeName);
+        if (!isEnabled || buckets.isEmpty()) {
+            return 0;
+        }
+
+        final int nbAdopted = dbi.inTransaction(new TransactionCallback<Integer>() {
+            @Override
+            public Integer inTransaction(final Handle handle, final TransactionStatus status) throws Exception {
+                return handle.attach(QueueShardingSqlDao.class).adoptBusEvents(persistentBusConfig.getTableName(),
+                                                                               buckets,
+                                                                               nodeBuckets.getNbBuckets(),
+                                                                               nodeName);
+            }
+        });
+        if (nbAdopted > 0) {
+            logger.debug("Adopted {} bus events for {} buckets", nbAdopted, buckets.size());
+        }
+        return nbAdopted;
+    }
+}
@@ -17,7 +17,11 @@
 
 package org.killbill.billing.util.nodes;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -27,16 +31,19 @@ import org.killbill.billing.osgi.api.PluginInfo;
 import org.killbill.billing.osgi.api.PluginsInfoApi;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
+import org.killbill.billing.util.config.definition.ShardingConfig;
 import org.killbill.billing.util.nodes.dao.NodeInfoDao;
 import org.killbill.billing.util.nodes.dao.NodeInfoModelDao;
 import org.killbill.billing.util.nodes.json.NodeInfoModelJson;
 import org.killbill.billing.util.nodes.json.PluginInfoModelJson;
 import org.killbill.clock.Clock;
+import org.killbill.commons.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.base.Function;
+import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
@@ -45,19 +52,33 @@ public class DefaultKillbillNodesService implements KillbillNodesService {
     private static final Logger logger = LoggerFactory.getLogger(DefaultKillbillNodesService.class);
 
 
+    private static final int TERMINATION_TIMEOUT_SEC = 5;
+
     private final NodeInfoDao nodeInfoDao;
     private final PluginsInfoApi pluginInfoApi;
     private final Clock clock;
     private final NodeInfoMapper mapper;
     private final KillbillNodesApi nodesApi;
+    private final ShardingConfig shardingConfig;
+    private final NotificationQueueSharding notificationQueueSharding;
+    private final BusEventSharding busEventSharding;
+
+    private volatile NodeBuckets nodeBuckets;
+    private ScheduledExecutorService heartbeatExecutor;
 
     @Inject
-    public DefaultKillbillNodesService(final NodeInfoDao nodeInfoDao, final PluginsInfoApi pluginInfoApi, final KillbillNodesApi nodesApi, final Clock clock, final NodeInfoMapper mapper) {
+    public DefaultKillbillNodesService(final NodeInfoDao nodeInfoDao, final PluginsInfoApi pluginInfoApi, final KillbillNodesApi nodesApi, final Clock clock, final NodeInfoMapper mapper,
+                                       final ShardingConfig shardingConfig, final NotificationQueueSharding notificationQueueSharding, final BusEventSharding busEventSharding) {
         this.nodeInfoDao = nodeInfoDao;
         this.pluginInfoApi = pluginInfoApi;
         this.nodesApi = nodesApi;
         this.clock = clock;
         this.mapper = mapper;
+        this.shardingConfig = shardingConfig;
+        this.notificationQueueSharding = notificationQueueSharding;
+        this.busEventSharding = busEventSharding;
+        // Until the first refresh, this node owns all the buckets
+        this.nodeBuckets = new NodeBuckets(shardingConfig.getNbBuckets(), ImmutableList.<String>of(CreatorName.get()));
     }
 
     @Override
@@ -89,13 +110,84 @@ public class DefaultKillbillNodesService implements KillbillNodesService {
         } catch (JsonProcessingException e) {
             logger.error("Failed to create bootNodeInfo", e);
         }
+
+        if (shardingConfig.isShardingEnabled()) {
+            refreshNodeBuckets();
+            heartbeatExecutor = Executors.newSingleThreadScheduledExecutor("NodesHeartbeat");
+            final long heartbeatRateMillis = shardingConfig.getHeartbeatRate().getMillis();
+            heartbeatExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        nodeInfoDao.updateHeartbeat(CreatorName.get());
+                        refreshNodeBuckets();
+                        if (!busEventSharding.isEnabled()) {
+                            notificationQueueSharding.adoptNotifications(nodeBuckets, CreatorName.get());
+                        }
+                    } catch (final RuntimeException e) {
+                        logger.warn("Failed to refresh the node buckets", e);
+                    }
+                }
+            }, heartbeatRateMillis, heartbeatRateMillis, TimeUnit.MILLISECONDS);
+
+            // Bus events are usually ready right away: adopt them (and the notifications) more often than the heartbeat
+            if (busEventSharding.isEnabled()) {
+                final long affinityRateMillis = shardingConfig.getAffinityRate().getMillis();
+                heartbeatExecutor.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            busEventSharding.adoptBusEvents(nodeBuckets, CreatorName.get());
+                            notificationQueueSharding.adoptNotifications(nodeBuckets, CreatorName.get());
+                        } catch (final RuntimeException e) {
+                            logger.warn("Failed to adopt the bus events and notifications", e);
+                        }
+                    }
+                }, affinityRateMillis, affinityRateMillis, TimeUnit.MILLISECONDS);
+            }
+        }
     }
 
     @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
     public void stop() {
+        if (heartbeatExecutor != null) {
+            heartbeatExecutor.shutdown();
+            try {
+                if (!heartbeatExecutor.awaitTermination(TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                    logger.warn("NodesHeartbeat failed to complete termination within {} sec", TERMINATION_TIMEOUT_SEC);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("NodesHeartbeat stop sequence got interrupted");
+            }
+        }
+        // The other nodes take over our buckets once they no longer see our node info
         nodeInfoDao.delete(CreatorName.get());
     }
 
+    @Override
+    public NodeBuckets getNodeBuckets() {
+        return nodeBuckets;
+    }
+
+    // The live nodes are the ones which updated their node info recently (we're always live for ourselves)
+    private void refreshNodeBuckets() {
+        final DateTime liveAfter = clock.getUTCNow().minus(shardingConfig.getNodeTimeout().getMillis());
+        final Set<String> liveNodeNames = new HashSet<String>();
+        liveNodeNames.add(CreatorName.get());
+        for (final NodeInfoModelDao nodeInfo : nodeInfoDao.getAll()) {
+            final DateTime lastSeen = MoreObjects.firstNonNull(nodeInfo.getUpdatedDate(), nodeInfo.getBootDate());
+            if (lastSeen.isAfter(liveAfter)) {
+                liveNodeNames.add(nodeInfo.getNodeName());
+            }
+        }
+
+        if (!liveNodeNames.equals(new HashSet<String>(nodeBuckets.getNodeNames()))) {
+            nodeBuckets = new NodeBuckets(shardingConfig.getNbBuckets(), liveNodeNames);
+            logger.info("Node buckets rebalanced: {} buckets owned locally, nodes={}", nodeBuckets.getBuckets(CreatorName.get()).size(), nodeBuckets.getNodeNames());
+        }
+    }
+
     private void createBootNodeInfo(final boolean skipPlugins) throws JsonProcessingException {
 
         final DateTime bootTime = clock.getUTCNow();
@@ -20,4 +20,9 @@ package org.killbill.billing.util.nodes;
 import org.killbill.billing.platform.api.KillbillService;
 
 public interface KillbillNodesService extends KillbillService {
+
+    /**
+     * @return the current assignment of the account buckets to the live nodes (only refreshed when sharding is enabled)
+     */
+    public NodeBuckets getNodeBuckets();
 }
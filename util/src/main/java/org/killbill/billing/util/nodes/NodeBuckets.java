@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.nodes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.math.LongMath;
+
+//
+// Assignment of the account buckets (account record id modulo the number of buckets) to the live nodes, by rendezvous hashing:
+// each bucket is owned by the node with the highest hash(node, bucket), so that when a node joins or leaves only the buckets it
+// gains or loses move (about 1/n of them), and all nodes agree on the assignment as long as they agree on the live nodes.
+//
+public class NodeBuckets {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_32();
+
+    private final int nbBuckets;
+    private final List<String> nodeNames;
+    private final String[] owners;
+
+    public NodeBuckets(final int nbBuckets, final Collection<String> nodeNames) {
+        this.nbBuckets = nbBuckets;
+        this.nodeNames = Ordering.natural().immutableSortedCopy(nodeNames);
+        this.owners = new String[nbBuckets];
+        for (int bucket = 0; bucket < nbBuckets; bucket++) {
+            int bestHash = Integer.MIN_VALUE;
+            for (final String nodeName : this.nodeNames) {
+                final int hash = HASH_FUNCTION.newHasher()
+                                              .putString(nodeName, StandardCharsets.UTF_8)
+                                              .putInt(bucket)
+                                              .hash()
+                                              .asInt();
+                // Ties are broken by node name (first in order wins)
+                if (owners[bucket] == null || hash > bestHash) {
+                    bestHash = hash;
+                    owners[bucket] = nodeName;
+                }
+            }
+        }
+    }
+
+    // Same as mod(account_record_id, nbBuckets) in SQL
+    public static int getBucket(final Long accountRecordId, final int nbBuckets) {
+        return (int) LongMath.mod(accountRecordId, (long) nbBuckets);
+    }
+
+    public int getNbBuckets() {
+        return nbBuckets;
+    }
+
+    public List<String> getNodeNames() {
+        return nodeNames;
+    }
+
+    public int getBucket(final Long accountRecordId) {
+        return getBucket(accountRecordId, nbBuckets);
+    }
+
+    // Null if there is no live node
+    @Nullable
+    public String getOwner(final int bucket) {
+        return owners[bucket];
+    }
+
+    @Nullable
+    public String getOwnerForAccount(final Long accountRecordId) {
+        return getOwner(getBucket(accountRecordId));
+    }
+
+    public List<Integer> getBuckets(final String nodeName) {
+        final List<Integer> buckets = new ArrayList<Integer>();
+        for (int bucket = 0; bucket < nbBuckets; bucket++) {
+            if (nodeName.equals(owners[bucket])) {
+                buckets.add(bucket);
+            }
+        }
+        return ImmutableList.<Integer>copyOf(buckets);
+    }
+
+    @Override
+    public String toString() {
+        return "NodeBuckets{" +
+               "nbBuckets=" + nbBuckets +
+               ", nodeNames=" + nodeNames +
+               '}';
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.nodes;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.util.config.definition.ShardingConfig;
+import org.killbill.billing.util.nodes.dao.QueueShardingSqlDao;
+import org.killbill.clock.Clock;
+import org.killbill.notificationq.api.NotificationQueueConfig;
+import org.killbill.queue.api.PersistentQueueConfig.PersistentQueueMode;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//
+// Sharded processing of the notification queues (org.killbill.sharding.enabled), on top of the STICKY_POLLING queue mode in
+// which each node only claims the notifications it created (creating_owner):
+// - each node periodically adopts the notifications of its account buckets (see NodeBuckets) which are, or are about to be,
+//   ready by setting their creating_owner, so that the nodes no longer compete for the same rows
+// - notifications of buckets moving to another node (node joining or leaving) are adopted by their new owner on its next run
+// - only notifications which aren't claimed yet are adopted: a claim racing with the adoption still processes the entry once
+// Queues which aren't sharded keep the STICKY_POLLING behavior (processed by the node which created the notification), unless
+// affinity mode is on (org.killbill.sharding.affinity.enabled), in which case the notifications of all queues are adopted.
+//
+public class NotificationQueueSharding {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationQueueSharding.class);
+
+    private final IDBI dbi;
+    private final NotificationQueueConfig notificationQueueConfig;
+    private final ShardingConfig shardingConfig;
+    private final Clock clock;
+    private final boolean isEnabled;
+    private final boolean allQueues;
+
+    @Inject
+    public NotificationQueueSharding(final IDBI dbi, final NotificationQueueConfig notificationQueueConfig, final ShardingConfig shardingConfig, final Clock clock) {
+        this.dbi = dbi;
+        this.notificationQueueConfig = notificationQueueConfig;
+        this.shardingConfig = shardingConfig;
+        this.clock = clock;
+
+        final boolean isSticky = notificationQueueConfig.getPersistentQueueMode() == PersistentQueueMode.STICKY_POLLING;
+        if (shardingConfig.isShardingEnabled() && !isSticky) {
+            logger.warn("Notification queue sharding requires the STICKY_POLLING queue mode (current mode is {}): sharding disabled", notificationQueueConfig.getPersistentQueueMode());
+        }
+        this.allQueues = shardingConfig.isAffinityEnabled();
+        this.isEnabled = shardingConfig.isShardingEnabled() && isSticky && (allQueues || !shardingConfig.getShardedNotificationQueues().isEmpty());
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Adopt the notifications of the buckets owned by that node
+     *
+     * @param nodeBuckets the current bucket assignment
+     * @param nodeName    the local node name
+     * @return the number of adopted notifications
+     */
+    public int adoptNotifications(final NodeBuckets nodeBuckets, final String nodeName) {
+        final List<Integer> buckets = nodeBuckets.getBuckets(nodeName);
+        if (!isEnabled || buckets.isEmpty()) {
+            return 0;
+        }
+
+        final int nbAdopted = dbi.inTransaction(new TransactionCallback<Integer>() {
+            @Override
+            public Integer inTransaction(final Handle handle, final TransactionStatus status) throws Exception {
+                final QueueShardingSqlDao queueShardingSqlDao = handle.attach(QueueShardingSqlDao.class);
+                final Date maxEffectiveDate = clock.getUTCNow().plus(shardingConfig.getNotificationLookAhead().getMillis()).toDate();
+                if (allQueues) {
+                    return queueShardingSqlDao.adoptAllNotifications(notificationQueueConfig.getTableName(), buckets, nodeBuckets.getNbBuckets(), nodeName, maxEffectiveDate);
+                } else {
+                    return queueShardingSqlDao.adoptNotifications(notificationQueueConfig.getTableName(),
+                                                                  shardingConfig.getShardedNotificationQueues(),
+                                                                  buckets,
+                                                                  nodeBuckets.getNbBuckets(),
+                                                                  nodeName,
+                                                                  maxEffectiveDate);
+                }
+            }
+        });
+        if (nbAdopted > 0) {
+            logger.info("Adopted {} notifications for {} buckets", nbAdopted, buckets.size());
+        }
+        return nbAdopted;
+    }
+}
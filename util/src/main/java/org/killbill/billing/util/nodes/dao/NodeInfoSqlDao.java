@@ -35,6 +35,9 @@ public interface NodeInfoSqlDao {
     @SqlUpdate
     public void updateNodeInfo(@Bind("nodeName") final String nodeName, @Bind("nodeInfo") final String nodeInfo, @Bind("updatedDate") final Date updatedDate);
 
+    @SqlUpdate
+    public void updateHeartbeat(@Bind("nodeName") final String nodeName, @Bind("updatedDate") final Date updatedDate);
+
     @SqlUpdate
     public void delete(@Bind("nodeName") final String nodeName);
 
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.nodes.dao;
+
+import java.util.Collection;
+import java.util.Date;
+
+import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.Define;
+import org.skife.jdbi.v2.unstable.BindIn;
+
+@KillBillSqlDaoStringTemplate
+public interface QueueShardingSqlDao {
+
+    @SqlUpdate
+    public int adoptNotifications(@Define("tableName") final String tableName,
+                                  @BindIn("queueNames") final Collection<String> queueNames,
+                                  @BindIn("buckets") final Collection<Integer> buckets,
+                                  @Bind("nbBuckets") final int nbBuckets,
+                                  @Bind("owner") final String owner,
+                                  @Bind("maxEffectiveDate") final Date maxEffectiveDate);
+
+    @SqlUpdate
+    public int adoptAllNotifications(@Define("tableName") final String tableName,
+                                     @BindIn("buckets") final Collection<Integer> buckets,
+                                     @Bind("nbBuckets") final int nbBuckets,
+                                     @Bind("owner") final String owner,
+                                     @Bind("maxEffectiveDate") final Date maxEffectiveDate);
+
+    @SqlUpdate
+    public int adoptBusEvents(@Define("tableName") final String tableName,
+                              @BindIn("buckets") final Collection<Integer> buckets,
+                              @Bind("nbBuckets") final int nbBuckets,
+                              @Bind("owner") final String owner);
+}
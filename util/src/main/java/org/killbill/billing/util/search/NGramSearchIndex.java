@@ -0,0 +1,408 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.util.config.definition.SearchConfig;
+
+//
+// In-memory trigram index:
+// - each value (lower cased) is split into its overlapping 3 character grams, and each gram points to the sorted record ids containing it
+// - a search intersects the posting lists of the grams of the search key (starting with the shortest), then verifies the candidates
+//   (the grams may match at different positions). Search keys shorter than a gram are verified against all the documents of the tenant
+// - exact values (ids) are kept in a separate map
+// As with the database fallback (like '%<searchKey>%'), % and _ in the search key match any sequence of characters and any single character
+// (the grams are then taken from the literal parts only). There is no escape character. Matching ignores the case (Locale.ROOT lower casing),
+// regardless of the database collation: unlike e.g. the MySQL default collations, accents are significant.
+//
+public class NGramSearchIndex implements SearchIndex {
+
+    private static final int GRAM_SIZE = 3;
+    private static final long[] NO_RESULTS = new long[0];
+
+    private final SearchConfig searchConfig;
+    private final Map<Long, TenantIndex> tenantIndexes;
+
+    public NGramSearchIndex(final SearchConfig searchConfig) {
+        this.searchConfig = searchConfig;
+        final int maxTenants = searchConfig.getSearchIndexMaxTenants();
+        this.tenantIndexes = Collections.synchronizedMap(new LinkedHashMap<Long, TenantIndex>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, TenantIndex> eldest) {
+                return size() > maxTenants;
+            }
+        });
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return searchConfig.isSearchIndexEnabled();
+    }
+
+    @Override
+    public Long getCheckpoint(final Long tenantRecordId) {
+        final TenantIndex tenantIndex = tenantIndexes.get(tenantRecordId);
+        return tenantIndex == null ? null : tenantIndex.getCheckpoint();
+    }
+
+    @Override
+    public Long getCatchUpCheckpoint(final Long tenantRecordId) {
+        final TenantIndex tenantIndex = tenantIndexes.get(tenantRecordId);
+        if (tenantIndex == null) {
+            return null;
+        }
+
+        synchronized (tenantIndex) {
+            return tenantIndex.getCatchUpCheckpoint(System.currentTimeMillis() - searchConfig.getSearchIndexCatchUpWindow().getMillis());
+        }
+    }
+
+    @Override
+    public void load(final Long tenantRecordId, final Iterator<SearchDocument> documents, final Long checkpoint) {
+        // Built aside, so searches keep using the previous version (if any) in the meantime
+        final TenantIndex tenantIndex = new TenantIndex();
+        while (documents.hasNext()) {
+            tenantIndex.put(documents.next());
+        }
+        tenantIndex.setCheckpoint(checkpoint, System.currentTimeMillis());
+        tenantIndexes.put(tenantRecordId, tenantIndex);
+    }
+
+    @Override
+    public void update(final Long tenantRecordId, final Iterable<SearchDocument> updated, final Iterable<Long> removedRecordIds, final Long checkpoint) {
+        final TenantIndex tenantIndex = tenantIndexes.get(tenantRecordId);
+        if (tenantIndex == null) {
+            return;
+        }
+
+        synchronized (tenantIndex) {
+            for (final Long recordId : removedRecordIds) {
+                tenantIndex.remove(recordId);
+            }
+            for (final SearchDocument document : updated) {
+                tenantIndex.put(document);
+            }
+            tenantIndex.setCheckpoint(Math.max(tenantIndex.getCheckpoint(), checkpoint), System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public long[] search(final Long tenantRecordId, final String searchKey) {
+        final TenantIndex tenantIndex = tenantIndexes.get(tenantRecordId);
+        if (tenantIndex == null) {
+            return null;
+        }
+
+        synchronized (tenantIndex) {
+            return tenantIndex.search(searchKey);
+        }
+    }
+
+    @Override
+    public Long size(final Long tenantRecordId) {
+        final TenantIndex tenantIndex = tenantIndexes.get(tenantRecordId);
+        if (tenantIndex == null) {
+            return null;
+        }
+
+        synchronized (tenantIndex) {
+            return (long) tenantIndex.size();
+        }
+    }
+
+    private static List<String> searchGrams(final String lowerCaseSearchKey, final boolean hasWildcards) {
+        if (!hasWildcards) {
+            return grams(lowerCaseSearchKey);
+        }
+
+        final List<String> searchGrams = new ArrayList<String>();
+        for (final String literal : lowerCaseSearchKey.split("[%_]")) {
+            searchGrams.addAll(grams(literal));
+        }
+        return searchGrams;
+    }
+
+    // See searchQuery in the .sql.stg files: like '%<searchKey>%'
+    private static Pattern likePattern(final String lowerCaseSearchKey) {
+        final StringBuilder regex = new StringBuilder();
+        int literalStart = 0;
+        for (int i = 0; i <= lowerCaseSearchKey.length(); i++) {
+            if (i < lowerCaseSearchKey.length() && lowerCaseSearchKey.charAt(i) != '%' && lowerCaseSearchKey.charAt(i) != '_') {
+                continue;
+            }
+            if (i > literalStart) {
+                regex.append(Pattern.quote(lowerCaseSearchKey.substring(literalStart, i)));
+            }
+            if (i < lowerCaseSearchKey.length()) {
+                regex.append(lowerCaseSearchKey.charAt(i) == '%' ? ".*" : ".");
+            }
+            literalStart = i + 1;
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static List<String> grams(final String lowerCaseValue) {
+        final List<String> grams = new ArrayList<String>(Math.max(0, lowerCaseValue.length() - GRAM_SIZE + 1));
+        for (int i = 0; i + GRAM_SIZE <= lowerCaseValue.length(); i++) {
+            grams.add(lowerCaseValue.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    // Not thread safe, see callers
+    private static final class TenantIndex {
+
+        private final Map<Long, IndexedDocument> documents = new HashMap<Long, IndexedDocument>();
+        private final Map<String, LongSortedSet> postings = new HashMap<String, LongSortedSet>();
+        private final Map<String, LongSortedSet> exactPostings = new HashMap<String, LongSortedSet>();
+
+        // Successive checkpoints, with the time at which they were reached (oldest first)
+        private final LinkedList<long[]> checkpoints = new LinkedList<long[]>();
+
+        public long getCheckpoint() {
+            return checkpoints.getLast()[0];
+        }
+
+        public void setCheckpoint(final long checkpoint, final long nowMillis) {
+            if (checkpoints.isEmpty() || checkpoints.getLast()[0] != checkpoint) {
+                checkpoints.add(new long[]{checkpoint, nowMillis});
+            }
+        }
+
+        // Checkpoint reached at catchUpFromMillis (or the oldest one, if the tenant was loaded afterwards)
+        public long getCatchUpCheckpoint(final long catchUpFromMillis) {
+            while (checkpoints.size() > 1 && checkpoints.get(1)[1] <= catchUpFromMillis) {
+                checkpoints.removeFirst();
+            }
+            return checkpoints.getFirst()[0];
+        }
+
+        public int size() {
+            return documents.size();
+        }
+
+        public void put(final SearchDocument document) {
+            remove(document.getRecordId());
+
+            final IndexedDocument indexedDocument = new IndexedDocument(document);
+            documents.put(document.getRecordId(), indexedDocument);
+            for (final String exactValue : indexedDocument.exactValues) {
+                addPosting(exactPostings, exactValue, document.getRecordId());
+            }
+            for (final String gram : indexedDocument.getGrams()) {
+                addPosting(postings, gram, document.getRecordId());
+            }
+        }
+
+        public void remove(final Long recordId) {
+            final IndexedDocument indexedDocument = documents.remove(recordId);
+            if (indexedDocument == null) {
+                return;
+            }
+            for (final String exactValue : indexedDocument.exactValues) {
+                removePosting(exactPostings, exactValue, recordId);
+            }
+            for (final String gram : indexedDocument.getGrams()) {
+                removePosting(postings, gram, recordId);
+            }
+        }
+
+        public long[] search(final String searchKey) {
+            final String lowerCaseSearchKey = searchKey.toLowerCase(Locale.ROOT);
+
+            final LongSortedSet results = new LongSortedSet();
+            final LongSortedSet exactMatches = exactPostings.get(searchKey);
+            if (exactMatches != null) {
+                results.addAll(exactMatches);
+            }
+
+            final boolean hasWildcards = lowerCaseSearchKey.indexOf('%') >= 0 || lowerCaseSearchKey.indexOf('_') >= 0;
+            final Pattern likePattern = hasWildcards ? likePattern(lowerCaseSearchKey) : null;
+            final List<String> searchGrams = searchGrams(lowerCaseSearchKey, hasWildcards);
+            if (searchGrams.isEmpty()) {
+                for (final IndexedDocument document : documents.values()) {
+                    if (document.matches(lowerCaseSearchKey, likePattern)) {
+                        results.add(document.recordId);
+                    }
+                }
+                return results.toArray();
+            }
+
+            final List<LongSortedSet> candidatesPostings = new ArrayList<LongSortedSet>(searchGrams.size());
+            for (final String gram : new HashSet<String>(searchGrams)) {
+                final LongSortedSet gramPostings = postings.get(gram);
+                if (gramPostings == null) {
+                    return results.isEmpty() ? NO_RESULTS : results.toArray();
+                }
+                candidatesPostings.add(gramPostings);
+            }
+            LongSortedSet smallest = candidatesPostings.get(0);
+            for (final LongSortedSet candidatePostings : candidatesPostings) {
+                if (candidatePostings.size() < smallest.size()) {
+                    smallest = candidatePostings;
+                }
+            }
+
+            for (int i = 0; i < smallest.size(); i++) {
+                final long recordId = smallest.get(i);
+                boolean inAllPostings = true;
+                for (final LongSortedSet candidatePostings : candidatesPostings) {
+                    if (candidatePostings != smallest && !candidatePostings.contains(recordId)) {
+                        inAllPostings = false;
+                        break;
+                    }
+                }
+                if (inAllPostings && documents.get(recordId).matches(lowerCaseSearchKey, likePattern)) {
+                    results.add(recordId);
+                }
+            }
+            return results.toArray();
+        }
+
+        private static void addPosting(final Map<String, LongSortedSet> postings, final String key, final Long recordId) {
+            LongSortedSet recordIds = postings.get(key);
+            if (recordIds == null) {
+                recordIds = new LongSortedSet();
+                postings.put(key, recordIds);
+            }
+            recordIds.add(recordId);
+        }
+
+        private static void removePosting(final Map<String, LongSortedSet> postings, final String key, final Long recordId) {
+            final LongSortedSet recordIds = postings.get(key);
+            if (recordIds != null && recordIds.remove(recordId) && recordIds.size() == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static final class IndexedDocument {
+
+        private final long recordId;
+        private final List<String> exactValues = new ArrayList<String>(1);
+        private final List<String> lowerCaseValues = new ArrayList<String>(4);
+
+        private IndexedDocument(final SearchDocument document) {
+            this.recordId = document.getRecordId();
+            for (final String exactValue : document.getExactValues()) {
+                if (exactValue != null && !exactValues.contains(exactValue)) {
+                    exactValues.add(exactValue);
+                }
+            }
+            for (final String value : document.getValues()) {
+                if (value != null) {
+                    lowerCaseValues.add(value.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+
+        private Set<String> getGrams() {
+            final Set<String> grams = new HashSet<String>();
+            for (final String lowerCaseValue : lowerCaseValues) {
+                grams.addAll(grams(lowerCaseValue));
+            }
+            return grams;
+        }
+
+        private boolean matches(final String lowerCaseSearchKey, @Nullable final Pattern likePattern) {
+            for (final String lowerCaseValue : lowerCaseValues) {
+                if (likePattern == null ? lowerCaseValue.contains(lowerCaseSearchKey) : likePattern.matcher(lowerCaseValue).find()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Sorted array of unique longs: record ids are mostly appended in order
+    private static final class LongSortedSet {
+
+        private long[] values = new long[2];
+        private int size = 0;
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public long get(final int index) {
+            return values[index];
+        }
+
+        public boolean contains(final long value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        public void add(final long value) {
+            final int index;
+            if (size == 0 || values[size - 1] < value) {
+                index = size;
+            } else {
+                final int position = Arrays.binarySearch(values, 0, size, value);
+                if (position >= 0) {
+                    return;
+                }
+                index = -position - 1;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        public void addAll(final LongSortedSet other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        public boolean remove(final long value) {
+            final int position = Arrays.binarySearch(values, 0, size, value);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        public long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.search;
+
+import java.util.List;
+
+public class SearchDocument {
+
+    private final Long recordId;
+    private final List<String> exactValues;
+    private final List<String> values;
+
+    // exactValues match when equal to the search key (e.g. ids), values when they contain it (ignoring case). Null values are ignored.
+    public SearchDocument(final Long recordId, final List<String> exactValues, final List<String> values) {
+        this.recordId = recordId;
+        this.exactValues = exactValues;
+        this.values = values;
+    }
+
+    public Long getRecordId() {
+        return recordId;
+    }
+
+    public List<String> getExactValues() {
+        return exactValues;
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+}
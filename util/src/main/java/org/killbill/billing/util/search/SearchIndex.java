@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.search;
+
+import java.util.Iterator;
+
+//
+// Index used to serve the search APIs without scanning the tables (the search queries use leading wildcard LIKEs).
+// Documents are keyed by entity record id and partitioned by tenant. The index is kept up-to-date by replaying
+// the history tables (see EntitySearchIndexHelper): the checkpoint is the last history record id applied for the tenant.
+// Search keys follow the SQL LIKE wildcards of the database fallback (% and _).
+//
+public interface SearchIndex {
+
+    public boolean isEnabled();
+
+    // Null if the tenant isn't loaded
+    public Long getCheckpoint(Long tenantRecordId);
+
+    // History record id to replay from: the checkpoint as of the beginning of the catch-up window, so that the history records
+    // committed out of order (i.e. after a greater history record id was applied) within that window are replayed (null if the tenant isn't loaded)
+    public Long getCatchUpCheckpoint(Long tenantRecordId);
+
+    // Replace all the documents of the tenant
+    public void load(Long tenantRecordId, Iterator<SearchDocument> documents, Long checkpoint);
+
+    // Add or replace (updated) and remove documents, ignored if the tenant isn't loaded
+    public void update(Long tenantRecordId, Iterable<SearchDocument> updated, Iterable<Long> removedRecordIds, Long checkpoint);
+
+    // Record ids of the matching documents, in ascending order (null if the tenant isn't loaded)
+    public long[] search(Long tenantRecordId, String searchKey);
+
+    // Number of documents for the tenant (null if the tenant isn't loaded)
+    public Long size(Long tenantRecordId);
+}
@@ -174,17 +174,20 @@ public class DefaultSecurityApi implements SecurityApi {
     @Override
     public void updateUserPassword(final String username, final String password, final CallContext callContext) throws SecurityApiException {
         userDao.updateUserPassword(username, password, callContext.getUserName());
+        invalidateJDBCVerifiedCredentialsCache(username);
     }
 
     @Override
     public void updateUserRoles(final String username, final List<String> roles, final CallContext callContext) throws SecurityApiException {
         userDao.updateUserRoles(username, roles, callContext.getUserName());
         invalidateJDBCAuthorizationCache(username);
+        invalidateJDBCVerifiedCredentialsCache(username);
     }
 
     @Override
     public void invalidateUser(final String username, final CallContext callContext) throws SecurityApiException {
         userDao.invalidateUser(username, callContext.getUserName());
+        invalidateJDBCVerifiedCredentialsCache(username);
     }
 
     @Override
@@ -302,18 +305,28 @@ public class DefaultSecurityApi implements SecurityApi {
     }
 
     private void invalidateJDBCAuthorizationCache(final String username) {
+        final KillBillJdbcRealm killBillJdbcRealm = getKillBillJdbcRealm();
+        if (killBillJdbcRealm != null) {
+            final SimplePrincipalCollection principals = new SimplePrincipalCollection();
+            principals.add(username, killBillJdbcRealm.getName());
+            killBillJdbcRealm.clearCachedAuthorizationInfo(principals);
+        }
+    }
+
+    private void invalidateJDBCVerifiedCredentialsCache(final String username) {
+        final KillBillJdbcRealm killBillJdbcRealm = getKillBillJdbcRealm();
+        if (killBillJdbcRealm != null) {
+            killBillJdbcRealm.clearCachedVerifiedCredentials(username);
+        }
+    }
+
+    private KillBillJdbcRealm getKillBillJdbcRealm() {
         final Collection<Realm> realms = ((DefaultSecurityManager) SecurityUtils.getSecurityManager()).getRealms();
-        final KillBillJdbcRealm killBillJdbcRealm = (KillBillJdbcRealm) Iterables.tryFind(realms, new Predicate<Realm>() {
+        return (KillBillJdbcRealm) Iterables.tryFind(realms, new Predicate<Realm>() {
             @Override
             public boolean apply(@Nullable final Realm input) {
                 return (input instanceof KillBillJdbcRealm);
             }
         }).orNull();
-
-        if (killBillJdbcRealm != null) {
-            final SimplePrincipalCollection principals = new SimplePrincipalCollection();
-            principals.add(username, killBillJdbcRealm.getName());
-            killBillJdbcRealm.clearCachedAuthorizationInfo(principals);
-        }
     }
 }
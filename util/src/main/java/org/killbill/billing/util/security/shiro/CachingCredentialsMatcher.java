@@ -0,0 +1,158 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.security.shiro;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SaltedAuthenticationInfo;
+import org.apache.shiro.authc.credential.CredentialsMatcher;
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheManager;
+import org.apache.shiro.cache.CacheManagerAware;
+import org.apache.shiro.codec.Base64;
+import org.apache.shiro.util.ByteSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+//
+// Remembers the credentials which were recently verified, so that stateless requests (Basic auth on every call) don't pay
+// for the password hashing (see SecurityConfig#getShiroNbHashIterations) each time:
+// - the cache key is an HMAC of the username, the presented secret, and the stored (hashed) credentials and salt: neither
+//   the secret nor a cheap-to-attack digest of it are stored, and changing the password yields new keys
+// - entries are only trusted for the configured TTL, whatever the eviction policy of the cache
+// - the cache comes from the Shiro CacheManager (shared across nodes with Redis), the HMAC key then needs to be configured
+//   identically on all nodes
+// - invalidate(username) bumps a per-user generation, which is also part of the key
+//
+public class CachingCredentialsMatcher implements CredentialsMatcher, CacheManagerAware {
+
+    public static final String VERIFIED_CREDENTIALS_CACHE_NAME = "shiro-verifiedCredentialsCache";
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingCredentialsMatcher.class);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String GENERATION_KEY_PREFIX = "generation:";
+
+    private final CredentialsMatcher delegate;
+    private final long ttlMillis;
+    private final SecretKeySpec hmacKey;
+    private final SecureRandom random = new SecureRandom();
+
+    private volatile Cache<String, Long> cache;
+
+    public CachingCredentialsMatcher(final CredentialsMatcher delegate, final long ttlMillis, @Nullable final String hmacKey) {
+        this.delegate = delegate;
+        this.ttlMillis = ttlMillis;
+
+        final byte[] keyBytes;
+        if (hmacKey == null) {
+            // Entries can't be shared with the other nodes
+            keyBytes = new byte[32];
+            random.nextBytes(keyBytes);
+        } else {
+            keyBytes = hmacKey.getBytes(StandardCharsets.UTF_8);
+        }
+        this.hmacKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+    }
+
+    @Override
+    public void setCacheManager(final CacheManager cacheManager) {
+        this.cache = ttlMillis > 0 && cacheManager != null ? cacheManager.<String, Long>getCache(VERIFIED_CREDENTIALS_CACHE_NAME) : null;
+    }
+
+    @Override
+    public boolean doCredentialsMatch(final AuthenticationToken token, final AuthenticationInfo info) {
+        final Cache<String, Long> cache = this.cache;
+        final String key = cache == null ? null : buildKey(cache, token, info);
+        if (key == null) {
+            return delegate.doCredentialsMatch(token, info);
+        }
+
+        final long now = System.currentTimeMillis();
+        final Long expirationDate = cache.get(key);
+        if (expirationDate != null && expirationDate > now) {
+            return true;
+        }
+
+        final boolean match = delegate.doCredentialsMatch(token, info);
+        if (match) {
+            cache.put(key, now + ttlMillis);
+        } else if (expirationDate != null) {
+            cache.remove(key);
+        }
+        return match;
+    }
+
+    // Forget all the verified credentials of that user
+    public void invalidate(final String username) {
+        final Cache<String, Long> cache = this.cache;
+        if (cache != null) {
+            // If the generation is evicted, older entries could match again, but only until they expire
+            cache.put(GENERATION_KEY_PREFIX + username, random.nextLong());
+        }
+    }
+
+    private String buildKey(final Cache<String, Long> cache, final AuthenticationToken token, final AuthenticationInfo info) {
+        if (token.getPrincipal() == null || !ByteSource.Util.isCompatible(token.getCredentials()) || !ByteSource.Util.isCompatible(info.getCredentials())) {
+            return null;
+        }
+
+        final String username = token.getPrincipal().toString();
+        final Long generation = cache.get(GENERATION_KEY_PREFIX + username);
+        try {
+            final ByteArrayOutputStream message = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(message);
+            // Length-prefixed fields, to avoid ambiguous concatenations
+            writeField(out, username.getBytes(StandardCharsets.UTF_8));
+            writeField(out, ByteSource.Util.bytes(token.getCredentials()).getBytes());
+            writeField(out, ByteSource.Util.bytes(info.getCredentials()).getBytes());
+            if (info instanceof SaltedAuthenticationInfo && ((SaltedAuthenticationInfo) info).getCredentialsSalt() != null) {
+                writeField(out, ((SaltedAuthenticationInfo) info).getCredentialsSalt().getBytes());
+            } else {
+                writeField(out, new byte[0]);
+            }
+            out.writeLong(generation == null ? 0L : generation);
+            out.flush();
+
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(hmacKey);
+            return Base64.encodeToString(mac.doFinal(message.toByteArray()));
+        } catch (final GeneralSecurityException e) {
+            logger.warn("Unable to compute the verified credentials cache key", e);
+            return null;
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private void writeField(final DataOutputStream out, final byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
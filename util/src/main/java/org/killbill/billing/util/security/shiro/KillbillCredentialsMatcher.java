@@ -37,6 +37,9 @@ public class KillbillCredentialsMatcher {
         credentialsMatcher.setStoredCredentialsHexEncoded(false);
         credentialsMatcher.setHashIterations(securityConfig.getShiroNbHashIterations());
 
-        return credentialsMatcher;
+        // The cache manager is set by the realm (see CacheManagerAware)
+        return new CachingCredentialsMatcher(credentialsMatcher,
+                                             securityConfig.getVerifiedCredentialsCacheTTL().getMillis(),
+                                             securityConfig.getVerifiedCredentialsCacheHmacKey());
     }
 }
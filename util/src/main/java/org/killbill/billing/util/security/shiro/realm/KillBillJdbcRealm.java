@@ -21,10 +21,12 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.sql.DataSource;
 
+import org.apache.shiro.cache.CacheManagerAware;
 import org.apache.shiro.realm.jdbc.JdbcRealm;
 import org.apache.shiro.subject.PrincipalCollection;
 import org.killbill.billing.platform.glue.KillBillPlatformModuleBase;
 import org.killbill.billing.util.config.definition.SecurityConfig;
+import org.killbill.billing.util.security.shiro.CachingCredentialsMatcher;
 import org.killbill.billing.util.security.shiro.KillbillCredentialsMatcher;
 
 public class KillBillJdbcRealm extends JdbcRealm {
@@ -61,6 +63,20 @@ public class KillBillJdbcRealm extends JdbcRealm {
         super.clearCachedAuthorizationInfo(principals);
     }
 
+    @Override
+    protected void afterCacheManagerSet() {
+        super.afterCacheManagerSet();
+        if (getCredentialsMatcher() instanceof CacheManagerAware) {
+            ((CacheManagerAware) getCredentialsMatcher()).setCacheManager(getCacheManager());
+        }
+    }
+
+    public void clearCachedVerifiedCredentials(final String username) {
+        if (getCredentialsMatcher() instanceof CachingCredentialsMatcher) {
+            ((CachingCredentialsMatcher) getCredentialsMatcher()).invalidate(username);
+        }
+    }
+
     private void configureSecurity() {
         setSaltStyle(SaltStyle.COLUMN);
         setCredentialsMatcher(KillbillCredentialsMatcher.getCredentialsMatcher(securityConfig));
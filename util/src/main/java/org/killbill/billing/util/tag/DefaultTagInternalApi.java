@@ -16,7 +16,9 @@
 
 package org.killbill.billing.util.tag;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -37,6 +39,7 @@ import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 
 public class DefaultTagInternalApi implements TagInternalApi {
 
@@ -71,6 +74,16 @@ public class DefaultTagInternalApi implements TagInternalApi {
         return toTagList(tagDao.getTagsForAccount(includedDeleted, context));
     }
 
+    @Override
+    public Map<UUID, List<Tag>> getTagsByObjectForAccount(final boolean includedDeleted, final InternalTenantContext context) {
+        final ListMultimap<UUID, TagModelDao> tagsByObject = tagDao.getTagsByObjectForAccount(includedDeleted, context);
+        final Map<UUID, List<Tag>> result = new HashMap<UUID, List<Tag>>();
+        for (final UUID objectId : tagsByObject.keySet()) {
+            result.put(objectId, toTagList(tagsByObject.get(objectId)));
+        }
+        return result;
+    }
+
     @Override
     public List<Tag> getTagsForAccountType(final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
         return toTagList(tagDao.getTagsForAccountType(objectType, includedDeleted, internalTenantContext));
@@ -35,7 +35,11 @@ import org.killbill.billing.util.api.TagApiException;
 import org.killbill.billing.util.audit.AuditLogWithHistory;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.audit.dao.AuditDao;
+import org.killbill.billing.util.cache.AccountTagsCacheLoader;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.cache.CacheLoaderArgument;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.TableName;
@@ -56,14 +60,23 @@ import org.skife.jdbi.v2.IDBI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimaps;
 import com.google.inject.Inject;
 
 import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
+//
+// The active tags of an account are cached (ACCOUNT_TAGS, keyed by account record id) for the account tag endpoints
+// (getCachedTagsForAccount): the cache entry is dropped once a write for the account completes. Invalidation is local to the
+// node, the short TTL of the cache bounds the staleness across nodes. The internal reads (control tags like AUTO_INVOICING_OFF,
+// AUTO_PAY_OFF, WRITTEN_OFF or __PARKED__) cannot tolerate a stale tag and always go to the database.
+//
 public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiException> implements TagDao {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultTagDao.class);
@@ -71,6 +84,8 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
     private final TagEventBuilder tagEventBuilder;
     private final PersistentBus bus;
     private final AuditDao auditDao;
+    private final CacheController<Long, List> accountTagsCacheController;
+    private final AccountTagsCacheLoader.LoaderCallback accountTagsLoaderCallback;
 
     @Inject
     public DefaultTagDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi, final TagEventBuilder tagEventBuilder, final PersistentBus bus, final Clock clock,
@@ -79,6 +94,13 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
         this.tagEventBuilder = tagEventBuilder;
         this.bus = bus;
         this.auditDao = auditDao;
+        this.accountTagsCacheController = controllerDispatcher == null ? null : controllerDispatcher.<Long, List>getCacheController(CacheType.ACCOUNT_TAGS);
+        this.accountTagsLoaderCallback = new AccountTagsCacheLoader.LoaderCallback() {
+            @Override
+            public List loadAccountTags(final Long accountRecordId, final InternalTenantContext context) {
+                return ImmutableList.<TagModelDao>copyOf(getTagsForAccountFromDB(false, context));
+            }
+        };
     }
 
     @Override
@@ -98,8 +120,42 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
 
     @Override
     public List<TagModelDao> getTagsForAccountType(final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
-        final List<TagModelDao> allTags = getTagsForAccount(includedDeleted, internalTenantContext);
-        return ImmutableList.<TagModelDao>copyOf(Collections2.filter(allTags, new Predicate<TagModelDao>() {
+        return filterByObjectType(getTagsForAccount(includedDeleted, internalTenantContext), objectType);
+    }
+
+    @Override
+    public List<TagModelDao> getTagsForAccount(final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
+        return getTagsForAccountFromDB(includedDeleted, internalTenantContext);
+    }
+
+    @Override
+    public List<TagModelDao> getCachedTagsForAccountType(final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
+        return filterByObjectType(getCachedTagsForAccount(includedDeleted, internalTenantContext), objectType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<TagModelDao> getCachedTagsForAccount(final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
+        if (includedDeleted || internalTenantContext.getAccountRecordId() == null || accountTagsCacheController == null) {
+            return getTagsForAccountFromDB(includedDeleted, internalTenantContext);
+        }
+
+        final CacheLoaderArgument cacheLoaderArgument = new CacheLoaderArgument(null, new Object[]{accountTagsLoaderCallback}, internalTenantContext);
+        return (List<TagModelDao>) accountTagsCacheController.get(internalTenantContext.getAccountRecordId(), cacheLoaderArgument);
+    }
+
+    @Override
+    public ListMultimap<UUID, TagModelDao> getTagsByObjectForAccount(final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
+        return Multimaps.index(getTagsForAccountFromDB(includedDeleted, internalTenantContext), new Function<TagModelDao, UUID>() {
+            @Override
+            public UUID apply(final TagModelDao input) {
+                return input.getObjectId();
+            }
+        });
+    }
+
+    private List<TagModelDao> filterByObjectType(final List<TagModelDao> tags, final ObjectType objectType) {
+        return ImmutableList.<TagModelDao>copyOf(Collections2.filter(tags, new Predicate<TagModelDao>() {
             @Override
             public boolean apply(final TagModelDao input) {
                 return input.getObjectType() == objectType;
@@ -107,8 +163,7 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
         }));
     }
 
-    @Override
-    public List<TagModelDao> getTagsForAccount(final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
+    private List<TagModelDao> getTagsForAccountFromDB(final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
         return transactionalSqlDao.execute(true, new EntitySqlDaoTransactionWrapper<List<TagModelDao>>() {
             @Override
             public List<TagModelDao> inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
@@ -204,6 +259,19 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
 
         validateApplicableObjectTypes(entity.getTagDefinitionId(), entity.getObjectType());
         transactionalSqlDao.execute(false, TagApiException.class, getCreateEntitySqlDaoTransactionWrapper(entity, context));
+        invalidateAccountTags(context);
+    }
+
+    @Override
+    public void create(final Iterable<TagModelDao> entities, final InternalCallContext context) throws TagApiException {
+        super.create(entities, context);
+        invalidateAccountTags(context);
+    }
+
+    private void invalidateAccountTags(final InternalTenantContext context) {
+        if (context.getAccountRecordId() != null && accountTagsCacheController != null) {
+            accountTagsCacheController.remove(context.getAccountRecordId());
+        }
     }
 
     private void validateApplicableObjectTypes(final UUID tagDefinitionId, final ObjectType objectType) throws TagApiException {
@@ -250,7 +318,7 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
                 return null;
             }
         });
-
+        invalidateAccountTags(context);
     }
 
     @Override
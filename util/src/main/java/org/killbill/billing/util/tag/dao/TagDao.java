@@ -29,6 +29,8 @@ import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.EntityDao;
 import org.killbill.billing.util.tag.Tag;
 
+import com.google.common.collect.ListMultimap;
+
 public interface TagDao extends EntityDao<TagModelDao, Tag, TagApiException> {
 
     void deleteTag(UUID objectId, ObjectType objectType, UUID tagDefinition, InternalCallContext context) throws TagApiException;
@@ -41,6 +43,13 @@ public interface TagDao extends EntityDao<TagModelDao, Tag, TagApiException> {
 
     List<TagModelDao> getTagsForAccount(boolean includedDeleted, InternalTenantContext internalTenantContext);
 
+    // Same as above, but served from the (node local) account tags cache: only for reads which can tolerate a few seconds of staleness
+    List<TagModelDao> getCachedTagsForAccountType(ObjectType objectType, boolean includedDeleted, InternalTenantContext internalTenantContext);
+
+    List<TagModelDao> getCachedTagsForAccount(boolean includedDeleted, InternalTenantContext internalTenantContext);
+
+    ListMultimap<UUID, TagModelDao> getTagsByObjectForAccount(boolean includedDeleted, InternalTenantContext internalTenantContext);
+
     List<AuditLogWithHistory> getTagAuditLogsWithHistoryForId(UUID tagId, AuditLevel auditLevel, InternalTenantContext context);
 
 }
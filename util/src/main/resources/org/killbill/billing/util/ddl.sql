@@ -149,6 +149,28 @@ CREATE INDEX audit_log_fetch_target_record_id ON audit_log(table_name, target_re
 CREATE INDEX audit_log_user_name ON audit_log(created_by);
 CREATE INDEX audit_log_tenant_account_record_id ON audit_log(tenant_record_id, account_record_id);
 CREATE INDEX audit_log_via_history ON audit_log(target_record_id, table_name, tenant_record_id);
+CREATE INDEX audit_log_tenant_created_date ON audit_log(tenant_record_id, created_date);
+
+/* Audit logs older than the tenant retention (see AuditConfig), moved by the audit log archive service */
+DROP TABLE IF EXISTS audit_log_archive;
+CREATE TABLE audit_log_archive (
+    record_id bigint /*! unsigned */ not null,
+    id varchar(36) NOT NULL,
+    target_record_id bigint /*! unsigned */ not null,
+    table_name varchar(50) NOT NULL,
+    change_type varchar(6) NOT NULL,
+    created_date datetime NOT NULL,
+    created_by varchar(50) NOT NULL,
+    reason_code varchar(255) DEFAULT NULL,
+    comments varchar(255) DEFAULT NULL,
+    user_token varchar(36),
+    account_record_id bigint /*! unsigned */ default null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin ROW_FORMAT=COMPRESSED */;
+CREATE INDEX audit_log_archive_fetch_target_record_id ON audit_log_archive(table_name, target_record_id);
+CREATE INDEX audit_log_archive_tenant_account_record_id ON audit_log_archive(tenant_record_id, account_record_id);
+CREATE INDEX audit_log_archive_via_history ON audit_log_archive(target_record_id, table_name, tenant_record_id);
 
 
 
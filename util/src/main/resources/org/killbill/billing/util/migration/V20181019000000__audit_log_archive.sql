@@ -0,0 +1,20 @@
+alter table audit_log add index audit_log_tenant_created_date(tenant_record_id, created_date);
+
+create table audit_log_archive (
+    record_id bigint unsigned not null,
+    id varchar(36) NOT NULL,
+    target_record_id bigint unsigned not null,
+    table_name varchar(50) NOT NULL,
+    change_type varchar(6) NOT NULL,
+    created_date datetime NOT NULL,
+    created_by varchar(50) NOT NULL,
+    reason_code varchar(255) DEFAULT NULL,
+    comments varchar(255) DEFAULT NULL,
+    user_token varchar(36),
+    account_record_id bigint unsigned default null,
+    tenant_record_id bigint unsigned not null default 0,
+    PRIMARY KEY(record_id)
+) CHARACTER SET utf8 COLLATE utf8_bin ROW_FORMAT=COMPRESSED;
+create index audit_log_archive_fetch_target_record_id on audit_log_archive(table_name, target_record_id);
+create index audit_log_archive_tenant_account_record_id on audit_log_archive(tenant_record_id, account_record_id);
+create index audit_log_archive_via_history on audit_log_archive(target_record_id, table_name, tenant_record_id);
@@ -57,6 +57,7 @@ BEGIN
     DELETE FROM account_history WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM accounts WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM audit_log WHERE tenant_record_id = v_tenant_record_id;
+    DELETE FROM audit_log_archive WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM blocking_states WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM bundles WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM bus_events WHERE search_key2 = v_tenant_record_id;
@@ -19,6 +19,7 @@
 package org.killbill.billing.dao;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -32,6 +33,8 @@ import org.killbill.billing.util.dao.NonEntitySqlDao;
 import org.killbill.billing.util.dao.TableName;
 import org.skife.jdbi.v2.Handle;
 
+import com.google.common.collect.ImmutableList;
+
 import static org.killbill.billing.ObjectType.ACCOUNT;
 
 public class MockNonEntityDao implements NonEntityDao {
@@ -82,6 +85,11 @@ public class MockNonEntityDao implements NonEntityDao {
         return null;
     }
 
+    @Override
+    public List<Long> retrieveTenantRecordIds() {
+        return ImmutableList.<Long>of();
+    }
+
     @Override
     public UUID retrieveIdFromObject(final Long recordId, final ObjectType objectType, @Nullable final CacheController<String, UUID> cache) {
         if (objectType == ACCOUNT) {
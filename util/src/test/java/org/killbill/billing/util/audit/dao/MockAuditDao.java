@@ -17,11 +17,13 @@
 package org.killbill.billing.util.audit.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.api.AuditLevel;
 import org.killbill.billing.util.audit.AuditLog;
@@ -84,8 +86,27 @@ public class MockAuditDao implements AuditDao {
         }
     }
 
+    @Override
+    public Map<UUID, List<AuditLog>> getAuditLogsForIds(final TableName tableName, final Collection<UUID> objectIds, final AuditLevel auditLevel, final InternalTenantContext context) {
+        final Map<UUID, List<AuditLog>> result = new HashMap<UUID, List<AuditLog>>();
+        for (final UUID objectId : objectIds) {
+            result.put(objectId, getAuditLogsForId(tableName, objectId, auditLevel, context));
+        }
+        return result;
+    }
+
     @Override
     public List<AuditLogWithHistory> getAuditLogsWithHistoryForId(final HistorySqlDao sqlDao, final TableName tableName, final UUID objectId, final AuditLevel auditLevel, final InternalTenantContext context) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public List<Long> getTenantRecordIds() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int archiveAuditLogs(final DateTime createdDateBoundary, final int rowCount, final InternalTenantContext context) {
+        throw new UnsupportedOperationException();
+    }
 }
@@ -17,6 +17,7 @@
 package org.killbill.billing.util.audit.dao;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.skife.jdbi.v2.Handle;
@@ -33,12 +34,15 @@ import org.killbill.billing.util.audit.AccountAuditLogs;
 import org.killbill.billing.util.audit.AccountAuditLogsForObjectType;
 import org.killbill.billing.util.audit.AuditLog;
 import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.customfield.dao.CustomFieldModelDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.tag.DescriptiveTag;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.dao.TagDefinitionModelDao;
 import org.killbill.billing.util.tag.dao.TagModelDao;
 
+import com.google.common.collect.ImmutableList;
+
 public class TestDefaultAuditDao extends UtilTestSuiteWithEmbeddedDB {
 
     private TagModelDao tag;
@@ -91,6 +95,138 @@ public class TestDefaultAuditDao extends UtilTestSuiteWithEmbeddedDB {
         Assert.assertEquals(secondAuditLogs.get(1).getChangeType(), ChangeType.DELETE);
     }
 
+    @Test(groups = "slow")
+    public void testAuditsForSeveralChangesInOneTransaction() throws Exception {
+        final CustomFieldModelDao customField = new CustomFieldModelDao(internalCallContext.getCreatedDate(), "field", "v0", UUID.randomUUID(), ObjectType.ACCOUNT);
+        eventsListener.pushExpectedEvent(NextEvent.CUSTOM_FIELD);
+        customFieldDao.create(customField, internalCallContext);
+        assertListenerStatus();
+
+        // Both updates are in the same transaction: their history and audit rows are written together
+        final CustomFieldModelDao firstUpdate = new CustomFieldModelDao(customField.getId(), internalCallContext.getCreatedDate(), internalCallContext.getCreatedDate(), "field", "v1", customField.getObjectId(), ObjectType.ACCOUNT);
+        final CustomFieldModelDao secondUpdate = new CustomFieldModelDao(customField.getId(), internalCallContext.getCreatedDate(), internalCallContext.getCreatedDate(), "field", "v2", customField.getObjectId(), ObjectType.ACCOUNT);
+        eventsListener.pushExpectedEvents(NextEvent.CUSTOM_FIELD, NextEvent.CUSTOM_FIELD);
+        customFieldDao.updateCustomFields(ImmutableList.<CustomFieldModelDao>of(firstUpdate, secondUpdate), internalCallContext);
+        assertListenerStatus();
+
+        final List<AuditLog> auditLogs = auditDao.getAuditLogsForId(TableName.CUSTOM_FIELD, customField.getId(), AuditLevel.FULL, internalCallContext);
+        Assert.assertEquals(auditLogs.size(), 3);
+        Assert.assertEquals(auditLogs.get(0).getChangeType(), ChangeType.INSERT);
+        Assert.assertEquals(auditLogs.get(1).getChangeType(), ChangeType.UPDATE);
+        Assert.assertEquals(auditLogs.get(2).getChangeType(), ChangeType.UPDATE);
+
+        // Each audit row points to its own history row
+        final Handle handle = dbi.open();
+        try {
+            final List<Map<String, Object>> historyRows = handle.select("select h.record_id, h.field_value from custom_field_history h where h.id = ? order by h.record_id", customField.getId().toString());
+            final List<Map<String, Object>> auditRows = handle.select("select a.target_record_id from audit_log a where a.table_name = 'CUSTOM_FIELD_HISTORY' and a.target_record_id in " +
+                                                                      "(select h.record_id from custom_field_history h where h.id = ?) order by a.record_id", customField.getId().toString());
+            Assert.assertEquals(historyRows.size(), 3);
+            Assert.assertEquals(auditRows.size(), 3);
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals(historyRows.get(i).get("field_value"), "v" + i);
+                Assert.assertEquals(((Number) auditRows.get(i).get("target_record_id")).longValue(), ((Number) historyRows.get(i).get("record_id")).longValue());
+            }
+        } finally {
+            handle.close();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testRetrieveArchivedAudits() throws Exception {
+        addTag();
+
+        // Nothing is older than the boundary
+        Assert.assertEquals(auditDao.archiveAuditLogs(internalCallContext.getCreatedDate().minusDays(1), 10, internalCallContext), 0);
+
+        final Handle handle = dbi.open();
+        try {
+            final int nbAuditLogs = handle.select("select record_id from audit_log").size();
+            Assert.assertTrue(nbAuditLogs > 1);
+
+            // Move all audit logs, one per batch
+            int nbArchived = 0;
+            while (auditDao.archiveAuditLogs(clock.getUTCNow().plusDays(1), 1, internalCallContext) == 1) {
+                nbArchived++;
+            }
+            Assert.assertEquals(nbArchived, nbAuditLogs);
+            Assert.assertEquals(handle.select("select record_id from audit_log").size(), 0);
+            Assert.assertEquals(handle.select("select record_id from audit_log_archive").size(), nbAuditLogs);
+        } finally {
+            handle.close();
+        }
+
+        // The archived audit logs are still visible
+        for (final AuditLevel level : AuditLevel.values()) {
+            final List<AuditLog> auditLogs = auditDao.getAuditLogsForId(TableName.TAG, tag.getId(), level, internalCallContext);
+            verifyAuditLogsForTag(auditLogs, level);
+
+            final AccountAuditLogs accountAuditLogs = auditDao.getAuditLogsForAccountRecordId(level, internalCallContext);
+            verifyAuditLogsForTag(accountAuditLogs.getAuditLogs(ObjectType.TAG).getAuditLogs(tag.getId()), level);
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testRetrieveAuditsInBulk() throws Exception {
+        addTag();
+        final TagModelDao firstTag = tag;
+        addTag();
+        final TagModelDao secondTag = tag;
+        final UUID unknownId = UUID.randomUUID();
+
+        for (final AuditLevel level : AuditLevel.values()) {
+            final Map<UUID, List<AuditLog>> auditLogs = auditDao.getAuditLogsForIds(TableName.TAG, ImmutableList.<UUID>of(firstTag.getId(), secondTag.getId(), unknownId), level, internalCallContext);
+            Assert.assertEquals(auditLogs.size(), 2);
+            Assert.assertNull(auditLogs.get(unknownId));
+            verifyAuditLogsForTag(auditLogs.get(firstTag.getId()), level);
+            verifyAuditLogsForTag(auditLogs.get(secondTag.getId()), level);
+            Assert.assertEquals(auditLogs.get(firstTag.getId()), auditDao.getAuditLogsForId(TableName.TAG, firstTag.getId(), level, internalCallContext));
+        }
+
+        // Same thing for a table without history
+        final Handle handle = dbi.open();
+        final String tagHistoryString = (String) handle.select("select id from tag_history limit 1").get(0).get("id");
+        handle.close();
+        final Map<UUID, List<AuditLog>> auditLogs = auditDao.getAuditLogsForIds(TableName.TAG_HISTORY, ImmutableList.<UUID>of(UUID.fromString(tagHistoryString)), AuditLevel.FULL, internalCallContext);
+        verifyAuditLogsForTag(auditLogs.get(UUID.fromString(tagHistoryString)), AuditLevel.FULL);
+    }
+
+    @Test(groups = "slow")
+    public void testAuditsIgnoreHistoryRowsOfOtherTenants() throws Exception {
+        final CustomFieldModelDao customField = new CustomFieldModelDao(internalCallContext.getCreatedDate(), "field", "v0", UUID.randomUUID(), ObjectType.ACCOUNT);
+        eventsListener.pushExpectedEvent(NextEvent.CUSTOM_FIELD);
+        customFieldDao.create(customField, internalCallContext);
+        assertListenerStatus();
+
+        // More recent history row for the same target record id, in another tenant
+        final Handle handle = dbi.open();
+        try {
+            final Long targetRecordId = ((Number) handle.select("select record_id from custom_fields where id = ?", customField.getId().toString()).get(0).get("record_id")).longValue();
+            handle.execute("insert into custom_field_history (id, target_record_id, object_id, object_type, field_name, field_value, change_type, created_by, created_date, updated_by, updated_date, account_record_id, tenant_record_id) " +
+                           "values (?, ?, ?, 'ACCOUNT', 'field', 'other', 'UPDATE', 'test', ?, 'test', ?, ?, ?)",
+                           UUID.randomUUID().toString(), targetRecordId, UUID.randomUUID().toString(), internalCallContext.getCreatedDate().toDate(), internalCallContext.getCreatedDate().toDate(),
+                           internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId() + 1);
+        } finally {
+            handle.close();
+        }
+
+        final CustomFieldModelDao update = new CustomFieldModelDao(customField.getId(), internalCallContext.getCreatedDate(), internalCallContext.getCreatedDate(), "field", "v1", customField.getObjectId(), ObjectType.ACCOUNT);
+        eventsListener.pushExpectedEvent(NextEvent.CUSTOM_FIELD);
+        customFieldDao.updateCustomFields(ImmutableList.<CustomFieldModelDao>of(update), internalCallContext);
+        assertListenerStatus();
+
+        final Handle verificationHandle = dbi.open();
+        try {
+            final List<Map<String, Object>> auditRows = verificationHandle.select("select h.field_value from audit_log a join custom_field_history h on a.target_record_id = h.record_id " +
+                                                                                  "where a.table_name = 'CUSTOM_FIELD_HISTORY' and h.id = ? order by a.record_id", customField.getId().toString());
+            Assert.assertEquals(auditRows.size(), 2);
+            Assert.assertEquals(auditRows.get(0).get("field_value"), "v0");
+            Assert.assertEquals(auditRows.get(1).get("field_value"), "v1");
+        } finally {
+            verificationHandle.close();
+        }
+    }
+
     private void addTag() throws TagDefinitionApiException, TagApiException {
         // Create a tag definition
         eventsListener.pushExpectedEvent(NextEvent.TAG_DEFINITION);
@@ -19,17 +19,22 @@ package org.killbill.billing.util.cache;
 import java.util.UUID;
 
 import org.killbill.billing.ObjectType;
+import org.killbill.billing.api.TestApiListener.NextEvent;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
 import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.customfield.dao.CustomFieldModelDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.dao.TagModelDao;
 import org.killbill.billing.util.tag.dao.TagSqlDao;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+
 public class TestCache extends UtilTestSuiteWithEmbeddedDB {
 
     private EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
@@ -120,6 +125,45 @@ public class TestCache extends UtilTestSuiteWithEmbeddedDB {
 
     }
 
+    @Test(groups = "slow")
+    public void testAccountTagsAndCustomFieldsInvalidation() throws Exception {
+        final Long accountRecordId = internalCallContext.getAccountRecordId();
+        final CacheController<Object, Object> accountTagsCache = controlCacheDispatcher.getCacheController(CacheType.ACCOUNT_TAGS);
+        final CacheController<Object, Object> accountCustomFieldsCache = controlCacheDispatcher.getCacheController(CacheType.ACCOUNT_CUSTOM_FIELDS);
+        final UUID objectId = UUID.randomUUID();
+
+        Assert.assertEquals(tagDao.getCachedTagsForAccount(false, internalCallContext).size(), 0);
+        Assert.assertEquals(customFieldDao.getCustomFieldsForAccount(internalCallContext).size(), 0);
+        Assert.assertTrue(accountTagsCache.isKeyInCache(accountRecordId));
+        Assert.assertTrue(accountCustomFieldsCache.isKeyInCache(accountRecordId));
+
+        // Creations drop the cache entries
+        eventsListener.pushExpectedEvents(NextEvent.TAG, NextEvent.CUSTOM_FIELD);
+        final TagModelDao tag = new TagModelDao(clock.getUTCNow(), ControlTagType.AUTO_INVOICING_OFF.getId(), objectId, ObjectType.ACCOUNT);
+        tagDao.create(tag, internalCallContext);
+        final CustomFieldModelDao customField = new CustomFieldModelDao(clock.getUTCNow(), "name", "value", objectId, ObjectType.ACCOUNT);
+        customFieldDao.create(customField, internalCallContext);
+        assertListenerStatus();
+
+        Assert.assertFalse(accountTagsCache.isKeyInCache(accountRecordId));
+        Assert.assertFalse(accountCustomFieldsCache.isKeyInCache(accountRecordId));
+        Assert.assertEquals(tagDao.getCachedTagsForAccount(false, internalCallContext).size(), 1);
+        Assert.assertEquals(customFieldDao.getCustomFieldsForAccount(internalCallContext).size(), 1);
+        Assert.assertTrue(accountTagsCache.isKeyInCache(accountRecordId));
+        Assert.assertTrue(accountCustomFieldsCache.isKeyInCache(accountRecordId));
+
+        // So do deletions
+        eventsListener.pushExpectedEvents(NextEvent.TAG, NextEvent.CUSTOM_FIELD);
+        tagDao.deleteTag(objectId, ObjectType.ACCOUNT, ControlTagType.AUTO_INVOICING_OFF.getId(), internalCallContext);
+        customFieldDao.deleteCustomFields(ImmutableList.<UUID>of(customField.getId()), internalCallContext);
+        assertListenerStatus();
+
+        Assert.assertFalse(accountTagsCache.isKeyInCache(accountRecordId));
+        Assert.assertFalse(accountCustomFieldsCache.isKeyInCache(accountRecordId));
+        Assert.assertEquals(tagDao.getCachedTagsForAccount(false, internalCallContext).size(), 0);
+        Assert.assertEquals(customFieldDao.getCustomFieldsForAccount(internalCallContext).size(), 0);
+    }
+
     private void insertTag(final TagModelDao modelDao) {
         transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<Void>() {
             @Override
@@ -22,6 +22,8 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.ContinuationToken;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
 
 import com.google.common.collect.ImmutableList;
 
@@ -46,6 +48,30 @@ public class TestDefaultPagination extends UtilTestSuiteNoDB {
         Assert.assertEquals(DefaultPagination.<Integer>build(5L, 3L, ImmutableList.<Integer>of(1, 2, 3, 4, 5)), expectedOf(5L, 0L, 5L, ImmutableList.<Integer>of()));
     }
 
+    @Test(groups = "fast", description = "Test Util: keyset pagination")
+    public void testContinuationToken() throws Exception {
+        final String token = new ContinuationToken(Ordering.DESC, 12345L).encode();
+        final ContinuationToken decoded = ContinuationToken.decode(token);
+        Assert.assertEquals(decoded.getOrdering(), Ordering.DESC);
+        Assert.assertEquals(decoded.getRecordId(), (Long) 12345L);
+
+        for (final String invalidToken : ImmutableList.<String>of("12345", "!!", new ContinuationToken(Ordering.ASC, 1L).encode().substring(2))) {
+            try {
+                ContinuationToken.decode(invalidToken);
+                Assert.fail("Token should be invalid: " + invalidToken);
+            } catch (final IllegalArgumentException e) {
+                // Expected
+            }
+        }
+
+        // The token is preserved by the DAO -> API bridge, and there is no next offset
+        final DefaultPagination<Integer> page = new DefaultPagination<Integer>(null, 2L, null, null, ImmutableList.<Integer>of(1, 2).iterator(), token);
+        final DefaultPagination<String> bridged = new DefaultPagination<String>(page, 2L, ImmutableList.<String>of("1", "2").iterator());
+        Assert.assertEquals(bridged.getNextContinuationToken(), token);
+        Assert.assertNull(bridged.getCurrentOffset());
+        Assert.assertNull(bridged.getNextOffset());
+    }
+
     private Pagination<Integer> expectedOf(final Long currentOffset, final Long totalNbRecords,
                                            final Long maxNbRecords, final List<Integer> delegate) {
         return new DefaultPagination<Integer>(currentOffset, Long.MAX_VALUE, totalNbRecords, maxNbRecords, delegate.iterator());
@@ -78,6 +78,11 @@ public class MockEntityDaoBase<M extends EntityModelDao<E>, E extends Entity, U
         return DefaultPagination.<M>build(offset, limit, ImmutableList.<M>copyOf(getAll(context)));
     }
 
+    @Override
+    public Pagination<M> get(final String continuationToken, final Long limit, final boolean withCount, final InternalTenantContext context) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public Long getCount(final InternalTenantContext context) {
         return (long) entities.keySet().size();
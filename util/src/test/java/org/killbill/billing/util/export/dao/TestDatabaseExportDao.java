@@ -19,8 +19,17 @@
 package org.killbill.billing.util.export.dao;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
 
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
 import org.killbill.billing.util.api.DatabaseExportOutputStream;
@@ -29,6 +38,10 @@ import org.skife.jdbi.v2.tweak.HandleCallback;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.FileWriteMode;
+import com.google.common.io.Files;
 import com.ning.compress.lzf.LZFEncoder;
 
 public class TestDatabaseExportDao extends UtilTestSuiteWithEmbeddedDB {
@@ -95,6 +108,75 @@ public class TestDatabaseExportDao extends UtilTestSuiteWithEmbeddedDB {
 
     }
 
+    @Test(groups = "slow")
+    public void testExportDataForTenantWithCheckpoints() throws Exception {
+        final String tableName = "test_database_export_dao_tenant";
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("drop table if exists " + tableName);
+                handle.execute("create table " + tableName + "(record_id serial unique," +
+                               "c_column varchar(10)," +
+                               "tenant_record_id bigint /*! unsigned */ not null default 0," +
+                               "primary key(record_id));");
+                for (int i = 0; i < 3; i++) {
+                    handle.execute("insert into " + tableName + " (c_column, tenant_record_id) values (?, ?)", "c" + i, internalCallContext.getTenantRecordId());
+                }
+                // Other tenant
+                handle.execute("insert into " + tableName + " (c_column, tenant_record_id) values (?, ?)", "other", internalCallContext.getTenantRecordId() + 1);
+                return null;
+            }
+        });
+
+        final File directory = Files.createTempDir();
+        final DirectoryTenantExportOutput out = new DirectoryTenantExportOutput(directory);
+        final File tableFile = out.getTableFile(tableName);
+        final ConcurrentMap<String, TenantExportCheckpoint> checkpoints = new ConcurrentHashMap<String, TenantExportCheckpoint>();
+
+        dao.exportDataForTenant(out, DatabaseExportDao.TenantExportFormat.BINARY, checkpoints, 4, 2, internalCallContext);
+        Assert.assertEquals(checkpoints.get(tableName).getLastRecordId(), 3L);
+        Assert.assertEquals(checkpoints.get(tableName).getOffset(), tableFile.length());
+        Assert.assertEquals(readRows(tableFile), ImmutableList.<String>of("c0", "c1", "c2"));
+
+        // Simulate an export interrupted in the middle of a segment: the beginning of a gzip member, past the checkpoint
+        final byte[] exported = Files.toByteArray(tableFile);
+        Files.asByteSink(tableFile, FileWriteMode.APPEND).write(Arrays.copyOf(exported, exported.length / 2));
+
+        // Resume: only the new rows are exported, after the last complete segment
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("insert into " + tableName + " (c_column, tenant_record_id) values (?, ?)", "c3", internalCallContext.getTenantRecordId());
+                return null;
+            }
+        });
+        dao.exportDataForTenant(out, DatabaseExportDao.TenantExportFormat.BINARY, checkpoints, 4, 2, internalCallContext);
+        Assert.assertEquals(checkpoints.get(tableName).getLastRecordId(), 5L);
+        Assert.assertEquals(checkpoints.get(tableName).getOffset(), tableFile.length());
+        Assert.assertEquals(readRows(tableFile), ImmutableList.<String>of("c0", "c1", "c2", "c3"));
+
+        // The whole file is a valid sequence of gzip members
+        final GZIPInputStream in = new GZIPInputStream(new FileInputStream(tableFile));
+        try {
+            ByteStreams.exhaust(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private List<String> readRows(final File file) throws IOException {
+        final List<String> result = new ArrayList<String>();
+        final TableExportReader reader = new TableExportReader(new FileInputStream(file));
+        List<Object[]> rows;
+        while ((rows = reader.readSegment()) != null) {
+            for (final Object[] row : rows) {
+                result.add((String) row[1]);
+            }
+        }
+        reader.close();
+        return result;
+    }
+
     private String getDump() {
         final DatabaseExportOutputStream out = new CSVExportOutputStream(new ByteArrayOutputStream());
         dao.exportDataForAccount(out, internalCallContext);
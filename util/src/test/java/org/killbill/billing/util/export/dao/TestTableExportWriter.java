@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.export.dao.DatabaseExportDao.TenantExportFormat;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharStreams;
+
+public class TestTableExportWriter extends UtilTestSuiteNoDB {
+
+    private static final List<String> COLUMNS = ImmutableList.<String>of("record_id", "name", "properties", "created_date", "amount");
+
+    @Test(groups = "fast")
+    public void testBinaryRoundTrip() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final TableExportWriter writer = new TableExportWriter("test_table", COLUMNS, TenantExportFormat.BINARY);
+
+        final Object[] values = new Object[COLUMNS.size()];
+        writer.startSegment(out);
+        fill(values, 1L, "first|row\n", new byte[]{1, 2, 3}, new Date(12421982000L), new BigDecimal("12.50"));
+        writer.writeRow(values);
+        fill(values, 2L, null, null, null, null);
+        writer.writeRow(values);
+        writer.endSegment();
+
+        // Resumed export: appended segment
+        writer.startSegment(out);
+        fill(values, 3L, "third", new byte[0], new Date(0), BigDecimal.ZERO);
+        writer.writeRow(values);
+        writer.endSegment();
+
+        final TableExportReader reader = new TableExportReader(new ByteArrayInputStream(out.toByteArray()));
+        final List<Object[]> firstSegment = reader.readSegment();
+        Assert.assertEquals(reader.getTableName(), "test_table");
+        Assert.assertEquals(reader.getColumnNames(), COLUMNS);
+        Assert.assertEquals(firstSegment.size(), 2);
+        Assert.assertEquals(firstSegment.get(0)[0], 1L);
+        Assert.assertEquals(firstSegment.get(0)[1], "first|row\n");
+        Assert.assertTrue(Arrays.equals((byte[]) firstSegment.get(0)[2], new byte[]{1, 2, 3}));
+        Assert.assertEquals(firstSegment.get(0)[3], new Date(12421982000L));
+        Assert.assertEquals(firstSegment.get(0)[4], new BigDecimal("12.50"));
+        Assert.assertEquals(firstSegment.get(1), new Object[]{2L, null, null, null, null});
+
+        final List<Object[]> secondSegment = reader.readSegment();
+        Assert.assertEquals(secondSegment.size(), 1);
+        Assert.assertEquals(secondSegment.get(0)[0], 3L);
+
+        Assert.assertNull(reader.readSegment());
+        reader.close();
+    }
+
+    @Test(groups = "fast")
+    public void testTruncatedSegmentIsIgnored() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final TableExportWriter writer = new TableExportWriter("test_table", COLUMNS, TenantExportFormat.BINARY);
+
+        final Object[] values = new Object[COLUMNS.size()];
+        writer.startSegment(out);
+        fill(values, 1L, "first", null, null, null);
+        writer.writeRow(values);
+        writer.endSegment();
+        final int firstSegmentLength = out.size();
+
+        writer.startSegment(out);
+        for (long i = 2; i < 1000; i++) {
+            fill(values, i, "row-" + i, null, null, null);
+            writer.writeRow(values);
+        }
+        writer.endSegment();
+
+        // Interrupted while writing the second segment
+        final byte[] truncated = Arrays.copyOf(out.toByteArray(), firstSegmentLength + (out.size() - firstSegmentLength) / 2);
+        final TableExportReader reader = new TableExportReader(new ByteArrayInputStream(truncated));
+        Assert.assertEquals(reader.readSegment().size(), 1);
+        Assert.assertNull(reader.readSegment());
+        reader.close();
+    }
+
+    @Test(groups = "fast")
+    public void testCSV() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final TableExportWriter writer = new TableExportWriter("test_table", COLUMNS, TenantExportFormat.CSV);
+
+        final Object[] values = new Object[COLUMNS.size()];
+        writer.startSegment(out);
+        fill(values, 1L, "first|row\n", new byte[]{'Z', 'V'}, new Date(12421982000L), new BigDecimal("12.50"));
+        writer.writeRow(values);
+        fill(values, 2L, null, null, null, null);
+        writer.writeRow(values);
+        writer.endSegment();
+
+        final String csv = CharStreams.toString(new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), StandardCharsets.UTF_8));
+        Assert.assertEquals(csv, "-- test_table record_id|name|properties|created_date|amount\n" +
+                                 "1|first\\N{VERTICAL LINE}row\\N{LINE FEED}|WlY=|1970-05-24T18:33:02.000+0000|12.50\n" +
+                                 "2||||\n");
+    }
+
+    private void fill(final Object[] values, final Object... rowValues) {
+        System.arraycopy(rowValues, 0, values, 0, values.length);
+    }
+}
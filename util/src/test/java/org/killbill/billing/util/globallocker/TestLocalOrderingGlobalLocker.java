@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.killbill.billing.util.globallocker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.LockFailedException;
+import org.killbill.commons.locker.memory.MemoryGlobalLocker;
+import org.killbill.commons.request.Request;
+import org.killbill.commons.request.RequestData;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestLocalOrderingGlobalLocker extends UtilTestSuiteNoDB {
+
+    private static final String SERVICE = LockerType.ACCNT_INV_PAY.toString();
+
+    @Test(groups = "fast")
+    public void testReentrantLock() throws Exception {
+        final LocalOrderingGlobalLocker locker = new LocalOrderingGlobalLocker(new MemoryGlobalLocker(), 1000);
+
+        // Global locks are reentrant per request
+        Request.setPerThreadRequestData(new RequestData(UUID.randomUUID().toString()));
+        try {
+            final GlobalLock lock = locker.lockWithNumberOfTries(SERVICE, "account-1", 1);
+            final GlobalLock reentrantLock = locker.lockWithNumberOfTries(SERVICE, "account-1", 1);
+            Assert.assertFalse(locker.isFree(SERVICE, "account-1"));
+            Assert.assertTrue(locker.isFree(SERVICE, "account-2"));
+
+            reentrantLock.release();
+            Assert.assertFalse(locker.isFree(SERVICE, "account-1"));
+            lock.release();
+            Assert.assertTrue(locker.isFree(SERVICE, "account-1"));
+            Assert.assertEquals(locker.getNbLocalLocks(), 0);
+        } finally {
+            Request.resetPerThreadRequestData();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testLocalTimeout() throws Exception {
+        final LocalOrderingGlobalLocker locker = new LocalOrderingGlobalLocker(new MemoryGlobalLocker(), 50);
+        final GlobalLock lock = locker.lockWithNumberOfTries(SERVICE, "account-1", 1);
+
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        final Thread otherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    locker.lockWithNumberOfTries(SERVICE, "account-1", 1);
+                } catch (final LockFailedException e) {
+                    failures.add(e);
+                }
+            }
+        });
+        otherThread.start();
+        otherThread.join(5000);
+
+        Assert.assertEquals(failures.size(), 1);
+        lock.release();
+        Assert.assertEquals(locker.getNbLocalLocks(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testLocalWaitFollowsRetries() throws Exception {
+        // 10 ms per try
+        final LocalOrderingGlobalLocker locker = new LocalOrderingGlobalLocker(new MemoryGlobalLocker(), 10);
+        final GlobalLock lock = locker.lockWithNumberOfTries(SERVICE, "account-1", 1);
+
+        final List<Boolean> results = Collections.synchronizedList(new ArrayList<Boolean>());
+        final CountDownLatch done = new CountDownLatch(2);
+        for (final int retry : new int[]{1, 1000}) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        locker.lockWithNumberOfTries(SERVICE, "account-1", retry).release();
+                        results.add(true);
+                    } catch (final LockFailedException e) {
+                        results.add(false);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+            thread.start();
+        }
+
+        // A single try gives up after 10 ms, 1000 tries wait for up to 10 s
+        Thread.sleep(500);
+        Assert.assertEquals(results, ImmutableList.<Boolean>of(false));
+        Assert.assertEquals(locker.getNbLocalWaiters(SERVICE, "account-1"), 1);
+
+        lock.release();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(results, ImmutableList.<Boolean>of(false, true));
+        Assert.assertEquals(locker.getNbLocalLocks(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testLocalCallersAreSerializedInOrder() throws Exception {
+        final LocalOrderingGlobalLocker locker = new LocalOrderingGlobalLocker(new MemoryGlobalLocker(), 10000);
+        final GlobalLock firstLock = locker.lockWithNumberOfTries(SERVICE, "account-1", 1);
+
+        final int nbThreads = 5;
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(nbThreads);
+        for (int i = 0; i < nbThreads; i++) {
+            final int threadNb = i;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        // The global lock alone would fail right away (single try)
+                        final GlobalLock lock = locker.lockWithNumberOfTries(SERVICE, "account-1", 1);
+                        order.add(threadNb);
+                        lock.release();
+                    } catch (final LockFailedException e) {
+                        order.add(-1);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+            thread.start();
+            // Make sure the threads queue in order
+            while (locker.getNbLocalWaiters(SERVICE, "account-1") != threadNb + 1) {
+                Thread.sleep(5);
+            }
+        }
+
+        firstLock.release();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        final List<Integer> expectedOrder = new ArrayList<Integer>();
+        for (int i = 0; i < nbThreads; i++) {
+            expectedOrder.add(i);
+        }
+        Assert.assertEquals(order, expectedOrder);
+        Assert.assertEquals(locker.getNbLocalLocks(), 0);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.metrics.LatencyHistogram.LatencySnapshot;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestLatencyHistogram extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testBuckets() throws Exception {
+        int previousIndex = -1;
+        for (long value = 0; value < 100000; value++) {
+            final int index = LatencyHistogram.bucketIndex(value);
+            Assert.assertTrue(index == previousIndex || index == previousIndex + 1, "value=" + value);
+            Assert.assertTrue(LatencyHistogram.bucketLowerBound(index) <= value && value <= LatencyHistogram.bucketUpperBound(index), "value=" + value);
+            previousIndex = index;
+        }
+        Assert.assertEquals(LatencyHistogram.bucketIndex((1L << 36) - 1), LatencyHistogram.NB_BUCKETS - 1);
+    }
+
+    @Test(groups = "fast")
+    public void testPercentiles() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.update(value);
+        }
+        histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(50));
+
+        final LatencySnapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(snapshot.getCount(), 1001);
+        Assert.assertEquals(snapshot.getMax(), 50000);
+        Assert.assertEquals(snapshot.getMin(), 1);
+        // 12.5% precision
+        Assert.assertTrue(Math.abs(snapshot.getMedian() - 501) <= 501 / 8.0, "p50=" + snapshot.getMedian());
+        Assert.assertTrue(Math.abs(snapshot.get99thPercentile() - 991) <= 991 / 8.0, "p99=" + snapshot.get99thPercentile());
+        Assert.assertEquals(snapshot.getValue(1.0), 50000.0);
+        Assert.assertEquals(snapshot.getMean(), (500500 + 50000) / 1001.0, 0.001);
+
+        histogram.reset();
+        Assert.assertEquals(histogram.getSnapshot().getCount(), 0);
+        Assert.assertEquals(histogram.getSnapshot().getValue(0.5), 0.0);
+    }
+
+    @Test(groups = "fast")
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        histogram.update(j % 100);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(histogram.getSnapshot().getCount(), 80000);
+    }
+}
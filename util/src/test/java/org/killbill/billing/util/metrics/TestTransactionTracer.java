@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.commons.locker.GlobalLock;
+import org.killbill.commons.locker.memory.MemoryGlobalLocker;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestTransactionTracer extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testTransactions() throws Exception {
+        final TransactionTracer tracer = new TransactionTracer();
+        tracer.configure(0, 2);
+
+        final String previousOrigin = tracer.enterOrigin("jaxrs.AccountResource.getAccount");
+        final TraceRecord transaction = tracer.startTransaction(false);
+        tracer.recordStatement(1);
+        tracer.recordStatement(ImmutableList.<Object>of("a", "b", "c"));
+        tracer.recordStatement(new int[]{1, 1});
+        Assert.assertEquals(tracer.getInProgress(0), ImmutableList.<TraceRecord>of(transaction));
+
+        // Nested transaction
+        final TraceRecord nestedTransaction = tracer.startTransaction(true);
+        tracer.recordStatement(null);
+        tracer.endTransaction(nestedTransaction, true);
+
+        tracer.recordStatement(new Object());
+        tracer.endTransaction(transaction, false);
+        tracer.exitOrigin(previousOrigin);
+
+        // Not in a transaction
+        tracer.recordStatement(1);
+
+        Assert.assertTrue(tracer.getInProgress(0).isEmpty());
+        final List<TraceRecord> slowRecords = tracer.getSlowRecords(0);
+        Assert.assertEquals(slowRecords, ImmutableList.<TraceRecord>of(transaction, nestedTransaction));
+        Assert.assertEquals(transaction.getOrigin(), "jaxrs.AccountResource.getAccount");
+        Assert.assertEquals(transaction.getNbStatements(), (Integer) 4);
+        Assert.assertEquals(transaction.getNbRowsTouched(), (Long) 7L);
+        Assert.assertFalse(transaction.isFailed());
+        Assert.assertFalse(transaction.getReadOnly());
+        Assert.assertEquals(nestedTransaction.getNbStatements(), (Integer) 1);
+        Assert.assertEquals(nestedTransaction.getNbRowsTouched(), (Long) 0L);
+        Assert.assertTrue(nestedTransaction.isFailed());
+
+        // Ring buffer
+        final TraceRecord lastTransaction = tracer.startTransaction(true);
+        tracer.endTransaction(lastTransaction, false);
+        Assert.assertEquals(tracer.getSlowRecords(0), ImmutableList.<TraceRecord>of(lastTransaction, transaction));
+        Assert.assertEquals(lastTransaction.getOrigin(), Thread.currentThread().getName());
+
+        tracer.clearSlowRecords();
+        Assert.assertTrue(tracer.getSlowRecords(0).isEmpty());
+    }
+
+    @Test(groups = "fast")
+    public void testLocks() throws Exception {
+        final TracingGlobalLocker locker = new TracingGlobalLocker(new MemoryGlobalLocker());
+        final TransactionTracer tracer = TransactionTracer.getInstance();
+
+        // Other tests may be running concurrently
+        final String previousOrigin = tracer.enterOrigin("TestTransactionTracer.testLocks");
+        final GlobalLock lock = locker.lockWithNumberOfTries("TestTransactionTracer", "12345", 1);
+        final TraceRecord transaction = tracer.startTransaction(false);
+
+        List<TraceRecord> inProgress = getInProgress(tracer, "TestTransactionTracer.testLocks");
+        Assert.assertEquals(inProgress.size(), 2);
+        Assert.assertEquals(inProgress.get(0).getType(), TraceRecord.Type.LOCK);
+        Assert.assertEquals(inProgress.get(0).getLockKey(), "12345");
+        Assert.assertTrue(inProgress.get(0).isInProgress());
+        Assert.assertEquals(inProgress.get(1), transaction);
+
+        tracer.endTransaction(transaction, false);
+        lock.release();
+        tracer.exitOrigin(previousOrigin);
+
+        inProgress = getInProgress(tracer, "TestTransactionTracer.testLocks");
+        Assert.assertTrue(inProgress.isEmpty());
+        Assert.assertTrue(locker.isFree("TestTransactionTracer", "12345"));
+        Assert.assertEquals(LatencyMetrics.getInstance().getHistogram("lock.TestTransactionTracer.wait").getSnapshot().getCount(), 1);
+        Assert.assertEquals(LatencyMetrics.getInstance().getHistogram("lock.TestTransactionTracer.held").getSnapshot().getCount(), 1);
+    }
+
+    private List<TraceRecord> getInProgress(final TransactionTracer tracer, final String origin) {
+        final List<TraceRecord> inProgress = new ArrayList<TraceRecord>();
+        for (final TraceRecord record : tracer.getInProgress(0)) {
+            if (origin.equals(record.getOrigin())) {
+                inProgress.add(record);
+            }
+        }
+        return inProgress;
+    }
+}
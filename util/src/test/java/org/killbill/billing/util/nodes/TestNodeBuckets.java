@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.nodes;
+
+import java.util.List;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestNodeBuckets extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testAssignment() throws Exception {
+        final NodeBuckets nodeBuckets = new NodeBuckets(1024, ImmutableList.<String>of("node-c", "node-a", "node-b"));
+        Assert.assertEquals(nodeBuckets.getNodeNames(), ImmutableList.<String>of("node-a", "node-b", "node-c"));
+
+        // All buckets are assigned, and the assignment doesn't depend on the order of the nodes
+        final NodeBuckets sameNodeBuckets = new NodeBuckets(1024, ImmutableList.<String>of("node-a", "node-b", "node-c"));
+        int nbAssigned = 0;
+        for (final String nodeName : nodeBuckets.getNodeNames()) {
+            final List<Integer> buckets = nodeBuckets.getBuckets(nodeName);
+            Assert.assertEquals(sameNodeBuckets.getBuckets(nodeName), buckets);
+            // Roughly balanced
+            Assert.assertTrue(buckets.size() > 1024 / 3 / 2, nodeName + " owns " + buckets.size() + " buckets");
+            nbAssigned += buckets.size();
+        }
+        Assert.assertEquals(nbAssigned, 1024);
+
+        Assert.assertEquals(nodeBuckets.getBucket(1029L), 5);
+        Assert.assertEquals(nodeBuckets.getOwnerForAccount(1029L), nodeBuckets.getOwner(5));
+    }
+
+    @Test(groups = "fast")
+    public void testRebalancing() throws Exception {
+        final NodeBuckets before = new NodeBuckets(1024, ImmutableList.<String>of("node-a", "node-b", "node-c"));
+        final NodeBuckets after = new NodeBuckets(1024, ImmutableList.<String>of("node-a", "node-b", "node-c", "node-d"));
+
+        // Only the buckets picked up by the new node move
+        for (int bucket = 0; bucket < 1024; bucket++) {
+            if (!"node-d".equals(after.getOwner(bucket))) {
+                Assert.assertEquals(after.getOwner(bucket), before.getOwner(bucket));
+            }
+        }
+        Assert.assertTrue(after.getBuckets("node-d").size() > 1024 / 4 / 2);
+
+        // When a node leaves, only its buckets move
+        final NodeBuckets afterLeave = new NodeBuckets(1024, ImmutableList.<String>of("node-a", "node-c"));
+        for (final Integer bucket : before.getBuckets("node-a")) {
+            Assert.assertEquals(afterLeave.getOwner(bucket), "node-a");
+        }
+        Assert.assertTrue(afterLeave.getBuckets("node-b").isEmpty());
+
+        Assert.assertNull(new NodeBuckets(16, ImmutableList.<String>of()).getOwner(0));
+    }
+}
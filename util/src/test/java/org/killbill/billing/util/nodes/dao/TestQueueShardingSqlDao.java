@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.nodes.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.tweak.HandleCallback;
+import org.skife.jdbi.v2.util.StringMapper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestQueueShardingSqlDao extends UtilTestSuiteWithEmbeddedDB {
+
+    private static final String NODE = "node-1";
+    private static final String OTHER_NODE = "node-2";
+    private static final int NB_BUCKETS = 3;
+
+    @Test(groups = "slow")
+    public void testAdoptNotifications() throws Exception {
+        // All notifications are in the future, so no queue will pick them up
+        final Date now = clock.getUTCNow().toDate();
+        final Date soon = clock.getUTCNow().plusSeconds(30).toDate();
+        final Date later = clock.getUTCNow().plusHours(2).toDate();
+        final Date maxEffectiveDate = clock.getUTCNow().plusMinutes(1).toDate();
+
+        // search_key1 (account record id) mod 3: 1, 0, 1, 2, 1, 1, 0
+        insertNotification(1L, "queue-1", OTHER_NODE, "AVAILABLE", soon, now);
+        insertNotification(3L, "queue-1", OTHER_NODE, "AVAILABLE", soon, now);
+        insertNotification(4L, "queue-2", OTHER_NODE, "AVAILABLE", soon, now);
+        insertNotification(5L, "queue-1", OTHER_NODE, "AVAILABLE", soon, now);
+        // Not adopted: too far in the future, already processed, or already local
+        insertNotification(7L, "queue-1", OTHER_NODE, "AVAILABLE", later, now);
+        insertNotification(10L, "queue-1", OTHER_NODE, "PROCESSED", soon, now);
+        insertNotification(12L, "queue-1", NODE, "AVAILABLE", soon, now);
+
+        final List<Integer> buckets = ImmutableList.<Integer>of(0, 1);
+        final int nbAdopted = dbi.withHandle(new HandleCallback<Integer>() {
+            @Override
+            public Integer withHandle(final Handle handle) throws Exception {
+                return handle.attach(QueueShardingSqlDao.class).adoptNotifications("notifications", ImmutableList.<String>of("queue-1"), buckets, NB_BUCKETS, NODE, maxEffectiveDate);
+            }
+        });
+        Assert.assertEquals(nbAdopted, 2);
+        Assert.assertEquals(getCreatingOwners("notifications"), ImmutableList.<String>of(NODE, NODE, OTHER_NODE, OTHER_NODE, OTHER_NODE, OTHER_NODE, NODE));
+
+        final int nbAdoptedAllQueues = dbi.withHandle(new HandleCallback<Integer>() {
+            @Override
+            public Integer withHandle(final Handle handle) throws Exception {
+                return handle.attach(QueueShardingSqlDao.class).adoptAllNotifications("notifications", buckets, NB_BUCKETS, NODE, maxEffectiveDate);
+            }
+        });
+        Assert.assertEquals(nbAdoptedAllQueues, 1);
+        Assert.assertEquals(getCreatingOwners("notifications"), ImmutableList.<String>of(NODE, NODE, NODE, OTHER_NODE, OTHER_NODE, OTHER_NODE, NODE));
+    }
+
+    @Test(groups = "slow")
+    public void testAdoptBusEvents() throws Exception {
+        // Otherwise the bus would claim the events inserted below
+        eventBus.stop();
+
+        final Date now = clock.getUTCNow().toDate();
+
+        // search_key1 (account record id) mod 3: 2, 0, 1
+        insertBusEvent(2L, OTHER_NODE, "AVAILABLE", now);
+        insertBusEvent(3L, OTHER_NODE, "AVAILABLE", now);
+        insertBusEvent(4L, OTHER_NODE, "AVAILABLE", now);
+        // Not adopted: already processed
+        insertBusEvent(6L, OTHER_NODE, "PROCESSED", now);
+
+        final int nbAdopted = dbi.withHandle(new HandleCallback<Integer>() {
+            @Override
+            public Integer withHandle(final Handle handle) throws Exception {
+                return handle.attach(QueueShardingSqlDao.class).adoptBusEvents("bus_events", ImmutableList.<Integer>of(0, 1), NB_BUCKETS, NODE);
+            }
+        });
+        Assert.assertEquals(nbAdopted, 2);
+        Assert.assertEquals(getCreatingOwners("bus_events"), ImmutableList.<String>of(OTHER_NODE, NODE, NODE, OTHER_NODE));
+    }
+
+    private void insertNotification(final Long searchKey1, final String queueName, final String creatingOwner, final String processingState, final Date effectiveDate, final Date createdDate) {
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("insert into notifications (class_name, event_json, created_date, creating_owner, processing_state, search_key1, search_key2, queue_name, effective_date) values (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                               "className", "{}", createdDate, creatingOwner, processingState, searchKey1, 1L, queueName, effectiveDate);
+                return null;
+            }
+        });
+    }
+
+    private void insertBusEvent(final Long searchKey1, final String creatingOwner, final String processingState, final Date createdDate) {
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                handle.execute("insert into bus_events (class_name, event_json, created_date, creating_owner, processing_state, search_key1, search_key2) values (?, ?, ?, ?, ?, ?, ?)",
+                               "className", "{}", createdDate, creatingOwner, processingState, searchKey1, 1L);
+                return null;
+            }
+        });
+    }
+
+    private List<String> getCreatingOwners(final String tableName) {
+        return dbi.withHandle(new HandleCallback<List<String>>() {
+            @Override
+            public List<String> withHandle(final Handle handle) throws Exception {
+                return handle.createQuery("select creating_owner from " + tableName + " order by record_id")
+                             .map(StringMapper.FIRST)
+                             .list();
+            }
+        });
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.search;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.config.definition.SearchConfig;
+import org.skife.config.ConfigurationObjectFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestNGramSearchIndex extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testSearch() throws Exception {
+        final NGramSearchIndex searchIndex = createSearchIndex(2, "1h");
+        final Long tenantRecordId = 1L;
+        Assert.assertNull(searchIndex.search(tenantRecordId, "john"));
+
+        searchIndex.load(tenantRecordId,
+                         ImmutableList.<SearchDocument>of(document(1L, "id-1", "John Doe", "john@example.com"),
+                                                          document(2L, "id-2", "Jane Doe", null),
+                                                          document(3L, "id-3", "Johnny", "JOHNNY@EXAMPLE.COM")).iterator(),
+                         10L);
+        Assert.assertEquals(searchIndex.getCheckpoint(tenantRecordId), (Long) 10L);
+        Assert.assertEquals(searchIndex.size(tenantRecordId), (Long) 3L);
+
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "john"), new long[]{1L, 3L});
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "DOE"), new long[]{1L, 2L});
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "e@example"), new long[]{});
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "n@example"), new long[]{1L});
+        // Short search keys, exact values
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "ny"), new long[]{3L});
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "id-2"), new long[]{2L});
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "id-"), new long[]{});
+        // Not contained in a single value
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "doe john"), new long[]{});
+
+        searchIndex.update(tenantRecordId,
+                           ImmutableList.<SearchDocument>of(document(2L, "id-2", "Jane Smith", null), document(4L, "id-4", "Bob Doe", null)),
+                           ImmutableList.<Long>of(1L),
+                           12L);
+        Assert.assertEquals(searchIndex.getCheckpoint(tenantRecordId), (Long) 12L);
+        // Still within the catch-up window
+        Assert.assertEquals(searchIndex.getCatchUpCheckpoint(tenantRecordId), (Long) 10L);
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "doe"), new long[]{4L});
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "smith"), new long[]{2L});
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "john"), new long[]{3L});
+
+        // Unknown tenants are ignored, least recently used tenants are evicted
+        searchIndex.update(2L, ImmutableList.<SearchDocument>of(document(5L, "id-5", "Doe", null)), ImmutableList.<Long>of(), 1L);
+        Assert.assertNull(searchIndex.search(2L, "doe"));
+        searchIndex.load(2L, ImmutableList.<SearchDocument>of().iterator(), 0L);
+        searchIndex.load(3L, ImmutableList.<SearchDocument>of().iterator(), 0L);
+        Assert.assertNull(searchIndex.getCheckpoint(tenantRecordId));
+    }
+
+    @Test(groups = "fast")
+    public void testSearchWithWildcards() throws Exception {
+        final NGramSearchIndex searchIndex = createSearchIndex(2, "1h");
+        final Long tenantRecordId = 1L;
+        searchIndex.load(tenantRecordId,
+                         ImmutableList.<SearchDocument>of(document(1L, "id-1", "John Doe", "john@example.com"),
+                                                          document(2L, "id-2", "Jane Doe", "jane@example.org"),
+                                                          document(3L, "id-3", "50% off", null)).iterator(),
+                         10L);
+
+        // Same semantics as the LIKE of the database fallback
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "j%doe"), new long[]{1L, 2L});
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "j_n"), new long[]{2L});
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "@example.%m"), new long[]{1L});
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "%"), new long[]{1L, 2L, 3L});
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "50%"), new long[]{3L});
+        // Literal parts are quoted
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "example.c"), new long[]{1L});
+        Assert.assertEquals(searchIndex.search(tenantRecordId, "example.c%"), new long[]{1L});
+    }
+
+    @Test(groups = "fast")
+    public void testCatchUpCheckpoint() throws Exception {
+        final NGramSearchIndex searchIndex = createSearchIndex(2, "0s");
+        final Long tenantRecordId = 1L;
+        Assert.assertNull(searchIndex.getCatchUpCheckpoint(tenantRecordId));
+
+        searchIndex.load(tenantRecordId, ImmutableList.<SearchDocument>of().iterator(), 10L);
+        searchIndex.update(tenantRecordId, ImmutableList.<SearchDocument>of(), ImmutableList.<Long>of(), 12L);
+        Thread.sleep(5);
+
+        // Outside of the catch-up window
+        Assert.assertEquals(searchIndex.getCatchUpCheckpoint(tenantRecordId), (Long) 12L);
+    }
+
+    private SearchDocument document(final Long recordId, final String id, final String name, final String email) {
+        return new SearchDocument(recordId, Arrays.asList(id), Arrays.asList(name, email));
+    }
+
+    private NGramSearchIndex createSearchIndex(final int maxTenants, final String catchUpWindow) {
+        final Properties properties = new Properties();
+        properties.setProperty("org.killbill.billing.util.search.index.enabled", "true");
+        properties.setProperty("org.killbill.billing.util.search.index.maxTenants", String.valueOf(maxTenants));
+        properties.setProperty("org.killbill.billing.util.search.index.catchUpWindow", catchUpWindow);
+        return new NGramSearchIndex(new ConfigurationObjectFactory(properties).build(SearchConfig.class));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014-2018 Groupon, Inc
+ * Copyright 2014-2018 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.security.shiro;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.authc.credential.CredentialsMatcher;
+import org.apache.shiro.authc.credential.SimpleCredentialsMatcher;
+import org.apache.shiro.cache.MemoryConstrainedCacheManager;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestCachingCredentialsMatcher extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testVerifiedCredentialsAreCached() throws Exception {
+        final CountingCredentialsMatcher delegate = new CountingCredentialsMatcher();
+        final CachingCredentialsMatcher matcher = new CachingCredentialsMatcher(delegate, 60000L, "secret");
+        matcher.setCacheManager(new MemoryConstrainedCacheManager());
+
+        final AuthenticationInfo info = new SimpleAuthenticationInfo("toto", "password".toCharArray(), "realm");
+        final AuthenticationToken goodToken = new UsernamePasswordToken("toto", "password");
+        final AuthenticationToken badToken = new UsernamePasswordToken("toto", "wrong");
+
+        Assert.assertTrue(matcher.doCredentialsMatch(goodToken, info));
+        Assert.assertTrue(matcher.doCredentialsMatch(goodToken, info));
+        Assert.assertEquals(delegate.nbCalls.get(), 1);
+
+        // Wrong credentials are always verified
+        Assert.assertFalse(matcher.doCredentialsMatch(badToken, info));
+        Assert.assertFalse(matcher.doCredentialsMatch(badToken, info));
+        Assert.assertEquals(delegate.nbCalls.get(), 3);
+
+        // New stored credentials (password change)
+        final AuthenticationInfo newInfo = new SimpleAuthenticationInfo("toto", "newPassword".toCharArray(), "realm");
+        Assert.assertFalse(matcher.doCredentialsMatch(goodToken, newInfo));
+        Assert.assertEquals(delegate.nbCalls.get(), 4);
+
+        // Explicit invalidation
+        Assert.assertTrue(matcher.doCredentialsMatch(goodToken, info));
+        Assert.assertEquals(delegate.nbCalls.get(), 4);
+        matcher.invalidate("toto");
+        Assert.assertTrue(matcher.doCredentialsMatch(goodToken, info));
+        Assert.assertEquals(delegate.nbCalls.get(), 5);
+    }
+
+    @Test(groups = "fast")
+    public void testExpiredEntriesAreVerifiedAgain() throws Exception {
+        final CountingCredentialsMatcher delegate = new CountingCredentialsMatcher();
+        final CachingCredentialsMatcher matcher = new CachingCredentialsMatcher(delegate, 1L, null);
+        matcher.setCacheManager(new MemoryConstrainedCacheManager());
+
+        final AuthenticationInfo info = new SimpleAuthenticationInfo("toto", "password".toCharArray(), "realm");
+        final AuthenticationToken goodToken = new UsernamePasswordToken("toto", "password");
+
+        Assert.assertTrue(matcher.doCredentialsMatch(goodToken, info));
+        Thread.sleep(10);
+        Assert.assertTrue(matcher.doCredentialsMatch(goodToken, info));
+        Assert.assertEquals(delegate.nbCalls.get(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testDisabledWithoutCacheManager() throws Exception {
+        final CountingCredentialsMatcher delegate = new CountingCredentialsMatcher();
+        final CachingCredentialsMatcher matcher = new CachingCredentialsMatcher(delegate, 60000L, null);
+
+        final AuthenticationInfo info = new SimpleAuthenticationInfo("toto", "password".toCharArray(), "realm");
+        final AuthenticationToken goodToken = new UsernamePasswordToken("toto", "password");
+
+        Assert.assertTrue(matcher.doCredentialsMatch(goodToken, info));
+        Assert.assertTrue(matcher.doCredentialsMatch(goodToken, info));
+        Assert.assertEquals(delegate.nbCalls.get(), 2);
+    }
+
+    private static final class CountingCredentialsMatcher implements CredentialsMatcher {
+
+        private final CredentialsMatcher delegate = new SimpleCredentialsMatcher();
+        private final AtomicInteger nbCalls = new AtomicInteger();
+
+        @Override
+        public boolean doCredentialsMatch(final AuthenticationToken token, final AuthenticationInfo info) {
+            nbCalls.incrementAndGet();
+            return delegate.doCredentialsMatch(token, info);
+        }
+    }
+}
@@ -34,8 +34,10 @@ import org.killbill.billing.util.entity.dao.MockEntityDaoBase;
 import org.killbill.billing.util.tag.Tag;
 
 import com.google.common.base.Predicate;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
 
 public class MockTagDao extends MockEntityDaoBase<TagModelDao, Tag, TagApiException> implements TagDao {
 
@@ -108,6 +110,25 @@ public class MockTagDao extends MockEntityDaoBase<TagModelDao, Tag, TagApiExcept
         return tagStore.get(getAccountId(internalTenantContext.getAccountRecordId()));
     }
 
+    @Override
+    public List<TagModelDao> getCachedTagsForAccountType(final ObjectType objectType, final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
+        return getTagsForAccountType(objectType, includedDeleted, internalTenantContext);
+    }
+
+    @Override
+    public List<TagModelDao> getCachedTagsForAccount(final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
+        return getTagsForAccount(includedDeleted, internalTenantContext);
+    }
+
+    @Override
+    public ListMultimap<UUID, TagModelDao> getTagsByObjectForAccount(final boolean includedDeleted, final InternalTenantContext internalTenantContext) {
+        final ListMultimap<UUID, TagModelDao> result = ArrayListMultimap.<UUID, TagModelDao>create();
+        for (final TagModelDao tag : getTagsForAccount(includedDeleted, internalTenantContext)) {
+            result.put(tag.getObjectId(), tag);
+        }
+        return result;
+    }
+
     @Override
     public List<AuditLogWithHistory> getTagAuditLogsWithHistoryForId(final UUID tagId, final AuditLevel auditLevel, final InternalTenantContext context) {
         throw new UnsupportedOperationException();
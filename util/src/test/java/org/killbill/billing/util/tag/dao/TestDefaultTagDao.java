@@ -29,10 +29,14 @@ import org.killbill.billing.api.TestApiListener.NextEvent;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
 import org.killbill.billing.util.api.TagApiException;
 import org.killbill.billing.util.api.TagDefinitionApiException;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.DescriptiveTag;
 import org.killbill.billing.util.tag.Tag;
 
+import com.google.common.collect.ListMultimap;
+
 import static org.testng.Assert.assertEquals;
 
 public class TestDefaultTagDao extends UtilTestSuiteWithEmbeddedDB {
@@ -185,4 +189,41 @@ public class TestDefaultTagDao extends UtilTestSuiteWithEmbeddedDB {
         }
     }
 
+    @Test(groups = "slow")
+    public void testGetTagsByObjectForAccount() throws TagApiException {
+        final UUID objectId1 = UUID.randomUUID();
+        final UUID objectId2 = UUID.randomUUID();
+        final UUID objectId3 = UUID.randomUUID();
+        final ObjectType objectType = ObjectType.ACCOUNT;
+        final CacheController<Object, Object> accountTagsCache = controlCacheDispatcher.getCacheController(CacheType.ACCOUNT_TAGS);
+
+        eventsListener.pushExpectedEvents(NextEvent.TAG, NextEvent.TAG, NextEvent.TAG);
+        tagDao.create(new TagModelDao(new DescriptiveTag(ControlTagType.AUTO_INVOICING_OFF.getId(), objectType, objectId1, internalCallContext.getCreatedDate())), internalCallContext);
+        tagDao.create(new TagModelDao(new DescriptiveTag(ControlTagType.AUTO_PAY_OFF.getId(), objectType, objectId1, internalCallContext.getCreatedDate())), internalCallContext);
+        tagDao.create(new TagModelDao(new DescriptiveTag(ControlTagType.AUTO_INVOICING_OFF.getId(), objectType, objectId2, internalCallContext.getCreatedDate())), internalCallContext);
+        assertListenerStatus();
+
+        final ListMultimap<UUID, TagModelDao> tagsByObject = tagDao.getTagsByObjectForAccount(false, internalCallContext);
+        Assert.assertEquals(tagsByObject.get(objectId1).size(), 2);
+        Assert.assertEquals(tagsByObject.get(objectId2).size(), 1);
+        Assert.assertEquals(tagsByObject.get(objectId3).size(), 0);
+
+        // The internal reads don't go through the account cache
+        Assert.assertEquals(tagDao.getTagsForAccount(false, internalCallContext).size(), 3);
+        Assert.assertEquals(tagDao.getTagsForAccountType(ObjectType.ACCOUNT, false, internalCallContext).size(), 3);
+        Assert.assertFalse(accountTagsCache.isKeyInCache(internalCallContext.getAccountRecordId()));
+
+        // Populate the account cache
+        Assert.assertEquals(tagDao.getCachedTagsForAccount(false, internalCallContext).size(), 3);
+        Assert.assertTrue(accountTagsCache.isKeyInCache(internalCallContext.getAccountRecordId()));
+
+        eventsListener.pushExpectedEvent(NextEvent.TAG);
+        tagDao.deleteTag(objectId2, objectType, ControlTagType.AUTO_INVOICING_OFF.getId(), internalCallContext);
+        assertListenerStatus();
+
+        Assert.assertEquals(tagDao.getTagsByObjectForAccount(false, internalCallContext).get(objectId2).size(), 0);
+        Assert.assertEquals(tagDao.getTagsByObjectForAccount(false, internalCallContext).get(objectId1).size(), 2);
+        Assert.assertEquals(tagDao.getTagsByObjectForAccount(true, internalCallContext).get(objectId2).size(), 1);
+        Assert.assertEquals(tagDao.getCachedTagsForAccountType(ObjectType.ACCOUNT, false, internalCallContext).size(), 2);
+    }
 }